@@ -22,16 +22,19 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 
 import android.content.Context;
+import android.support.annotation.NonNull;
 import android.support.test.InstrumentationRegistry;
 import android.support.test.filters.MediumTest;
 import android.support.test.runner.AndroidJUnit4;
 
 import com.github.mkjensen.dml.R;
 import com.github.mkjensen.dml.model.Category;
+import com.github.mkjensen.dml.model.ModelJsonAdapters;
 import com.github.mkjensen.dml.model.Protocol;
 import com.github.mkjensen.dml.model.Video;
 import com.github.mkjensen.dml.model.VideoManifest;
 import com.github.mkjensen.dml.test.ResourceUtils;
+import com.squareup.moshi.Moshi;
 
 import okhttp3.Call;
 
@@ -46,6 +49,7 @@ import retrofit2.Retrofit;
 import retrofit2.converter.moshi.MoshiConverterFactory;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.List;
 
 /**
@@ -58,19 +62,26 @@ public class BackendHelperAndroidTest {
   @Rule
   public final ExpectedException thrown = ExpectedException.none();
 
-  private static final Converter.Factory CONVERTER_FACTORY = MoshiConverterFactory.create();
+  private static final Converter.Factory CONVERTER_FACTORY = MoshiConverterFactory.create(
+      new Moshi.Builder().add(ModelJsonAdapters.FACTORY).build());
 
   private static final String BASE_URL = "http://test.com/";
 
-  private static final String MOST_VIEWED_CATEGORY_URL = BASE_URL + "list/view/mostviewed";
+  private static final String FIRST_PAGE = "?limit=" + BackendHelper.PAGE_SIZE + "&offset=0";
 
-  private static final String NEW_CATEGORY_URL = BASE_URL + "list/view/news";
+  private static final String MOST_VIEWED_CATEGORY_URL = BASE_URL + "list/view/mostviewed"
+      + FIRST_PAGE;
 
-  private static final String RECOMMENDED_CATEGORY_URL = BASE_URL + "list/view/selectedlist";
+  private static final String NEW_CATEGORY_URL = BASE_URL + "list/view/news"
+      + FIRST_PAGE;
+
+  private static final String RECOMMENDED_CATEGORY_URL = BASE_URL + "list/view/selectedlist"
+      + FIRST_PAGE;
 
   private static final String VIDEO_URL = BASE_URL + "programcard/test";
 
-  private static final String SEARCH_URL = BASE_URL + "search/tv/programcards-with-asset/title/q";
+  private static final String SEARCH_URL = BASE_URL + "search/tv/programcards-with-asset/title/q"
+      + FIRST_PAGE;
 
   private Context context;
 
@@ -283,6 +294,38 @@ public class BackendHelperAndroidTest {
     assertEquals("http://hls.com/mp4", stream.getUrl());
   }
 
+  @Test
+  public void loadMostViewedCategoryPage_whenHttpOk_thenRequestsPageAndReturnsTotalSize()
+      throws IOException {
+
+    // Given
+    String url = BASE_URL + "list/view/mostviewed?limit=" + BackendHelper.PAGE_SIZE
+        + "&offset=" + BackendHelper.PAGE_SIZE;
+    BackendHelper backendHelper = createBackendHelper(url, HTTP_OK,
+        com.github.mkjensen.dml.test.R.raw.category);
+
+    // When
+    Category category = backendHelper.loadMostViewedCategoryPage(BackendHelper.PAGE_SIZE);
+
+    // Then
+    assertEquals(context.getString(R.string.backend_category_most_viewed),
+        category.getTitle());
+    assertEquals(1, category.getVideos().size());
+    assertEquals(42, category.getTotalSize());
+  }
+
+  @Test
+  public void loadMostViewedCategoryPage_whenNegativeOffset_thenThrowsIllegalArgumentException()
+      throws IOException {
+
+    // Given
+    BackendHelper backendHelper = createBackendHelper(null);
+
+    // When/then
+    thrown.expect(IllegalArgumentException.class);
+    backendHelper.loadMostViewedCategoryPage(-1);
+  }
+
   @Test
   public void search_whenHttpNotFound_thenThrowsIoException() throws IOException {
 
@@ -319,6 +362,31 @@ public class BackendHelperAndroidTest {
     assertEquals("http://manifest.com", video.getManifestUrl());
   }
 
+  @Test
+  public void streamSearch_whenHttpOk_thenPublishesVideosAndReturnsCategory() throws IOException {
+
+    // Given
+    BackendHelper backendHelper = createBackendHelper(SEARCH_URL, HTTP_OK,
+        com.github.mkjensen.dml.test.R.raw.search);
+    final List<Video> published = new ArrayList<>();
+
+    // When
+    Category category = backendHelper.streamSearch("q", new VideoBatchListener() {
+      @Override
+      public void onVideos(@NonNull String title, @NonNull List<Video> videos) {
+        assertEquals("q", title);
+        published.addAll(videos);
+      }
+    });
+
+    // Then
+    assertEquals("q", category.getTitle());
+    assertEquals(category.getVideos(), published);
+    assertEquals(1, published.size());
+    assertEquals("id", published.get(0).getId());
+    assertEquals("http://manifest.com", published.get(0).getManifestUrl());
+  }
+
   private BackendHelper createBackendHelper(String url, int code) {
     return createBackendHelper(url, code, null);
   }
@@ -0,0 +1,346 @@
+/*
+ * Copyright 2016 Martin Kamp Jensen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.mkjensen.dml.backend;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import android.content.Context;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.filters.MediumTest;
+import android.support.test.runner.AndroidJUnit4;
+
+import com.github.mkjensen.dml.model.Category;
+import com.github.mkjensen.dml.model.Protocol;
+import com.github.mkjensen.dml.model.Video;
+import com.github.mkjensen.dml.model.VideoManifest;
+import com.github.mkjensen.dml.util.Clock;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.junit.runner.RunWith;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Instrumentation tests for {@link CatalogStore}.
+ */
+@RunWith(AndroidJUnit4.class)
+@MediumTest
+public class CatalogStoreAndroidTest {
+
+  private static final String DATABASE_NAME = "CatalogStoreAndroidTest.db";
+
+  private static final long VIDEO_MAX_AGE_IN_MILLISECONDS = TimeUnit.DAYS.toMillis(7);
+
+  @Rule
+  public final ExpectedException thrown = ExpectedException.none();
+
+  private Context context;
+
+  private TestClock clock;
+
+  private CatalogStore store;
+
+  @Before
+  public void before() {
+    context = InstrumentationRegistry.getTargetContext();
+    context.deleteDatabase(DATABASE_NAME);
+    clock = new TestClock();
+    clock.now = TimeUnit.DAYS.toMillis(365);
+    store = new CatalogStore(context, DATABASE_NAME, clock);
+  }
+
+  @After
+  public void after() {
+    store.close();
+    context.deleteDatabase(DATABASE_NAME);
+  }
+
+  @Test
+  public void constructor_whenCalledWithNullContext_thenThrowsIllegalArgumentException() {
+
+    // When/then
+    thrown.expect(IllegalArgumentException.class);
+    //noinspection ConstantConditions
+    new CatalogStore(null);
+  }
+
+  @Test
+  public void readCategory_whenNotStored_thenReturnsNull() {
+
+    // When
+    Category category = store.readCategory("key");
+
+    // Then
+    assertNull(category);
+  }
+
+  @Test
+  public void readCategory_whenStored_thenReturnsCategoryWithVideosInOrder() {
+
+    // Given
+    store.writeCategory("key", createCategory("Nyheder", 10,
+        createVideo("b", "Bl\u00e5 bog"), createVideo("a", "Alfa")));
+
+    // When
+    Category category = store.readCategory("key");
+
+    // Then
+    assertEquals("Nyheder", category.getTitle());
+    assertEquals(10, category.getTotalSize());
+    List<Video> videos = category.getVideos();
+    assertEquals(2, videos.size());
+    assertEquals("b", videos.get(0).getId());
+    assertEquals("Bl\u00e5 bog", videos.get(0).getTitle());
+    assertEquals("http://image.com/b", videos.get(0).getImageUrl());
+    assertEquals("a", videos.get(1).getId());
+  }
+
+  @Test
+  public void readCategory_whenStored_thenLazyFieldsAreNotDecodedUntilAccessed() {
+
+    // Given
+    store.writeCategory("key", createCategory("Nyheder", 1, createVideo("a", "Alfa")));
+
+    // When
+    Video video = store.readCategory("key").getVideos().get(0);
+
+    // Then
+    assertTrue(video.getLazyFieldsSize() > 0);
+    assertEquals("Description of a", video.getDescription());
+    assertEquals("http://manifest.com/a", video.getManifestUrl());
+  }
+
+  @Test
+  public void readCategory_whenStoredByEarlierStore_thenReturnsCategory() {
+
+    // Given
+    store.writeCategory("key", createCategory("Nyheder", 1, createVideo("a", "Alfa")));
+    store.close();
+    store = new CatalogStore(context, DATABASE_NAME, clock);
+
+    // When
+    Category category = store.readCategory("key");
+
+    // Then
+    assertEquals(1, category.getVideos().size());
+    assertEquals("a", category.getVideos().get(0).getId());
+  }
+
+  @Test
+  public void writeCategory_whenAlreadyStored_thenReplacesCategoryAndItsVideos() {
+
+    // Given
+    store.writeCategory("key", createCategory("Old", 2,
+        createVideo("a", "Alfa"), createVideo("b", "Beta")));
+
+    // When
+    store.writeCategory("key", createCategory("New", 1, createVideo("c", "Gamma")));
+
+    // Then
+    Category category = store.readCategory("key");
+    assertEquals("New", category.getTitle());
+    assertEquals(1, category.getTotalSize());
+    assertEquals(1, category.getVideos().size());
+    assertEquals("c", category.getVideos().get(0).getId());
+  }
+
+  @Test
+  public void writeVideo_whenAlreadyStored_thenReplacesVideoInCategories() {
+
+    // Given
+    store.writeCategory("key", createCategory("Nyheder", 1, createVideo("a", "Alfa")));
+
+    // When
+    store.writeVideo(createVideo("a", "Alfa 2"));
+
+    // Then
+    assertEquals("Alfa 2", store.readVideo("a").getTitle());
+    assertEquals("Alfa 2", store.readCategory("key").getVideos().get(0).getTitle());
+    assertEquals(1, store.readVideos().size());
+  }
+
+  @Test
+  public void readVideo_whenNotStored_thenReturnsNull() {
+
+    // When
+    Video video = store.readVideo("a");
+
+    // Then
+    assertNull(video);
+  }
+
+  @Test
+  public void readVideos_whenStored_thenReturnsVideosWithoutLazyFields() {
+
+    // Given
+    store.writeCategory("key", createCategory("Nyheder", 1, createVideo("a", "Alfa")));
+
+    // When
+    List<Video> videos = store.readVideos();
+
+    // Then
+    assertEquals(1, videos.size());
+    Video video = videos.get(0);
+    assertEquals("a", video.getId());
+    assertEquals("Alfa", video.getTitle());
+    assertEquals("http://image.com/a", video.getImageUrl());
+    assertEquals(0, video.getLazyFieldsSize());
+    assertEquals(Video.NOT_SET, video.getDescription());
+    assertEquals(Video.NOT_SET, video.getManifestUrl());
+  }
+
+  @Test
+  public void readManifest_whenFresh_thenReturnsStreamsInOrder() {
+
+    // Given
+    store.writeManifest("url", createManifest());
+    clock.now += CatalogStore.MANIFEST_MAX_AGE_IN_MILLISECONDS;
+
+    // When
+    VideoManifest manifest = store.readManifest("url");
+
+    // Then
+    List<VideoManifest.Stream> streams = manifest.getStreams();
+    assertEquals(2, streams.size());
+    assertEquals(Protocol.HLS, streams.get(0).getProtocol());
+    assertEquals("http://stream.com/hls", streams.get(0).getUrl());
+    assertEquals(Protocol.UNKNOWN, streams.get(1).getProtocol());
+    assertEquals("http://stream.com/other", streams.get(1).getUrl());
+  }
+
+  @Test
+  public void readManifest_whenOlderThanMaxAge_thenReturnsNull() {
+
+    // Given
+    store.writeManifest("url", createManifest());
+    clock.now += CatalogStore.MANIFEST_MAX_AGE_IN_MILLISECONDS + 1L;
+
+    // When
+    VideoManifest manifest = store.readManifest("url");
+
+    // Then
+    assertNull(manifest);
+  }
+
+  @Test
+  public void prune_whenVideoIsOldAndNotInCategory_thenDeletesIt() {
+
+    // Given
+    store.writeVideo(createVideo("a", "Alfa"));
+    clock.now += VIDEO_MAX_AGE_IN_MILLISECONDS + 1L;
+
+    // When
+    store.prune(VIDEO_MAX_AGE_IN_MILLISECONDS);
+
+    // Then
+    assertNull(store.readVideo("a"));
+  }
+
+  @Test
+  public void prune_whenVideoIsOldButInCategory_thenKeepsIt() {
+
+    // Given
+    store.writeCategory("key", createCategory("Nyheder", 1, createVideo("a", "Alfa")));
+    clock.now += VIDEO_MAX_AGE_IN_MILLISECONDS + 1L;
+
+    // When
+    store.prune(VIDEO_MAX_AGE_IN_MILLISECONDS);
+
+    // Then
+    assertEquals("Alfa", store.readVideo("a").getTitle());
+  }
+
+  @Test
+  public void prune_whenVideoIsRecent_thenKeepsIt() {
+
+    // Given
+    store.writeVideo(createVideo("a", "Alfa"));
+    clock.now += VIDEO_MAX_AGE_IN_MILLISECONDS;
+
+    // When
+    store.prune(VIDEO_MAX_AGE_IN_MILLISECONDS);
+
+    // Then
+    assertEquals("Alfa", store.readVideo("a").getTitle());
+  }
+
+  @Test
+  public void prune_whenManifestExpired_thenDeletesIt() {
+
+    // Given
+    store.writeManifest("old", createManifest());
+    clock.now += CatalogStore.MANIFEST_MAX_AGE_IN_MILLISECONDS + 1L;
+    store.writeManifest("new", createManifest());
+
+    // When
+    store.prune(VIDEO_MAX_AGE_IN_MILLISECONDS);
+
+    // Then
+    // Go back in time so that a manifest that was not deleted would be fresh again.
+    clock.now -= CatalogStore.MANIFEST_MAX_AGE_IN_MILLISECONDS + 1L;
+    assertNull(store.readManifest("old"));
+    assertEquals(2, store.readManifest("new").getStreams().size());
+  }
+
+  private static Category createCategory(String title, int totalSize, Video... videos) {
+    Category category = new Category();
+    category.setTitle(title);
+    category.setTotalSize(totalSize);
+    category.setVideos(Arrays.asList(videos));
+    return category;
+  }
+
+  private static Video createVideo(String id, String title) {
+    Video video = new Video();
+    video.setId(id);
+    video.setTitle(title);
+    video.setDescription("Description of " + id);
+    video.setImageUrl("http://image.com/" + id);
+    video.setManifestUrl("http://manifest.com/" + id);
+    return video;
+  }
+
+  private static VideoManifest createManifest() {
+    VideoManifest.Stream hls = new VideoManifest.Stream();
+    hls.setProtocol(Protocol.HLS);
+    hls.setUrl("http://stream.com/hls");
+    VideoManifest.Stream other = new VideoManifest.Stream();
+    other.setProtocol(Protocol.UNKNOWN);
+    other.setUrl("http://stream.com/other");
+    VideoManifest manifest = new VideoManifest();
+    manifest.setStreams(Arrays.asList(hls, other));
+    return manifest;
+  }
+
+  private static final class TestClock implements Clock {
+
+    long now;
+
+    @Override
+    public long elapsedMillis() {
+      return now;
+    }
+  }
+}
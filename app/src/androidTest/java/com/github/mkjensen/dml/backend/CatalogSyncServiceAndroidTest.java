@@ -0,0 +1,143 @@
+/*
+ * Copyright 2016 Martin Kamp Jensen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.mkjensen.dml.backend;
+
+import static java.net.HttpURLConnection.HTTP_OK;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import android.app.job.JobInfo;
+import android.app.job.JobScheduler;
+import android.content.Context;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.filters.SmallTest;
+import android.support.test.runner.AndroidJUnit4;
+
+import com.github.mkjensen.dml.R;
+import com.github.mkjensen.dml.model.Category;
+import com.github.mkjensen.dml.model.ModelJsonAdapters;
+import com.github.mkjensen.dml.test.ResourceUtils;
+import com.squareup.moshi.Moshi;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import retrofit2.Retrofit;
+import retrofit2.converter.moshi.MoshiConverterFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Instrumentation tests for {@link CatalogSyncService}.
+ */
+@RunWith(AndroidJUnit4.class)
+@SmallTest
+public class CatalogSyncServiceAndroidTest {
+
+  private Context context;
+
+  private JobScheduler scheduler;
+
+  @Before
+  public void before() {
+    context = InstrumentationRegistry.getTargetContext();
+    scheduler = (JobScheduler) context.getSystemService(Context.JOB_SCHEDULER_SERVICE);
+    scheduler.cancel(CatalogSyncService.JOB_ID);
+  }
+
+  @After
+  public void after() {
+    scheduler.cancel(CatalogSyncService.JOB_ID);
+  }
+
+  @Test
+  public void schedule_whenNotScheduled_thenSchedulesPeriodicJobRequiringNetwork() {
+
+    // When
+    CatalogSyncService.schedule(context);
+
+    // Then
+    List<JobInfo> jobs = getSyncJobs();
+    assertEquals(1, jobs.size());
+    assertTrue(jobs.get(0).isPeriodic());
+    assertEquals(JobInfo.NETWORK_TYPE_ANY, jobs.get(0).getNetworkType());
+  }
+
+  @Test
+  public void schedule_whenAlreadyScheduled_thenKeepsSingleJob() {
+
+    // Given
+    CatalogSyncService.schedule(context);
+
+    // When
+    CatalogSyncService.schedule(context);
+
+    // Then
+    assertEquals(1, getSyncJobs().size());
+  }
+
+  @Test
+  public void sync_whenCategoriesLoaded_thenWritesHomeSnapshot() {
+
+    // Given
+    BackendHelper backendHelper = createBackendHelper();
+    backendHelper.getHomeSnapshot().delete();
+
+    // When
+    boolean synced = CatalogSyncService.sync(backendHelper);
+
+    // Then
+    assertTrue(synced);
+    List<Category> snapshot = backendHelper.getHomeSnapshot().read();
+    backendHelper.getHomeSnapshot().delete();
+    assertNotNull(snapshot);
+    assertEquals(3, snapshot.size());
+    assertEquals(context.getString(R.string.backend_category_new), snapshot.get(0).getTitle());
+    assertEquals(context.getString(R.string.backend_category_most_viewed),
+        snapshot.get(2).getTitle());
+  }
+
+  private BackendHelper createBackendHelper() {
+    LocalCallFactory callFactory = LocalCallFactory.newBuilder()
+        .forAnyUrl()
+        .code(HTTP_OK)
+        .responseBody(ResourceUtils.loadAsString(com.github.mkjensen.dml.test.R.raw.category))
+        .up()
+        .build();
+    Retrofit retrofit = new Retrofit.Builder()
+        .addConverterFactory(MoshiConverterFactory.create(
+            new Moshi.Builder().add(ModelJsonAdapters.FACTORY).build()))
+        .baseUrl("http://test.com/")
+        .callFactory(callFactory)
+        .build();
+    return new BackendHelper(context, retrofit);
+  }
+
+  private List<JobInfo> getSyncJobs() {
+    List<JobInfo> jobs = new ArrayList<>();
+    for (JobInfo job : scheduler.getAllPendingJobs()) {
+      if (job.getId() == CatalogSyncService.JOB_ID) {
+        jobs.add(job);
+      }
+    }
+    return jobs;
+  }
+}
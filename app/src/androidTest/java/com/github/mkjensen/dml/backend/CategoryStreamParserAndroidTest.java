@@ -0,0 +1,113 @@
+/*
+ * Copyright 2016 Martin Kamp Jensen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.mkjensen.dml.backend;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+import android.support.annotation.NonNull;
+import android.support.test.filters.SmallTest;
+import android.support.test.runner.AndroidJUnit4;
+
+import com.github.mkjensen.dml.model.Category;
+import com.github.mkjensen.dml.model.ListItem;
+import com.github.mkjensen.dml.model.ModelJsonAdapters;
+import com.github.mkjensen.dml.model.Video;
+import com.squareup.moshi.Moshi;
+
+import okio.Buffer;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Instrumentation tests for {@link CategoryStreamParser}.
+ */
+@RunWith(AndroidJUnit4.class)
+@SmallTest
+public class CategoryStreamParserAndroidTest {
+
+  private CategoryStreamParser parser;
+
+  private List<Integer> batchSizes;
+
+  private VideoBatchListener listener;
+
+  @Before
+  public void before() {
+    Moshi moshi = new Moshi.Builder().add(ModelJsonAdapters.FACTORY).build();
+    parser = new CategoryStreamParser(moshi.adapter(Video.class, ListItem.class));
+    batchSizes = new ArrayList<>();
+    listener = new VideoBatchListener() {
+      @Override
+      public void onVideos(@NonNull String title, @NonNull List<Video> videos) {
+        batchSizes.add(videos.size());
+      }
+    };
+  }
+
+  @Test
+  public void parse_whenManyVideos_thenPublishesSmallFirstBatch() throws IOException {
+
+    // Given
+    int count = CategoryStreamParser.FIRST_BATCH_SIZE + CategoryStreamParser.BATCH_SIZE + 1;
+    Buffer source = new Buffer().writeUtf8(createJson(count));
+
+    // When
+    Category category = parser.parse(source, "title", listener);
+
+    // Then
+    assertEquals("title", category.getTitle());
+    assertEquals(count, category.getVideos().size());
+    assertEquals(count, category.getTotalSize());
+    assertEquals("id" + (count - 1), category.getVideos().get(count - 1).getId());
+    assertEquals(3, batchSizes.size());
+    assertEquals(CategoryStreamParser.FIRST_BATCH_SIZE, (int) batchSizes.get(0));
+    assertEquals(CategoryStreamParser.BATCH_SIZE, (int) batchSizes.get(1));
+    assertEquals(1, (int) batchSizes.get(2));
+  }
+
+  @Test
+  public void parse_whenNoItems_thenReturnsEmptyCategory() throws IOException {
+
+    // Given
+    Buffer source = new Buffer().writeUtf8("{\"TotalSize\":0}");
+
+    // When
+    Category category = parser.parse(source, "title", listener);
+
+    // Then
+    assertNotNull(category);
+    assertEquals(0, category.getVideos().size());
+    assertEquals(0, batchSizes.size());
+  }
+
+  private static String createJson(int count) {
+    StringBuilder json = new StringBuilder("{\"Title\":\"ignored\",\"Items\":[");
+    for (int i = 0; i < count; i++) {
+      if (i > 0) {
+        json.append(',');
+      }
+      json.append("{\"Slug\":\"id").append(i).append("\",\"Title\":\"Title\",\"Unknown\":[1]}");
+    }
+    return json.append("],\"TotalSize\":").append(count).append('}').toString();
+  }
+}
@@ -0,0 +1,183 @@
+/*
+ * Copyright 2016 Martin Kamp Jensen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.mkjensen.dml.backend;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import android.support.test.InstrumentationRegistry;
+import android.support.test.filters.MediumTest;
+import android.support.test.runner.AndroidJUnit4;
+
+import com.github.mkjensen.dml.model.Category;
+import com.github.mkjensen.dml.model.Video;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.junit.runner.RunWith;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Instrumentation tests for {@link HomeSnapshot}.
+ */
+@RunWith(AndroidJUnit4.class)
+@MediumTest
+public class HomeSnapshotAndroidTest {
+
+  @Rule
+  public final ExpectedException thrown = ExpectedException.none();
+
+  private File file;
+
+  private HomeSnapshot snapshot;
+
+  @Before
+  public void before() {
+    File dir = InstrumentationRegistry.getTargetContext().getCacheDir();
+    file = new File(dir, "HomeSnapshotAndroidTest.snapshot");
+    snapshot = new HomeSnapshot(file);
+    snapshot.delete();
+  }
+
+  @After
+  public void after() {
+    snapshot.delete();
+  }
+
+  @Test
+  public void constructor_whenCalledWithNullFile_thenThrowsIllegalArgumentException() {
+
+    // When/then
+    thrown.expect(IllegalArgumentException.class);
+    //noinspection ConstantConditions
+    new HomeSnapshot(null);
+  }
+
+  @Test
+  public void read_whenNoSnapshot_thenReturnsNull() {
+
+    // When
+    List<Category> categories = snapshot.read();
+
+    // Then
+    assertNull(categories);
+  }
+
+  @Test
+  public void read_whenSnapshotWritten_thenReturnsPresentationFields() throws IOException {
+
+    // Given
+    Video video = createVideo("id", "Bl\u00e5 bog", "http://image.com");
+    video.setDescription("description");
+    video.setManifestUrl("http://manifest.com");
+    Category category = createCategory("Nyheder", video);
+    category.setTotalSize(42);
+    snapshot.write(Arrays.asList(category, createCategory("Empty")));
+
+    // When
+    List<Category> categories = snapshot.read();
+
+    // Then
+    assertEquals(2, categories.size());
+    assertEquals("Nyheder", categories.get(0).getTitle());
+    assertEquals(42, categories.get(0).getTotalSize());
+    Video output = categories.get(0).getVideos().get(0);
+    assertEquals("id", output.getId());
+    assertEquals("Bl\u00e5 bog", output.getTitle());
+    assertEquals("http://image.com", output.getImageUrl());
+    assertEquals(Video.NOT_SET, output.getDescription());
+    assertEquals(Video.NOT_SET, output.getManifestUrl());
+    assertEquals(Collections.emptyList(), categories.get(1).getVideos());
+    assertEquals(Category.UNKNOWN_TOTAL_SIZE, categories.get(1).getTotalSize());
+  }
+
+  @Test
+  public void read_whenSnapshotHasInvalidTotalSize_thenReturnsNull() throws IOException {
+
+    // Given
+    ByteBuffer buffer = ByteBuffer.allocate(24);
+    buffer.putInt(HomeSnapshot.MAGIC).putInt(HomeSnapshot.VERSION).putInt(1);
+    buffer.putInt(0).putInt(-2).putInt(0);
+    writeFile(buffer.array());
+
+    // When
+    List<Category> categories = snapshot.read();
+
+    // Then
+    assertNull(categories);
+  }
+
+  @Test
+  public void read_whenSnapshotHasOtherVersion_thenReturnsNull() throws IOException {
+
+    // Given
+    ByteBuffer buffer = ByteBuffer.allocate(12);
+    buffer.putInt(HomeSnapshot.MAGIC).putInt(HomeSnapshot.VERSION + 1).putInt(0);
+    writeFile(buffer.array());
+
+    // When
+    List<Category> categories = snapshot.read();
+
+    // Then
+    assertNull(categories);
+  }
+
+  @Test
+  public void read_whenSnapshotTruncated_thenReturnsNull() throws IOException {
+
+    // Given
+    byte[] bytes = HomeSnapshot.encode(Collections.singletonList(
+        createCategory("title", createVideo("id", "title", "http://image.com"))));
+    writeFile(Arrays.copyOf(bytes, bytes.length - 4));
+
+    // When
+    List<Category> categories = snapshot.read();
+
+    // Then
+    assertNull(categories);
+  }
+
+  private void writeFile(byte[] bytes) throws IOException {
+    try (FileOutputStream output = new FileOutputStream(file)) {
+      output.write(bytes);
+    }
+  }
+
+  static Video createVideo(String id, String title, String imageUrl) {
+    Video video = new Video();
+    video.setId(id);
+    video.setTitle(title);
+    video.setImageUrl(imageUrl);
+    return video;
+  }
+
+  static Category createCategory(String title, Video... videos) {
+    Category category = new Category();
+    category.setTitle(title);
+    category.setVideos(Arrays.asList(videos));
+    return category;
+  }
+}
@@ -0,0 +1,117 @@
+/*
+ * Copyright 2016 Martin Kamp Jensen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.mkjensen.dml.backend;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+import android.support.test.InstrumentationRegistry;
+import android.support.test.filters.LargeTest;
+import android.support.test.runner.AndroidJUnit4;
+import android.util.Log;
+
+import com.github.mkjensen.dml.R;
+import com.github.mkjensen.dml.model.Category;
+import com.github.mkjensen.dml.model.ModelJsonAdapters;
+import com.github.mkjensen.dml.test.ResourceUtils;
+import com.squareup.moshi.JsonAdapter;
+import com.squareup.moshi.Moshi;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Benchmark comparing {@link HomeSnapshot} decoding with parsing the backend JSON using Moshi. The
+ * results are logged rather than asserted as they depend on the device.
+ */
+@RunWith(AndroidJUnit4.class)
+@LargeTest
+public class HomeSnapshotBenchmarkAndroidTest {
+
+  private static final String TAG = "HomeSnapshotBenchmark";
+
+  private static final int WARMUP_ITERATIONS = 50;
+
+  private static final int ITERATIONS = 500;
+
+  private String json;
+
+  private JsonAdapter<Category> adapter;
+
+  private HomeSnapshot snapshot;
+
+  @Before
+  public void before() throws IOException {
+    json = ResourceUtils.loadAsString(R.raw.category);
+    adapter = new Moshi.Builder().add(ModelJsonAdapters.FACTORY).build().adapter(Category.class);
+    File dir = InstrumentationRegistry.getTargetContext().getCacheDir();
+    snapshot = new HomeSnapshot(new File(dir, "HomeSnapshotBenchmarkAndroidTest.snapshot"));
+    Category category = adapter.fromJson(json);
+    snapshot.write(Arrays.asList(category, category, category));
+  }
+
+  @After
+  public void after() {
+    snapshot.delete();
+  }
+
+  @Test
+  public void benchmark_snapshotDecodeVersusMoshiParse() throws IOException {
+
+    // Given
+    for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+      parseJson();
+      readSnapshot();
+    }
+
+    // When
+    long jsonStart = System.nanoTime();
+    for (int i = 0; i < ITERATIONS; i++) {
+      parseJson();
+    }
+    long jsonNanos = (System.nanoTime() - jsonStart) / ITERATIONS;
+    long snapshotStart = System.nanoTime();
+    for (int i = 0; i < ITERATIONS; i++) {
+      readSnapshot();
+    }
+    long snapshotNanos = (System.nanoTime() - snapshotStart) / ITERATIONS;
+
+    // Then
+    Log.i(TAG, String.format("Moshi parse of 3 categories: %d us, snapshot read: %d us",
+        jsonNanos / 1000, snapshotNanos / 1000));
+    assertEquals(3, readSnapshot().size());
+  }
+
+  private List<Category> parseJson() throws IOException {
+    List<Category> categories = Arrays.asList(adapter.fromJson(json), adapter.fromJson(json),
+        adapter.fromJson(json));
+    assertNotNull(categories.get(2));
+    return categories;
+  }
+
+  private List<Category> readSnapshot() {
+    List<Category> categories = snapshot.read();
+    assertNotNull(categories);
+    return categories;
+  }
+}
@@ -18,6 +18,7 @@ package com.github.mkjensen.dml.backend.loader;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 
 import android.content.Context;
 import android.support.test.InstrumentationRegistry;
@@ -82,4 +83,22 @@ public class CategoriesLoaderAndroidTest {
     // Then
     assertEquals(query, actualQuery);
   }
+
+  @Test
+  public void constructorDeadline_whenCalledWithZeroDeadline_thenThrowsIllegalArgumentException() {
+
+    // When/then
+    thrown.expect(IllegalArgumentException.class);
+    new CategoriesLoader(context, 0L);
+  }
+
+  @Test
+  public void getTimedOutRows_givenNewLoader_whenCalled_thenReturnsEmptySet() {
+
+    // Given
+    CategoriesLoader loader = new CategoriesLoader(context);
+
+    // When/then
+    assertTrue(loader.getTimedOutRows().isEmpty());
+  }
 }
@@ -16,39 +16,44 @@
 
 package com.github.mkjensen.dml.inject;
 
+import com.github.mkjensen.dml.backend.BackendHelper;
+import com.github.mkjensen.dml.backend.BackendMetrics;
+import com.github.mkjensen.dml.backend.CachePolicy;
+import com.github.mkjensen.dml.backend.ConnectionWarmer;
 import com.github.mkjensen.dml.backend.LocalCallFactory;
 import com.github.mkjensen.dml.test.ResourceUtils;
 
-import okhttp3.Cache;
 import okhttp3.Call;
-import okhttp3.Interceptor;
+import okhttp3.OkHttpClient;
 
 import java.net.HttpURLConnection;
-import java.util.List;
 
 /**
  * Test version of {@link BackendModule}.
  */
 public class TestBackendModule extends BackendModule {
 
+  private static final String FIRST_PAGE = "?limit=" + BackendHelper.PAGE_SIZE + "&offset=0";
+
   public TestBackendModule(String apiBaseUrl) {
     super(apiBaseUrl);
   }
 
   @Override
-  Call.Factory callFactory(Cache cache, List<Interceptor> networkInterceptors) {
+  Call.Factory apiCallFactory(OkHttpClient baseClient, CachePolicy cachePolicy,
+                              ConnectionWarmer connectionWarmer, BackendMetrics backendMetrics) {
     String categoryJson = ResourceUtils.loadAsString(com.github.mkjensen.dml.test.R.raw.category);
     // @formatter:off
     return LocalCallFactory.newBuilder()
-        .forUrl(apiBaseUrl + "list/view/news")
+        .forUrl(apiBaseUrl + "list/view/news" + FIRST_PAGE)
           .code(HttpURLConnection.HTTP_OK)
           .responseBody(ResourceUtils.loadAsString(com.github.mkjensen.dml.test.R.raw.category_new))
           .up()
-        .forUrl(apiBaseUrl + "list/view/selectedlist")
+        .forUrl(apiBaseUrl + "list/view/selectedlist" + FIRST_PAGE)
           .code(HttpURLConnection.HTTP_OK)
           .responseBody(categoryJson)
           .up()
-        .forUrl(apiBaseUrl + "list/view/mostviewed")
+        .forUrl(apiBaseUrl + "list/view/mostviewed" + FIRST_PAGE)
           .code(HttpURLConnection.HTTP_OK)
           .responseBody(categoryJson)
           .up()
@@ -18,9 +18,12 @@ package com.github.mkjensen.dml;
 
 import android.app.Application;
 import android.content.Context;
+import android.os.Process;
 import android.support.annotation.NonNull;
 
 import com.facebook.stetho.Stetho;
+import com.github.mkjensen.dml.backend.CatalogSyncService;
+import com.github.mkjensen.dml.backend.ConnectionWarmer;
 import com.github.mkjensen.dml.inject.ApplicationModule;
 import com.github.mkjensen.dml.inject.BackendComponent;
 import com.github.mkjensen.dml.inject.BackendModule;
@@ -28,7 +31,8 @@ import com.github.mkjensen.dml.inject.DaggerBackendComponent;
 
 /**
  * Subclass of {@link Application} that enables dependency injection using Dagger and improved
- * debuggability using Stetho.
+ * debuggability using Stetho, warms connections to the backend at startup, schedules syncing of
+ * the local catalog and indexes the titles in it.
  *
  * @see <a href="https://github.com/google/dagger">Dagger</a>
  * @see <a href="https://github.com/facebook/stetho">Stetho</a>
@@ -45,6 +49,10 @@ public class DmlApplication extends Application {
     application = this;
     initStetho();
     initDagger();
+    initConnections();
+    deleteLegacyCache();
+    CatalogSyncService.schedule(this);
+    initTitleIndex();
   }
 
   private void initStetho() {
@@ -60,6 +68,45 @@ public class DmlApplication extends Application {
         .build();
   }
 
+  /**
+   * Warms connections in the background to the hosts that the first requests are likely to be made
+   * to.
+   */
+  private void initConnections() {
+    ConnectionWarmer connectionWarmer = backendComponent.connectionWarmer();
+    connectionWarmer.warmUp(ConnectionWarmer.API, backendComponent.apiCallFactory(),
+        getString(R.string.backend_api_base_url));
+    connectionWarmer.warmUp(ConnectionWarmer.MEDIA, backendComponent.mediaCallFactory());
+    connectionWarmer.warmUp(ConnectionWarmer.IMAGES, backendComponent.imagesCallFactory());
+  }
+
+  /**
+   * Deletes the HTTP cache of earlier versions in the background, as it is no longer used.
+   */
+  private void deleteLegacyCache() {
+    new Thread(new Runnable() {
+      @Override
+      public void run() {
+        Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+        backendComponent.cachePolicy().deleteLegacyCache();
+      }
+    }, "LegacyCache").start();
+  }
+
+  /**
+   * Indexes the titles of the videos in the local catalog in the background, so that searches can
+   * show local results right away.
+   */
+  private void initTitleIndex() {
+    new Thread(new Runnable() {
+      @Override
+      public void run() {
+        Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+        backendComponent.backendHelper().indexCatalog();
+      }
+    }, "TitleIndex").start();
+  }
+
   protected BackendModule initBackendModule(String baseApiUrl) {
     return new BackendModule(baseApiUrl);
   }
@@ -19,96 +19,466 @@ package com.github.mkjensen.dml.backend;
 import static com.github.mkjensen.dml.util.Preconditions.notNull;
 
 import android.content.Context;
+import android.os.Process;
 import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
 import android.util.Log;
 
+import com.github.mkjensen.dml.DmlException;
 import com.github.mkjensen.dml.R;
 import com.github.mkjensen.dml.model.Category;
 import com.github.mkjensen.dml.model.Channel;
+import com.github.mkjensen.dml.model.ChannelFilter;
+import com.github.mkjensen.dml.model.ListItem;
+import com.github.mkjensen.dml.model.ModelJsonAdapters;
 import com.github.mkjensen.dml.model.Video;
 import com.github.mkjensen.dml.model.VideoManifest;
+import com.squareup.moshi.Moshi;
+
+import okhttp3.CacheControl;
+import okhttp3.ResponseBody;
 
 import retrofit2.Call;
 import retrofit2.Response;
 import retrofit2.Retrofit;
 
+import java.io.File;
 import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.Collections;
 import java.util.List;
 import java.util.Locale;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * A helper class that manages communication with backend web services. Methods on this class should
  * not be called from the UI thread as operations may take a while.
+ *
+ * <p>Identical requests that are executed concurrently are coalesced so that a single network call
+ * and a single parse serve every caller, see {@link #getCoalescedCallCount()}. Parsed results are
+ * kept in an {@link ObjectCache} for a time that depends on their type, so repeated requests do
+ * not have to read and parse the HTTP cache.
+ *
+ * <p>Methods accepting a {@link LoadPolicy} can be asked to only return cached data, which is
+ * useful for showing something immediately while fresh data is loaded. The categories shown on
+ * the home screen are furthermore kept in a {@link HomeSnapshot} that survives process restarts.
+ *
+ * <p>Categories, videos and video manifests loaded from the network are written to a {@link
+ * CatalogStore}, which is consulted before the HTTP cache when only cached data is accepted.
+ *
+ * <p>The titles of all videos that have been loaded are added to a {@link TitleIndex}, which can
+ * answer searches without using the network.
+ *
+ * <p>The first pages of search results are kept in a {@link SearchResultCache}, which also answers
+ * a query by narrowing down the complete results of a query it starts with. Search calls that do
+ * reach the network are limited by a {@link TokenBucket}, waiting for a token if necessary.
+ *
+ * <p>Categories and channels are revalidated once expired by sending the validators of the
+ * response they were parsed from. If the backend answers 304 Not Modified, the already parsed
+ * objects are cached again instead of downloading and parsing the response, see {@link
+ * #getNotModifiedCallCount()}.
+ *
+ * <p>Categories are loaded a page of at most {@link #PAGE_SIZE} videos at a time. Methods that do
+ * not accept an offset load the first page.
+ *
+ * <p>Network calls are given a time budget, retried and hedged depending on their endpoint, see
+ * {@link CallExecutor}. While the {@link CircuitBreaker} of an endpoint is open, calls to it fail
+ * fast with {@link CircuitOpenException} unless expired cached data is available, which is then
+ * returned instead. Network calls made on a thread that has entered a {@link CancellationScope}
+ * stop when the scope is cancelled. A cancelled call that was coalesced with identical calls fails
+ * only for callers whose scope has been cancelled, while the others make the call again.
+ *
+ * <p>Methods prefixed with {@code stream} parse categories while they are being downloaded and
+ * publish their videos to a {@link VideoBatchListener} in small batches. If the category is
+ * already available, all of its videos are published in a single batch.
  */
 public final class BackendHelper {
 
+  /**
+   * The maximum number of videos in a page of a category.
+   */
+  public static final int PAGE_SIZE = 24;
+
   private static final String TAG = "BackendHelper";
 
+  private static final String CACHE_ONLY_KEY_SUFFIX = "#cache-only";
+
+  private static final String HOME_SNAPSHOT_FILE_NAME = "home.snapshot";
+
+  private static final int OBJECT_CACHE_MAX_SIZE_IN_BYTES = 4 * 1024 * 1024;
+
+  private static final long CATEGORY_TIME_TO_LIVE_IN_MILLISECONDS = TimeUnit.MINUTES.toMillis(5);
+
+  private static final long VIDEO_TIME_TO_LIVE_IN_MILLISECONDS = TimeUnit.MINUTES.toMillis(15);
+
+  private static final long VIDEO_MANIFEST_TIME_TO_LIVE_IN_MILLISECONDS =
+      TimeUnit.MINUTES.toMillis(2);
+
+  private static final long CHANNELS_TIME_TO_LIVE_IN_MILLISECONDS = TimeUnit.HOURS.toMillis(1);
+
+  /**
+   * Only accepts cached video manifest responses younger than {@link
+   * CatalogStore#MANIFEST_MAX_AGE_IN_MILLISECONDS}, unlike {@link CacheControl#FORCE_CACHE}, which
+   * accepts responses of any age.
+   */
+  private static final String MANIFEST_CACHE_ONLY_CACHE_CONTROL = new CacheControl.Builder()
+      .onlyIfCached()
+      .maxAge((int) CatalogStore.MANIFEST_MAX_AGE_IN_MILLISECONDS, TimeUnit.MILLISECONDS)
+      .build()
+      .toString();
+
+  private static final int SEARCH_RESULT_CACHE_MAX_ENTRIES = 64;
+
+  private static final int SEARCH_BURST_SIZE = 4;
+
+  private static final long SEARCH_REFILL_INTERVAL_IN_MILLISECONDS = 500L;
+
+  private static final long SEARCH_WAIT_STEP_IN_MILLISECONDS = 50L;
+
   private final Context context;
 
   private final DmlWebService webService;
 
+  private final SingleFlight singleFlight = new SingleFlight();
+
+  private final ObjectCache objectCache = new ObjectCache(OBJECT_CACHE_MAX_SIZE_IN_BYTES);
+
+  private final HomeSnapshot homeSnapshot;
+
+  private final CategoryStreamParser streamParser;
+
+  private final CallExecutor callExecutor = new CallExecutor();
+
+  private final CatalogStore catalogStore;
+
+  private final ExecutorService storeExecutor = createStoreExecutor();
+
+  private final TitleIndex titleIndex = new TitleIndex();
+
+  private final SearchResultCache searchResultCache = new SearchResultCache(
+      SEARCH_RESULT_CACHE_MAX_ENTRIES, CATEGORY_TIME_TO_LIVE_IN_MILLISECONDS);
+
+  private final TokenBucket searchTokens = new TokenBucket(
+      SEARCH_BURST_SIZE, SEARCH_REFILL_INTERVAL_IN_MILLISECONDS);
+
+  private final AtomicBoolean catalogIndexed = new AtomicBoolean();
+
+  private final ValidatorCache validatorCache = new ValidatorCache(objectCache);
+
+  /**
+   * Creates a helper that parses streamed categories using the adapters in {@link
+   * ModelJsonAdapters}.
+   */
   public BackendHelper(@NonNull Context context, @NonNull Retrofit retrofit) {
+    this(context, retrofit, new Moshi.Builder().add(ModelJsonAdapters.FACTORY).build());
+  }
+
+  /**
+   * Creates a helper that parses streamed categories using the specified {@link Moshi} instance,
+   * which should be the one used by {@code retrofit}.
+   */
+  public BackendHelper(@NonNull Context context, @NonNull Retrofit retrofit, @NonNull Moshi moshi) {
     this.context = notNull(context);
     this.webService = notNull(retrofit).create(DmlWebService.class);
+    this.homeSnapshot = new HomeSnapshot(new File(context.getFilesDir(), HOME_SNAPSHOT_FILE_NAME));
+    this.catalogStore = new CatalogStore(context);
+    this.streamParser =
+        new CategoryStreamParser(notNull(moshi).adapter(Video.class, ListItem.class));
+  }
+
+  private static ExecutorService createStoreExecutor() {
+    ThreadPoolExecutor executor = new ThreadPoolExecutor(1, 1, 30L, TimeUnit.SECONDS,
+        new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+          @Override
+          public Thread newThread(@NonNull final Runnable runnable) {
+            return new Thread(new Runnable() {
+              @Override
+              public void run() {
+                Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                runnable.run();
+              }
+            }, CatalogStore.class.getSimpleName());
+          }
+        });
+    executor.allowCoreThreadTimeOut(true);
+    return executor;
   }
 
   /**
-   * Loads the category containing the most viewed on-demand videos.
+   * Loads the first page of the category containing the most viewed on-demand videos.
    */
   @NonNull
   public Category loadMostViewedCategory() throws IOException {
-    Log.d(TAG, "loadMostViewedCategory");
-    Call<Category> call = webService.getMostViewedCategory();
-    Category category = executeCall(call);
+    return loadMostViewedCategory(LoadPolicy.DEFAULT);
+  }
+
+  /**
+   * Loads the first page of the category containing the most viewed on-demand videos using the
+   * specified policy.
+   */
+  @NonNull
+  public Category loadMostViewedCategory(@NonNull LoadPolicy policy) throws IOException {
+    return loadMostViewedCategoryPage(0, policy);
+  }
+
+  /**
+   * Loads the page starting at the specified offset of the category containing the most viewed
+   * on-demand videos.
+   */
+  @NonNull
+  public Category loadMostViewedCategoryPage(int offset) throws IOException {
+    return loadMostViewedCategoryPage(offset, LoadPolicy.DEFAULT);
+  }
+
+  private Category loadMostViewedCategoryPage(int offset, LoadPolicy policy) throws IOException {
+    Log.d(TAG, String.format("loadMostViewedCategory [%d] [%s]", offset, policy));
+    String argument = getPageArgument(null, checkOffset(offset));
+    Validators validators = getValidators(Endpoint.MOST_VIEWED_CATEGORY, argument, policy);
+    Call<Category> call = webService.getMostViewedCategory(PAGE_SIZE, offset,
+        getCacheControl(policy), validators.getIfNoneMatch(), validators.getIfModifiedSince());
+    Category category = executeCall(Endpoint.MOST_VIEWED_CATEGORY, argument, call, policy);
     category.setTitle(context.getString(R.string.backend_category_most_viewed));
     return category;
   }
 
   /**
-   * Loads the category containing the new on-demand videos.
+   * Loads the first page of the category containing the most viewed on-demand videos, publishing
+   * them to the specified listener while parsing.
+   */
+  @NonNull
+  public Category streamMostViewedCategory(@NonNull VideoBatchListener listener)
+      throws IOException {
+    Log.d(TAG, "streamMostViewedCategory");
+    String title = context.getString(R.string.backend_category_most_viewed);
+    String argument = getPageArgument(null, 0);
+    Validators validators =
+        getValidators(Endpoint.MOST_VIEWED_CATEGORY, argument, LoadPolicy.DEFAULT);
+    Call<ResponseBody> call = webService.streamMostViewedCategory(PAGE_SIZE, 0,
+        validators.getIfNoneMatch(), validators.getIfModifiedSince());
+    return executeStreamingCall(Endpoint.MOST_VIEWED_CATEGORY, argument, title, call, listener);
+  }
+
+  /**
+   * Loads the first page of the category containing the new on-demand videos.
    */
   @NonNull
   public Category loadNewCategory() throws IOException {
-    Log.d(TAG, "loadNewCategory");
-    Call<Category> call = webService.getNewCategory();
-    Category category = executeCall(call);
+    return loadNewCategory(LoadPolicy.DEFAULT);
+  }
+
+  /**
+   * Loads the first page of the category containing the new on-demand videos using the
+   * specified policy.
+   */
+  @NonNull
+  public Category loadNewCategory(@NonNull LoadPolicy policy) throws IOException {
+    return loadNewCategoryPage(0, policy);
+  }
+
+  /**
+   * Loads the page starting at the specified offset of the category containing the new
+   * on-demand videos.
+   */
+  @NonNull
+  public Category loadNewCategoryPage(int offset) throws IOException {
+    return loadNewCategoryPage(offset, LoadPolicy.DEFAULT);
+  }
+
+  private Category loadNewCategoryPage(int offset, LoadPolicy policy) throws IOException {
+    Log.d(TAG, String.format("loadNewCategory [%d] [%s]", offset, policy));
+    String argument = getPageArgument(null, checkOffset(offset));
+    Validators validators = getValidators(Endpoint.NEW_CATEGORY, argument, policy);
+    Call<Category> call = webService.getNewCategory(PAGE_SIZE, offset,
+        getCacheControl(policy), validators.getIfNoneMatch(), validators.getIfModifiedSince());
+    Category category = executeCall(Endpoint.NEW_CATEGORY, argument, call, policy);
     category.setTitle(context.getString(R.string.backend_category_new));
     return category;
   }
 
   /**
-   * Loads the category containing the recommended on-demand videos.
+   * Loads the first page of the category containing the new on-demand videos, publishing
+   * them to the specified listener while parsing.
+   */
+  @NonNull
+  public Category streamNewCategory(@NonNull VideoBatchListener listener)
+      throws IOException {
+    Log.d(TAG, "streamNewCategory");
+    String title = context.getString(R.string.backend_category_new);
+    String argument = getPageArgument(null, 0);
+    Validators validators = getValidators(Endpoint.NEW_CATEGORY, argument, LoadPolicy.DEFAULT);
+    Call<ResponseBody> call = webService.streamNewCategory(PAGE_SIZE, 0,
+        validators.getIfNoneMatch(), validators.getIfModifiedSince());
+    return executeStreamingCall(Endpoint.NEW_CATEGORY, argument, title, call, listener);
+  }
+
+  /**
+   * Loads the first page of the category containing the recommended on-demand videos.
    */
   @NonNull
   public Category loadRecommendedCategory() throws IOException {
-    Log.d(TAG, "loadSelectedCategory");
-    Call<Category> call = webService.getRecommendedCategory();
-    Category category = executeCall(call);
+    return loadRecommendedCategory(LoadPolicy.DEFAULT);
+  }
+
+  /**
+   * Loads the first page of the category containing the recommended on-demand videos using the
+   * specified policy.
+   */
+  @NonNull
+  public Category loadRecommendedCategory(@NonNull LoadPolicy policy) throws IOException {
+    return loadRecommendedCategoryPage(0, policy);
+  }
+
+  /**
+   * Loads the page starting at the specified offset of the category containing the recommended
+   * on-demand videos.
+   */
+  @NonNull
+  public Category loadRecommendedCategoryPage(int offset) throws IOException {
+    return loadRecommendedCategoryPage(offset, LoadPolicy.DEFAULT);
+  }
+
+  private Category loadRecommendedCategoryPage(int offset, LoadPolicy policy) throws IOException {
+    Log.d(TAG, String.format("loadSelectedCategory [%d] [%s]", offset, policy));
+    String argument = getPageArgument(null, checkOffset(offset));
+    Validators validators = getValidators(Endpoint.RECOMMENDED_CATEGORY, argument, policy);
+    Call<Category> call = webService.getRecommendedCategory(PAGE_SIZE, offset,
+        getCacheControl(policy), validators.getIfNoneMatch(), validators.getIfModifiedSince());
+    Category category = executeCall(Endpoint.RECOMMENDED_CATEGORY, argument, call, policy);
     category.setTitle(context.getString(R.string.backend_category_recommended));
     return category;
   }
 
   /**
-   * Executes the specified query and returns a category containing the relevant on-demand videos.
+   * Loads the first page of the category containing the recommended on-demand videos, publishing
+   * them to the specified listener while parsing.
+   */
+  @NonNull
+  public Category streamRecommendedCategory(@NonNull VideoBatchListener listener)
+      throws IOException {
+    Log.d(TAG, "streamRecommendedCategory");
+    String title = context.getString(R.string.backend_category_recommended);
+    String argument = getPageArgument(null, 0);
+    Validators validators =
+        getValidators(Endpoint.RECOMMENDED_CATEGORY, argument, LoadPolicy.DEFAULT);
+    Call<ResponseBody> call = webService.streamRecommendedCategory(PAGE_SIZE, 0,
+        validators.getIfNoneMatch(), validators.getIfModifiedSince());
+    return executeStreamingCall(Endpoint.RECOMMENDED_CATEGORY, argument, title, call, listener);
+  }
+
+  /**
+   * Executes the specified query and returns the first page of a category containing the relevant
+   * on-demand videos.
    */
   @NonNull
   public Category search(@NonNull String query) throws IOException {
-    Log.d(TAG, String.format("search [%s]", query));
-    Call<Category> call = webService.search(query);
-    Category category = executeCall(call);
+    return searchPage(query, 0);
+  }
+
+  /**
+   * Executes the specified query and returns the page starting at the specified offset of a
+   * category containing the relevant on-demand videos.
+   */
+  @NonNull
+  public Category searchPage(@NonNull String query, int offset) throws IOException {
+    Log.d(TAG, String.format("search [%s] [%d]", query, offset));
+    if (offset == 0) {
+      Category cached = searchResultCache.get(query);
+      if (cached != null) {
+        return cached;
+      }
+    }
+    acquireSearchToken();
+    Call<Category> call = webService.search(query, PAGE_SIZE, checkOffset(offset));
+    Category category = executeCall(Endpoint.SEARCH, getPageArgument(query, offset), call);
     category.setTitle(query);
+    if (offset == 0) {
+      searchResultCache.put(query, category, isComplete(category));
+    }
     return category;
   }
 
+  /**
+   * Executes the specified query like {@link #search(String)}, publishing the relevant on-demand
+   * videos to the specified listener while parsing.
+   */
+  @NonNull
+  public Category streamSearch(@NonNull String query, @NonNull VideoBatchListener listener)
+      throws IOException {
+    Log.d(TAG, String.format("streamSearch [%s]", query));
+    Category cached = searchResultCache.get(query);
+    if (cached != null) {
+      listener.onVideos(query, cached.getVideos());
+      return cached;
+    }
+    acquireSearchToken();
+    Call<ResponseBody> call = webService.streamSearch(query, PAGE_SIZE, 0);
+    String argument = getPageArgument(query, 0);
+    Category category = executeStreamingCall(Endpoint.SEARCH, argument, query, call, listener);
+    searchResultCache.put(query, category, isComplete(category));
+    return category;
+  }
+
+  /**
+   * Waits until a search call is allowed by the rate limit, or until the current cancellation
+   * scope is cancelled.
+   */
+  private void acquireSearchToken() throws InterruptedIOException {
+    CancellationScope scope = CancellationScope.current();
+    while (!searchTokens.tryAcquire()) {
+      if (scope != null) {
+        scope.throwIfCancelled();
+      }
+      long wait = Math.min(searchTokens.getWaitInMilliseconds(), SEARCH_WAIT_STEP_IN_MILLISECONDS);
+      Log.d(TAG, String.format(Locale.US, "Search rate limited, waiting [%d] ms", wait));
+      try {
+        Thread.sleep(Math.max(wait, 1L));
+      } catch (InterruptedException ex) {
+        Thread.currentThread().interrupt();
+        throw new InterruptedIOException("Interrupted while rate limited");
+      }
+    }
+  }
+
+  /**
+   * Returns the median latency of search calls, or zero if none have been made.
+   */
+  public long getSearchLatencyInMilliseconds() {
+    return callExecutor.getLatencyHistogram(Endpoint.SEARCH).getPercentile(0.5);
+  }
+
+  /**
+   * Returns whether the specified first page of a category contains all of its videos.
+   */
+  private static boolean isComplete(Category category) {
+    int totalSize = category.getTotalSize();
+    int size = category.getVideos().size();
+    return totalSize != Category.UNKNOWN_TOTAL_SIZE ? size >= totalSize : size < PAGE_SIZE;
+  }
+
   /**
    * Loads the specified on-demand video.
    */
   @NonNull
   public Video loadVideo(@NonNull String id) throws IOException {
-    Log.d(TAG, String.format("loadVideoDetails [%s]", id));
-    Call<Video> call = webService.getVideo(id);
-    return executeCall(call);
+    return loadVideo(id, LoadPolicy.DEFAULT);
+  }
+
+  /**
+   * Loads the specified on-demand video using the specified policy.
+   */
+  @NonNull
+  public Video loadVideo(@NonNull String id, @NonNull LoadPolicy policy) throws IOException {
+    Log.d(TAG, String.format("loadVideoDetails [%s] [%s]", id, policy));
+    Call<Video> call = webService.getVideo(id, getCacheControl(policy));
+    return executeCall(Endpoint.VIDEO, id, call, policy);
   }
 
   /**
@@ -116,9 +486,22 @@ public final class BackendHelper {
    */
   @NonNull
   public VideoManifest loadVideoManifest(@NonNull String manifestUrl) throws IOException {
-    Log.d(TAG, String.format("loadVideoManifest [%s]", manifestUrl));
-    Call<VideoManifest> call = webService.getVideoManifest(manifestUrl);
-    return executeCall(call);
+    return loadVideoManifest(manifestUrl, LoadPolicy.DEFAULT);
+  }
+
+  /**
+   * Loads the video manifest from the specified URL using the specified policy. Cached video
+   * manifests older than {@link CatalogStore#MANIFEST_MAX_AGE_IN_MILLISECONDS} are not returned.
+   */
+  @NonNull
+  public VideoManifest loadVideoManifest(@NonNull String manifestUrl, @NonNull LoadPolicy policy)
+      throws IOException {
+    Log.d(TAG, String.format("loadVideoManifest [%s] [%s]", manifestUrl, policy));
+    String cacheControl = policy == LoadPolicy.CACHE_ONLY
+        ? MANIFEST_CACHE_ONLY_CACHE_CONTROL
+        : getCacheControl(policy);
+    Call<VideoManifest> call = webService.getVideoManifest(manifestUrl, cacheControl);
+    return executeCall(Endpoint.VIDEO_MANIFEST, manifestUrl, call, policy);
   }
 
   /**
@@ -127,12 +510,517 @@ public final class BackendHelper {
   @NonNull
   public List<Channel> loadChannels() throws IOException {
     Log.d(TAG, "loadChannels");
-    Call<List<Channel>> call = webService.getChannels();
-    return executeCall(call);
+    Validators validators = getValidators(Endpoint.CHANNELS, null, LoadPolicy.DEFAULT);
+    Call<List<Channel>> call =
+        webService.getChannels(validators.getIfNoneMatch(), validators.getIfModifiedSince());
+    return executeCall(Endpoint.CHANNELS, null, call);
+  }
+
+  /**
+   * Loads the live channels and streaming servers accepted by the specified filter. Rejected
+   * channels and servers are skipped while parsing.
+   */
+  @NonNull
+  public List<Channel> loadChannels(@NonNull ChannelFilter filter) throws IOException {
+    Log.d(TAG, String.format("loadChannels [%s]", filter));
+    String key = Endpoint.CHANNELS.key(filter.toString());
+    List<Channel> cached = objectCache.get(key);
+    if (cached != null) {
+      return cached;
+    }
+    Validators validators = getValidators(key);
+    Call<ResponseBody> call =
+        webService.streamChannels(validators.getIfNoneMatch(), validators.getIfModifiedSince());
+    try {
+      return executeChannelsCall(key, call, filter);
+    } catch (CircuitOpenException ex) {
+      return getStaleOrThrow(key, ex);
+    }
   }
 
+  private List<Channel> executeChannelsCall(final String key, final Call<ResponseBody> call,
+                                            final ChannelFilter filter) throws IOException {
+    return singleFlight.execute(key, new Callable<List<Channel>>() {
+      @Override
+      public List<Channel> call() throws IOException {
+        Response<ResponseBody> response = callExecutor.execute(Endpoint.CHANNELS, call);
+        List<Channel> channels = getNotModified(Endpoint.CHANNELS, key, null, response);
+        if (channels == null) {
+          ResponseBody body = getBody(call, response);
+          try {
+            channels = ModelJsonAdapters.channels(filter).fromJson(body.source());
+          } finally {
+            body.close();
+          }
+        }
+        if (channels == null) {
+          channels = Collections.emptyList();
+        }
+        putValidated(Endpoint.CHANNELS, key, channels, response);
+        return channels;
+      }
+    });
+  }
+
+  /**
+   * Returns the number of network calls that have been executed.
+   */
+  public long getExecutedCallCount() {
+    return singleFlight.getExecutedCount();
+  }
+
+  /**
+   * Returns the number of network calls that were saved because an identical call was already in
+   * flight.
+   */
+  public long getCoalescedCallCount() {
+    return singleFlight.getCoalescedCount();
+  }
+
+  /**
+   * Returns the number of network calls answered with 304 Not Modified, whose already parsed
+   * objects were reused.
+   */
+  public long getNotModifiedCallCount() {
+    return validatorCache.getNotModifiedCount();
+  }
+
+  /**
+   * Returns the latencies recorded for network calls to the specified endpoint.
+   */
+  @NonNull
+  public LatencyHistogram getLatencyHistogram(@NonNull Endpoint endpoint) {
+    return callExecutor.getLatencyHistogram(endpoint);
+  }
+
+  /**
+   * Returns the circuit breaker of the specified endpoint.
+   */
+  @NonNull
+  public CircuitBreaker getCircuitBreaker(@NonNull Endpoint endpoint) {
+    return callExecutor.getCircuitBreaker(endpoint);
+  }
+
+  /**
+   * Returns the number of times that network calls have been retried after failing.
+   */
+  public long getRetriedCallCount() {
+    return callExecutor.getRetryCount();
+  }
+
+  /**
+   * Returns the number of times that a duplicate network call was executed because the original
+   * call was slower than usual for its endpoint.
+   */
+  public long getHedgedCallCount() {
+    return callExecutor.getHedgedCount();
+  }
+
+  /**
+   * Returns the cache holding parsed results, for example for inspecting its statistics.
+   */
+  @NonNull
+  public ObjectCache getObjectCache() {
+    return objectCache;
+  }
+
+  /**
+   * Returns the cache holding the first pages of search results, for example for inspecting its
+   * statistics.
+   */
+  @NonNull
+  public SearchResultCache getSearchResultCache() {
+    return searchResultCache;
+  }
+
+  /**
+   * Returns the snapshot of the categories most recently shown on the home screen.
+   */
+  @NonNull
+  public HomeSnapshot getHomeSnapshot() {
+    return homeSnapshot;
+  }
+
+  /**
+   * Returns the local catalog of categories, videos and video manifests loaded from the network.
+   */
+  @NonNull
+  public CatalogStore getCatalogStore() {
+    return catalogStore;
+  }
+
+  /**
+   * Prunes the catalog store, see {@link CatalogStore#prune(long)}, once the results that have
+   * been loaded so far have been written to it, and waits for it to finish. Results are written on
+   * a background thread, so pruning the store directly could delete them before they are written.
+   */
+  public void pruneCatalogStore(final long maxVideoAgeInMilliseconds) throws InterruptedException {
+    Future<?> prune = storeExecutor.submit(new Runnable() {
+      @Override
+      public void run() {
+        catalogStore.prune(maxVideoAgeInMilliseconds);
+      }
+    });
+    try {
+      prune.get();
+    } catch (ExecutionException ex) {
+      throw new DmlException(ex.getCause());
+    }
+  }
+
+  /**
+   * Returns the index of the titles of the videos that have been loaded.
+   */
+  @NonNull
+  public TitleIndex getTitleIndex() {
+    return titleIndex;
+  }
+
+  /**
+   * Adds the videos in the catalog store to the title index, so that videos loaded by earlier
+   * processes can be found. Only the first call has an effect.
+   */
+  public void indexCatalog() {
+    if (catalogIndexed.compareAndSet(false, true)) {
+      List<Video> videos = catalogStore.readVideos();
+      titleIndex.addAll(videos);
+      Log.d(TAG, String.format("Indexed [%d] titles", videos.size()));
+    }
+  }
+
+  private <T> T executeCall(Endpoint endpoint, String argument, Call<T> call) throws IOException {
+    return executeCall(endpoint, argument, call, LoadPolicy.DEFAULT);
+  }
+
+  private <T> T executeCall(final Endpoint endpoint, final String argument, final Call<T> call,
+                            LoadPolicy policy) throws IOException {
+    final String key = endpoint.key(argument);
+    if (policy == LoadPolicy.CACHE_ONLY) {
+      return executeCacheOnlyCall(endpoint, argument, call);
+    }
+    T cached = objectCache.get(key);
+    if (cached != null) {
+      return cached;
+    }
+    try {
+      return singleFlight.execute(key, new Callable<T>() {
+        @Override
+        public T call() throws IOException {
+          Response<T> response = callExecutor.execute(endpoint, call);
+          T result = getNotModified(endpoint, key, argument, response);
+          if (result == null) {
+            result = getBody(call, response);
+            store(endpoint, key, argument, result);
+            index(result);
+          }
+          putValidated(endpoint, key, result, response);
+          return result;
+        }
+      });
+    } catch (CircuitOpenException ex) {
+      return getStaleOrThrow(key, ex);
+    }
+  }
+
+  private Category executeStreamingCall(final Endpoint endpoint, final String argument,
+                                        final String title, final Call<ResponseBody> call,
+                                        final VideoBatchListener listener) throws IOException {
+    notNull(listener);
+    final String key = endpoint.key(argument);
+    Category category = objectCache.get(key);
+    if (category == null) {
+      final AtomicBoolean streamed = new AtomicBoolean();
+      try {
+        category = singleFlight.execute(key, new Callable<Category>() {
+          @Override
+          public Category call() throws IOException {
+            Response<ResponseBody> response = callExecutor.execute(endpoint, call);
+            Category result = getNotModified(endpoint, key, argument, response);
+            if (result == null) {
+              streamed.set(true);
+              result = parseStreamingResponse(call, response, title, listener);
+              store(endpoint, key, argument, result);
+              index(result);
+            }
+            putValidated(endpoint, key, result, response);
+            return result;
+          }
+        });
+        if (streamed.get()) {
+          return category;
+        }
+      } catch (CircuitOpenException ex) {
+        category = getStaleOrThrow(key, ex);
+      }
+    }
+    // Cached, stale, not modified, or loaded by another caller, so publish everything at once.
+    category.setTitle(title);
+    if (!category.getVideos().isEmpty()) {
+      listener.onVideos(title, category.getVideos());
+    }
+    return category;
+  }
+
+  private Category parseStreamingResponse(Call<ResponseBody> call, Response<ResponseBody> response,
+                                          String title, VideoBatchListener listener)
+      throws IOException {
+    ResponseBody body = getBody(call, response);
+    try {
+      return streamParser.parse(body.source(), title, listener);
+    } finally {
+      body.close();
+    }
+  }
+
+  /**
+   * Returns the cached object for the specified request, even if it has expired. If there is none,
+   * it is read from the catalog store, and if it is not stored either, the specified call, which
+   * must only accept cached responses, is executed. A result that was not in the object cache is
+   * cached as already expired so that it is not mistaken for fresh data.
+   *
+   * <p>Video manifests are not taken from the object cache once expired, as they must not be
+   * older than the catalog store allows.
+   */
+  private <T> T executeCacheOnlyCall(final Endpoint endpoint, final String argument,
+                                     final Call<T> call) throws IOException {
+    final String key = endpoint.key(argument);
+    T stale = endpoint == Endpoint.VIDEO_MANIFEST
+        ? objectCache.<T>get(key)
+        : objectCache.<T>getStale(key);
+    if (stale != null) {
+      return stale;
+    }
+    return singleFlight.execute(key + CACHE_ONLY_KEY_SUFFIX, new Callable<T>() {
+      @Override
+      public T call() throws IOException {
+        T result = readStore(endpoint, key, argument);
+        if (result == null) {
+          result = executeCall(call);
+        }
+        index(result);
+        if (endpoint != Endpoint.VIDEO_MANIFEST) {
+          objectCache.put(key, result, 0L);
+        }
+        return result;
+      }
+    });
+  }
+
+  /**
+   * Writes the specified result loaded from the network to the catalog store on a background
+   * thread if its endpoint is stored, so that the result is not held back by the write.
+   */
+  private void store(final Endpoint endpoint, final String key, final String argument,
+                     final Object result) {
+    if (!isStored(endpoint)) {
+      return;
+    }
+    storeExecutor.execute(new Runnable() {
+      @Override
+      public void run() {
+        write(endpoint, key, argument, result);
+      }
+    });
+  }
+
+  private void write(Endpoint endpoint, String key, String argument, Object result) {
+    switch (endpoint) {
+      case MOST_VIEWED_CATEGORY:
+      case NEW_CATEGORY:
+      case RECOMMENDED_CATEGORY:
+        catalogStore.writeCategory(key, (Category) result);
+        break;
+      case VIDEO:
+        catalogStore.writeVideo((Video) result);
+        break;
+      case VIDEO_MANIFEST:
+        catalogStore.writeManifest(argument, (VideoManifest) result);
+        break;
+      default:
+        throw new IllegalArgumentException("Unhandled endpoint: " + endpoint);
+    }
+  }
+
+  private static boolean isStored(Endpoint endpoint) {
+    switch (endpoint) {
+      case MOST_VIEWED_CATEGORY:
+      case NEW_CATEGORY:
+      case RECOMMENDED_CATEGORY:
+      case VIDEO:
+      case VIDEO_MANIFEST:
+        return true;
+      case SEARCH:
+      case CHANNELS:
+        return false;
+      default:
+        throw new IllegalArgumentException("Unhandled endpoint: " + endpoint);
+    }
+  }
+
+  /**
+   * Adds the titles of the videos in the specified result to the title index.
+   */
+  private void index(Object result) {
+    if (result instanceof Category) {
+      titleIndex.addAll(((Category) result).getVideos());
+    } else if (result instanceof Video) {
+      titleIndex.add((Video) result);
+    }
+  }
+
+  /**
+   * Returns the result stored in the catalog store for the specified request, or {@code null} if
+   * there is none or its endpoint is not stored.
+   */
+  @Nullable
+  @SuppressWarnings("unchecked")
+  private <T> T readStore(Endpoint endpoint, String key, String argument) {
+    switch (endpoint) {
+      case MOST_VIEWED_CATEGORY:
+      case NEW_CATEGORY:
+      case RECOMMENDED_CATEGORY:
+        return (T) catalogStore.readCategory(key);
+      case VIDEO:
+        return (T) catalogStore.readVideo(argument);
+      case VIDEO_MANIFEST:
+        return (T) catalogStore.readManifest(argument);
+      case SEARCH:
+      case CHANNELS:
+        return null;
+      default:
+        throw new IllegalArgumentException("Unhandled endpoint: " + endpoint);
+    }
+  }
+
+  /**
+   * Returns the validators to send when requesting the specified resource using the specified
+   * policy, which are {@link Validators#NONE} unless a parsed object is cached that can be reused
+   * if the resource has not been modified.
+   */
+  private Validators getValidators(Endpoint endpoint, @Nullable String argument,
+                                   LoadPolicy policy) {
+    return policy == LoadPolicy.DEFAULT ? getValidators(endpoint.key(argument)) : Validators.NONE;
+  }
+
+  private Validators getValidators(String key) {
+    return validatorCache.get(key);
+  }
+
+  /**
+   * Returns the parsed object that the specified response confirmed to be up to date, or {@code
+   * null} if the response is not 304 Not Modified, reading it from the catalog store if it has
+   * been evicted from the object cache, see {@link ValidatorCache#getNotModified}.
+   */
+  @Nullable
+  private <T> T getNotModified(final Endpoint endpoint, final String key,
+                               @Nullable final String argument, Response<?> response)
+      throws IOException {
+    return validatorCache.getNotModified(key, response.code(), new ValidatorCache.Fallback<T>() {
+      @Override
+      public T read() {
+        return readStore(endpoint, key, argument);
+      }
+    });
+  }
+
+  /**
+   * Caches the specified result, which was loaded or revalidated by the specified response, along
+   * with the validators of the response if its endpoint is revalidated.
+   */
+  private void putValidated(Endpoint endpoint, String key, Object result, Response<?> response) {
+    validatorCache.put(key, result, getTimeToLive(endpoint), isRevalidated(endpoint),
+        response.code(), response.headers());
+  }
+
+  /**
+   * Returns the object cached for the specified key even if it has expired, as a fallback for a
+   * call that was not made because the circuit of its endpoint is open. If there is none, the
+   * specified exception is thrown.
+   */
+  private <T> T getStaleOrThrow(String key, CircuitOpenException ex) throws CircuitOpenException {
+    T stale = objectCache.getStale(key);
+    if (stale == null) {
+      throw ex;
+    }
+    Log.d(TAG, String.format("Using stale [%s] as circuit is open", key));
+    return stale;
+  }
+
+  @Nullable
+  private static String getCacheControl(@NonNull LoadPolicy policy) {
+    switch (notNull(policy)) {
+      case DEFAULT:
+        return null;
+      case CACHE_ONLY:
+        return CacheControl.FORCE_CACHE.toString();
+      default:
+        throw new IllegalArgumentException("Unhandled policy: " + policy);
+    }
+  }
+
+  private static int checkOffset(int offset) {
+    if (offset < 0) {
+      throw new IllegalArgumentException("offset cannot be negative");
+    }
+    return offset;
+  }
+
+  /**
+   * Returns the argument identifying the page starting at the specified offset, taking the
+   * argument identifying the complete category into account.
+   */
+  private static String getPageArgument(@Nullable String argument, int offset) {
+    String page = "offset=" + offset;
+    return argument == null ? page : argument + '/' + page;
+  }
+
+  /**
+   * Returns whether or not requests to the specified endpoint send the validators of the response
+   * that their cached objects were parsed from.
+   */
+  private static boolean isRevalidated(Endpoint endpoint) {
+    switch (endpoint) {
+      case MOST_VIEWED_CATEGORY:
+      case NEW_CATEGORY:
+      case RECOMMENDED_CATEGORY:
+      case CHANNELS:
+        return true;
+      case SEARCH:
+      case VIDEO:
+      case VIDEO_MANIFEST:
+        return false;
+      default:
+        throw new IllegalArgumentException("Unhandled endpoint: " + endpoint);
+    }
+  }
+
+  private static long getTimeToLive(Endpoint endpoint) {
+    switch (endpoint) {
+      case MOST_VIEWED_CATEGORY:
+      case NEW_CATEGORY:
+      case RECOMMENDED_CATEGORY:
+      case SEARCH:
+        return CATEGORY_TIME_TO_LIVE_IN_MILLISECONDS;
+      case VIDEO:
+        return VIDEO_TIME_TO_LIVE_IN_MILLISECONDS;
+      case VIDEO_MANIFEST:
+        return VIDEO_MANIFEST_TIME_TO_LIVE_IN_MILLISECONDS;
+      case CHANNELS:
+        return CHANNELS_TIME_TO_LIVE_IN_MILLISECONDS;
+      default:
+        throw new IllegalArgumentException("Unhandled endpoint: " + endpoint);
+    }
+  }
+
+  /**
+   * Executes the specified call once, which is appropriate for calls only accepting cached
+   * responses.
+   */
   private static <T> T executeCall(Call<T> call) throws IOException {
-    Response<T> response = call.execute();
+    return getBody(call, call.execute());
+  }
+
+  private static <T> T getBody(Call<T> call, Response<T> response) throws IOException {
     if (!response.isSuccessful()) {
       throw new IOException(String.format(Locale.US,
           "Got code: [%d], message: [%s] when requesting: [%s]",
@@ -0,0 +1,277 @@
+/*
+ * Copyright 2016 Martin Kamp Jensen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.mkjensen.dml.backend;
+
+import static com.github.mkjensen.dml.util.Preconditions.notNull;
+
+import android.support.annotation.NonNull;
+
+import com.github.mkjensen.dml.util.Clock;
+
+import okhttp3.HttpUrl;
+import okhttp3.Interceptor;
+import okhttp3.MediaType;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+
+import okio.Buffer;
+import okio.BufferedSource;
+import okio.ForwardingSource;
+import okio.Okio;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.net.HttpURLConnection;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Records metrics about the HTTP requests made for each logical endpoint: the {@link Endpoint}
+ * of API requests, HLS playlists and segments, and images. The metrics of an endpoint are its
+ * latencies, the number of bytes received, how responses were served from the cache, and the
+ * number of errors. Recording only updates atomic counters and a lock-free {@link
+ * LatencyHistogram}.
+ *
+ * <p>The interceptor returned by {@link #interceptor(String)} must be added as an application
+ * interceptor, so that it sees responses served by the cache. Latencies are measured until the
+ * response headers have been received, while bytes are counted as the response body is read.
+ * Requests made by {@link ConnectionWarmer} to warm connections are not counted.
+ */
+public final class BackendMetrics {
+
+  private static final String HLS_PLAYLIST = "HLS_PLAYLIST";
+
+  private static final String HLS_SEGMENT = "HLS_SEGMENT";
+
+  private static final String IMAGE = "IMAGE";
+
+  private static final String OTHER = "OTHER";
+
+  private static final String SEARCH_PATH_PREFIX = DmlWebService.SEARCH_PATH.substring(0,
+      DmlWebService.SEARCH_PATH.indexOf('{'));
+
+  private final ConcurrentMap<String, EndpointMetrics> metrics = new ConcurrentHashMap<>();
+
+  private final Clock clock;
+
+  public BackendMetrics() {
+    this(Clock.SYSTEM);
+  }
+
+  BackendMetrics(@NonNull Clock clock) {
+    this.clock = notNull(clock);
+  }
+
+  /**
+   * Returns the application interceptor for the specified traffic class, which must be one of the
+   * traffic classes defined by {@link ConnectionWarmer}.
+   */
+  @NonNull
+  public Interceptor interceptor(@NonNull final String trafficClass) {
+    notNull(trafficClass);
+    return new Interceptor() {
+      @Override
+      public Response intercept(Chain chain) throws IOException {
+        if (ConnectionWarmer.isWarmUp(chain.request())) {
+          return chain.proceed(chain.request());
+        }
+        EndpointMetrics endpointMetrics = getMetrics(getEndpoint(trafficClass,
+            chain.request().url()));
+        endpointMetrics.requests.incrementAndGet();
+        long start = clock.elapsedMillis();
+        Response response;
+        try {
+          response = chain.proceed(chain.request());
+        } catch (IOException ex) {
+          endpointMetrics.errors.incrementAndGet();
+          throw ex;
+        }
+        endpointMetrics.latency.record(clock.elapsedMillis() - start);
+        endpointMetrics.recordCache(response);
+        if (!response.isSuccessful() && response.code() != HttpURLConnection.HTTP_NOT_MODIFIED) {
+          endpointMetrics.errors.incrementAndGet();
+        }
+        if (response.body() == null) {
+          return response;
+        }
+        return response.newBuilder()
+            .body(new CountingResponseBody(response.body(), endpointMetrics.bytes))
+            .build();
+      }
+    };
+  }
+
+  /**
+   * Returns the logical endpoint of a request for the specified URL made by the client of the
+   * specified traffic class.
+   */
+  @NonNull
+  static String getEndpoint(@NonNull String trafficClass, @NonNull HttpUrl url) {
+    switch (trafficClass) {
+      case ConnectionWarmer.API:
+        return getApiEndpoint(url.encodedPath());
+      case ConnectionWarmer.MEDIA:
+        return url.encodedPath().endsWith(".m3u8") ? HLS_PLAYLIST : HLS_SEGMENT;
+      case ConnectionWarmer.IMAGES:
+        return IMAGE;
+      default:
+        throw new IllegalArgumentException("Unhandled traffic class: " + trafficClass);
+    }
+  }
+
+  private static String getApiEndpoint(String path) {
+    if (path.endsWith(DmlWebService.MOST_VIEWED_CATEGORY_PATH)) {
+      return Endpoint.MOST_VIEWED_CATEGORY.name();
+    }
+    if (path.endsWith(DmlWebService.NEW_CATEGORY_PATH)) {
+      return Endpoint.NEW_CATEGORY.name();
+    }
+    if (path.endsWith(DmlWebService.RECOMMENDED_CATEGORY_PATH)) {
+      return Endpoint.RECOMMENDED_CATEGORY.name();
+    }
+    if (path.endsWith(DmlWebService.CHANNELS_PATH)) {
+      return Endpoint.CHANNELS.name();
+    }
+    if (path.contains(SEARCH_PATH_PREFIX)) {
+      return Endpoint.SEARCH.name();
+    }
+    if (path.contains("/programcard/")) {
+      return Endpoint.VIDEO.name();
+    }
+    if (RoutingCallFactory.isManifestPath(path)) {
+      return Endpoint.VIDEO_MANIFEST.name();
+    }
+    return OTHER;
+  }
+
+  private EndpointMetrics getMetrics(String endpoint) {
+    EndpointMetrics endpointMetrics = metrics.get(endpoint);
+    if (endpointMetrics == null) {
+      endpointMetrics = new EndpointMetrics();
+      EndpointMetrics existing = metrics.putIfAbsent(endpoint, endpointMetrics);
+      if (existing != null) {
+        endpointMetrics = existing;
+      }
+    }
+    return endpointMetrics;
+  }
+
+  /**
+   * Writes the metrics of every endpoint that has been requested to the specified writer, one
+   * line per endpoint, sorted by endpoint.
+   */
+  public void dump(@NonNull String prefix, @NonNull PrintWriter writer) {
+    notNull(prefix);
+    notNull(writer);
+    writer.print(prefix);
+    writer.println("BackendMetrics:");
+    Map<String, EndpointMetrics> sorted = new TreeMap<>(metrics);
+    for (Map.Entry<String, EndpointMetrics> entry : sorted.entrySet()) {
+      writer.print(prefix);
+      writer.print("  ");
+      writer.print(entry.getKey());
+      writer.print(": ");
+      writer.println(entry.getValue());
+    }
+  }
+
+  /**
+   * The metrics of a single logical endpoint.
+   */
+  private static final class EndpointMetrics {
+
+    final LatencyHistogram latency = new LatencyHistogram();
+
+    final AtomicLong requests = new AtomicLong();
+
+    final AtomicLong errors = new AtomicLong();
+
+    final AtomicLong bytes = new AtomicLong();
+
+    final AtomicLong cacheHits = new AtomicLong();
+
+    final AtomicLong conditionalCacheHits = new AtomicLong();
+
+    final AtomicLong cacheMisses = new AtomicLong();
+
+    void recordCache(Response response) {
+      Response networkResponse = response.networkResponse();
+      if (networkResponse == null) {
+        cacheHits.incrementAndGet();
+      } else if (networkResponse.code() == HttpURLConnection.HTTP_NOT_MODIFIED) {
+        // Validated either by the HTTP cache or by the caller against its parsed objects.
+        conditionalCacheHits.incrementAndGet();
+      } else {
+        cacheMisses.incrementAndGet();
+      }
+    }
+
+    @Override
+    public String toString() {
+      long requestCount = requests.get();
+      long errorCount = errors.get();
+      return String.format(Locale.US, "requests=%d errors=%d (%.1f%%) p50=%d ms p95=%d ms"
+              + " p99=%d ms bytes=%d cache[hit=%d conditional=%d miss=%d]",
+          requestCount, errorCount, requestCount == 0 ? 0.0 : 100.0 * errorCount / requestCount,
+          latency.getPercentile(0.5), latency.getPercentile(0.95), latency.getPercentile(0.99),
+          bytes.get(), cacheHits.get(), conditionalCacheHits.get(), cacheMisses.get());
+    }
+  }
+
+  /**
+   * A response body that adds the number of bytes read from it to a counter.
+   */
+  private static final class CountingResponseBody extends ResponseBody {
+
+    private final ResponseBody delegate;
+
+    private final BufferedSource source;
+
+    CountingResponseBody(ResponseBody delegate, final AtomicLong bytes) {
+      this.delegate = delegate;
+      this.source = Okio.buffer(new ForwardingSource(delegate.source()) {
+        @Override
+        public long read(Buffer sink, long byteCount) throws IOException {
+          long read = super.read(sink, byteCount);
+          if (read > 0) {
+            bytes.addAndGet(read);
+          }
+          return read;
+        }
+      });
+    }
+
+    @Override
+    public MediaType contentType() {
+      return delegate.contentType();
+    }
+
+    @Override
+    public long contentLength() {
+      return delegate.contentLength();
+    }
+
+    @Override
+    public BufferedSource source() {
+      return source;
+    }
+  }
+}
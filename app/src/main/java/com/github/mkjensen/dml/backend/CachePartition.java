@@ -0,0 +1,65 @@
+/*
+ * Copyright 2016 Martin Kamp Jensen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.mkjensen.dml.backend;
+
+import android.support.annotation.NonNull;
+
+/**
+ * The partitions of the HTTP disk cache, each holding one type of content with its own budget and
+ * eviction, see {@link CachePolicy}.
+ */
+public enum CachePartition {
+
+  /**
+   * JSON catalog data: categories, videos and channels.
+   */
+  CATALOG("http-api", 0.20),
+
+  /**
+   * Video manifests.
+   */
+  MANIFESTS("http-manifests", 0.05),
+
+  /**
+   * Images.
+   */
+  IMAGES("http-images", 0.75);
+
+  private final String directoryName;
+
+  private final double share;
+
+  CachePartition(String directoryName, double share) {
+    this.directoryName = directoryName;
+    this.share = share;
+  }
+
+  /**
+   * Returns the name of the directory holding this partition.
+   */
+  @NonNull
+  String getDirectoryName() {
+    return directoryName;
+  }
+
+  /**
+   * Returns the share of the total cache budget given to this partition.
+   */
+  double getShare() {
+    return share;
+  }
+}
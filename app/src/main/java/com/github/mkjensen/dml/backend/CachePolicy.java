@@ -0,0 +1,247 @@
+/*
+ * Copyright 2016 Martin Kamp Jensen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.mkjensen.dml.backend;
+
+import static com.github.mkjensen.dml.util.Preconditions.notNull;
+
+import android.os.StatFs;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.util.Log;
+
+import okhttp3.Cache;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Sizes the HTTP disk cache from the space available on the device and splits it into a {@link
+ * Cache} for each {@link CachePartition}, so that for example images cannot evict catalog data.
+ *
+ * <p>The total budget is {@link #AVAILABLE_SPACE_SHARE} of the space available when the policy is
+ * created, but at least {@link #MIN_TOTAL_BUDGET_IN_BYTES} and at most {@link
+ * #MAX_TOTAL_BUDGET_IN_BYTES}. Each partition gets its share of the total, but at least {@link
+ * #MIN_PARTITION_BUDGET_IN_BYTES}.
+ */
+public final class CachePolicy {
+
+  /**
+   * The share of the available space used for the cache.
+   */
+  public static final double AVAILABLE_SPACE_SHARE = 0.05;
+
+  /**
+   * The lower bound of the total budget.
+   */
+  public static final long MIN_TOTAL_BUDGET_IN_BYTES = 16 * 1024 * 1024;
+
+  /**
+   * The upper bound of the total budget.
+   */
+  public static final long MAX_TOTAL_BUDGET_IN_BYTES = 200 * 1024 * 1024;
+
+  /**
+   * The lower bound of the budget of each partition.
+   */
+  public static final long MIN_PARTITION_BUDGET_IN_BYTES = 1024 * 1024;
+
+  private static final String TAG = "CachePolicy";
+
+  /**
+   * Matches the names of the journal and entry files of an OkHttp cache.
+   */
+  private static final Pattern CACHE_FILE_NAME =
+      Pattern.compile("journal(\\.tmp|\\.bkp)?|[0-9a-f]{32}\\.[0-9]+(\\.tmp)?");
+
+  private final File cacheDirectory;
+
+  private final long totalBudget;
+
+  private final Map<CachePartition, Cache> caches = new EnumMap<>(CachePartition.class);
+
+  private final Map<CachePartition, Set<String>> dumpedUrls = new EnumMap<>(CachePartition.class);
+
+  private final Map<CachePartition, Long> evictionCounts = new EnumMap<>(CachePartition.class);
+
+  /**
+   * Creates a policy for caches stored in the specified directory.
+   */
+  public CachePolicy(@NonNull File cacheDirectory) {
+    this.cacheDirectory = notNull(cacheDirectory);
+    totalBudget = getTotalBudget(getAvailableBytes(cacheDirectory));
+    for (CachePartition partition : CachePartition.values()) {
+      File directory = new File(cacheDirectory, partition.getDirectoryName());
+      caches.put(partition, new Cache(directory, getPartitionBudget(totalBudget, partition)));
+    }
+    Log.d(TAG, String.format(Locale.US, "Total budget: [%d] bytes", totalBudget));
+  }
+
+  /**
+   * Deletes the single cache that earlier versions kept directly in the cache directory, which has
+   * been replaced by the partitions. Only the cache directory itself is listed, so this is cheap
+   * once the files have been deleted. Should not be called on the main thread.
+   */
+  public void deleteLegacyCache() {
+    int deleted = deleteCacheFiles(cacheDirectory);
+    if (deleted > 0) {
+      Log.d(TAG, String.format(Locale.US, "Deleted [%d] legacy cache files", deleted));
+    }
+  }
+
+  /**
+   * Deletes the OkHttp cache files directly in the specified directory, leaving subdirectories and
+   * other files alone, and returns the number of files deleted.
+   */
+  static int deleteCacheFiles(@NonNull File directory) {
+    File[] files = directory.listFiles();
+    if (files == null) {
+      return 0;
+    }
+    int deleted = 0;
+    for (File file : files) {
+      if (file.isFile() && CACHE_FILE_NAME.matcher(file.getName()).matches() && file.delete()) {
+        deleted++;
+      }
+    }
+    return deleted;
+  }
+
+  private static long getAvailableBytes(File directory) {
+    try {
+      return new StatFs(directory.getPath()).getAvailableBytes();
+    } catch (IllegalArgumentException ex) {
+      Log.w(TAG, "Failed to get available space", ex);
+      return 0L;
+    }
+  }
+
+  /**
+   * Returns the total budget given the specified amount of available space.
+   */
+  static long getTotalBudget(long availableBytes) {
+    long budget = (long) (availableBytes * AVAILABLE_SPACE_SHARE);
+    return Math.max(MIN_TOTAL_BUDGET_IN_BYTES, Math.min(MAX_TOTAL_BUDGET_IN_BYTES, budget));
+  }
+
+  /**
+   * Returns the budget of the specified partition given the specified total budget.
+   */
+  static long getPartitionBudget(long totalBudget, @NonNull CachePartition partition) {
+    long budget = (long) (totalBudget * partition.getShare());
+    return Math.max(MIN_PARTITION_BUDGET_IN_BYTES, budget);
+  }
+
+  /**
+   * Returns the cache of the specified partition.
+   */
+  @NonNull
+  public Cache getCache(@NonNull CachePartition partition) {
+    return caches.get(notNull(partition));
+  }
+
+  /**
+   * Returns the total budget of all partitions in bytes.
+   */
+  public long getTotalBudget() {
+    return totalBudget;
+  }
+
+  /**
+   * Writes the budget, occupancy, usage and evictions of each partition to the specified writer.
+   *
+   * <p>OkHttp does not count evictions, so they are derived from the URLs in each partition: a URL
+   * that was cached at the previous dump but no longer is has been evicted. The count is a lower
+   * bound that starts at the first dump, as entries written and evicted between two dumps are not
+   * seen. Listing the URLs reads the metadata of every entry, which is acceptable when dumping.
+   */
+  public synchronized void dump(@NonNull String prefix, @NonNull PrintWriter writer) {
+    notNull(prefix);
+    notNull(writer);
+    writer.print(prefix);
+    writer.println(String.format(Locale.US, "CachePolicy: budget=%d", totalBudget));
+    for (Map.Entry<CachePartition, Cache> entry : caches.entrySet()) {
+      CachePartition partition = entry.getKey();
+      Cache cache = entry.getValue();
+      long size;
+      try {
+        size = cache.size();
+      } catch (IOException ex) {
+        size = -1L;
+      }
+      long maxSize = cache.maxSize();
+      Set<String> urls = getUrls(cache);
+      long evicted = countEvictions(partition, urls);
+      writer.print(prefix);
+      writer.println(String.format(Locale.US,
+          "  %s: size=%d max=%d (%.1f%%) entries=%d evicted=%d requests=%d hits=%d network=%d"
+              + " writes=%d aborts=%d",
+          partition, size, maxSize, size < 0 ? 0.0 : 100.0 * size / maxSize, urls.size(),
+          evicted, cache.requestCount(), cache.hitCount(), cache.networkCount(),
+          cache.writeSuccessCount(), cache.writeAbortCount()));
+    }
+  }
+
+  /**
+   * Adds the URLs of the specified partition that have been evicted since the previous dump to its
+   * eviction count and returns the count.
+   */
+  private long countEvictions(CachePartition partition, Set<String> urls) {
+    Set<String> previous = dumpedUrls.put(partition, urls);
+    Long count = evictionCounts.get(partition);
+    long evicted = (count == null ? 0L : count) + countRemoved(previous, urls);
+    evictionCounts.put(partition, evicted);
+    return evicted;
+  }
+
+  /**
+   * Returns the number of the specified previous URLs that are not among the specified current
+   * URLs, or 0 if there are no previous URLs.
+   */
+  static int countRemoved(@Nullable Set<String> previous, @NonNull Set<String> current) {
+    if (previous == null) {
+      return 0;
+    }
+    int removed = 0;
+    for (String url : previous) {
+      if (!current.contains(url)) {
+        removed++;
+      }
+    }
+    return removed;
+  }
+
+  private static Set<String> getUrls(Cache cache) {
+    Set<String> urls = new HashSet<>();
+    try {
+      Iterator<String> iterator = cache.urls();
+      while (iterator.hasNext()) {
+        urls.add(iterator.next());
+      }
+    } catch (IOException ex) {
+      Log.w(TAG, "Failed to list cached URLs", ex);
+    }
+    return urls;
+  }
+}
@@ -0,0 +1,112 @@
+/*
+ * Copyright 2016 Martin Kamp Jensen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.mkjensen.dml.backend;
+
+import static com.github.mkjensen.dml.util.Preconditions.notNull;
+
+import android.support.annotation.NonNull;
+
+import com.github.mkjensen.dml.util.Clock;
+
+import okhttp3.Dns;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A {@link Dns} that caches the addresses resolved by another {@link Dns} in memory. The platform
+ * resolver does not expose the time to live of the records it returns, so each lookup is cached
+ * for {@link #TIME_TO_LIVE_IN_MILLISECONDS}, which is shorter than the time to live that the hosts
+ * used by the backend publish. Failed lookups are not cached.
+ */
+public final class CachingDns implements Dns {
+
+  /**
+   * The time for which resolved addresses are cached.
+   */
+  public static final long TIME_TO_LIVE_IN_MILLISECONDS = TimeUnit.MINUTES.toMillis(5);
+
+  private final Dns delegate;
+
+  private final long timeToLiveInMilliseconds;
+
+  private final Clock clock;
+
+  private final ConcurrentMap<String, Entry> cache = new ConcurrentHashMap<>();
+
+  private final AtomicLong hitCount = new AtomicLong();
+
+  private final AtomicLong missCount = new AtomicLong();
+
+  /**
+   * Creates a cache for the system resolver.
+   */
+  public CachingDns() {
+    this(Dns.SYSTEM, TIME_TO_LIVE_IN_MILLISECONDS, Clock.SYSTEM);
+  }
+
+  CachingDns(@NonNull Dns delegate, long timeToLiveInMilliseconds, @NonNull Clock clock) {
+    this.delegate = notNull(delegate);
+    this.timeToLiveInMilliseconds = timeToLiveInMilliseconds;
+    this.clock = notNull(clock);
+  }
+
+  @Override
+  public List<InetAddress> lookup(String hostname) throws UnknownHostException {
+    long now = clock.elapsedMillis();
+    Entry entry = cache.get(hostname);
+    if (entry != null && now < entry.expiresAt) {
+      hitCount.incrementAndGet();
+      return entry.addresses;
+    }
+    missCount.incrementAndGet();
+    List<InetAddress> addresses = delegate.lookup(hostname);
+    cache.put(hostname, new Entry(addresses, now + timeToLiveInMilliseconds));
+    return addresses;
+  }
+
+  /**
+   * Returns the number of lookups that were answered from the cache.
+   */
+  public long hitCount() {
+    return hitCount.get();
+  }
+
+  /**
+   * Returns the number of lookups that were passed on to the underlying resolver.
+   */
+  public long missCount() {
+    return missCount.get();
+  }
+
+  private static final class Entry {
+
+    final List<InetAddress> addresses;
+
+    final long expiresAt;
+
+    Entry(List<InetAddress> addresses, long expiresAt) {
+      this.addresses = addresses;
+      this.expiresAt = expiresAt;
+    }
+  }
+}
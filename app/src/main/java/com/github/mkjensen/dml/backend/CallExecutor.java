@@ -0,0 +1,451 @@
+/*
+ * Copyright 2016 Martin Kamp Jensen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.mkjensen.dml.backend;
+
+import static com.github.mkjensen.dml.util.Preconditions.notNull;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.util.Log;
+
+import com.github.mkjensen.dml.DmlException;
+import com.github.mkjensen.dml.util.Clock;
+
+import retrofit2.Call;
+import retrofit2.Response;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Executes calls to {@link DmlWebService} within a time budget that depends on the endpoint. All
+ * of its calls are idempotent GET requests, so they may safely be repeated:
+ *
+ * <ul>
+ * <li>Calls failing with an {@link IOException} or a server error are retried a bounded number of
+ * times with jittered exponential backoff, as long as the budget allows it.</li>
+ * <li>Calls to endpoints on the home and details screens are hedged: if a call has not completed
+ * when the 95th percentile of the latencies recorded for its endpoint has passed, an identical
+ * call is executed and whichever completes first is used.</li>
+ * <li>Each endpoint has a {@link CircuitBreaker}. Calls to an endpoint whose circuit is open fail
+ * immediately with {@link CircuitOpenException}.</li>
+ * <li>Every attempt is registered with the {@link CancellationScope} of the calling thread, if
+ * any. Cancelled calls are neither retried nor counted as failures by the circuit breaker.</li>
+ * </ul>
+ */
+final class CallExecutor {
+
+  private static final String TAG = "CallExecutor";
+
+  private static final int MIN_SAMPLES_FOR_HEDGING = 20;
+
+  private static final double HEDGING_PERCENTILE = 0.95;
+
+  private static final long NO_HEDGING = -1L;
+
+  private static final long INITIAL_BACKOFF_IN_MILLISECONDS = 100L;
+
+  private static final long MAX_BACKOFF_IN_MILLISECONDS = 2000L;
+
+  private final ExecutorService executor = Executors.newCachedThreadPool(new ThreadFactory() {
+
+    private final AtomicInteger count = new AtomicInteger();
+
+    @Override
+    public Thread newThread(@NonNull Runnable runnable) {
+      return new Thread(runnable, TAG + '-' + count.incrementAndGet());
+    }
+  });
+
+  private final Map<Endpoint, LatencyHistogram> histograms = new EnumMap<>(Endpoint.class);
+
+  private final Map<Endpoint, CircuitBreaker> circuitBreakers = new EnumMap<>(Endpoint.class);
+
+  private final Random random = new Random();
+
+  private final Clock clock;
+
+  private final AtomicLong retryCount = new AtomicLong();
+
+  private final AtomicLong hedgedCount = new AtomicLong();
+
+  CallExecutor() {
+    this(Clock.SYSTEM);
+  }
+
+  CallExecutor(@NonNull Clock clock) {
+    this.clock = notNull(clock);
+    for (Endpoint endpoint : Endpoint.values()) {
+      histograms.put(endpoint, new LatencyHistogram());
+      circuitBreakers.put(endpoint, new CircuitBreaker(clock));
+    }
+  }
+
+  /**
+   * Executes the specified call, or a clone of it, and returns the response. The response of the
+   * last attempt is returned even if it is unsuccessful, once no more attempts can be made.
+   */
+  @NonNull
+  <T> Response<T> execute(@NonNull Endpoint endpoint, @NonNull Call<T> call) throws IOException {
+    CancellationScope scope = CancellationScope.current();
+    if (scope != null) {
+      scope.throwIfCancelled();
+    }
+    CircuitBreaker circuitBreaker = circuitBreakers.get(endpoint);
+    if (!circuitBreaker.allowRequest()) {
+      throw new CircuitOpenException(endpoint);
+    }
+    boolean failed = true;
+    try {
+      Response<T> response = executeWithRetries(endpoint, call, scope);
+      failed = isServerError(response);
+      return response;
+    } finally {
+      if (!failed) {
+        circuitBreaker.onSuccess();
+      } else if (isAbandoned(scope)) {
+        circuitBreaker.onAbandoned();
+      } else {
+        circuitBreaker.onFailure();
+        if (circuitBreaker.getState() == CircuitBreaker.State.OPEN) {
+          Log.w(TAG, String.format("Circuit is open for endpoint: [%s]", endpoint));
+        }
+      }
+    }
+  }
+
+  private <T> Response<T> executeWithRetries(Endpoint endpoint, Call<T> call,
+                                             @Nullable CancellationScope scope)
+      throws IOException {
+    long deadline = clock.elapsedMillis() + getTimeoutBudget(endpoint);
+    int maxAttempts = getMaxAttempts(endpoint);
+    Response<T> response = null;
+    IOException failure = null;
+    for (int attempt = 1; ; attempt++) {
+      try {
+        response = executeAttempt(endpoint, call, deadline, scope);
+        failure = null;
+        if (!isServerError(response) || isAbandoned(scope)) {
+          return response;
+        }
+      } catch (IOException ex) {
+        if (isAbandoned(scope)) {
+          throw ex;
+        }
+        response = null;
+        failure = ex;
+      }
+      long backoff = getBackoff(attempt);
+      if (attempt >= maxAttempts || clock.elapsedMillis() + backoff >= deadline) {
+        break;
+      }
+      sleep(backoff);
+      retryCount.incrementAndGet();
+      Log.d(TAG, String.format(Locale.US, "Retrying [%s] after [%d] ms, attempt [%d]",
+          call.request().url(), backoff, attempt + 1));
+    }
+    if (response != null) {
+      return response;
+    }
+    throw failure;
+  }
+
+  private <T> Response<T> executeAttempt(Endpoint endpoint, Call<T> call, long deadline,
+                                         @Nullable CancellationScope scope) throws IOException {
+    CompletionService<Attempt<T>> completionService = new ExecutorCompletionService<>(executor);
+    List<Attempt<T>> attempts = new ArrayList<>(2);
+    Attempt<T> winner = null;
+    try {
+      long hedgeAt = isHedged(endpoint) ? getHedgeDelay(endpoint) : NO_HEDGING;
+      if (hedgeAt != NO_HEDGING) {
+        hedgeAt += clock.elapsedMillis();
+      }
+      submit(completionService, attempts, new Attempt<>(endpoint, call.clone(), scope));
+      int pending = 1;
+      while (true) {
+        long now = clock.elapsedMillis();
+        if (hedgeAt != NO_HEDGING && now >= hedgeAt) {
+          hedgeAt = NO_HEDGING;
+          hedgedCount.incrementAndGet();
+          Log.d(TAG, String.format("Hedging [%s]", call.request().url()));
+          submit(completionService, attempts, new Attempt<>(endpoint, call.clone(), scope));
+          pending++;
+        }
+        if (now >= deadline) {
+          throw new InterruptedIOException(String.format(Locale.US,
+              "Timed out after [%d] ms when requesting: [%s]", getTimeoutBudget(endpoint),
+              call.request().url()));
+        }
+        long wait = hedgeAt == NO_HEDGING ? deadline - now : Math.min(deadline, hedgeAt) - now;
+        Future<Attempt<T>> future = completionService.poll(wait, TimeUnit.MILLISECONDS);
+        if (future == null) {
+          continue;
+        }
+        pending--;
+        Attempt<T> attempt = await(future, pending > 0);
+        if (attempt != null && (!isServerError(attempt.response) || pending == 0)) {
+          winner = attempt;
+          return attempt.response;
+        }
+        // Failed, but the outcome of the other attempt is still pending.
+      }
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while waiting for call");
+    } finally {
+      for (Attempt<T> attempt : attempts) {
+        if (attempt != winner) {
+          attempt.abandon();
+        }
+      }
+    }
+  }
+
+  private static <T> void submit(CompletionService<Attempt<T>> completionService,
+                                 List<Attempt<T>> attempts, Attempt<T> attempt) {
+    attempts.add(attempt);
+    completionService.submit(attempt);
+  }
+
+  /**
+   * Returns the completed attempt, or {@code null} if it failed while other attempts are still
+   * pending, in which case their outcome decides that of the call.
+   */
+  private static <T> Attempt<T> await(Future<Attempt<T>> future, boolean othersPending)
+      throws IOException, InterruptedException {
+    try {
+      return future.get();
+    } catch (ExecutionException ex) {
+      Throwable cause = ex.getCause();
+      if (othersPending && cause instanceof IOException) {
+        return null;
+      }
+      if (cause instanceof IOException) {
+        throw (IOException) cause;
+      }
+      if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      }
+      if (cause instanceof Error) {
+        throw (Error) cause;
+      }
+      throw new DmlException(cause);
+    }
+  }
+
+  private void sleep(long millis) throws InterruptedIOException {
+    try {
+      Thread.sleep(millis);
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while backing off");
+    }
+  }
+
+  /**
+   * Returns a random backoff before the specified attempt is retried, up to a limit that doubles
+   * with each attempt.
+   */
+  private long getBackoff(int attempt) {
+    long limit = Math.min(MAX_BACKOFF_IN_MILLISECONDS,
+        INITIAL_BACKOFF_IN_MILLISECONDS << Math.min(attempt - 1, 16));
+    return limit / 2 + (long) (random.nextDouble() * (limit / 2));
+  }
+
+  /**
+   * Returns the time after which a call to the specified endpoint is hedged, or {@link
+   * #NO_HEDGING} if too few latencies have been recorded for it yet.
+   */
+  private long getHedgeDelay(Endpoint endpoint) {
+    LatencyHistogram histogram = histograms.get(endpoint);
+    if (histogram.count() < MIN_SAMPLES_FOR_HEDGING) {
+      return NO_HEDGING;
+    }
+    return histogram.getPercentile(HEDGING_PERCENTILE);
+  }
+
+  /**
+   * Returns the latencies recorded for calls to the specified endpoint.
+   */
+  @NonNull
+  LatencyHistogram getLatencyHistogram(@NonNull Endpoint endpoint) {
+    return histograms.get(notNull(endpoint));
+  }
+
+  /**
+   * Returns the circuit breaker of the specified endpoint.
+   */
+  @NonNull
+  CircuitBreaker getCircuitBreaker(@NonNull Endpoint endpoint) {
+    return circuitBreakers.get(notNull(endpoint));
+  }
+
+  /**
+   * Returns the number of times that calls have been retried.
+   */
+  long getRetryCount() {
+    return retryCount.get();
+  }
+
+  /**
+   * Returns the number of times that calls have been hedged.
+   */
+  long getHedgedCount() {
+    return hedgedCount.get();
+  }
+
+  /**
+   * Returns whether or not the caller has given up on the current call, either by being
+   * interrupted or by cancelling the specified scope.
+   */
+  private static boolean isAbandoned(@Nullable CancellationScope scope) {
+    return Thread.currentThread().isInterrupted() || (scope != null && scope.isCancelled());
+  }
+
+  private static boolean isServerError(Response<?> response) {
+    return response.code() >= 500;
+  }
+
+  private static long getTimeoutBudget(Endpoint endpoint) {
+    switch (endpoint) {
+      case SEARCH:
+        return TimeUnit.SECONDS.toMillis(5);
+      case VIDEO:
+      case VIDEO_MANIFEST:
+        return TimeUnit.SECONDS.toMillis(8);
+      case MOST_VIEWED_CATEGORY:
+      case NEW_CATEGORY:
+      case RECOMMENDED_CATEGORY:
+      case CHANNELS:
+        return TimeUnit.SECONDS.toMillis(15);
+      default:
+        throw new IllegalArgumentException("Unhandled endpoint: " + endpoint);
+    }
+  }
+
+  private static int getMaxAttempts(Endpoint endpoint) {
+    switch (endpoint) {
+      case SEARCH:
+        return 2;
+      case MOST_VIEWED_CATEGORY:
+      case NEW_CATEGORY:
+      case RECOMMENDED_CATEGORY:
+      case VIDEO:
+      case VIDEO_MANIFEST:
+      case CHANNELS:
+        return 3;
+      default:
+        throw new IllegalArgumentException("Unhandled endpoint: " + endpoint);
+    }
+  }
+
+  private static boolean isHedged(Endpoint endpoint) {
+    switch (endpoint) {
+      case MOST_VIEWED_CATEGORY:
+      case NEW_CATEGORY:
+      case RECOMMENDED_CATEGORY:
+      case VIDEO:
+      case VIDEO_MANIFEST:
+        return true;
+      case SEARCH:
+      case CHANNELS:
+        return false;
+      default:
+        throw new IllegalArgumentException("Unhandled endpoint: " + endpoint);
+    }
+  }
+
+  private static void closeQuietly(Response<?> response) {
+    Object body = response.body();
+    if (body instanceof Closeable) {
+      try {
+        ((Closeable) body).close();
+      } catch (IOException ex) {
+        // Ignore.
+      }
+    }
+  }
+
+  /**
+   * A single execution of a call. An attempt that is abandoned is cancelled, and its response is
+   * closed if it arrives anyway.
+   */
+  private final class Attempt<T> implements Callable<Attempt<T>> {
+
+    private final Endpoint endpoint;
+
+    private final Call<T> call;
+
+    private final CancellationScope scope;
+
+    private Response<T> response;
+
+    private boolean abandoned;
+
+    Attempt(Endpoint endpoint, Call<T> call, @Nullable CancellationScope scope) {
+      this.endpoint = endpoint;
+      this.call = call;
+      this.scope = scope;
+      if (scope != null) {
+        scope.register(call);
+      }
+    }
+
+    @Override
+    public Attempt<T> call() throws IOException {
+      long start = clock.elapsedMillis();
+      Response<T> result = call.execute();
+      histograms.get(endpoint).record(clock.elapsedMillis() - start);
+      synchronized (this) {
+        response = result;
+        if (abandoned) {
+          closeQuietly(result);
+        }
+      }
+      return this;
+    }
+
+    synchronized void abandon() {
+      abandoned = true;
+      call.cancel();
+      if (scope != null) {
+        scope.unregister(call);
+      }
+      if (response != null) {
+        closeQuietly(response);
+      }
+    }
+  }
+}
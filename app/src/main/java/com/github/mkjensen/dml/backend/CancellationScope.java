@@ -0,0 +1,131 @@
+/*
+ * Copyright 2016 Martin Kamp Jensen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.mkjensen.dml.backend;
+
+import static com.github.mkjensen.dml.util.Preconditions.notNull;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import retrofit2.Call;
+
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Cancels the network calls made on behalf of an operation that is no longer needed, such as a
+ * load that has been superseded.
+ *
+ * <p>A scope is entered on the thread performing the operation, and the calls made by {@link
+ * BackendHelper} on that thread, including retried and hedged calls made on other threads, are
+ * registered with it. Cancelling the scope cancels its calls, so responses that are being
+ * downloaded or parsed fail with an {@link java.io.IOException} part-way, and calls registered
+ * afterwards are cancelled right away. Methods on this class may be called from any thread.
+ */
+public final class CancellationScope {
+
+  private static final ThreadLocal<CancellationScope> CURRENT = new ThreadLocal<>();
+
+  private final List<Call<?>> calls = new ArrayList<>();
+
+  private boolean cancelled;
+
+  /**
+   * Makes the specified scope, if any, the scope of the calling thread and returns the scope it
+   * replaced, which must be restored using {@link #restore(CancellationScope)} once the operation
+   * has finished.
+   */
+  @Nullable
+  public static CancellationScope enter(@Nullable CancellationScope scope) {
+    CancellationScope previous = CURRENT.get();
+    restore(scope);
+    return previous;
+  }
+
+  /**
+   * Makes the specified scope, as returned by {@link #enter(CancellationScope)}, the scope of the
+   * calling thread.
+   */
+  public static void restore(@Nullable CancellationScope previous) {
+    if (previous == null) {
+      CURRENT.remove();
+    } else {
+      CURRENT.set(previous);
+    }
+  }
+
+  /**
+   * Returns the scope of the calling thread, or {@code null} if it has not entered any.
+   */
+  @Nullable
+  public static CancellationScope current() {
+    return CURRENT.get();
+  }
+
+  /**
+   * Cancels the calls registered with this scope and any calls registered later.
+   */
+  public void cancel() {
+    List<Call<?>> registered;
+    synchronized (this) {
+      if (cancelled) {
+        return;
+      }
+      cancelled = true;
+      registered = new ArrayList<>(calls);
+      calls.clear();
+    }
+    for (Call<?> call : registered) {
+      call.cancel();
+    }
+  }
+
+  public synchronized boolean isCancelled() {
+    return cancelled;
+  }
+
+  /**
+   * Throws {@link InterruptedIOException} if this scope has been cancelled.
+   */
+  void throwIfCancelled() throws InterruptedIOException {
+    if (isCancelled()) {
+      throw new InterruptedIOException("Canceled");
+    }
+  }
+
+  /**
+   * Registers the specified call, which is cancelled immediately if this scope has been cancelled.
+   */
+  void register(@NonNull Call<?> call) {
+    notNull(call);
+    synchronized (this) {
+      if (!cancelled) {
+        calls.add(call);
+        return;
+      }
+    }
+    call.cancel();
+  }
+
+  /**
+   * Unregisters the specified call, which no longer needs to be cancelled.
+   */
+  synchronized void unregister(@NonNull Call<?> call) {
+    calls.remove(call);
+  }
+}
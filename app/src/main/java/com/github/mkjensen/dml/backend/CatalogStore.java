@@ -0,0 +1,422 @@
+/*
+ * Copyright 2016 Martin Kamp Jensen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.mkjensen.dml.backend;
+
+import static com.github.mkjensen.dml.util.Preconditions.notNull;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteException;
+import android.database.sqlite.SQLiteOpenHelper;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.util.Log;
+
+import com.github.mkjensen.dml.model.Category;
+import com.github.mkjensen.dml.model.Protocol;
+import com.github.mkjensen.dml.model.Video;
+import com.github.mkjensen.dml.model.VideoManifest;
+import com.github.mkjensen.dml.util.Clock;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A local SQLite catalog of the categories, videos and video manifests loaded from the backend, so
+ * that screens can be shown from an indexed local query and keep working without a network.
+ *
+ * <p>Categories are stored by the key of the request that loaded them, and reference their videos
+ * by slug. Videos are shared between categories and also stored when loaded on their own. Their
+ * descriptions and manifest URLs are stored as the byte slice of {@link Video#getLazyFields()}, so
+ * that they are neither decoded when written nor when read. The store is a cache: failing to read
+ * or write it is logged and otherwise ignored, and its contents are dropped when its schema
+ * changes.
+ */
+public final class CatalogStore {
+
+  /**
+   * The age after which stored video manifests are no longer returned, as their stream URLs may
+   * have stopped working.
+   */
+  public static final long MANIFEST_MAX_AGE_IN_MILLISECONDS = TimeUnit.HOURS.toMillis(1);
+
+  static final String DATABASE_NAME = "catalog.db";
+
+  private static final int DATABASE_VERSION = 2;
+
+  private static final String TAG = "CatalogStore";
+
+  private static final String TABLE_CATEGORIES = "categories";
+
+  private static final String TABLE_CATEGORY_VIDEOS = "category_videos";
+
+  private static final String TABLE_VIDEOS = "videos";
+
+  private static final String TABLE_MANIFESTS = "manifests";
+
+  private static final String TABLE_MANIFEST_STREAMS = "manifest_streams";
+
+  private static final String[] VIDEO_COLUMNS = {"slug", "title", "image_url", "lazy_fields"};
+
+  private static final String SELECT_CATEGORY_VIDEOS = "SELECT v.slug, v.title, v.image_url,"
+      + " v.lazy_fields FROM category_videos c JOIN videos v ON v.slug = c.slug"
+      + " WHERE c.category_key = ? ORDER BY c.position";
+
+  /**
+   * The wall clock, as stored times must remain meaningful across process restarts and reboots.
+   */
+  private static final Clock WALL_CLOCK = new Clock() {
+    @Override
+    public long elapsedMillis() {
+      return System.currentTimeMillis();
+    }
+  };
+
+  private final SQLiteOpenHelper helper;
+
+  private final Clock clock;
+
+  public CatalogStore(@NonNull Context context) {
+    this(context, DATABASE_NAME, WALL_CLOCK);
+  }
+
+  /**
+   * Creates a store in the database with the specified name, or in memory if the name is {@code
+   * null}, using the specified clock for the ages of stored rows.
+   */
+  CatalogStore(@NonNull Context context, @Nullable String databaseName, @NonNull Clock clock) {
+    this.helper = new DatabaseHelper(notNull(context).getApplicationContext(), databaseName);
+    this.clock = notNull(clock);
+  }
+
+  /**
+   * Returns the category stored for the specified key, or {@code null} if there is none.
+   */
+  @Nullable
+  public Category readCategory(@NonNull String key) {
+    notNull(key);
+    try {
+      SQLiteDatabase database = helper.getReadableDatabase();
+      Category category = new Category();
+      Cursor cursor = database.query(TABLE_CATEGORIES, new String[]{"title", "total_size"},
+          "key = ?", new String[]{key}, null, null, null);
+      try {
+        if (!cursor.moveToFirst()) {
+          return null;
+        }
+        category.setTitle(cursor.getString(0));
+        category.setTotalSize(cursor.getInt(1));
+      } finally {
+        cursor.close();
+      }
+      cursor = database.rawQuery(SELECT_CATEGORY_VIDEOS, new String[]{key});
+      try {
+        List<Video> videos = new ArrayList<>(cursor.getCount());
+        while (cursor.moveToNext()) {
+          videos.add(readVideo(cursor));
+        }
+        category.setVideos(videos);
+      } finally {
+        cursor.close();
+      }
+      return category;
+    } catch (SQLiteException ex) {
+      Log.w(TAG, String.format("Failed to read category [%s]", key), ex);
+      return null;
+    }
+  }
+
+  /**
+   * Stores the specified category and its videos for the specified key, replacing any category
+   * already stored for it.
+   */
+  public void writeCategory(@NonNull String key, @NonNull Category category) {
+    notNull(key);
+    notNull(category);
+    long now = clock.elapsedMillis();
+    try {
+      SQLiteDatabase database = helper.getWritableDatabase();
+      database.beginTransaction();
+      try {
+        ContentValues values = new ContentValues(4);
+        values.put("key", key);
+        values.put("title", category.getTitle());
+        values.put("total_size", category.getTotalSize());
+        values.put("updated_at", now);
+        database.insertWithOnConflict(TABLE_CATEGORIES, null, values,
+            SQLiteDatabase.CONFLICT_REPLACE);
+        database.delete(TABLE_CATEGORY_VIDEOS, "category_key = ?", new String[]{key});
+        List<Video> videos = category.getVideos();
+        ContentValues position = new ContentValues(3);
+        for (int i = 0; i < videos.size(); i++) {
+          Video video = videos.get(i);
+          writeVideo(database, video, now);
+          position.put("category_key", key);
+          position.put("position", i);
+          position.put("slug", video.getId());
+          database.insert(TABLE_CATEGORY_VIDEOS, null, position);
+        }
+        database.setTransactionSuccessful();
+      } finally {
+        database.endTransaction();
+      }
+    } catch (SQLiteException ex) {
+      Log.w(TAG, String.format("Failed to write category [%s]", key), ex);
+    }
+  }
+
+  /**
+   * Returns the video stored with the specified slug, or {@code null} if there is none.
+   */
+  @Nullable
+  public Video readVideo(@NonNull String slug) {
+    notNull(slug);
+    try {
+      Cursor cursor = helper.getReadableDatabase().query(TABLE_VIDEOS, VIDEO_COLUMNS,
+          "slug = ?", new String[]{slug}, null, null, null);
+      try {
+        return cursor.moveToFirst() ? readVideo(cursor) : null;
+      } finally {
+        cursor.close();
+      }
+    } catch (SQLiteException ex) {
+      Log.w(TAG, String.format("Failed to read video [%s]", slug), ex);
+      return null;
+    }
+  }
+
+  /**
+   * Returns all stored videos with only their slugs, titles and image URLs set, which is enough
+   * for listing and indexing them. The returned list is empty if the store cannot be read.
+   */
+  @NonNull
+  public List<Video> readVideos() {
+    try {
+      Cursor cursor = helper.getReadableDatabase().query(TABLE_VIDEOS,
+          new String[]{"slug", "title", "image_url"}, null, null, null, null, null);
+      try {
+        List<Video> videos = new ArrayList<>(cursor.getCount());
+        while (cursor.moveToNext()) {
+          Video video = new Video();
+          video.setId(cursor.getString(0));
+          video.setTitle(cursor.getString(1));
+          video.setImageUrl(cursor.getString(2));
+          videos.add(video);
+        }
+        return videos;
+      } finally {
+        cursor.close();
+      }
+    } catch (SQLiteException ex) {
+      Log.w(TAG, "Failed to read videos", ex);
+      return new ArrayList<>(0);
+    }
+  }
+
+  private static Video readVideo(Cursor cursor) {
+    Video video = new Video();
+    video.setId(cursor.getString(0));
+    video.setTitle(cursor.getString(1));
+    video.setImageUrl(cursor.getString(2));
+    video.setLazyFields(cursor.getBlob(3));
+    return video;
+  }
+
+  /**
+   * Stores the specified video, replacing any video already stored with the same slug.
+   */
+  public void writeVideo(@NonNull Video video) {
+    notNull(video);
+    try {
+      writeVideo(helper.getWritableDatabase(), video, clock.elapsedMillis());
+    } catch (SQLiteException ex) {
+      Log.w(TAG, String.format("Failed to write video [%s]", video.getId()), ex);
+    }
+  }
+
+  private static void writeVideo(SQLiteDatabase database, Video video, long now) {
+    ContentValues values = new ContentValues(5);
+    values.put("slug", video.getId());
+    values.put("title", video.getTitle());
+    values.put("image_url", video.getImageUrl());
+    values.put("lazy_fields", video.getLazyFields());
+    values.put("updated_at", now);
+    database.insertWithOnConflict(TABLE_VIDEOS, null, values, SQLiteDatabase.CONFLICT_REPLACE);
+  }
+
+  /**
+   * Returns the video manifest stored for the specified URL, or {@code null} if there is none or
+   * if it is older than {@link #MANIFEST_MAX_AGE_IN_MILLISECONDS}.
+   */
+  @Nullable
+  public VideoManifest readManifest(@NonNull String url) {
+    notNull(url);
+    long oldest = clock.elapsedMillis() - MANIFEST_MAX_AGE_IN_MILLISECONDS;
+    try {
+      SQLiteDatabase database = helper.getReadableDatabase();
+      Cursor cursor = database.query(TABLE_MANIFESTS, new String[]{"updated_at"},
+          "url = ? AND updated_at >= ?", new String[]{url, String.valueOf(oldest)}, null, null,
+          null);
+      try {
+        if (!cursor.moveToFirst()) {
+          return null;
+        }
+      } finally {
+        cursor.close();
+      }
+      cursor = database.query(TABLE_MANIFEST_STREAMS, new String[]{"protocol", "url"},
+          "manifest_url = ?", new String[]{url}, null, null, "position");
+      try {
+        List<VideoManifest.Stream> streams = new ArrayList<>(cursor.getCount());
+        while (cursor.moveToNext()) {
+          VideoManifest.Stream stream = new VideoManifest.Stream();
+          stream.setProtocol(getProtocol(cursor.getString(0)));
+          stream.setUrl(cursor.getString(1));
+          streams.add(stream);
+        }
+        VideoManifest manifest = new VideoManifest();
+        manifest.setStreams(streams);
+        return manifest;
+      } finally {
+        cursor.close();
+      }
+    } catch (SQLiteException ex) {
+      Log.w(TAG, String.format("Failed to read manifest [%s]", url), ex);
+      return null;
+    }
+  }
+
+  private static Protocol getProtocol(String name) {
+    try {
+      return Protocol.valueOf(name);
+    } catch (IllegalArgumentException ex) {
+      return Protocol.UNKNOWN;
+    }
+  }
+
+  /**
+   * Stores the specified video manifest for the specified URL, replacing any manifest already
+   * stored for it.
+   */
+  public void writeManifest(@NonNull String url, @NonNull VideoManifest manifest) {
+    notNull(url);
+    notNull(manifest);
+    try {
+      SQLiteDatabase database = helper.getWritableDatabase();
+      database.beginTransaction();
+      try {
+        ContentValues values = new ContentValues(2);
+        values.put("url", url);
+        values.put("updated_at", clock.elapsedMillis());
+        database.insertWithOnConflict(TABLE_MANIFESTS, null, values,
+            SQLiteDatabase.CONFLICT_REPLACE);
+        database.delete(TABLE_MANIFEST_STREAMS, "manifest_url = ?", new String[]{url});
+        List<VideoManifest.Stream> streams = manifest.getStreams();
+        ContentValues stream = new ContentValues(4);
+        for (int i = 0; i < streams.size(); i++) {
+          stream.put("manifest_url", url);
+          stream.put("position", i);
+          stream.put("protocol", streams.get(i).getProtocol().name());
+          stream.put("url", streams.get(i).getUrl());
+          database.insert(TABLE_MANIFEST_STREAMS, null, stream);
+        }
+        database.setTransactionSuccessful();
+      } finally {
+        database.endTransaction();
+      }
+    } catch (SQLiteException ex) {
+      Log.w(TAG, String.format("Failed to write manifest [%s]", url), ex);
+    }
+  }
+
+  /**
+   * Deletes expired manifests, and videos not referenced by any category that have not been
+   * updated within the specified time.
+   */
+  public void prune(long maxVideoAgeInMilliseconds) {
+    long now = clock.elapsedMillis();
+    String[] oldestVideo = {String.valueOf(now - maxVideoAgeInMilliseconds)};
+    String[] oldestManifest = {String.valueOf(now - MANIFEST_MAX_AGE_IN_MILLISECONDS)};
+    try {
+      SQLiteDatabase database = helper.getWritableDatabase();
+      database.beginTransaction();
+      try {
+        int videos = database.delete(TABLE_VIDEOS, "updated_at < ? AND slug NOT IN"
+            + " (SELECT slug FROM category_videos)", oldestVideo);
+        database.delete(TABLE_MANIFEST_STREAMS, "manifest_url IN"
+            + " (SELECT url FROM manifests WHERE updated_at < ?)", oldestManifest);
+        int manifests = database.delete(TABLE_MANIFESTS, "updated_at < ?", oldestManifest);
+        database.setTransactionSuccessful();
+        Log.d(TAG, String.format("Pruned [%d] videos and [%d] manifests", videos, manifests));
+      } finally {
+        database.endTransaction();
+      }
+    } catch (SQLiteException ex) {
+      Log.w(TAG, "Failed to prune", ex);
+    }
+  }
+
+  /**
+   * Closes the database. It is opened again when the store is next used.
+   */
+  void close() {
+    helper.close();
+  }
+
+  private static final class DatabaseHelper extends SQLiteOpenHelper {
+
+    DatabaseHelper(Context context, String databaseName) {
+      super(context, databaseName, null, DATABASE_VERSION);
+    }
+
+    @Override
+    public void onConfigure(SQLiteDatabase database) {
+      database.enableWriteAheadLogging();
+    }
+
+    @Override
+    public void onCreate(SQLiteDatabase database) {
+      database.execSQL("CREATE TABLE categories (key TEXT PRIMARY KEY, title TEXT NOT NULL,"
+          + " total_size INTEGER NOT NULL, updated_at INTEGER NOT NULL)");
+      database.execSQL("CREATE TABLE videos (slug TEXT PRIMARY KEY, title TEXT NOT NULL,"
+          + " image_url TEXT NOT NULL, lazy_fields BLOB NOT NULL, updated_at INTEGER NOT NULL)");
+      database.execSQL("CREATE TABLE category_videos (category_key TEXT NOT NULL,"
+          + " position INTEGER NOT NULL, slug TEXT NOT NULL,"
+          + " PRIMARY KEY (category_key, position))");
+      database.execSQL("CREATE INDEX category_videos_slug ON category_videos (slug)");
+      database.execSQL("CREATE TABLE manifests (url TEXT PRIMARY KEY,"
+          + " updated_at INTEGER NOT NULL)");
+      database.execSQL("CREATE TABLE manifest_streams (manifest_url TEXT NOT NULL,"
+          + " position INTEGER NOT NULL, protocol TEXT NOT NULL, url TEXT NOT NULL,"
+          + " PRIMARY KEY (manifest_url, position))");
+    }
+
+    @Override
+    public void onUpgrade(SQLiteDatabase database, int oldVersion, int newVersion) {
+      Log.d(TAG, String.format("Dropping catalog of version [%d]", oldVersion));
+      database.execSQL("DROP TABLE IF EXISTS " + TABLE_CATEGORIES);
+      database.execSQL("DROP TABLE IF EXISTS " + TABLE_CATEGORY_VIDEOS);
+      database.execSQL("DROP TABLE IF EXISTS " + TABLE_VIDEOS);
+      database.execSQL("DROP TABLE IF EXISTS " + TABLE_MANIFESTS);
+      database.execSQL("DROP TABLE IF EXISTS " + TABLE_MANIFEST_STREAMS);
+      onCreate(database);
+    }
+  }
+}
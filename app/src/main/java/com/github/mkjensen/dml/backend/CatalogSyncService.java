@@ -0,0 +1,121 @@
+/*
+ * Copyright 2016 Martin Kamp Jensen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.mkjensen.dml.backend;
+
+import android.app.job.JobInfo;
+import android.app.job.JobParameters;
+import android.app.job.JobScheduler;
+import android.app.job.JobService;
+import android.content.ComponentName;
+import android.content.Context;
+import android.os.Process;
+import android.support.annotation.NonNull;
+import android.util.Log;
+
+import com.github.mkjensen.dml.DmlApplication;
+import com.github.mkjensen.dml.model.Category;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps the {@link CatalogStore} and the {@link HomeSnapshot} fresh by periodically loading the
+ * categories shown on the home screen while a network is available, so that they can be shown at
+ * startup without waiting for the network. Stored videos that are no longer part of any category
+ * are pruned afterwards.
+ */
+public final class CatalogSyncService extends JobService {
+
+  static final int JOB_ID = 1;
+
+  private static final String TAG = "CatalogSyncService";
+
+  private static final long SYNC_INTERVAL_IN_MILLISECONDS = TimeUnit.HOURS.toMillis(1);
+
+  private static final long VIDEO_MAX_AGE_IN_MILLISECONDS = TimeUnit.DAYS.toMillis(7);
+
+  private Thread thread;
+
+  /**
+   * Schedules periodic syncs unless they have already been scheduled.
+   */
+  public static void schedule(@NonNull Context context) {
+    JobScheduler scheduler =
+        (JobScheduler) context.getSystemService(Context.JOB_SCHEDULER_SERVICE);
+    for (JobInfo job : scheduler.getAllPendingJobs()) {
+      if (job.getId() == JOB_ID) {
+        return;
+      }
+    }
+    Log.d(TAG, "Scheduling sync");
+    ComponentName service = new ComponentName(context, CatalogSyncService.class);
+    scheduler.schedule(new JobInfo.Builder(JOB_ID, service)
+        .setRequiredNetworkType(JobInfo.NETWORK_TYPE_ANY)
+        .setPeriodic(SYNC_INTERVAL_IN_MILLISECONDS)
+        .setPersisted(false)
+        .build());
+  }
+
+  @Override
+  public boolean onStartJob(final JobParameters params) {
+    final BackendHelper backendHelper =
+        DmlApplication.from(this).getBackendComponent().backendHelper();
+    thread = new Thread(new Runnable() {
+      @Override
+      public void run() {
+        Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+        boolean synced = sync(backendHelper);
+        if (!Thread.currentThread().isInterrupted()) {
+          jobFinished(params, !synced);
+        }
+      }
+    }, TAG);
+    thread.start();
+    return true;
+  }
+
+  @Override
+  public boolean onStopJob(JobParameters params) {
+    Log.d(TAG, "onStopJob");
+    if (thread != null) {
+      thread.interrupt();
+    }
+    return true;
+  }
+
+  static boolean sync(@NonNull BackendHelper backendHelper) {
+    Log.d(TAG, "Syncing");
+    try {
+      List<Category> categories = Arrays.asList(backendHelper.loadNewCategory(),
+          backendHelper.loadRecommendedCategory(), backendHelper.loadMostViewedCategory());
+      // The home snapshot is read before the catalog store at startup, so it must be kept fresh.
+      backendHelper.getHomeSnapshot().write(categories);
+    } catch (IOException ex) {
+      Log.w(TAG, "Failed to sync", ex);
+      return false;
+    }
+    try {
+      backendHelper.pruneCatalogStore(VIDEO_MAX_AGE_IN_MILLISECONDS);
+    } catch (InterruptedException ex) {
+      Log.d(TAG, "Interrupted while pruning");
+      Thread.currentThread().interrupt();
+    }
+    return true;
+  }
+}
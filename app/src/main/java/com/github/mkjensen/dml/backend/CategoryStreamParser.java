@@ -0,0 +1,137 @@
+/*
+ * Copyright 2016 Martin Kamp Jensen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.mkjensen.dml.backend;
+
+import static com.github.mkjensen.dml.util.Preconditions.notNull;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import com.github.mkjensen.dml.model.Category;
+import com.github.mkjensen.dml.model.Video;
+import com.squareup.moshi.JsonAdapter;
+import com.squareup.moshi.JsonReader;
+
+import okio.BufferedSource;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Parses a category incrementally from a JSON stream. Videos are decoded one at a time and handed
+ * to a {@link VideoBatchListener} in small batches, so that they can be shown before the rest of
+ * the response has been downloaded.
+ *
+ * <p>Parsing stops with an {@link java.io.InterruptedIOException} before the next video once the
+ * {@link CancellationScope} of the calling thread has been cancelled, even if the rest of the
+ * response has already been downloaded.
+ */
+final class CategoryStreamParser {
+
+  /**
+   * The size of the first batch, which is kept small so that the first videos are shown quickly.
+   */
+  static final int FIRST_BATCH_SIZE = 4;
+
+  /**
+   * The size of the following batches, which is larger to limit the number of UI updates.
+   */
+  static final int BATCH_SIZE = 16;
+
+  private static final JsonReader.Options CATEGORY_NAMES =
+      JsonReader.Options.of("Items", "TotalSize");
+
+  private final JsonAdapter<Video> videoAdapter;
+
+  CategoryStreamParser(@NonNull JsonAdapter<Video> videoAdapter) {
+    this.videoAdapter = notNull(videoAdapter);
+  }
+
+  /**
+   * Parses the category in the specified source. The source is not closed.
+   */
+  @NonNull
+  Category parse(@NonNull BufferedSource source, @NonNull String title,
+                 @Nullable VideoBatchListener listener) throws IOException {
+    JsonReader reader = JsonReader.of(source);
+    List<Video> videos = Collections.emptyList();
+    int totalSize = Category.UNKNOWN_TOTAL_SIZE;
+    reader.beginObject();
+    while (reader.hasNext()) {
+      switch (reader.selectName(CATEGORY_NAMES)) {
+        case 0:
+          videos = parseVideos(reader, title, listener, CancellationScope.current());
+          break;
+        case 1:
+          if (reader.peek() == JsonReader.Token.NULL) {
+            reader.nextNull();
+          } else {
+            totalSize = reader.nextInt();
+          }
+          break;
+        default:
+          reader.skipName();
+          reader.skipValue();
+          break;
+      }
+    }
+    reader.endObject();
+    Category category = new Category();
+    category.setTitle(title);
+    category.setVideos(videos);
+    category.setTotalSize(totalSize);
+    return category;
+  }
+
+  private List<Video> parseVideos(JsonReader reader, String title,
+                                  @Nullable VideoBatchListener listener,
+                                  @Nullable CancellationScope scope) throws IOException {
+    List<Video> videos = new ArrayList<>();
+    List<Video> batch = new ArrayList<>(FIRST_BATCH_SIZE);
+    int batchSize = FIRST_BATCH_SIZE;
+    reader.beginArray();
+    while (reader.hasNext()) {
+      if (scope != null) {
+        scope.throwIfCancelled();
+      }
+      Video video = videoAdapter.fromJson(reader);
+      if (video == null) {
+        continue;
+      }
+      videos.add(video);
+      batch.add(video);
+      if (batch.size() == batchSize) {
+        publish(listener, title, batch);
+        batch = new ArrayList<>(BATCH_SIZE);
+        batchSize = BATCH_SIZE;
+      }
+    }
+    reader.endArray();
+    if (!batch.isEmpty()) {
+      publish(listener, title, batch);
+    }
+    return videos;
+  }
+
+  private static void publish(@Nullable VideoBatchListener listener, String title,
+                              List<Video> batch) {
+    if (listener != null) {
+      listener.onVideos(title, Collections.unmodifiableList(batch));
+    }
+  }
+}
@@ -0,0 +1,155 @@
+/*
+ * Copyright 2016 Martin Kamp Jensen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.mkjensen.dml.backend;
+
+import static com.github.mkjensen.dml.util.Preconditions.notNull;
+
+import android.support.annotation.NonNull;
+
+import com.github.mkjensen.dml.util.Clock;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A circuit breaker that stops requests to an endpoint that keeps failing, so that callers fail
+ * fast instead of waiting for it to time out.
+ *
+ * <p>The circuit opens when {@link #FAILURE_THRESHOLD} failures have been recorded within {@link
+ * #WINDOW_IN_MILLISECONDS}. While it is open, no requests are allowed. After {@link
+ * #OPEN_IN_MILLISECONDS} it becomes half-open and a single probe request is allowed: the circuit
+ * closes if the probe succeeds and opens again if it fails.
+ */
+public final class CircuitBreaker {
+
+  /**
+   * The number of failures within the window that opens the circuit.
+   */
+  public static final int FAILURE_THRESHOLD = 3;
+
+  /**
+   * The length of the sliding window in which failures are counted.
+   */
+  public static final long WINDOW_IN_MILLISECONDS = TimeUnit.MINUTES.toMillis(1);
+
+  /**
+   * The time for which the circuit stays open before a probe is allowed.
+   */
+  public static final long OPEN_IN_MILLISECONDS = TimeUnit.SECONDS.toMillis(30);
+
+  /**
+   * The states of a circuit breaker.
+   */
+  public enum State {
+    CLOSED,
+    OPEN,
+    HALF_OPEN
+  }
+
+  private final Clock clock;
+
+  private final Deque<Long> failureTimes = new ArrayDeque<>(FAILURE_THRESHOLD);
+
+  private State state = State.CLOSED;
+
+  private long openedAt;
+
+  private boolean probing;
+
+  public CircuitBreaker() {
+    this(Clock.SYSTEM);
+  }
+
+  CircuitBreaker(@NonNull Clock clock) {
+    this.clock = notNull(clock);
+  }
+
+  /**
+   * Returns whether a request may be made. If this returns {@code true}, the outcome of the
+   * request must be reported using {@link #onSuccess()}, {@link #onFailure()} or {@link
+   * #onAbandoned()}.
+   */
+  public synchronized boolean allowRequest() {
+    switch (getState()) {
+      case CLOSED:
+        return true;
+      case HALF_OPEN:
+        if (probing) {
+          return false;
+        }
+        probing = true;
+        return true;
+      default:
+        return false;
+    }
+  }
+
+  /**
+   * Records that a request succeeded.
+   */
+  public synchronized void onSuccess() {
+    probing = false;
+    if (state == State.HALF_OPEN) {
+      state = State.CLOSED;
+      failureTimes.clear();
+    }
+  }
+
+  /**
+   * Records that a request failed.
+   */
+  public synchronized void onFailure() {
+    long now = clock.elapsedMillis();
+    probing = false;
+    if (getState() == State.HALF_OPEN) {
+      open(now);
+      return;
+    }
+    failureTimes.addLast(now);
+    while (now - failureTimes.getFirst() >= WINDOW_IN_MILLISECONDS) {
+      failureTimes.removeFirst();
+    }
+    if (failureTimes.size() >= FAILURE_THRESHOLD) {
+      open(now);
+    }
+  }
+
+  /**
+   * Records that a request was abandoned by its caller, which says nothing about the endpoint.
+   */
+  public synchronized void onAbandoned() {
+    probing = false;
+  }
+
+  private void open(long now) {
+    state = State.OPEN;
+    openedAt = now;
+    failureTimes.clear();
+  }
+
+  /**
+   * Returns the current state of the circuit.
+   */
+  @NonNull
+  public synchronized State getState() {
+    if (state == State.OPEN && clock.elapsedMillis() - openedAt >= OPEN_IN_MILLISECONDS) {
+      state = State.HALF_OPEN;
+    }
+    return state;
+  }
+}
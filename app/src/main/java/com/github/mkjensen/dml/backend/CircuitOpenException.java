@@ -0,0 +1,38 @@
+/*
+ * Copyright 2016 Martin Kamp Jensen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.mkjensen.dml.backend;
+
+import java.io.IOException;
+
+/**
+ * Thrown when a request is not made because the circuit of its endpoint is open.
+ *
+ * @see CircuitBreaker
+ */
+public final class CircuitOpenException extends IOException {
+
+  private static final long serialVersionUID = 4270148323641807365L;
+
+  /**
+   * Constructs a new {@link CircuitOpenException} for the specified endpoint.
+   *
+   * @param endpoint the endpoint whose circuit is open
+   */
+  public CircuitOpenException(Endpoint endpoint) {
+    super(String.format("Circuit is open for endpoint: [%s]", endpoint));
+  }
+}
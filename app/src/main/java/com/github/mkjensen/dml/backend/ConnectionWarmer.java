@@ -0,0 +1,255 @@
+/*
+ * Copyright 2016 Martin Kamp Jensen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.mkjensen.dml.backend;
+
+import static com.github.mkjensen.dml.util.Preconditions.notNull;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.os.Process;
+import android.support.annotation.NonNull;
+import android.util.Log;
+
+import dagger.Lazy;
+
+import okhttp3.Call;
+import okhttp3.Connection;
+import okhttp3.HttpUrl;
+import okhttp3.Interceptor;
+import okhttp3.Request;
+import okhttp3.Response;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Opens connections to the hosts of each traffic class in the background, so that the first
+ * requests made by the user do not have to wait for DNS resolution, connecting and the TLS
+ * handshake. The hosts of a traffic class are the ones that it was recently used for, which are
+ * remembered across application starts, as well as any hosts that are known up front.
+ *
+ * <p>The interceptor returned by {@link #interceptor(String)} must be added as a network
+ * interceptor to the client of each traffic class. It remembers the hosts and measures the time it
+ * took to set up each warmed connection, which is counted as saved when the connection is first
+ * used by another request.
+ */
+public final class ConnectionWarmer {
+
+  /**
+   * The traffic class of API calls.
+   */
+  public static final String API = "api";
+
+  /**
+   * The traffic class of HLS playlists and media segments.
+   */
+  public static final String MEDIA = "media";
+
+  /**
+   * The traffic class of images.
+   */
+  public static final String IMAGES = "images";
+
+  private static final String TAG = "ConnectionWarmer";
+
+  private static final String PREFERENCES_NAME = "connection_warmer";
+
+  private static final int MAX_HOSTS_PER_TRAFFIC_CLASS = 4;
+
+  private final SharedPreferences preferences;
+
+  private final ExecutorService executor = createExecutor();
+
+  private final Map<String, Set<String>> hosts = new HashMap<>();
+
+  private final Map<Connection, Long> warmConnections =
+      Collections.synchronizedMap(new WeakHashMap<Connection, Long>());
+
+  private final AtomicLong reusedCount = new AtomicLong();
+
+  private final AtomicLong savedMillis = new AtomicLong();
+
+  public ConnectionWarmer(@NonNull Context context) {
+    preferences = notNull(context).getApplicationContext()
+        .getSharedPreferences(PREFERENCES_NAME, Context.MODE_PRIVATE);
+  }
+
+  private static ExecutorService createExecutor() {
+    ThreadPoolExecutor executor = new ThreadPoolExecutor(1, 1, 30L, TimeUnit.SECONDS,
+        new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+          @Override
+          public Thread newThread(@NonNull final Runnable runnable) {
+            return new Thread(new Runnable() {
+              @Override
+              public void run() {
+                Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                runnable.run();
+              }
+            }, TAG);
+          }
+        });
+    executor.allowCoreThreadTimeOut(true);
+    return executor;
+  }
+
+  /**
+   * Returns the network interceptor for the specified traffic class.
+   */
+  @NonNull
+  public Interceptor interceptor(@NonNull final String trafficClass) {
+    notNull(trafficClass);
+    return new Interceptor() {
+      @Override
+      public Response intercept(Chain chain) throws IOException {
+        Request request = chain.request();
+        Connection connection = chain.connection();
+        if (isWarmUp(request)) {
+          long setupMillis = ((WarmUp) request.tag()).elapsedMillis();
+          warmConnections.put(connection, setupMillis);
+          Log.d(TAG, String.format("Warmed [%s] in %d ms", request.url().host(), setupMillis));
+        } else {
+          onRequest(trafficClass, request.url(), connection);
+        }
+        return chain.proceed(request);
+      }
+    };
+  }
+
+  /**
+   * Returns whether the specified request was made to warm a connection, so that it can be left out
+   * of metrics about the requests made by the application.
+   */
+  static boolean isWarmUp(@NonNull Request request) {
+    return request.tag() instanceof WarmUp;
+  }
+
+  private void onRequest(String trafficClass, HttpUrl url, Connection connection) {
+    Long setupMillis = warmConnections.remove(connection);
+    if (setupMillis != null) {
+      reusedCount.incrementAndGet();
+      long total = savedMillis.addAndGet(setupMillis);
+      Log.i(TAG, String.format("Reused warm connection to [%s], saved %d ms (%d ms in total)",
+          url.host(), setupMillis, total));
+    }
+    rememberHost(trafficClass, url.scheme() + "://" + url.host() + ":" + url.port() + "/");
+  }
+
+  private void rememberHost(String trafficClass, String origin) {
+    synchronized (hosts) {
+      Set<String> remembered = getHosts(trafficClass);
+      if (!remembered.add(origin)) {
+        return;
+      }
+      Iterator<String> iterator = remembered.iterator();
+      while (remembered.size() > MAX_HOSTS_PER_TRAFFIC_CLASS) {
+        iterator.next();
+        iterator.remove();
+      }
+      preferences.edit()
+          .putStringSet(trafficClass, new LinkedHashSet<>(remembered))
+          .apply();
+    }
+  }
+
+  private Set<String> getHosts(String trafficClass) {
+    Set<String> remembered = hosts.get(trafficClass);
+    if (remembered == null) {
+      remembered = new LinkedHashSet<>(
+          preferences.getStringSet(trafficClass, Collections.<String>emptySet()));
+      hosts.put(trafficClass, remembered);
+    }
+    return remembered;
+  }
+
+  /**
+   * Warms connections to the hosts recently used for the specified traffic class and to the
+   * hosts of the specified URLs, using the specified client. Neither the remembered hosts nor the
+   * client are read or created until the warm-up runs in the background, so that this can be called
+   * on the main thread during startup.
+   */
+  public void warmUp(@NonNull final String trafficClass,
+                     @NonNull final Lazy<Call.Factory> callFactory, @NonNull final String... urls) {
+    notNull(trafficClass);
+    notNull(callFactory);
+    executor.execute(new Runnable() {
+      @Override
+      public void run() {
+        Set<String> targets;
+        synchronized (hosts) {
+          targets = new LinkedHashSet<>(getHosts(trafficClass));
+        }
+        Collections.addAll(targets, urls);
+        for (String url : targets) {
+          warmUp(callFactory.get(), url);
+        }
+      }
+    });
+  }
+
+  private static void warmUp(Call.Factory callFactory, String url) {
+    WarmUp warmUp = new WarmUp();
+    Request request = new Request.Builder()
+        .url(url)
+        .head()
+        .tag(warmUp)
+        .build();
+    try {
+      callFactory.newCall(request).execute().body().close();
+    } catch (IOException | IllegalArgumentException ex) {
+      Log.d(TAG, String.format("Failed to warm [%s]", url), ex);
+    }
+  }
+
+  /**
+   * Returns the number of warmed connections that have been used by other requests.
+   */
+  public long reusedCount() {
+    return reusedCount.get();
+  }
+
+  /**
+   * Returns the total time spent on setting up the warmed connections that have been used by other
+   * requests.
+   */
+  public long savedMillis() {
+    return savedMillis.get();
+  }
+
+  /**
+   * Tag of warm-up requests, recording when the request was started.
+   */
+  private static final class WarmUp {
+
+    private final long startNanos = System.nanoTime();
+
+    long elapsedMillis() {
+      return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+    }
+  }
+}
@@ -23,6 +23,7 @@ import com.bumptech.glide.integration.okhttp3.OkHttpGlideModule;
 import com.bumptech.glide.integration.okhttp3.OkHttpUrlLoader;
 import com.bumptech.glide.load.model.GlideUrl;
 import com.github.mkjensen.dml.DmlApplication;
+import com.github.mkjensen.dml.inject.Images;
 
 import okhttp3.Call;
 
@@ -31,7 +32,8 @@ import java.io.InputStream;
 import javax.inject.Inject;
 
 /**
- * Extension of {@link OkHttpGlideModule} that supplies the {@link Call.Factory} via injection.
+ * Extension of {@link OkHttpGlideModule} that supplies the {@link Images} {@link Call.Factory} via
+ * injection.
  *
  * <p>Note that this class must be configured for use via the Android manifest file. Also note that
  * {@link OkHttpGlideModule} must be excluded to avoid conflicts.
@@ -50,6 +52,7 @@ import javax.inject.Inject;
 public final class DmlOkHttpGlideModule extends OkHttpGlideModule {
 
   @Inject
+  @Images
   Call.Factory callFactory;
 
   public DmlOkHttpGlideModule() {
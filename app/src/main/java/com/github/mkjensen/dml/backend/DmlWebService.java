@@ -21,9 +21,14 @@ import com.github.mkjensen.dml.model.Channel;
 import com.github.mkjensen.dml.model.Video;
 import com.github.mkjensen.dml.model.VideoManifest;
 
+import okhttp3.ResponseBody;
+
 import retrofit2.Call;
 import retrofit2.http.GET;
+import retrofit2.http.Header;
 import retrofit2.http.Path;
+import retrofit2.http.Query;
+import retrofit2.http.Streaming;
 import retrofit2.http.Url;
 
 import java.util.List;
@@ -31,49 +36,137 @@ import java.util.List;
 /**
  * Web service methods for use with Retrofit.
  *
+ * <p>Methods accepting a {@code cacheControl} argument send it as the {@code Cache-Control} request
+ * header, for example to only accept a cached response. The header is omitted if the argument is
+ * {@code null}.
+ *
+ * <p>Methods returning a category accept {@code limit} and {@code offset} arguments and only return
+ * the page of the category that they select, see {@link Category#getTotalSize()}.
+ *
+ * <p>Methods prefixed with {@code stream} return the unparsed response body without buffering it,
+ * so that it can be parsed while it is being downloaded.
+ *
  * @see <a href="https://github.com/square/retrofit">Retrofit</a>
  */
 public interface DmlWebService {
 
+  String MOST_VIEWED_CATEGORY_PATH = "list/view/mostviewed";
+
+  String NEW_CATEGORY_PATH = "list/view/news";
+
+  String RECOMMENDED_CATEGORY_PATH = "list/view/selectedlist";
+
+  String SEARCH_PATH = "search/tv/programcards-with-asset/title/{query}";
+
+  String CHANNELS_PATH = "channel/all-active-dr-tv-channels";
+
   /**
-   * Returns the category containing the most viewed on-demand videos.
+   * The path segment identifying the URLs of video manifests, which are not built from a path of
+   * this interface but taken from the videos.
    */
-  @GET("list/view/mostviewed")
-  Call<Category> getMostViewedCategory();
+  String MANIFEST_PATH_SEGMENT = "/manifest/";
 
   /**
-   * Returns the category containing the new on-demand videos.
+   * Returns a page of the category containing the most viewed on-demand videos.
    */
-  @GET("list/view/news")
-  Call<Category> getNewCategory();
+  @GET(MOST_VIEWED_CATEGORY_PATH)
+  Call<Category> getMostViewedCategory(@Query("limit") int limit,
+                                       @Query("offset") int offset,
+                                       @Header("Cache-Control") String cacheControl,
+                                       @Header("If-None-Match") String ifNoneMatch,
+                                       @Header("If-Modified-Since") String ifModifiedSince);
 
   /**
-   * Returns the category containing the recommended on-demand videos.
+   * Streams a page of the category containing the most viewed on-demand videos.
    */
-  @GET("list/view/selectedlist")
-  Call<Category> getRecommendedCategory();
+  @GET(MOST_VIEWED_CATEGORY_PATH)
+  @Streaming
+  Call<ResponseBody> streamMostViewedCategory(@Query("limit") int limit,
+                                              @Query("offset") int offset,
+                                              @Header("If-None-Match") String ifNoneMatch,
+                                              @Header("If-Modified-Since") String ifModifiedSince);
 
   /**
-   * Returns a category with on-demand videos relevant for the specified query.
+   * Returns a page of the category containing the new on-demand videos.
    */
-  @GET("search/tv/programcards-with-asset/title/{query}")
-  Call<Category> search(@Path("query") String query);
+  @GET(NEW_CATEGORY_PATH)
+  Call<Category> getNewCategory(@Query("limit") int limit,
+                                @Query("offset") int offset,
+                                @Header("Cache-Control") String cacheControl,
+                                @Header("If-None-Match") String ifNoneMatch,
+                                @Header("If-Modified-Since") String ifModifiedSince);
+
+  /**
+   * Streams a page of the category containing the new on-demand videos.
+   */
+  @GET(NEW_CATEGORY_PATH)
+  @Streaming
+  Call<ResponseBody> streamNewCategory(@Query("limit") int limit,
+                                       @Query("offset") int offset,
+                                       @Header("If-None-Match") String ifNoneMatch,
+                                       @Header("If-Modified-Since") String ifModifiedSince);
+
+  /**
+   * Returns a page of the category containing the recommended on-demand videos.
+   */
+  @GET(RECOMMENDED_CATEGORY_PATH)
+  Call<Category> getRecommendedCategory(@Query("limit") int limit,
+                                        @Query("offset") int offset,
+                                        @Header("Cache-Control") String cacheControl,
+                                        @Header("If-None-Match") String ifNoneMatch,
+                                        @Header("If-Modified-Since") String ifModifiedSince);
+
+  /**
+   * Streams a page of the category containing the recommended on-demand videos.
+   */
+  @GET(RECOMMENDED_CATEGORY_PATH)
+  @Streaming
+  Call<ResponseBody> streamRecommendedCategory(@Query("limit") int limit,
+                                               @Query("offset") int offset,
+                                               @Header("If-None-Match") String ifNoneMatch,
+                                               @Header("If-Modified-Since") String ifModifiedSince);
+
+  /**
+   * Returns a page of a category with on-demand videos relevant for the specified query.
+   */
+  @GET(SEARCH_PATH)
+  Call<Category> search(@Path("query") String query, @Query("limit") int limit,
+                        @Query("offset") int offset);
+
+  /**
+   * Streams a page of a category with on-demand videos relevant for the specified query.
+   */
+  @GET(SEARCH_PATH)
+  @Streaming
+  Call<ResponseBody> streamSearch(@Path("query") String query, @Query("limit") int limit,
+                                  @Query("offset") int offset);
 
   /**
    * Returns the on-demand video with the specified id.
    */
   @GET("programcard/{id}")
-  Call<Video> getVideo(@Path("id") String id);
+  Call<Video> getVideo(@Path("id") String id,
+                       @Header("Cache-Control") String cacheControl);
 
   /**
    * Returns the on-demand video manifest for the specified URL.
    */
   @GET
-  Call<VideoManifest> getVideoManifest(@Url String url);
+  Call<VideoManifest> getVideoManifest(@Url String url,
+                                       @Header("Cache-Control") String cacheControl);
 
   /**
    * Returns live channels.
    */
-  @GET("channel/all-active-dr-tv-channels")
-  Call<List<Channel>> getChannels();
+  @GET(CHANNELS_PATH)
+  Call<List<Channel>> getChannels(@Header("If-None-Match") String ifNoneMatch,
+                                  @Header("If-Modified-Since") String ifModifiedSince);
+
+  /**
+   * Streams live channels.
+   */
+  @GET(CHANNELS_PATH)
+  @Streaming
+  Call<ResponseBody> streamChannels(@Header("If-None-Match") String ifNoneMatch,
+                                    @Header("If-Modified-Since") String ifModifiedSince);
 }
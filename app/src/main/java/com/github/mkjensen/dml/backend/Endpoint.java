@@ -0,0 +1,42 @@
+/*
+ * Copyright 2016 Martin Kamp Jensen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.mkjensen.dml.backend;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+/**
+ * The logical endpoints exposed by {@link DmlWebService}.
+ */
+public enum Endpoint {
+
+  MOST_VIEWED_CATEGORY,
+  NEW_CATEGORY,
+  RECOMMENDED_CATEGORY,
+  SEARCH,
+  VIDEO,
+  VIDEO_MANIFEST,
+  CHANNELS;
+
+  /**
+   * Returns a key that identifies a request to this endpoint with the specified argument.
+   */
+  @NonNull
+  String key(@Nullable String argument) {
+    return argument == null ? name() : name() + '/' + argument;
+  }
+}
@@ -0,0 +1,215 @@
+/*
+ * Copyright 2016 Martin Kamp Jensen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.mkjensen.dml.backend;
+
+import static com.github.mkjensen.dml.util.Preconditions.notNull;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.util.AtomicFile;
+import android.util.Log;
+
+import com.github.mkjensen.dml.model.Category;
+import com.github.mkjensen.dml.model.Video;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A compact binary snapshot of the categories shown on the home screen. Only the fields needed for
+ * presenting a row are stored, i.e. the category title and total size, and the video ID, title, and
+ * image URL. The total size is kept so that a restored row can still be paged.
+ *
+ * <p>The snapshot starts with a magic number and a format version. A snapshot with an unexpected
+ * header or truncated content is ignored, so the format can be changed by bumping {@link
+ * #VERSION}. Snapshots are memory-mapped when read and decoded field by field without reflection.
+ */
+public final class HomeSnapshot {
+
+  static final int MAGIC = 0x444d4c53;
+
+  static final int VERSION = 2;
+
+  private static final String TAG = "HomeSnapshot";
+
+  private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+  private final AtomicFile file;
+
+  public HomeSnapshot(@NonNull File file) {
+    this.file = new AtomicFile(notNull(file));
+  }
+
+  /**
+   * Reads the snapshot, or returns {@code null} if there is no usable snapshot.
+   */
+  @Nullable
+  public List<Category> read() {
+    FileInputStream input;
+    try {
+      input = file.openRead();
+    } catch (FileNotFoundException ex) {
+      Log.d(TAG, "No snapshot");
+      return null;
+    }
+    try {
+      FileChannel channel = input.getChannel();
+      ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+      return decode(buffer);
+    } catch (IOException ex) {
+      Log.w(TAG, "Failed to read snapshot", ex);
+      return null;
+    } finally {
+      closeQuietly(input);
+    }
+  }
+
+  /**
+   * Replaces the snapshot with the specified categories. The previous snapshot is left untouched
+   * if writing fails.
+   */
+  public void write(@NonNull List<Category> categories) throws IOException {
+    byte[] bytes = encode(notNull(categories));
+    FileOutputStream output = file.startWrite();
+    try {
+      output.write(bytes);
+    } catch (IOException ex) {
+      file.failWrite(output);
+      throw ex;
+    }
+    file.finishWrite(output);
+    Log.d(TAG, String.format("Wrote snapshot [%d bytes]", bytes.length));
+  }
+
+  /**
+   * Deletes the snapshot, if any.
+   */
+  public void delete() {
+    file.delete();
+  }
+
+  @NonNull
+  static byte[] encode(@NonNull List<Category> categories) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream(16 * 1024);
+    DataOutputStream output = new DataOutputStream(bytes);
+    output.writeInt(MAGIC);
+    output.writeInt(VERSION);
+    output.writeInt(categories.size());
+    for (Category category : categories) {
+      writeString(output, category.getTitle());
+      output.writeInt(category.getTotalSize());
+      List<Video> videos = category.getVideos();
+      output.writeInt(videos.size());
+      for (Video video : videos) {
+        writeString(output, video.getId());
+        writeString(output, video.getTitle());
+        writeString(output, video.getImageUrl());
+      }
+    }
+    output.flush();
+    return bytes.toByteArray();
+  }
+
+  private static void writeString(DataOutputStream output, String value) throws IOException {
+    byte[] bytes = value.getBytes(UTF_8);
+    output.writeInt(bytes.length);
+    output.write(bytes);
+  }
+
+  /**
+   * Decodes the specified snapshot, or returns {@code null} if it has an unexpected header or is
+   * truncated.
+   */
+  @Nullable
+  static List<Category> decode(@NonNull ByteBuffer buffer) {
+    try {
+      if (buffer.getInt() != MAGIC) {
+        Log.w(TAG, "Unexpected magic number, ignoring snapshot");
+        return null;
+      }
+      int version = buffer.getInt();
+      if (version != VERSION) {
+        Log.d(TAG, String.format("Ignoring snapshot with version [%d]", version));
+        return null;
+      }
+      byte[] scratch = new byte[256];
+      int categoryCount = readCount(buffer);
+      List<Category> categories = new ArrayList<>(categoryCount);
+      for (int i = 0; i < categoryCount; i++) {
+        Category category = new Category();
+        category.setTitle(readString(buffer, scratch));
+        category.setTotalSize(readTotalSize(buffer));
+        int videoCount = readCount(buffer);
+        List<Video> videos = new ArrayList<>(videoCount);
+        for (int j = 0; j < videoCount; j++) {
+          Video video = new Video();
+          video.setId(readString(buffer, scratch));
+          video.setTitle(readString(buffer, scratch));
+          video.setImageUrl(readString(buffer, scratch));
+          videos.add(video);
+        }
+        category.setVideos(videos);
+        categories.add(category);
+      }
+      return categories;
+    } catch (BufferUnderflowException | IllegalArgumentException ex) {
+      Log.w(TAG, "Ignoring corrupt snapshot", ex);
+      return null;
+    }
+  }
+
+  private static int readCount(ByteBuffer buffer) {
+    int count = buffer.getInt();
+    if (count < 0 || count > buffer.remaining()) {
+      throw new IllegalArgumentException("Invalid count: " + count);
+    }
+    return count;
+  }
+
+  private static int readTotalSize(ByteBuffer buffer) {
+    int totalSize = buffer.getInt();
+    if (totalSize < Category.UNKNOWN_TOTAL_SIZE) {
+      throw new IllegalArgumentException("Invalid total size: " + totalSize);
+    }
+    return totalSize;
+  }
+
+  private static String readString(ByteBuffer buffer, byte[] scratch) {
+    int length = readCount(buffer);
+    byte[] bytes = length <= scratch.length ? scratch : new byte[length];
+    buffer.get(bytes, 0, length);
+    return new String(bytes, 0, length, UTF_8);
+  }
+
+  private static void closeQuietly(FileInputStream input) {
+    try {
+      input.close();
+    } catch (IOException ex) {
+      Log.w(TAG, "Failed to close snapshot", ex);
+    }
+  }
+}
@@ -0,0 +1,101 @@
+/*
+ * Copyright 2016 Martin Kamp Jensen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.mkjensen.dml.backend;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A histogram of latencies in milliseconds with exponentially growing buckets, each about a fifth
+ * wider than the one before it, so percentiles are accurate to within that factor. Recording is
+ * lock-free and may happen concurrently with reading, in which case the result of a read may not
+ * reflect the most recent records.
+ */
+public final class LatencyHistogram {
+
+  private static final long MAX_LATENCY_IN_MILLISECONDS = 60 * 1000L;
+
+  private static final double BUCKET_GROWTH = 1.2;
+
+  /**
+   * The inclusive upper bound of each bucket. The last bucket also holds larger latencies.
+   */
+  private static final long[] UPPER_BOUNDS = createUpperBounds();
+
+  private final AtomicLongArray counts = new AtomicLongArray(UPPER_BOUNDS.length);
+
+  private final AtomicLong count = new AtomicLong();
+
+  private static long[] createUpperBounds() {
+    long[] bounds = new long[128];
+    int size = 0;
+    double bound = 1.0;
+    while (true) {
+      long upperBound = (long) Math.ceil(bound);
+      if (size == 0 || upperBound > bounds[size - 1]) {
+        bounds[size++] = upperBound;
+      }
+      if (upperBound >= MAX_LATENCY_IN_MILLISECONDS) {
+        return Arrays.copyOf(bounds, size);
+      }
+      bound *= BUCKET_GROWTH;
+    }
+  }
+
+  /**
+   * Records the specified latency. Negative latencies are recorded as zero.
+   */
+  public void record(long latencyInMilliseconds) {
+    int index = Arrays.binarySearch(UPPER_BOUNDS, Math.max(0L, latencyInMilliseconds));
+    if (index < 0) {
+      index = Math.min(-index - 1, UPPER_BOUNDS.length - 1);
+    }
+    counts.incrementAndGet(index);
+    count.incrementAndGet();
+  }
+
+  /**
+   * Returns the number of recorded latencies.
+   */
+  public long count() {
+    return count.get();
+  }
+
+  /**
+   * Returns the upper bound of the bucket holding the latency at the specified percentile, which
+   * must be greater than zero and at most one, or zero if no latencies have been recorded.
+   */
+  public long getPercentile(double percentile) {
+    if (percentile <= 0.0 || percentile > 1.0) {
+      throw new IllegalArgumentException("percentile must be in (0, 1]");
+    }
+    long rank = (long) Math.ceil(percentile * count.get());
+    if (rank == 0) {
+      return 0L;
+    }
+    long seen = 0;
+    for (int i = 0; i < UPPER_BOUNDS.length; i++) {
+      seen += counts.get(i);
+      if (seen >= rank) {
+        return UPPER_BOUNDS[i];
+      }
+    }
+    // Not reached, as each latency is counted in its bucket before it is counted in total.
+    return UPPER_BOUNDS[UPPER_BOUNDS.length - 1];
+  }
+}
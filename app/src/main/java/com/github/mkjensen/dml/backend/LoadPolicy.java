@@ -0,0 +1,34 @@
+/*
+ * Copyright 2016 Martin Kamp Jensen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.mkjensen.dml.backend;
+
+/**
+ * Determines where {@link BackendHelper} may load data from.
+ */
+public enum LoadPolicy {
+
+  /**
+   * Returns fresh data, using the network when cached data has expired.
+   */
+  DEFAULT,
+
+  /**
+   * Returns cached data, even if it has expired, without using the network. If nothing is cached,
+   * loading fails.
+   */
+  CACHE_ONLY
+}
@@ -0,0 +1,259 @@
+/*
+ * Copyright 2016 Martin Kamp Jensen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.mkjensen.dml.backend;
+
+import static com.github.mkjensen.dml.util.Preconditions.notNull;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.v4.util.LruCache;
+
+import com.github.mkjensen.dml.model.Category;
+import com.github.mkjensen.dml.model.Channel;
+import com.github.mkjensen.dml.model.Video;
+import com.github.mkjensen.dml.model.VideoManifest;
+import com.github.mkjensen.dml.util.Clock;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * An in-memory cache of parsed backend objects. Each entry expires after its own time to live and
+ * the least recently used entries are evicted when the estimated size of all entries exceeds the
+ * maximum size.
+ */
+public final class ObjectCache {
+
+  private static final int OBJECT_OVERHEAD = 16;
+
+  private static final int REFERENCE_SIZE = 4;
+
+  private static final int UNKNOWN_OBJECT_SIZE = 1024;
+
+  private final LruCache<String, Entry> cache;
+
+  private final Clock clock;
+
+  private final AtomicLong hitCount = new AtomicLong();
+
+  private final AtomicLong missCount = new AtomicLong();
+
+  private final AtomicLong expiredCount = new AtomicLong();
+
+  /**
+   * Creates a cache that holds at most the specified estimated number of bytes.
+   */
+  public ObjectCache(int maxSizeInBytes) {
+    this(maxSizeInBytes, Clock.SYSTEM);
+  }
+
+  ObjectCache(int maxSizeInBytes, @NonNull Clock clock) {
+    this.cache = new LruCache<String, Entry>(maxSizeInBytes) {
+      @Override
+      protected int sizeOf(String key, Entry entry) {
+        return entry.size;
+      }
+    };
+    this.clock = notNull(clock);
+  }
+
+  /**
+   * Returns the object cached for the specified key, or {@code null} if there is no such object or
+   * if it has expired.
+   */
+  @Nullable
+  public <T> T get(@NonNull String key) {
+    Entry entry = cache.get(notNull(key));
+    if (entry == null) {
+      missCount.incrementAndGet();
+      return null;
+    }
+    if (entry.isExpired(clock.elapsedMillis())) {
+      expiredCount.incrementAndGet();
+      missCount.incrementAndGet();
+      return null;
+    }
+    hitCount.incrementAndGet();
+    return entry.getValue();
+  }
+
+  /**
+   * Returns the object cached for the specified key, even if it has expired, or {@code null} if
+   * there is no such object. Does not affect the hit and miss statistics.
+   */
+  @Nullable
+  public <T> T getStale(@NonNull String key) {
+    Entry entry = cache.get(notNull(key));
+    return entry != null ? entry.<T>getValue() : null;
+  }
+
+  /**
+   * Caches the specified object for the specified key. The object expires after the specified
+   * number of milliseconds.
+   */
+  public void put(@NonNull String key, @NonNull Object value, long timeToLiveInMilliseconds) {
+    long expiresAt = clock.elapsedMillis() + timeToLiveInMilliseconds;
+    cache.put(notNull(key), new Entry(notNull(value), expiresAt, estimateEntrySize(key, value)));
+  }
+
+  /**
+   * Removes the object cached for the specified key, if any.
+   */
+  public void remove(@NonNull String key) {
+    cache.remove(notNull(key));
+  }
+
+  /**
+   * Removes all cached objects.
+   */
+  public void clear() {
+    cache.evictAll();
+  }
+
+  /**
+   * Returns the number of times {@link #get(String)} returned a cached object.
+   */
+  public long hitCount() {
+    return hitCount.get();
+  }
+
+  /**
+   * Returns the number of times {@link #get(String)} returned {@code null}, including the times
+   * where the cached object had expired.
+   */
+  public long missCount() {
+    return missCount.get();
+  }
+
+  /**
+   * Returns the number of times {@link #get(String)} found an expired object.
+   */
+  public long expiredCount() {
+    return expiredCount.get();
+  }
+
+  /**
+   * Returns the number of objects evicted to keep the cache within its maximum size.
+   */
+  public int evictionCount() {
+    return cache.evictionCount();
+  }
+
+  /**
+   * Returns the estimated size in bytes of the cached objects.
+   */
+  public int size() {
+    return cache.size();
+  }
+
+  /**
+   * Returns the maximum estimated size in bytes of the cached objects.
+   */
+  public int maxSize() {
+    return cache.maxSize();
+  }
+
+  @NonNull
+  @Override
+  public String toString() {
+    return String.format(Locale.US,
+        "ObjectCache {size=%d, maxSize=%d, hits=%d, misses=%d, expired=%d, evictions=%d}",
+        size(), maxSize(), hitCount(), missCount(), expiredCount(), evictionCount());
+  }
+
+  private static int estimateEntrySize(String key, Object value) {
+    return estimateSize(key) + estimateSize(value);
+  }
+
+  private static int estimateSize(Object value) {
+    if (value instanceof Category) {
+      Category category = (Category) value;
+      return OBJECT_OVERHEAD + estimateSize(category.getTitle())
+          + estimateSize(category.getVideos());
+    }
+    if (value instanceof Video) {
+      Video video = (Video) value;
+      int size = 2 * OBJECT_OVERHEAD + estimateSize(video.getId())
+          + estimateSize(video.getTitle()) + estimateSize(video.getImageUrl());
+      int lazyFieldsSize = video.getLazyFieldsSize();
+      if (lazyFieldsSize > 0) {
+        // Avoid decoding the lazy fields just to estimate their size.
+        return size + OBJECT_OVERHEAD + lazyFieldsSize;
+      }
+      return size + estimateSize(video.getDescription()) + estimateSize(video.getManifestUrl());
+    }
+    if (value instanceof VideoManifest) {
+      VideoManifest manifest = (VideoManifest) value;
+      return OBJECT_OVERHEAD + estimateSize(manifest.getStreams());
+    }
+    if (value instanceof VideoManifest.Stream) {
+      return OBJECT_OVERHEAD + estimateSize(((VideoManifest.Stream) value).getUrl());
+    }
+    if (value instanceof Channel) {
+      Channel channel = (Channel) value;
+      return OBJECT_OVERHEAD + estimateSize(channel.getId()) + estimateSize(channel.getTitle())
+          + estimateSize(channel.getImageUrl()) + estimateSize(channel.getServers());
+    }
+    if (value instanceof Channel.Server) {
+      Channel.Server server = (Channel.Server) value;
+      return OBJECT_OVERHEAD + estimateSize(server.getUrl()) + estimateSize(server.getQualities());
+    }
+    if (value instanceof Channel.Server.Quality) {
+      return OBJECT_OVERHEAD + estimateSize(((Channel.Server.Quality) value).getStreams());
+    }
+    if (value instanceof Channel.Server.Quality.Stream) {
+      return OBJECT_OVERHEAD + estimateSize(((Channel.Server.Quality.Stream) value).getPath());
+    }
+    if (value instanceof String) {
+      return OBJECT_OVERHEAD + 2 * ((String) value).length();
+    }
+    if (value instanceof List) {
+      List<?> list = (List<?>) value;
+      int size = OBJECT_OVERHEAD;
+      for (Object element : list) {
+        size += REFERENCE_SIZE + estimateSize(element);
+      }
+      return size;
+    }
+    return UNKNOWN_OBJECT_SIZE;
+  }
+
+  private static final class Entry {
+
+    final Object value;
+
+    final long expiresAt;
+
+    final int size;
+
+    Entry(Object value, long expiresAt, int size) {
+      this.value = value;
+      this.expiresAt = expiresAt;
+      this.size = size;
+    }
+
+    boolean isExpired(long now) {
+      return now >= expiresAt;
+    }
+
+    @SuppressWarnings("unchecked")
+    <T> T getValue() {
+      return (T) value;
+    }
+  }
+}
@@ -0,0 +1,143 @@
+/*
+ * Copyright 2016 Martin Kamp Jensen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.mkjensen.dml.backend;
+
+import static com.github.mkjensen.dml.util.Preconditions.notNull;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Process;
+import android.support.annotation.NonNull;
+import android.util.Log;
+
+import com.github.mkjensen.dml.model.Video;
+import com.github.mkjensen.dml.util.BackgroundHelper;
+
+import java.io.IOException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Prefetches the details of on-demand videos that the user is likely to open, so that they can be
+ * shown without waiting for the network. Methods on this class must be called from the UI thread.
+ *
+ * <p>A video is only prefetched once it has kept focus for {@link #DWELL_IN_MILLISECONDS}, which
+ * also limits the rate of prefetches to one per dwell period however fast the user scrolls.
+ * Prefetches run one at a time on a single low-priority thread, and a prefetch that has not
+ * started yet is cancelled when another video gets focus.
+ */
+public final class Prefetcher {
+
+  /**
+   * The time that a video must keep focus before it is prefetched.
+   */
+  public static final long DWELL_IN_MILLISECONDS = 500L;
+
+  private static final String TAG = "Prefetcher";
+
+  private final Context context;
+
+  private final BackendHelper backendHelper;
+
+  private final Handler handler = new Handler(Looper.getMainLooper());
+
+  private final ExecutorService executor = createExecutor();
+
+  private Runnable pendingPrefetch;
+
+  private Future<?> queuedPrefetch;
+
+  public Prefetcher(@NonNull Context context, @NonNull BackendHelper backendHelper) {
+    this.context = notNull(context).getApplicationContext();
+    this.backendHelper = notNull(backendHelper);
+  }
+
+  private static ExecutorService createExecutor() {
+    ThreadPoolExecutor executor = new ThreadPoolExecutor(1, 1, 30L, TimeUnit.SECONDS,
+        new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+          @Override
+          public Thread newThread(@NonNull final Runnable runnable) {
+            return new Thread(new Runnable() {
+              @Override
+              public void run() {
+                Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                runnable.run();
+              }
+            }, TAG);
+          }
+        });
+    executor.allowCoreThreadTimeOut(true);
+    return executor;
+  }
+
+  /**
+   * Prefetches the details and image of the specified video if it keeps focus for {@link
+   * #DWELL_IN_MILLISECONDS}, cancelling any prefetch that has not started yet.
+   */
+  public void prefetchOnDwell(@NonNull final Video video) {
+    notNull(video);
+    cancel();
+    pendingPrefetch = new Runnable() {
+      @Override
+      public void run() {
+        pendingPrefetch = null;
+        prefetch(video);
+      }
+    };
+    handler.postDelayed(pendingPrefetch, DWELL_IN_MILLISECONDS);
+  }
+
+  /**
+   * Cancels the prefetch that is waiting for the dwell time to pass or waiting to be started, if
+   * any. A prefetch that has already started is allowed to finish.
+   */
+  public void cancel() {
+    if (pendingPrefetch != null) {
+      handler.removeCallbacks(pendingPrefetch);
+      pendingPrefetch = null;
+    }
+    if (queuedPrefetch != null) {
+      queuedPrefetch.cancel(false);
+      queuedPrefetch = null;
+    }
+  }
+
+  private void prefetch(final Video video) {
+    final String id = video.getId();
+    if (Video.NOT_SET.equals(id)) {
+      return;
+    }
+    Log.d(TAG, String.format("prefetch [%s]", id));
+    if (!Video.NOT_SET.equals(video.getImageUrl())) {
+      BackgroundHelper.preloadBackground(context, video.getImageUrl());
+    }
+    queuedPrefetch = executor.submit(new Runnable() {
+      @Override
+      public void run() {
+        try {
+          backendHelper.loadVideo(id);
+        } catch (IOException ex) {
+          Log.d(TAG, String.format("Failed to prefetch video [%s]", id), ex);
+        }
+      }
+    });
+  }
+}
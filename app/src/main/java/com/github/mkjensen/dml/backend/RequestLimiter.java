@@ -0,0 +1,137 @@
+/*
+ * Copyright 2016 Martin Kamp Jensen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.mkjensen.dml.backend;
+
+import okhttp3.Interceptor;
+import okhttp3.MediaType;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+
+import okio.BufferedSource;
+import okio.ForwardingSource;
+import okio.Okio;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * An application interceptor limiting the number of requests of a traffic class that are in
+ * progress at the same time. The dispatcher of an OkHttp client only limits asynchronous calls,
+ * while the calls of every traffic class are executed synchronously on the threads of their users.
+ *
+ * <p>A request is in progress until its response body has been closed, which is also what returns
+ * its connection to the pool, or until it fails. A request waiting for its turn fails with {@link
+ * InterruptedIOException} if its thread is interrupted.
+ */
+public final class RequestLimiter implements Interceptor {
+
+  private final Semaphore permits;
+
+  public RequestLimiter(int maxRequests) {
+    if (maxRequests <= 0) {
+      throw new IllegalArgumentException("maxRequests must be positive");
+    }
+    permits = new Semaphore(maxRequests, true);
+  }
+
+  @Override
+  public Response intercept(Chain chain) throws IOException {
+    try {
+      permits.acquire();
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while waiting for a request permit");
+    }
+    Permit permit = new Permit();
+    Response response;
+    try {
+      response = chain.proceed(chain.request());
+    } catch (IOException | RuntimeException ex) {
+      permit.release();
+      throw ex;
+    }
+    if (response.body() == null) {
+      permit.release();
+      return response;
+    }
+    return response.newBuilder()
+        .body(new ReleasingResponseBody(response.body(), permit))
+        .build();
+  }
+
+  /**
+   * Returns the number of requests that can be started without waiting.
+   */
+  int availablePermits() {
+    return permits.availablePermits();
+  }
+
+  /**
+   * A permit that is released at most once.
+   */
+  private final class Permit {
+
+    private final AtomicBoolean released = new AtomicBoolean();
+
+    void release() {
+      if (released.compareAndSet(false, true)) {
+        permits.release();
+      }
+    }
+  }
+
+  /**
+   * A response body that releases the permit of its request when closed.
+   */
+  private static final class ReleasingResponseBody extends ResponseBody {
+
+    private final ResponseBody delegate;
+
+    private final BufferedSource source;
+
+    ReleasingResponseBody(ResponseBody delegate, final Permit permit) {
+      this.delegate = delegate;
+      this.source = Okio.buffer(new ForwardingSource(delegate.source()) {
+        @Override
+        public void close() throws IOException {
+          try {
+            super.close();
+          } finally {
+            permit.release();
+          }
+        }
+      });
+    }
+
+    @Override
+    public MediaType contentType() {
+      return delegate.contentType();
+    }
+
+    @Override
+    public long contentLength() {
+      return delegate.contentLength();
+    }
+
+    @Override
+    public BufferedSource source() {
+      return source;
+    }
+  }
+}
@@ -0,0 +1,56 @@
+/*
+ * Copyright 2016 Martin Kamp Jensen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.mkjensen.dml.backend;
+
+import static com.github.mkjensen.dml.util.Preconditions.notNull;
+
+import android.support.annotation.NonNull;
+
+import okhttp3.Call;
+import okhttp3.Request;
+
+/**
+ * A {@link Call.Factory} for API calls that sends requests for video manifests to one factory and
+ * all other requests to another, so that manifests can be cached in their own {@link
+ * CachePartition}.
+ */
+public final class RoutingCallFactory implements Call.Factory {
+
+  private final Call.Factory catalogFactory;
+
+  private final Call.Factory manifestsFactory;
+
+  public RoutingCallFactory(@NonNull Call.Factory catalogFactory,
+                            @NonNull Call.Factory manifestsFactory) {
+    this.catalogFactory = notNull(catalogFactory);
+    this.manifestsFactory = notNull(manifestsFactory);
+  }
+
+  @Override
+  public Call newCall(Request request) {
+    return isManifestPath(request.url().encodedPath())
+        ? manifestsFactory.newCall(request)
+        : catalogFactory.newCall(request);
+  }
+
+  /**
+   * Returns whether the specified path is that of a video manifest.
+   */
+  static boolean isManifestPath(@NonNull String path) {
+    return path.contains(DmlWebService.MANIFEST_PATH_SEGMENT);
+  }
+}
@@ -0,0 +1,225 @@
+/*
+ * Copyright 2016 Martin Kamp Jensen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.mkjensen.dml.backend;
+
+import static com.github.mkjensen.dml.util.Preconditions.notNull;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.v4.util.LruCache;
+
+import com.github.mkjensen.dml.model.Category;
+import com.github.mkjensen.dml.model.Video;
+import com.github.mkjensen.dml.util.Clock;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * An in-memory cache of the first pages of search results by query. Queries are normalized like
+ * titles in a {@link TitleIndex}, so that queries differing only in case, accents or spacing share
+ * their results.
+ *
+ * <p>If a query is not cached but a shorter query that it starts with is, and that query's results
+ * are complete, the query is answered by keeping the videos whose titles contain each of its words.
+ * This is only correct if the backend matched the shorter query on titles alone, so results are
+ * only narrowed down if the title of every video in them contains each word of their query.
+ * Results that include a video matched on another field, such as its description, are never
+ * narrowed down. Each entry expires after a fixed time to live and the least recently used
+ * entries are evicted when the cache is full.
+ *
+ * <p>Results are copied when cached and when returned, so that callers cannot modify the cached
+ * results, although the videos in them are shared.
+ */
+public final class SearchResultCache {
+
+  private final LruCache<String, Entry> cache;
+
+  private final long timeToLiveInMilliseconds;
+
+  private final Clock clock;
+
+  private final AtomicLong hitCount = new AtomicLong();
+
+  private final AtomicLong narrowedCount = new AtomicLong();
+
+  private final AtomicLong missCount = new AtomicLong();
+
+  /**
+   * Creates a cache that holds the results of at most the specified number of queries for the
+   * specified time.
+   */
+  public SearchResultCache(int maxEntries, long timeToLiveInMilliseconds) {
+    this(maxEntries, timeToLiveInMilliseconds, Clock.SYSTEM);
+  }
+
+  SearchResultCache(int maxEntries, long timeToLiveInMilliseconds, @NonNull Clock clock) {
+    this.cache = new LruCache<>(maxEntries);
+    this.timeToLiveInMilliseconds = timeToLiveInMilliseconds;
+    this.clock = notNull(clock);
+  }
+
+  /**
+   * Returns the results cached for the specified query, or results narrowed down from the complete
+   * results of a shorter query, or {@code null} if there are neither. Narrowed results are cached
+   * for the query as well.
+   */
+  @Nullable
+  public Category get(@NonNull String query) {
+    String normalized = TitleIndex.fold(notNull(query));
+    if (normalized.isEmpty()) {
+      return null;
+    }
+    long now = clock.elapsedMillis();
+    Entry entry = getFresh(normalized, now);
+    if (entry != null) {
+      hitCount.incrementAndGet();
+      return copy(entry.results);
+    }
+    for (int length = normalized.length() - 1; length > 0; length--) {
+      Entry prefix = getFresh(normalized.substring(0, length), now);
+      if (prefix != null && prefix.narrowable) {
+        narrowedCount.incrementAndGet();
+        Category narrowed = narrow(prefix.results, query, normalized);
+        cache.put(normalized, new Entry(narrowed, true, prefix.expiresAt));
+        return copy(narrowed);
+      }
+    }
+    missCount.incrementAndGet();
+    return null;
+  }
+
+  @Nullable
+  private Entry getFresh(String normalized, long now) {
+    Entry entry = cache.get(normalized);
+    if (entry == null) {
+      return null;
+    }
+    if (now >= entry.expiresAt) {
+      cache.remove(normalized);
+      return null;
+    }
+    return entry;
+  }
+
+  /**
+   * Caches a copy of the specified results of the specified query. Complete results, which contain
+   * every video matching the query, may be narrowed down to answer longer queries if every video in
+   * them was matched on its title.
+   */
+  public void put(@NonNull String query, @NonNull Category results, boolean complete) {
+    notNull(results);
+    String normalized = TitleIndex.fold(notNull(query));
+    if (!normalized.isEmpty()) {
+      long expiresAt = clock.elapsedMillis() + timeToLiveInMilliseconds;
+      boolean narrowable = complete && matchTitles(results, normalized);
+      cache.put(normalized, new Entry(copy(results), narrowable, expiresAt));
+    }
+  }
+
+  /**
+   * Returns whether the title of every video in the specified results contains each word of the
+   * specified normalized query.
+   */
+  private static boolean matchTitles(Category results, String normalizedQuery) {
+    String[] words = normalizedQuery.split(" ");
+    for (Video video : results.getVideos()) {
+      if (!containsAll(TitleIndex.fold(video.getTitle()), words)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static Category copy(Category results) {
+    Category copy = new Category();
+    copy.setTitle(results.getTitle());
+    copy.setVideos(new ArrayList<>(results.getVideos()));
+    copy.setTotalSize(results.getTotalSize());
+    return copy;
+  }
+
+  private static Category narrow(Category results, String query, String normalizedQuery) {
+    String[] words = normalizedQuery.split(" ");
+    List<Video> videos = new ArrayList<>();
+    for (Video video : results.getVideos()) {
+      if (containsAll(TitleIndex.fold(video.getTitle()), words)) {
+        videos.add(video);
+      }
+    }
+    Category narrowed = new Category();
+    narrowed.setTitle(query);
+    narrowed.setVideos(videos);
+    narrowed.setTotalSize(videos.size());
+    return narrowed;
+  }
+
+  private static boolean containsAll(String title, String[] words) {
+    for (String word : words) {
+      if (!title.contains(word)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Returns the number of times {@link #get(String)} returned the cached results of the query.
+   */
+  public long hitCount() {
+    return hitCount.get();
+  }
+
+  /**
+   * Returns the number of times {@link #get(String)} narrowed down the results of a shorter query.
+   */
+  public long narrowedCount() {
+    return narrowedCount.get();
+  }
+
+  /**
+   * Returns the number of times {@link #get(String)} returned {@code null}.
+   */
+  public long missCount() {
+    return missCount.get();
+  }
+
+  @NonNull
+  @Override
+  public String toString() {
+    return String.format(Locale.US,
+        "SearchResultCache {size=%d, maxSize=%d, hits=%d, narrowed=%d, misses=%d}",
+        cache.size(), cache.maxSize(), hitCount(), narrowedCount(), missCount());
+  }
+
+  private static final class Entry {
+
+    final Category results;
+
+    final boolean narrowable;
+
+    final long expiresAt;
+
+    Entry(Category results, boolean narrowable, long expiresAt) {
+      this.results = results;
+      this.narrowable = narrowable;
+      this.expiresAt = expiresAt;
+    }
+  }
+}
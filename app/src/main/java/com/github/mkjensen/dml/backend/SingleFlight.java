@@ -0,0 +1,145 @@
+/*
+ * Copyright 2016 Martin Kamp Jensen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.mkjensen.dml.backend;
+
+import static com.github.mkjensen.dml.util.Preconditions.notNull;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import com.github.mkjensen.dml.DmlException;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Coalesces concurrent executions of tasks with the same key. The first caller for a key executes
+ * the task on its own thread while callers arriving before it completes wait for, and share, its
+ * result.
+ *
+ * <p>If the {@link CancellationScope} of the caller executing the task is cancelled, the task fails
+ * for that caller only. Waiting callers whose own scope has not been cancelled execute their task
+ * again instead of failing along with it.
+ */
+public final class SingleFlight {
+
+  private final ConcurrentMap<String, Flight<?>> inFlight = new ConcurrentHashMap<>();
+
+  private final AtomicLong executedCount = new AtomicLong();
+
+  private final AtomicLong coalescedCount = new AtomicLong();
+
+  /**
+   * Executes the specified task unless a task with the same key is already executing, in which
+   * case the result of that task is awaited and returned instead.
+   */
+  public <T> T execute(@NonNull String key, @NonNull Callable<T> task) throws IOException {
+    notNull(key);
+    notNull(task);
+    CancellationScope scope = CancellationScope.current();
+    while (true) {
+      Flight<T> newFlight = new Flight<>(task, scope);
+      @SuppressWarnings("unchecked")
+      Flight<T> existingFlight = (Flight<T>) inFlight.putIfAbsent(key, newFlight);
+      if (existingFlight == null) {
+        executedCount.incrementAndGet();
+        try {
+          newFlight.task.run();
+        } finally {
+          inFlight.remove(key, newFlight);
+        }
+        return await(newFlight.task);
+      }
+      coalescedCount.incrementAndGet();
+      try {
+        return await(existingFlight.task);
+      } catch (IOException ex) {
+        if (!existingFlight.isCancelled() || Thread.currentThread().isInterrupted()
+            || (scope != null && scope.isCancelled())) {
+          throw ex;
+        }
+        // The task was cancelled on behalf of another caller only, so execute it again.
+        coalescedCount.decrementAndGet();
+        inFlight.remove(key, existingFlight);
+      }
+    }
+  }
+
+  /**
+   * Returns the number of tasks that have actually been executed.
+   */
+  public long getExecutedCount() {
+    return executedCount.get();
+  }
+
+  /**
+   * Returns the number of calls that were served by a task executed on behalf of another caller,
+   * that is, the number of executions that were saved.
+   */
+  public long getCoalescedCount() {
+    return coalescedCount.get();
+  }
+
+  private static <T> T await(FutureTask<T> task) throws IOException {
+    try {
+      return task.get();
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while waiting for coalesced call");
+    } catch (ExecutionException ex) {
+      Throwable cause = ex.getCause();
+      if (cause instanceof IOException) {
+        throw (IOException) cause;
+      }
+      if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      }
+      if (cause instanceof Error) {
+        throw (Error) cause;
+      }
+      throw new DmlException(cause);
+    }
+  }
+
+  /**
+   * A task being executed by the caller that was first for its key.
+   */
+  private static final class Flight<T> {
+
+    final FutureTask<T> task;
+
+    private final CancellationScope scope;
+
+    Flight(Callable<T> task, @Nullable CancellationScope scope) {
+      this.task = new FutureTask<>(task);
+      this.scope = scope;
+    }
+
+    /**
+     * Returns whether the scope of the caller executing the task has been cancelled.
+     */
+    boolean isCancelled() {
+      return scope != null && scope.isCancelled();
+    }
+  }
+}
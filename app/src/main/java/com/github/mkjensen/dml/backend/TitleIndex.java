@@ -0,0 +1,358 @@
+/*
+ * Copyright 2016 Martin Kamp Jensen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.mkjensen.dml.backend;
+
+import static com.github.mkjensen.dml.util.Preconditions.notNull;
+
+import android.support.annotation.NonNull;
+
+import com.github.mkjensen.dml.model.Video;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * An in-memory index of the titles of on-demand videos, which answers prefix queries fast enough
+ * to be used on the UI thread for every keystroke.
+ *
+ * <p>Titles and queries are folded before they are compared: they are lowercased, the Danish
+ * letters &aelig;, &oslash; and &aring; are spelled ae, oe and aa, and accents are removed, so
+ * that for example "aalborg" finds "&Aring;lborg". Every word of a query must be a prefix of a
+ * word in a matching title. Videos whose titles start with the query are returned first.
+ *
+ * <p>Titles are kept in sorted maps, so a query is answered by scanning the range of entries that
+ * start with it and stops once enough videos have been found. To bound the work done for any
+ * query, at most {@link #MAX_SCANNED_ENTRIES} entries are scanned, plus at most {@link
+ * #MAX_COUNTED_ENTRIES} for each query word to find the one to scan, so queries whose words are
+ * common but rarely occur together may return fewer videos than exist.
+ * This class is thread-safe.
+ */
+public final class TitleIndex {
+
+  /**
+   * The maximum number of entries examined when collecting the videos matching a query.
+   */
+  static final int MAX_SCANNED_ENTRIES = 1024;
+
+  /**
+   * The number of videos above which a query word is considered too common for counting exactly
+   * how common it is. At most this many entries are examined for each query word.
+   */
+  static final int MAX_COUNTED_ENTRIES = 256;
+
+  /**
+   * The number of videos added while holding the write lock before it is released, so that
+   * searches are not blocked for long while many videos are added.
+   */
+  private static final int ADD_CHUNK_SIZE = 256;
+
+  /**
+   * A fair lock, so that a search waiting for the read lock is not overtaken by the next chunk of
+   * videos being added.
+   */
+  private final ReadWriteLock lock = new ReentrantReadWriteLock(true);
+
+  /**
+   * The indexed videos by id.
+   */
+  private final Map<String, Entry> entries = new HashMap<>();
+
+  private final AtomicLong scannedCount = new AtomicLong();
+
+  /**
+   * The indexed videos by folded title.
+   */
+  private final NavigableMap<String, Set<Entry>> titles = new TreeMap<>();
+
+  /**
+   * The indexed videos by the folded words of their titles.
+   */
+  private final NavigableMap<String, Set<Entry>> words = new TreeMap<>();
+
+  /**
+   * Adds the specified video to this index, replacing any video with the same id.
+   */
+  public void add(@NonNull Video video) {
+    addAll(Collections.singletonList(notNull(video)));
+  }
+
+  /**
+   * Adds the specified videos to this index, replacing any videos with the same ids. Many videos
+   * are added in chunks, between which searches may run and see some but not all of them.
+   */
+  public void addAll(@NonNull Collection<Video> videos) {
+    Iterator<Video> iterator = notNull(videos).iterator();
+    while (iterator.hasNext()) {
+      lock.writeLock().lock();
+      try {
+        for (int i = 0; i < ADD_CHUNK_SIZE && iterator.hasNext(); i++) {
+          addLocked(iterator.next());
+        }
+      } finally {
+        lock.writeLock().unlock();
+      }
+    }
+  }
+
+  private void addLocked(Video video) {
+    String id = video.getId();
+    Entry existing = entries.get(id);
+    if (existing != null) {
+      if (existing.video.getTitle().equals(video.getTitle())) {
+        existing.video = video;
+        return;
+      }
+      remove(titles, existing.title, existing);
+      for (String word : existing.words) {
+        remove(words, word, existing);
+      }
+    }
+    Entry entry = new Entry(video);
+    entries.put(id, entry);
+    add(titles, entry.title, entry);
+    for (String word : entry.words) {
+      add(words, word, entry);
+    }
+  }
+
+  private static void add(Map<String, Set<Entry>> map, String key, Entry entry) {
+    Set<Entry> entries = map.get(key);
+    if (entries == null) {
+      entries = new LinkedHashSet<>(2);
+      map.put(key, entries);
+    }
+    entries.add(entry);
+  }
+
+  private static void remove(Map<String, Set<Entry>> map, String key, Entry entry) {
+    Set<Entry> entries = map.get(key);
+    if (entries != null && entries.remove(entry) && entries.isEmpty()) {
+      map.remove(key);
+    }
+  }
+
+  /**
+   * Returns at most the specified number of videos whose titles match the specified query, see
+   * {@link TitleIndex}. The returned list is empty if the query contains no letters or digits.
+   */
+  @NonNull
+  public List<Video> search(@NonNull String query, int limit) {
+    if (limit < 0) {
+      throw new IllegalArgumentException("limit cannot be negative");
+    }
+    String folded = fold(notNull(query));
+    if (folded.isEmpty() || limit == 0) {
+      return Collections.emptyList();
+    }
+    String[] queryWords = folded.split(" ");
+    Map<String, Video> result = new LinkedHashMap<>();
+    lock.readLock().lock();
+    try {
+      int budget = MAX_SCANNED_ENTRIES;
+      budget = collect(getRange(titles, folded), queryWords, limit, budget, result);
+      String mostSelective = getMostSelective(queryWords);
+      budget = collect(getRange(words, mostSelective), queryWords, limit, budget, result);
+      scannedCount.addAndGet(MAX_SCANNED_ENTRIES - budget);
+    } finally {
+      lock.readLock().unlock();
+    }
+    return new ArrayList<>(result.values());
+  }
+
+  /**
+   * Adds the videos in the specified range that match all the specified query words to the
+   * specified result, until it has the specified size or the specified number of entries have
+   * been examined. Returns the number of entries that may still be examined.
+   */
+  private static int collect(Map<String, Set<Entry>> range, String[] queryWords, int limit,
+                             int budget, Map<String, Video> result) {
+    for (Set<Entry> entries : range.values()) {
+      for (Entry entry : entries) {
+        if (result.size() == limit || budget == 0) {
+          return budget;
+        }
+        budget--;
+        String id = entry.video.getId();
+        if (!result.containsKey(id) && entry.matches(queryWords)) {
+          result.put(id, entry.video);
+        }
+      }
+    }
+    return budget;
+  }
+
+  /**
+   * Returns the query word that is a prefix of the words of the fewest videos, so that scanning
+   * its range finds the matching videos fastest. If all query words are too common to count, the
+   * longest one is returned as it is likely the most specific.
+   */
+  private String getMostSelective(String[] queryWords) {
+    String mostSelective = queryWords[0];
+    if (queryWords.length == 1) {
+      return mostSelective;
+    }
+    int fewest = MAX_COUNTED_ENTRIES;
+    for (String queryWord : queryWords) {
+      int count = count(getRange(words, queryWord), fewest);
+      if (count < fewest || (count == MAX_COUNTED_ENTRIES
+          && queryWord.length() > mostSelective.length())) {
+        mostSelective = queryWord;
+        fewest = count;
+      }
+    }
+    return mostSelective;
+  }
+
+  private int count(Map<String, Set<Entry>> range, int max) {
+    int count = 0;
+    int scanned = 0;
+    try {
+      for (Set<Entry> entries : range.values()) {
+        scanned++;
+        count += entries.size();
+        if (count >= max) {
+          return max;
+        }
+      }
+      return count;
+    } finally {
+      scannedCount.addAndGet(scanned);
+    }
+  }
+
+  private static Map<String, Set<Entry>> getRange(NavigableMap<String, Set<Entry>> map,
+                                                  String prefix) {
+    return map.subMap(prefix, true, prefix + Character.MAX_VALUE, false);
+  }
+
+  /**
+   * Returns the total number of entries examined by searches, which bounds the time they take
+   * independently of the machine running them.
+   */
+  long getScannedCount() {
+    return scannedCount.get();
+  }
+
+  /**
+   * Returns the number of indexed videos.
+   */
+  public int size() {
+    lock.readLock().lock();
+    try {
+      return entries.size();
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Returns the specified text lowercased, with Danish letters spelled out, accents removed and
+   * words separated by single spaces.
+   */
+  @NonNull
+  static String fold(@NonNull String text) {
+    String lowercased = text.toLowerCase(Locale.ROOT);
+    StringBuilder spelled = new StringBuilder(lowercased.length() + 8);
+    for (int i = 0; i < lowercased.length(); i++) {
+      char c = lowercased.charAt(i);
+      switch (c) {
+        case '\u00e6': // ae ligature
+          spelled.append("ae");
+          break;
+        case '\u00f8': // o with stroke
+          spelled.append("oe");
+          break;
+        case '\u00e5': // a with ring
+          spelled.append("aa");
+          break;
+        default:
+          spelled.append(c);
+          break;
+      }
+    }
+    String decomposed = Normalizer.normalize(spelled, Normalizer.Form.NFD);
+    StringBuilder folded = new StringBuilder(decomposed.length());
+    boolean separate = false;
+    for (int i = 0; i < decomposed.length(); i++) {
+      char c = decomposed.charAt(i);
+      if (Character.getType(c) == Character.NON_SPACING_MARK) {
+        continue;
+      }
+      if (Character.isLetterOrDigit(c)) {
+        if (separate && folded.length() > 0) {
+          folded.append(' ');
+        }
+        folded.append(c);
+        separate = false;
+      } else {
+        separate = true;
+      }
+    }
+    return folded.toString();
+  }
+
+  private static final class Entry {
+
+    final String title;
+
+    final String[] words;
+
+    Video video;
+
+    Entry(Video video) {
+      this.video = video;
+      this.title = fold(video.getTitle());
+      this.words = title.isEmpty() ? new String[0] : title.split(" ");
+    }
+
+    /**
+     * Returns whether or not each of the specified query words is a prefix of a word in the title.
+     */
+    boolean matches(String[] queryWords) {
+      for (String queryWord : queryWords) {
+        if (!hasWordStartingWith(queryWord)) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    private boolean hasWordStartingWith(String prefix) {
+      for (String word : words) {
+        if (word.startsWith(prefix)) {
+          return true;
+        }
+      }
+      return false;
+    }
+  }
+}
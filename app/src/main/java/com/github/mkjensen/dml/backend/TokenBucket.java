@@ -0,0 +1,102 @@
+/*
+ * Copyright 2016 Martin Kamp Jensen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.mkjensen.dml.backend;
+
+import static com.github.mkjensen.dml.util.Preconditions.notNull;
+
+import android.support.annotation.NonNull;
+
+import com.github.mkjensen.dml.util.Clock;
+
+/**
+ * A token bucket that limits the rate of requests while allowing short bursts.
+ *
+ * <p>The bucket starts full and holds at most a fixed number of tokens. A token is added each
+ * refill interval, and each allowed request takes one.
+ */
+public final class TokenBucket {
+
+  private final int capacity;
+
+  private final long refillIntervalInMilliseconds;
+
+  private final Clock clock;
+
+  private int tokens;
+
+  private long refilledAt;
+
+  /**
+   * Creates a bucket holding at most the specified number of tokens, adding a token each refill
+   * interval.
+   */
+  public TokenBucket(int capacity, long refillIntervalInMilliseconds) {
+    this(capacity, refillIntervalInMilliseconds, Clock.SYSTEM);
+  }
+
+  TokenBucket(int capacity, long refillIntervalInMilliseconds, @NonNull Clock clock) {
+    if (capacity <= 0) {
+      throw new IllegalArgumentException("capacity must be positive");
+    }
+    if (refillIntervalInMilliseconds <= 0) {
+      throw new IllegalArgumentException("refillIntervalInMilliseconds must be positive");
+    }
+    this.capacity = capacity;
+    this.refillIntervalInMilliseconds = refillIntervalInMilliseconds;
+    this.clock = notNull(clock);
+    this.tokens = capacity;
+    this.refilledAt = clock.elapsedMillis();
+  }
+
+  /**
+   * Takes a token if one is available and returns whether it was taken.
+   */
+  public synchronized boolean tryAcquire() {
+    refill();
+    if (tokens == 0) {
+      return false;
+    }
+    tokens--;
+    return true;
+  }
+
+  /**
+   * Returns the time until a token is available, which is zero if one is available now.
+   */
+  public synchronized long getWaitInMilliseconds() {
+    refill();
+    if (tokens > 0) {
+      return 0L;
+    }
+    return refilledAt + refillIntervalInMilliseconds - clock.elapsedMillis();
+  }
+
+  private void refill() {
+    long now = clock.elapsedMillis();
+    long intervals = (now - refilledAt) / refillIntervalInMilliseconds;
+    if (intervals <= 0) {
+      return;
+    }
+    if (tokens + intervals >= capacity) {
+      tokens = capacity;
+      refilledAt = now;
+    } else {
+      tokens += (int) intervals;
+      refilledAt += intervals * refillIntervalInMilliseconds;
+    }
+  }
+}
@@ -0,0 +1,127 @@
+/*
+ * Copyright 2016 Martin Kamp Jensen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.mkjensen.dml.backend;
+
+import static com.github.mkjensen.dml.util.Preconditions.notNull;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.util.Log;
+
+import okhttp3.Headers;
+
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps the {@link Validators} of the responses that objects in an {@link ObjectCache} were parsed
+ * from, so that expired objects can be revalidated with a conditional request and reused if the
+ * backend answers 304 Not Modified.
+ */
+final class ValidatorCache {
+
+  private static final String TAG = "ValidatorCache";
+
+  private final ObjectCache objectCache;
+
+  private final ConcurrentMap<String, Validators> validators = new ConcurrentHashMap<>();
+
+  private final AtomicLong notModifiedCount = new AtomicLong();
+
+  ValidatorCache(@NonNull ObjectCache objectCache) {
+    this.objectCache = notNull(objectCache);
+  }
+
+  /**
+   * Returns the validators to send when requesting the object with the specified key, which are
+   * {@link Validators#NONE} unless the object is cached, even if expired, so that it can be reused
+   * if it has not been modified.
+   */
+  @NonNull
+  Validators get(@NonNull String key) {
+    Validators cached = validators.get(notNull(key));
+    if (cached == null || objectCache.getStale(key) == null) {
+      return Validators.NONE;
+    }
+    return cached;
+  }
+
+  /**
+   * Returns the object with the specified key that a response with the specified status code
+   * confirmed to be up to date, or {@code null} if the status code is not 304 Not Modified. If the
+   * object has been evicted from the object cache since the request was made, it is read from the
+   * specified fallback instead.
+   *
+   * @throws IOException if the object is neither cached nor available from the fallback
+   */
+  @Nullable
+  <T> T getNotModified(@NonNull String key, int code, @NonNull Fallback<T> fallback)
+      throws IOException {
+    if (code != HttpURLConnection.HTTP_NOT_MODIFIED) {
+      return null;
+    }
+    T result = objectCache.getStale(key);
+    if (result == null) {
+      result = fallback.read();
+    }
+    if (result == null) {
+      throw new IOException(String.format("Got not modified for [%s], which is not cached", key));
+    }
+    Log.d(TAG, String.format("Not modified [%s]", key));
+    notModifiedCount.incrementAndGet();
+    return result;
+  }
+
+  /**
+   * Caches the specified object for the specified time, along with the validators in the specified
+   * headers of the response it was loaded or revalidated by, if it should be revalidated. A 304 Not
+   * Modified response without validators keeps the validators that were sent.
+   */
+  void put(@NonNull String key, @NonNull Object result, long timeToLiveInMilliseconds,
+           boolean revalidated, int code, @NonNull Headers headers) {
+    objectCache.put(key, result, timeToLiveInMilliseconds);
+    if (!revalidated) {
+      return;
+    }
+    Validators updated = Validators.from(headers);
+    if (updated != Validators.NONE) {
+      validators.put(key, updated);
+    } else if (code != HttpURLConnection.HTTP_NOT_MODIFIED) {
+      validators.remove(key);
+    }
+  }
+
+  /**
+   * Returns the number of objects that have been reused because the backend answered 304 Not
+   * Modified.
+   */
+  long getNotModifiedCount() {
+    return notModifiedCount.get();
+  }
+
+  /**
+   * Reads an object that is no longer in the object cache from a store that outlives it.
+   */
+  interface Fallback<T> {
+
+    @Nullable
+    T read();
+  }
+}
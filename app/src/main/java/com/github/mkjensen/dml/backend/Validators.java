@@ -0,0 +1,81 @@
+/*
+ * Copyright 2016 Martin Kamp Jensen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.mkjensen.dml.backend;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import okhttp3.Headers;
+
+/**
+ * The validators of a response, which are sent in a later request for the same resource so that
+ * the backend can answer with 304 Not Modified instead of the complete response.
+ *
+ * @see <a href="https://tools.ietf.org/html/rfc7232">Conditional Requests</a>
+ */
+final class Validators {
+
+  /**
+   * The validators of a request that should not be conditional.
+   */
+  static final Validators NONE = new Validators(null, null);
+
+  private final String entityTag;
+
+  private final String lastModified;
+
+  private Validators(@Nullable String entityTag, @Nullable String lastModified) {
+    this.entityTag = entityTag;
+    this.lastModified = lastModified;
+  }
+
+  /**
+   * Returns the validators in the specified response headers, or {@link #NONE} if there are none.
+   */
+  @NonNull
+  static Validators from(@NonNull Headers headers) {
+    String entityTag = headers.get("ETag");
+    String lastModified = headers.get("Last-Modified");
+    if (entityTag == null && lastModified == null) {
+      return NONE;
+    }
+    return new Validators(entityTag, lastModified);
+  }
+
+  /**
+   * Returns the value of the {@code If-None-Match} request header, or {@code null} if the response
+   * had no entity tag.
+   */
+  @Nullable
+  String getIfNoneMatch() {
+    return entityTag;
+  }
+
+  /**
+   * Returns the value of the {@code If-Modified-Since} request header, or {@code null} if the
+   * response had no modification date or an entity tag, which takes precedence.
+   */
+  @Nullable
+  String getIfModifiedSince() {
+    return entityTag == null ? lastModified : null;
+  }
+
+  @Override
+  public String toString() {
+    return String.format("ETag: [%s], Last-Modified: [%s]", entityTag, lastModified);
+  }
+}
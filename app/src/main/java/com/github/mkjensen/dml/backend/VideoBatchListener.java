@@ -0,0 +1,34 @@
+/*
+ * Copyright 2016 Martin Kamp Jensen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.mkjensen.dml.backend;
+
+import android.support.annotation.NonNull;
+
+import com.github.mkjensen.dml.model.Video;
+
+import java.util.List;
+
+/**
+ * Receives the videos of a category in batches while the category is being parsed.
+ */
+public interface VideoBatchListener {
+
+  /**
+   * Called on a background thread with the next batch of videos in the category with the specified
+   * title. The batches are delivered in order and must not be modified.
+   */
+  void onVideos(@NonNull String title, @NonNull List<Video> videos);
+}
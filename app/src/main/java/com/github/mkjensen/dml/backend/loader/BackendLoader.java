@@ -18,16 +18,27 @@ package com.github.mkjensen.dml.backend.loader;
 
 import android.content.Context;
 import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
 import android.support.v4.content.AsyncTaskLoader;
 import android.util.Log;
 
 import com.github.mkjensen.dml.DmlApplication;
 import com.github.mkjensen.dml.backend.BackendHelper;
+import com.github.mkjensen.dml.backend.CancellationScope;
 
 import javax.inject.Inject;
 
 /**
  * Superclass for convenient loading of backend data.
+ *
+ * <p>Subclasses may enable stale-while-revalidate, in which case {@link #loadStaleInBackground()}
+ * is used for delivering cached data right away. Fresh data is then loaded using {@link
+ * #loadInBackground()} and delivered only if it is not {@code null} and differs from the cached
+ * data.
+ *
+ * <p>Each load runs in its own {@link CancellationScope}. When a load is superseded, abandoned or
+ * reset, its network calls are cancelled, so that their responses are neither downloaded nor
+ * parsed any further.
  */
 public abstract class BackendLoader<T> extends AsyncTaskLoader<T> {
 
@@ -38,32 +49,132 @@ public abstract class BackendLoader<T> extends AsyncTaskLoader<T> {
 
   private T data;
 
+  private boolean staleWhileRevalidate;
+
+  private volatile boolean revalidating;
+
+  private volatile boolean staleDataLoaded;
+
+  private volatile CancellationScope scope;
+
   protected BackendLoader(@NonNull Context context) {
     super(context);
     inject(context);
   }
 
+  /**
+   * Enables or disables stale-while-revalidate for this loader. Disabled by default.
+   */
+  protected final void setStaleWhileRevalidate(boolean staleWhileRevalidate) {
+    this.staleWhileRevalidate = staleWhileRevalidate;
+  }
+
+  /**
+   * Returns cached, possibly stale, data without using the network, or {@code null} if there is
+   * no such data. Only called if stale-while-revalidate is enabled. The default implementation
+   * returns {@code null}.
+   */
+  @Nullable
+  protected T loadStaleInBackground() {
+    return null;
+  }
+
+  /**
+   * Returns whether or not the current load is revalidating data that has already been delivered.
+   */
+  protected final boolean isRevalidating() {
+    return revalidating;
+  }
+
   @SuppressWarnings("unchecked")
   private void inject(Context context) {
     DmlApplication.from(context).getBackendComponent().inject((BackendLoader<Object>) this);
   }
 
+  @Override
+  protected T onLoadInBackground() {
+    CancellationScope scope = new CancellationScope();
+    this.scope = scope;
+    if (isLoadInBackgroundCanceled()) {
+      // Cancelled before the scope was published.
+      scope.cancel();
+    }
+    CancellationScope previous = CancellationScope.enter(scope);
+    try {
+      if (staleWhileRevalidate && !revalidating) {
+        T staleData = loadStaleInBackground();
+        if (staleData != null) {
+          staleDataLoaded = true;
+          return staleData;
+        }
+      }
+      staleDataLoaded = false;
+      return super.onLoadInBackground();
+    } finally {
+      CancellationScope.restore(previous);
+    }
+  }
+
+  @Override
+  public void cancelLoadInBackground() {
+    CancellationScope scope = this.scope;
+    if (scope != null) {
+      Log.d(TAG, "cancelLoadInBackground");
+      scope.cancel();
+    }
+  }
+
   @Override
   public void deliverResult(T data) {
     Log.d(TAG, "deliverResult");
+    boolean stale = staleDataLoaded;
+    staleDataLoaded = false;
+    if (revalidating) {
+      revalidating = false;
+      if (data == null || data.equals(this.data)) {
+        Log.d(TAG, "Revalidation did not change data, skipping delivery");
+        return;
+      }
+    }
     this.data = data;
     if (isStarted()) {
       super.deliverResult(data);
     }
+    if (stale) {
+      Log.d(TAG, "Delivered stale data, revalidating");
+      revalidating = true;
+      forceLoad();
+    }
+  }
+
+  @Override
+  public void onCanceled(T data) {
+    super.onCanceled(data);
+    revalidating = false;
+    staleDataLoaded = false;
   }
 
   @Override
   protected void onStartLoading() {
     Log.d(TAG, "onStartLoading");
     if (data != null) {
-      deliverResult(data);
+      super.deliverResult(data);
     } else {
       forceLoad();
     }
   }
+
+  @Override
+  protected void onAbandon() {
+    super.onAbandon();
+    cancelLoad();
+  }
+
+  @Override
+  protected void onReset() {
+    super.onReset();
+    cancelLoad();
+    revalidating = false;
+    staleDataLoaded = false;
+  }
 }
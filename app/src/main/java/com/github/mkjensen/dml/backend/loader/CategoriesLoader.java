@@ -19,32 +19,99 @@ package com.github.mkjensen.dml.backend.loader;
 import static com.github.mkjensen.dml.util.Preconditions.notNull;
 
 import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Process;
 import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
+import android.support.annotation.StringRes;
 import android.util.Log;
 
+import com.github.mkjensen.dml.R;
+import com.github.mkjensen.dml.backend.CancellationScope;
+import com.github.mkjensen.dml.backend.LoadPolicy;
+import com.github.mkjensen.dml.backend.VideoBatchListener;
 import com.github.mkjensen.dml.model.Category;
+import com.github.mkjensen.dml.model.Video;
 
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.EnumSet;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Loads {@link Category} instances from the backend.
+ *
+ * <p>If a {@link PartialResultListener} is set, videos are published to it while the categories
+ * are being downloaded, unless data is being revalidated.
+ *
+ * <p>A revalidation that does not load every row delivers nothing, so that the stale rows already
+ * shown are not replaced by fewer rows, for example while offline.
  */
 public final class CategoriesLoader extends BackendLoader<List<Category>> {
 
+  /**
+   * The default time allowed for loading all the default categories of interest.
+   */
+  public static final long DEFAULT_DEADLINE_IN_MILLISECONDS = 8000L;
+
   private static final String TAG = "CategoriesLoader";
 
+  private static final Row[] ROWS = Row.values();
+
+  /**
+   * The number of loads that can load every row at the same time, such as a superseded load that
+   * is still finishing while the load replacing it starts.
+   */
+  private static final int MAX_OVERLAPPING_LOADS = 2;
+
+  private static final FanOut FAN_OUT = new FanOut(MAX_OVERLAPPING_LOADS * ROWS.length, TAG);
+
+  private static final ExecutorService SNAPSHOT_EXECUTOR = createSnapshotExecutor();
+
   private final String query;
 
+  private final long deadlineInMilliseconds;
+
+  private volatile Set<Row> timedOutRows = Collections.emptySet();
+
+  private final Handler handler = new Handler(Looper.getMainLooper());
+
+  private volatile PartialResultListener partialResultListener;
+
   /**
-   * Creates a loader that returns the default categories of interest.
+   * Creates a loader that returns the default categories of interest using {@link
+   * #DEFAULT_DEADLINE_IN_MILLISECONDS}.
    */
   public CategoriesLoader(@NonNull Context context) {
+    this(context, DEFAULT_DEADLINE_IN_MILLISECONDS);
+  }
+
+  /**
+   * Creates a loader that returns the default categories of interest. The categories are loaded
+   * concurrently and categories that have not been loaded within the specified deadline, counted
+   * from when each category started loading, are left out of the result, see {@link
+   * #getTimedOutRows()}.
+   */
+  public CategoriesLoader(@NonNull Context context, long deadlineInMilliseconds) {
     super(context);
-    query = null;
+    if (deadlineInMilliseconds <= 0) {
+      throw new IllegalArgumentException("deadlineInMilliseconds must be positive");
+    }
+    this.query = null;
+    this.deadlineInMilliseconds = deadlineInMilliseconds;
+    setStaleWhileRevalidate(true);
   }
 
   /**
@@ -53,6 +120,25 @@ public final class CategoriesLoader extends BackendLoader<List<Category>> {
   public CategoriesLoader(@NonNull Context context, @NonNull String query) {
     super(context);
     this.query = notNull(query);
+    this.deadlineInMilliseconds = DEFAULT_DEADLINE_IN_MILLISECONDS;
+  }
+
+  private static ExecutorService createSnapshotExecutor() {
+    ThreadPoolExecutor executor = new ThreadPoolExecutor(1, 1, 30L, TimeUnit.SECONDS,
+        new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+          @Override
+          public Thread newThread(@NonNull final Runnable runnable) {
+            return new Thread(new Runnable() {
+              @Override
+              public void run() {
+                Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                runnable.run();
+              }
+            }, TAG + " snapshot");
+          }
+        });
+    executor.allowCoreThreadTimeOut(true);
+    return executor;
   }
 
   @Override
@@ -65,6 +151,33 @@ public final class CategoriesLoader extends BackendLoader<List<Category>> {
     }
   }
 
+  /**
+   * Returns the cached default categories of interest, or {@code null} if none of them are cached.
+   * The home snapshot is preferred, as it is read with a single memory-mapped read on cold start.
+   * Otherwise, each category is read from the catalog store, which survives process restarts, or
+   * the HTTP cache, and categories that are not cached are left out.
+   */
+  @Override
+  protected List<Category> loadStaleInBackground() {
+    if (query != null) {
+      return null;
+    }
+    List<Category> snapshot = backendHelper.getHomeSnapshot().read();
+    if (snapshot != null) {
+      Log.d(TAG, "Using home snapshot");
+      return snapshot;
+    }
+    List<Category> categories = new ArrayList<>(ROWS.length);
+    for (Row row : ROWS) {
+      try {
+        categories.add(loadCategory(row, LoadPolicy.CACHE_ONLY));
+      } catch (IOException ex) {
+        Log.d(TAG, String.format("No cached category [%s]", row));
+      }
+    }
+    return categories.isEmpty() ? null : categories;
+  }
+
   /**
    * Returns the query executed by this loader, or {@code null} if this loader does not execute a
    * query.
@@ -74,44 +187,223 @@ public final class CategoriesLoader extends BackendLoader<List<Category>> {
     return query;
   }
 
+  /**
+   * Returns the row showing the category with the specified title, or {@code null} if there is no
+   * such row.
+   */
+  @Nullable
+  public Row getRow(@NonNull String title) {
+    for (Row row : ROWS) {
+      if (getContext().getString(row.titleResId).equals(title)) {
+        return row;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Sets the listener receiving videos while they are being loaded, or removes it if {@code null}.
+   */
+  public void setPartialResultListener(@Nullable PartialResultListener listener) {
+    this.partialResultListener = listener;
+  }
+
+  /**
+   * Returns the rows that did not finish loading before the deadline during the most recent load.
+   * The returned set is empty if this loader executes a query.
+   */
+  @NonNull
+  public Set<Row> getTimedOutRows() {
+    return timedOutRows;
+  }
+
   private List<Category> loadCategories() {
-    List<Category> categories = new ArrayList<>(3);
-    loadNewCategory(categories);
-    loadSelectedCategory(categories);
-    loadMostViewedCategory(categories);
+    VideoBatchListener listener = createVideoBatchListener();
+    List<Callable<Category>> tasks = new ArrayList<>(ROWS.length);
+    for (Row row : ROWS) {
+      tasks.add(createTask(row, listener));
+    }
+    List<Future<Category>> futures;
+    try {
+      futures = FAN_OUT.invokeAll(tasks, deadlineInMilliseconds);
+    } catch (InterruptedException ex) {
+      Log.w(TAG, "Interrupted while loading categories");
+      Thread.currentThread().interrupt();
+      return isRevalidating() ? null : Collections.<Category>emptyList();
+    }
+    List<Category> categories = new ArrayList<>(ROWS.length);
+    Set<Row> timedOut = EnumSet.noneOf(Row.class);
+    for (int i = 0; i < ROWS.length; i++) {
+      Category category = getCategory(ROWS[i], futures.get(i), timedOut);
+      if (category != null) {
+        categories.add(category);
+      }
+    }
+    if (!timedOut.isEmpty()) {
+      Log.w(TAG, String.format("Rows %s did not load within [%d] ms", timedOut,
+          deadlineInMilliseconds));
+    }
+    timedOutRows = Collections.unmodifiableSet(timedOut);
+    if (categories.size() < ROWS.length && isRevalidating()) {
+      // Keep showing the stale rows rather than replacing them with fewer fresh ones.
+      Log.d(TAG, "Not all rows were revalidated, keeping stale rows");
+      return null;
+    }
+    if (categories.size() == ROWS.length) {
+      writeSnapshot(categories);
+    }
     return categories;
   }
 
-  private void loadMostViewedCategory(List<Category> categories) {
-    try {
-      categories.add(backendHelper.loadMostViewedCategory());
-    } catch (IOException ex) {
-      Log.e(TAG, "Failed to load most viewed category", ex);
+  private void writeSnapshot(final List<Category> categories) {
+    SNAPSHOT_EXECUTOR.execute(new Runnable() {
+      @Override
+      public void run() {
+        try {
+          backendHelper.getHomeSnapshot().write(categories);
+        } catch (IOException ex) {
+          Log.w(TAG, "Failed to write home snapshot", ex);
+        }
+      }
+    });
+  }
+
+  /**
+   * Returns a task loading the specified row in the cancellation scope of the calling thread.
+   */
+  private Callable<Category> createTask(final Row row,
+                                        @Nullable final VideoBatchListener listener) {
+    final CancellationScope scope = CancellationScope.current();
+    return new Callable<Category>() {
+      @Override
+      public Category call() throws IOException {
+        CancellationScope previous = CancellationScope.enter(scope);
+        try {
+          if (listener == null) {
+            return loadCategory(row, LoadPolicy.DEFAULT);
+          }
+          return streamCategory(row, listener);
+        } finally {
+          CancellationScope.restore(previous);
+        }
+      }
+    };
+  }
+
+  private Category streamCategory(Row row, VideoBatchListener listener) throws IOException {
+    switch (row) {
+      case NEW:
+        return backendHelper.streamNewCategory(listener);
+      case RECOMMENDED:
+        return backendHelper.streamRecommendedCategory(listener);
+      case MOST_VIEWED:
+        return backendHelper.streamMostViewedCategory(listener);
+      default:
+        throw new IllegalArgumentException("Unhandled row: " + row);
     }
   }
 
-  private void loadNewCategory(List<Category> categories) {
-    try {
-      categories.add(backendHelper.loadNewCategory());
-    } catch (IOException ex) {
-      Log.e(TAG, "Failed to load new category", ex);
+  private Category loadCategory(Row row, LoadPolicy policy) throws IOException {
+    switch (row) {
+      case NEW:
+        return backendHelper.loadNewCategory(policy);
+      case RECOMMENDED:
+        return backendHelper.loadRecommendedCategory(policy);
+      case MOST_VIEWED:
+        return backendHelper.loadMostViewedCategory(policy);
+      default:
+        throw new IllegalArgumentException("Unhandled row: " + row);
     }
   }
 
-  private void loadSelectedCategory(List<Category> categories) {
+  @Nullable
+  private Category getCategory(Row row, Future<Category> future, Set<Row> timedOut) {
     try {
-      categories.add(backendHelper.loadRecommendedCategory());
-    } catch (IOException ex) {
-      Log.e(TAG, "Failed to load recommended category", ex);
+      return future.get();
+    } catch (CancellationException ex) {
+      timedOut.add(row);
+    } catch (ExecutionException ex) {
+      if (isLoadInBackgroundCanceled()) {
+        Log.d(TAG, String.format("Cancelled loading category [%s]", row));
+        return null;
+      }
+      Log.e(TAG, String.format("Failed to load category [%s]", row), ex.getCause());
+    } catch (InterruptedException ex) {
+      // Cannot happen as invokeAll has returned, but restore the interrupt status regardless.
+      Thread.currentThread().interrupt();
     }
+    return null;
   }
 
   private List<Category> executeQuery() {
+    VideoBatchListener listener = createVideoBatchListener();
     try {
-      return Collections.singletonList(backendHelper.search(query));
+      if (listener == null) {
+        return Collections.singletonList(backendHelper.search(query));
+      }
+      return Collections.singletonList(backendHelper.streamSearch(query, listener));
     } catch (IOException ex) {
-      Log.e(TAG, String.format("Failed to execute query [%s]", query), ex);
+      if (isLoadInBackgroundCanceled()) {
+        Log.d(TAG, String.format("Cancelled query [%s]", query));
+      } else {
+        Log.e(TAG, String.format("Failed to execute query [%s]", query), ex);
+      }
       return Collections.emptyList();
     }
   }
+
+  /**
+   * Returns a listener that forwards videos to the partial result listener on the main thread, or
+   * {@code null} if partial results should not be published.
+   */
+  @Nullable
+  private VideoBatchListener createVideoBatchListener() {
+    if (partialResultListener == null || isRevalidating()) {
+      return null;
+    }
+    return new VideoBatchListener() {
+      @Override
+      public void onVideos(@NonNull final String title, @NonNull final List<Video> videos) {
+        handler.post(new Runnable() {
+          @Override
+          public void run() {
+            PartialResultListener listener = partialResultListener;
+            if (listener != null && isStarted() && !isAbandoned()) {
+              listener.onPartialResult(CategoriesLoader.this, title, videos);
+            }
+          }
+        });
+      }
+    };
+  }
+
+  /**
+   * Receives videos while they are being loaded, before the complete result is delivered.
+   */
+  public interface PartialResultListener {
+
+    /**
+     * Called on the main thread with the next videos in the category with the specified title. The
+     * complete categories are delivered afterwards as usual.
+     */
+    void onPartialResult(@NonNull CategoriesLoader loader, @NonNull String title,
+                         @NonNull List<Video> videos);
+  }
+
+  /**
+   * The rows returned by a loader that does not execute a query, in the order in which they are
+   * returned.
+   */
+  public enum Row {
+    NEW(R.string.backend_category_new),
+    RECOMMENDED(R.string.backend_category_recommended),
+    MOST_VIEWED(R.string.backend_category_most_viewed);
+
+    @StringRes
+    private final int titleResId;
+
+    Row(@StringRes int titleResId) {
+      this.titleResId = titleResId;
+    }
+  }
 }
@@ -0,0 +1,124 @@
+/*
+ * Copyright 2016 Martin Kamp Jensen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.mkjensen.dml.backend.loader;
+
+import static com.github.mkjensen.dml.util.Preconditions.notNull;
+
+import android.content.Context;
+import android.os.Bundle;
+import android.support.annotation.NonNull;
+import android.util.Log;
+
+import com.github.mkjensen.dml.backend.BackendHelper;
+import com.github.mkjensen.dml.model.Category;
+
+import java.io.IOException;
+
+/**
+ * Loads a single page of a {@link Category} from the backend, see {@link BackendHelper#PAGE_SIZE}.
+ * The category is identified by arguments created using the {@code createArguments} methods.
+ */
+public final class CategoryPageLoader extends BackendLoader<Category> {
+
+  private static final String TAG = "CategoryPageLoader";
+
+  private static final String ROW_ARGUMENT = "row";
+
+  private static final String QUERY_ARGUMENT = "query";
+
+  private static final String OFFSET_ARGUMENT = "offset";
+
+  private final CategoriesLoader.Row row;
+
+  private final String query;
+
+  private final int offset;
+
+  /**
+   * Creates a loader that returns the page of the category identified by the specified arguments.
+   */
+  public CategoryPageLoader(@NonNull Context context, @NonNull Bundle args) {
+    super(context);
+    String rowName = notNull(args).getString(ROW_ARGUMENT);
+    this.row = rowName == null ? null : CategoriesLoader.Row.valueOf(rowName);
+    this.query = args.getString(QUERY_ARGUMENT);
+    if ((row == null) == (query == null)) {
+      throw new IllegalArgumentException("args must identify either a row or a query");
+    }
+    this.offset = args.getInt(OFFSET_ARGUMENT);
+  }
+
+  /**
+   * Returns arguments identifying the first page of the category shown in the specified row.
+   */
+  @NonNull
+  public static Bundle createArguments(@NonNull CategoriesLoader.Row row) {
+    Bundle args = new Bundle();
+    args.putString(ROW_ARGUMENT, notNull(row).name());
+    return args;
+  }
+
+  /**
+   * Returns arguments identifying the first page of the category returned for the specified query.
+   */
+  @NonNull
+  public static Bundle createArguments(@NonNull String query) {
+    Bundle args = new Bundle();
+    args.putString(QUERY_ARGUMENT, notNull(query));
+    return args;
+  }
+
+  /**
+   * Returns a copy of the specified arguments that identifies the page starting at the specified
+   * offset instead.
+   */
+  @NonNull
+  public static Bundle createArguments(@NonNull Bundle args, int offset) {
+    Bundle copy = new Bundle(notNull(args));
+    copy.putInt(OFFSET_ARGUMENT, offset);
+    return copy;
+  }
+
+  @Override
+  public Category loadInBackground() {
+    Log.d(TAG, String.format("loadInBackground [%s] [%s] [%d]", row, query, offset));
+    try {
+      if (query != null) {
+        return backendHelper.searchPage(query, offset);
+      }
+      switch (row) {
+        case NEW:
+          return backendHelper.loadNewCategoryPage(offset);
+        case RECOMMENDED:
+          return backendHelper.loadRecommendedCategoryPage(offset);
+        case MOST_VIEWED:
+          return backendHelper.loadMostViewedCategoryPage(offset);
+        default:
+          throw new IllegalArgumentException("Unhandled row: " + row);
+      }
+    } catch (IOException ex) {
+      Log.e(TAG, String.format("Failed to load page [%s] [%s] [%d]", row, query, offset), ex);
+      return null;
+    }
+  }
+
+  /**
+   * Returns the offset of the first video in the page loaded by this loader.
+   */
+  public int getOffset() {
+    return offset;
+  }
+}
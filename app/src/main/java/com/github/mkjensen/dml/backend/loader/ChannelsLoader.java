@@ -21,21 +21,28 @@ import android.support.annotation.NonNull;
 import android.util.Log;
 
 import com.github.mkjensen.dml.model.Channel;
+import com.github.mkjensen.dml.model.ChannelFilter;
+import com.github.mkjensen.dml.model.Protocol;
 
 import java.io.IOException;
 import java.text.Collator;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.EnumSet;
 import java.util.List;
 
 /**
- * Loads {@link Channel} instances from the backend.
+ * Loads {@link Channel} instances from the backend. Web channels and streaming servers using
+ * protocols that cannot be played are left out.
  */
 public final class ChannelsLoader extends BackendLoader<List<Channel>> {
 
   private static final String TAG = "ChannelsLoader";
 
+  private static final ChannelFilter FILTER =
+      new ChannelFilter(false, EnumSet.of(Protocol.HLS, Protocol.HLS_SUBTITLES));
+
   public ChannelsLoader(@NonNull Context context) {
     super(context);
   }
@@ -44,13 +51,7 @@ public final class ChannelsLoader extends BackendLoader<List<Channel>> {
   public List<Channel> loadInBackground() {
     Log.d(TAG, "loadInBackground");
     try {
-      List<Channel> allChannels = backendHelper.loadChannels();
-      List<Channel> channels = new ArrayList<>(allChannels.size());
-      for (Channel channel : allChannels) {
-        if (!channel.isWebChannel()) {
-          channels.add(channel);
-        }
-      }
+      List<Channel> channels = new ArrayList<>(backendHelper.loadChannels(FILTER));
       Collections.sort(channels, new Comparator<Channel>() {
         @Override
         public int compare(Channel lhs, Channel rhs) {
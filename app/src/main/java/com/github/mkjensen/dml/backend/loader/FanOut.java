@@ -0,0 +1,140 @@
+/*
+ * Copyright 2016 Martin Kamp Jensen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.mkjensen.dml.backend.loader;
+
+import static com.github.mkjensen.dml.util.Preconditions.notNull;
+
+import android.support.annotation.NonNull;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs groups of tasks concurrently on a bounded pool of threads shared by overlapping groups.
+ * The deadline of a task counts from when it starts rather than from when it is submitted, so
+ * that time spent waiting for the tasks of other groups to free a thread is not held against it.
+ */
+final class FanOut {
+
+  private final ThreadPoolExecutor executor;
+
+  /**
+   * Creates a fan-out running at most the specified number of tasks at a time.
+   *
+   * @param name the name of the threads running the tasks, followed by a number
+   */
+  FanOut(int maxThreads, @NonNull final String name) {
+    notNull(name);
+    if (maxThreads <= 0) {
+      throw new IllegalArgumentException("maxThreads must be positive");
+    }
+    executor = new ThreadPoolExecutor(maxThreads, maxThreads, 30L, TimeUnit.SECONDS,
+        new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+
+          private final AtomicInteger count = new AtomicInteger();
+
+          @Override
+          public Thread newThread(@NonNull Runnable runnable) {
+            return new Thread(runnable, name + " #" + count.incrementAndGet());
+          }
+        });
+    executor.allowCoreThreadTimeOut(true);
+  }
+
+  /**
+   * Runs the specified tasks and returns their futures in the same order once every task has
+   * completed or been cancelled, like {@link java.util.concurrent.ExecutorService#invokeAll(
+   * java.util.Collection, long, TimeUnit)}. Tasks that have not completed within the specified
+   * deadline, counted from when each of them started, are cancelled. If the calling thread is
+   * interrupted, the tasks are cancelled together.
+   */
+  @NonNull
+  <T> List<Future<T>> invokeAll(@NonNull List<Callable<T>> tasks, long deadlineInMilliseconds)
+      throws InterruptedException {
+    notNull(tasks);
+    if (deadlineInMilliseconds <= 0) {
+      throw new IllegalArgumentException("deadlineInMilliseconds must be positive");
+    }
+    List<TimedTask<T>> timedTasks = new ArrayList<>(tasks.size());
+    for (Callable<T> task : tasks) {
+      timedTasks.add(new TimedTask<>(notNull(task)));
+    }
+    boolean done = false;
+    try {
+      for (TimedTask<T> timedTask : timedTasks) {
+        executor.execute(timedTask);
+      }
+      for (TimedTask<T> timedTask : timedTasks) {
+        await(timedTask, deadlineInMilliseconds);
+      }
+      done = true;
+    } finally {
+      if (!done) {
+        for (TimedTask<T> timedTask : timedTasks) {
+          timedTask.cancel(true);
+        }
+      }
+    }
+    return new ArrayList<Future<T>>(timedTasks);
+  }
+
+  private static <T> void await(TimedTask<T> task, long deadlineInMilliseconds)
+      throws InterruptedException {
+    task.started.await();
+    long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - task.startNanos);
+    try {
+      task.get(Math.max(0L, deadlineInMilliseconds - elapsed), TimeUnit.MILLISECONDS);
+    } catch (TimeoutException ex) {
+      task.cancel(true);
+    } catch (CancellationException | ExecutionException ex) {
+      // The caller inspects the future.
+    }
+  }
+
+  /**
+   * A task recording when it started.
+   */
+  private static final class TimedTask<T> extends FutureTask<T> {
+
+    final CountDownLatch started = new CountDownLatch(1);
+
+    volatile long startNanos;
+
+    TimedTask(Callable<T> callable) {
+      super(callable);
+    }
+
+    @Override
+    public void run() {
+      startNanos = System.nanoTime();
+      started.countDown();
+      super.run();
+    }
+  }
+}
@@ -22,6 +22,7 @@ import android.content.Context;
 import android.support.annotation.NonNull;
 import android.util.Log;
 
+import com.github.mkjensen.dml.backend.LoadPolicy;
 import com.github.mkjensen.dml.backend.loader.BackendLoader;
 import com.github.mkjensen.dml.model.Video;
 
@@ -39,6 +40,17 @@ public final class VideoLoader extends BackendLoader<Video> {
   public VideoLoader(@NonNull Context context, @NonNull String videoId) {
     super(context);
     this.videoId = notNull(videoId);
+    setStaleWhileRevalidate(true);
+  }
+
+  @Override
+  protected Video loadStaleInBackground() {
+    try {
+      return backendHelper.loadVideo(videoId, LoadPolicy.CACHE_ONLY);
+    } catch (IOException ex) {
+      Log.d(TAG, String.format("No cached video [%s]", videoId));
+      return null;
+    }
   }
 
   @Override
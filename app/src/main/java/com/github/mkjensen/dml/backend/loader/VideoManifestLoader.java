@@ -27,7 +27,8 @@ import com.github.mkjensen.dml.model.VideoManifest;
 import java.io.IOException;
 
 /**
- * Loads a video manifest from the backend.
+ * Loads a video manifest from the backend. Cached video manifests are not shown first, as the
+ * player is built from the first video manifest delivered and its stream URL must be fresh.
  */
 public final class VideoManifestLoader extends BackendLoader<VideoManifest> {
 
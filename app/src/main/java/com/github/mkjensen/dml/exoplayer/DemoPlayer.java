@@ -162,6 +162,13 @@ public class DemoPlayer implements ExoPlayer.Listener, ChunkSampleSource.EventLi
     void onId3Metadata(List<Id3Frame> id3Frames);
   }
 
+  /**
+   * A listener for receiving notifications of video frames being drawn to the surface.
+   */
+  public interface SurfaceListener {
+    void onDrawnToSurface(Surface surface);
+  }
+
   // Constants pulled into this class for convenience.
   public static final int STATE_IDLE = ExoPlayer.STATE_IDLE;
   public static final int STATE_PREPARING = ExoPlayer.STATE_PREPARING;
@@ -205,6 +212,7 @@ public class DemoPlayer implements ExoPlayer.Listener, ChunkSampleSource.EventLi
   private Id3MetadataListener id3MetadataListener;
   private InternalErrorListener internalErrorListener;
   private InfoListener infoListener;
+  private SurfaceListener surfaceListener;
 
   /**
    * Creates a {@link DemoPlayer} instance.
@@ -250,6 +258,10 @@ public class DemoPlayer implements ExoPlayer.Listener, ChunkSampleSource.EventLi
     id3MetadataListener = listener;
   }
 
+  public void setSurfaceListener(SurfaceListener listener) {
+    surfaceListener = listener;
+  }
+
   public void setSurface(Surface surface) {
     this.surface = surface;
     pushSurface(false);
@@ -589,7 +601,9 @@ public class DemoPlayer implements ExoPlayer.Listener, ChunkSampleSource.EventLi
 
   @Override
   public void onDrawnToSurface(Surface surface) {
-    // Do nothing.
+    if (surfaceListener != null) {
+      surfaceListener.onDrawnToSurface(surface);
+    }
   }
 
   @Override
@@ -45,6 +45,7 @@ import android.content.Context;
 import android.media.AudioManager;
 import android.media.MediaCodec;
 import android.os.Handler;
+import android.support.annotation.Nullable;
 
 import com.github.mkjensen.dml.exoplayer.DemoPlayer.RendererBuilder;
 
@@ -65,6 +66,7 @@ public class HlsRendererBuilder implements RendererBuilder {
   private final Context context;
   private final String userAgent;
   private final String url;
+  private final HlsPlaylist playlist;
 
   private AsyncRendererBuilder currentAsyncBuilder;
 
@@ -72,15 +74,29 @@ public class HlsRendererBuilder implements RendererBuilder {
    * Creates a new renderer builder for content served using HLS.
    */
   public HlsRendererBuilder(Context context, String userAgent, String url) {
+    this(context, userAgent, url, null);
+  }
+
+  /**
+   * Creates a new renderer builder for content served using HLS. If the master playlist at the
+   * specified URL has already been loaded, it may be specified so that it is not loaded again.
+   */
+  public HlsRendererBuilder(Context context, String userAgent, String url,
+                            @Nullable HlsPlaylist playlist) {
     this.context = context;
     this.userAgent = userAgent;
     this.url = url;
+    this.playlist = playlist;
   }
 
   @Override
   public void buildRenderers(DemoPlayer player) {
     currentAsyncBuilder = new AsyncRendererBuilder(context, userAgent, url, player);
-    currentAsyncBuilder.init();
+    if (playlist != null) {
+      currentAsyncBuilder.init(playlist);
+    } else {
+      currentAsyncBuilder.init();
+    }
   }
 
   @Override
@@ -114,6 +130,15 @@ public class HlsRendererBuilder implements RendererBuilder {
       playlistFetcher.singleLoad(player.getMainHandler().getLooper(), this);
     }
 
+    public void init(final HlsPlaylist playlist) {
+      player.getMainHandler().post(new Runnable() {
+        @Override
+        public void run() {
+          onSingleManifest(playlist);
+        }
+      });
+    }
+
     public void cancel() {
       canceled = true;
     }
@@ -162,7 +187,7 @@ public class HlsRendererBuilder implements RendererBuilder {
     }
   }
 
-  private static UriDataSource createDataSource(Context context, String userAgent) {
+  static UriDataSource createDataSource(Context context, String userAgent) {
     return createDataSource(context, userAgent, null);
   }
 
@@ -24,6 +24,7 @@ import com.google.android.exoplayer.util.Assertions;
 import com.google.android.exoplayer.util.Predicate;
 
 import com.github.mkjensen.dml.DmlApplication;
+import com.github.mkjensen.dml.inject.Media;
 
 import okhttp3.CacheControl;
 import okhttp3.Call;
@@ -53,6 +54,7 @@ public final class OkHttpDataSource implements HttpDataSource {
   private static final AtomicReference<byte[]> skipBufferReference = new AtomicReference<>();
 
   @Inject
+  @Media
   Call.Factory callFactory;
 
   private final String userAgent;
@@ -0,0 +1,286 @@
+/*
+ * Copyright 2016 Martin Kamp Jensen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.mkjensen.dml.exoplayer;
+
+import static com.github.mkjensen.dml.util.Preconditions.notNull;
+
+import com.google.android.exoplayer.hls.HlsPlaylist;
+import com.google.android.exoplayer.hls.HlsPlaylistParser;
+import com.google.android.exoplayer.upstream.UriLoadable;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Process;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.util.Log;
+
+import com.github.mkjensen.dml.backend.BackendHelper;
+import com.github.mkjensen.dml.model.Protocol;
+import com.github.mkjensen.dml.model.VideoManifest;
+import com.github.mkjensen.dml.util.Clock;
+
+import java.io.IOException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Resolves the video manifest and HLS master playlist of an on-demand video before playback is
+ * requested, and hands them over to the playback screen so that it does not have to wait for two
+ * serial requests. Only the most recently prepared video is kept, and it is thrown away once it is
+ * older than {@link #TIME_TO_LIVE_IN_MILLISECONDS} as the stream URLs may expire.
+ */
+public final class PlaybackHandoff {
+
+  /**
+   * The time for which a resolved video may be handed over.
+   */
+  public static final long TIME_TO_LIVE_IN_MILLISECONDS = TimeUnit.MINUTES.toMillis(1);
+
+  /**
+   * The maximum time that {@link #take(String, TakeListener)} waits for a video that is still
+   * being resolved.
+   */
+  public static final long MAX_TAKE_WAIT_IN_MILLISECONDS = TimeUnit.SECONDS.toMillis(2);
+
+  private static final String TAG = "PlaybackHandoff";
+
+  private final Context context;
+
+  private final BackendHelper backendHelper;
+
+  private final Clock clock;
+
+  private final ExecutorService executor = createExecutor();
+
+  private final Handler handler = new Handler(Looper.getMainLooper());
+
+  private String preparedManifestUrl;
+
+  private Future<?> pending;
+
+  private Resolved resolved;
+
+  public PlaybackHandoff(@NonNull Context context, @NonNull BackendHelper backendHelper) {
+    this(context, backendHelper, Clock.SYSTEM);
+  }
+
+  PlaybackHandoff(@NonNull Context context, @NonNull BackendHelper backendHelper,
+                  @NonNull Clock clock) {
+    this.context = notNull(context).getApplicationContext();
+    this.backendHelper = notNull(backendHelper);
+    this.clock = notNull(clock);
+  }
+
+  private static ExecutorService createExecutor() {
+    ThreadPoolExecutor executor = new ThreadPoolExecutor(1, 1, 30L, TimeUnit.SECONDS,
+        new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+          @Override
+          public Thread newThread(@NonNull final Runnable runnable) {
+            return new Thread(new Runnable() {
+              @Override
+              public void run() {
+                Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                runnable.run();
+              }
+            }, TAG);
+          }
+        });
+    executor.allowCoreThreadTimeOut(true);
+    return executor;
+  }
+
+  /**
+   * Starts resolving the video manifest at the specified URL and the HLS master playlist that it
+   * refers to in the background, replacing any previously prepared video. Does nothing if the
+   * video has already been prepared.
+   */
+  public synchronized void prepare(@NonNull final String manifestUrl) {
+    notNull(manifestUrl);
+    if (manifestUrl.equals(preparedManifestUrl) && (pending != null || isFresh(resolved))) {
+      return;
+    }
+    Log.d(TAG, String.format("prepare [%s]", manifestUrl));
+    cancel();
+    preparedManifestUrl = manifestUrl;
+    pending = executor.submit(new Runnable() {
+      @Override
+      public void run() {
+        Resolved result = resolve(manifestUrl);
+        synchronized (PlaybackHandoff.this) {
+          if (manifestUrl.equals(preparedManifestUrl)) {
+            resolved = result;
+            pending = null;
+          }
+        }
+      }
+    });
+  }
+
+  /**
+   * Returns the resolved video for the specified manifest URL and removes it from this handoff, or
+   * returns {@code null} if it has not been resolved yet, could not be resolved or is stale.
+   */
+  @Nullable
+  public synchronized Resolved take(@NonNull String manifestUrl) {
+    Resolved result = resolved;
+    if (result == null || !result.manifestUrl.equals(manifestUrl)) {
+      return null;
+    }
+    resolved = null;
+    preparedManifestUrl = null;
+    if (!isFresh(result)) {
+      Log.d(TAG, String.format("Discarding stale playlist [%s]", manifestUrl));
+      return null;
+    }
+    return result;
+  }
+
+  /**
+   * Takes the resolved video for the specified manifest URL like {@link #take(String)}, and passes
+   * it to the specified listener on the main thread. If the video is still being resolved, for
+   * example because playback was requested right after it was prepared, the result is passed
+   * once resolving has finished, or after {@link #MAX_TAKE_WAIT_IN_MILLISECONDS} if that is
+   * sooner, in which case {@code null} is passed. Must be called on the main thread.
+   */
+  public void take(@NonNull final String manifestUrl, @NonNull final TakeListener listener) {
+    notNull(manifestUrl);
+    notNull(listener);
+    boolean resolving;
+    synchronized (this) {
+      resolving = pending != null && manifestUrl.equals(preparedManifestUrl);
+    }
+    if (!resolving) {
+      listener.onTaken(take(manifestUrl));
+      return;
+    }
+    Log.d(TAG, String.format("Waiting for [%s] to be resolved", manifestUrl));
+    final AtomicBoolean taken = new AtomicBoolean();
+    final Runnable deliver = new Runnable() {
+      @Override
+      public void run() {
+        if (taken.compareAndSet(false, true)) {
+          handler.removeCallbacks(this);
+          listener.onTaken(take(manifestUrl));
+        }
+      }
+    };
+    // The executor has a single thread, so this runs once the pending video has been resolved.
+    executor.execute(new Runnable() {
+      @Override
+      public void run() {
+        handler.post(deliver);
+      }
+    });
+    handler.postDelayed(deliver, MAX_TAKE_WAIT_IN_MILLISECONDS);
+  }
+
+  /**
+   * Cancels resolving the prepared video and throws away any resolved video.
+   */
+  public synchronized void cancel() {
+    if (pending != null) {
+      pending.cancel(false);
+      pending = null;
+    }
+    resolved = null;
+    preparedManifestUrl = null;
+  }
+
+  private boolean isFresh(@Nullable Resolved result) {
+    return result != null
+        && clock.elapsedMillis() - result.resolvedAtMillis < TIME_TO_LIVE_IN_MILLISECONDS;
+  }
+
+  @Nullable
+  private Resolved resolve(String manifestUrl) {
+    try {
+      VideoManifest manifest = backendHelper.loadVideoManifest(manifestUrl);
+      String streamUrl = manifest.getUrl(Protocol.HLS);
+      if (VideoManifest.NOT_SET.equals(streamUrl)) {
+        return null;
+      }
+      UriLoadable<HlsPlaylist> loadable = new UriLoadable<>(streamUrl,
+          HlsRendererBuilder.createDataSource(context, TAG), new HlsPlaylistParser());
+      loadable.load();
+      return new Resolved(manifestUrl, manifest, streamUrl, loadable.getResult(),
+          clock.elapsedMillis());
+    } catch (IOException ex) {
+      Log.d(TAG, String.format("Failed to resolve [%s]", manifestUrl), ex);
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+    }
+    return null;
+  }
+
+  /**
+   * Receives the result of {@link #take(String, TakeListener)}.
+   */
+  public interface TakeListener {
+
+    /**
+     * Called on the main thread with the resolved video, or {@code null} if it has not been
+     * resolved, could not be resolved or is stale.
+     */
+    void onTaken(@Nullable Resolved resolved);
+  }
+
+  /**
+   * A video manifest and the HLS master playlist that it refers to.
+   */
+  public static final class Resolved {
+
+    private final String manifestUrl;
+
+    private final VideoManifest manifest;
+
+    private final String streamUrl;
+
+    private final HlsPlaylist playlist;
+
+    private final long resolvedAtMillis;
+
+    Resolved(String manifestUrl, VideoManifest manifest, String streamUrl, HlsPlaylist playlist,
+             long resolvedAtMillis) {
+      this.manifestUrl = manifestUrl;
+      this.manifest = manifest;
+      this.streamUrl = streamUrl;
+      this.playlist = playlist;
+      this.resolvedAtMillis = resolvedAtMillis;
+    }
+
+    @NonNull
+    public VideoManifest getManifest() {
+      return manifest;
+    }
+
+    @NonNull
+    public String getStreamUrl() {
+      return streamUrl;
+    }
+
+    @NonNull
+    public HlsPlaylist getPlaylist() {
+      return playlist;
+    }
+  }
+}
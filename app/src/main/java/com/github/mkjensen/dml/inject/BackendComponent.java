@@ -16,11 +16,20 @@
 
 package com.github.mkjensen.dml.inject;
 
+import com.github.mkjensen.dml.backend.BackendHelper;
+import com.github.mkjensen.dml.backend.BackendMetrics;
+import com.github.mkjensen.dml.backend.CachePolicy;
+import com.github.mkjensen.dml.backend.ConnectionWarmer;
 import com.github.mkjensen.dml.backend.DmlOkHttpGlideModule;
+import com.github.mkjensen.dml.backend.Prefetcher;
 import com.github.mkjensen.dml.backend.loader.BackendLoader;
 import com.github.mkjensen.dml.exoplayer.OkHttpDataSource;
+import com.github.mkjensen.dml.exoplayer.PlaybackHandoff;
 
 import dagger.Component;
+import dagger.Lazy;
+
+import okhttp3.Call;
 
 import javax.inject.Singleton;
 
@@ -36,4 +45,25 @@ public interface BackendComponent {
   void inject(DmlOkHttpGlideModule okHttpGlideModule);
 
   void inject(OkHttpDataSource okHttpDataSource);
+
+  BackendHelper backendHelper();
+
+  Prefetcher prefetcher();
+
+  PlaybackHandoff playbackHandoff();
+
+  ConnectionWarmer connectionWarmer();
+
+  BackendMetrics backendMetrics();
+
+  CachePolicy cachePolicy();
+
+  @Api
+  Lazy<Call.Factory> apiCallFactory();
+
+  @Media
+  Lazy<Call.Factory> mediaCallFactory();
+
+  @Images
+  Lazy<Call.Factory> imagesCallFactory();
 }
@@ -25,12 +25,24 @@ import android.support.annotation.Nullable;
 import com.facebook.stetho.okhttp3.StethoInterceptor;
 import com.github.mkjensen.dml.BuildConfig;
 import com.github.mkjensen.dml.backend.BackendHelper;
+import com.github.mkjensen.dml.backend.BackendMetrics;
+import com.github.mkjensen.dml.backend.CachePartition;
+import com.github.mkjensen.dml.backend.CachePolicy;
+import com.github.mkjensen.dml.backend.CachingDns;
+import com.github.mkjensen.dml.backend.ConnectionWarmer;
+import com.github.mkjensen.dml.backend.Prefetcher;
+import com.github.mkjensen.dml.backend.RequestLimiter;
+import com.github.mkjensen.dml.backend.RoutingCallFactory;
+import com.github.mkjensen.dml.exoplayer.PlaybackHandoff;
+import com.github.mkjensen.dml.model.ModelJsonAdapters;
+import com.squareup.moshi.Moshi;
 
 import dagger.Module;
 import dagger.Provides;
 
-import okhttp3.Cache;
 import okhttp3.Call;
+import okhttp3.ConnectionPool;
+import okhttp3.Dns;
 import okhttp3.Interceptor;
 import okhttp3.OkHttpClient;
 
@@ -40,6 +52,7 @@ import retrofit2.converter.moshi.MoshiConverterFactory;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 import javax.inject.Singleton;
 
@@ -57,21 +70,32 @@ public class BackendModule {
 
   @Provides
   @Singleton
-  BackendHelper backendHelper(Context context, Retrofit retrofit) {
-    return new BackendHelper(context, retrofit);
+  BackendHelper backendHelper(Context context, Retrofit retrofit, Moshi moshi) {
+    return new BackendHelper(context, retrofit, moshi);
   }
 
   @Provides
   @Singleton
-  Cache cache(Application application) {
-    int maxSize = 50 * 1024 * 1024;
-    return new Cache(application.getCacheDir(), maxSize);
+  Prefetcher prefetcher(Context context, BackendHelper backendHelper) {
+    return new Prefetcher(context, backendHelper);
   }
 
   @Provides
   @Singleton
-  Converter.Factory converterFactory() {
-    return MoshiConverterFactory.create();
+  PlaybackHandoff playbackHandoff(Context context, BackendHelper backendHelper) {
+    return new PlaybackHandoff(context, backendHelper);
+  }
+
+  @Provides
+  @Singleton
+  CachePolicy cachePolicy(Application application) {
+    return new CachePolicy(application.getCacheDir());
+  }
+
+  @Provides
+  @Singleton
+  Converter.Factory converterFactory(Moshi moshi) {
+    return MoshiConverterFactory.create(moshi);
   }
 
   @Provides
@@ -84,20 +108,110 @@ public class BackendModule {
     return interceptors;
   }
 
+  /**
+   * Returns the client from which the client of each traffic class is derived. It has no cache,
+   * request limit or connection pool configuration of its own.
+   */
   @Provides
   @Singleton
-  Call.Factory callFactory(Cache cache, List<Interceptor> networkInterceptors) {
+  OkHttpClient baseClient(Dns dns, List<Interceptor> networkInterceptors) {
     OkHttpClient.Builder builder = new OkHttpClient.Builder();
-    builder.cache(cache);
+    builder.dns(dns);
     for (Interceptor interceptor : networkInterceptors) {
       builder.addNetworkInterceptor(interceptor);
     }
     return builder.build();
   }
 
+  /**
+   * Returns the client for API calls. API responses are small and cheap to cache, so they get
+   * caches of their own that large responses of other traffic classes cannot evict. Video
+   * manifests are cached apart from catalog data, sharing the request limit and connection pool.
+   */
+  @Provides
+  @Singleton
+  @Api
+  Call.Factory apiCallFactory(OkHttpClient baseClient, CachePolicy cachePolicy,
+                              ConnectionWarmer connectionWarmer, BackendMetrics backendMetrics) {
+    OkHttpClient catalogClient = baseClient.newBuilder()
+        .addInterceptor(new RequestLimiter(16))
+        .addInterceptor(backendMetrics.interceptor(ConnectionWarmer.API))
+        .addNetworkInterceptor(connectionWarmer.interceptor(ConnectionWarmer.API))
+        .cache(cachePolicy.getCache(CachePartition.CATALOG))
+        .connectionPool(new ConnectionPool(4, 5, TimeUnit.MINUTES))
+        .build();
+    OkHttpClient manifestsClient = catalogClient.newBuilder()
+        .cache(cachePolicy.getCache(CachePartition.MANIFESTS))
+        .build();
+    return new RoutingCallFactory(catalogClient, manifestsClient);
+  }
+
+  /**
+   * Returns the client for HLS playlists and media segments. Segments are large and seldom
+   * requested twice, so they are not cached. The player loads segments one after another, so
+   * only a few connections are kept alive, but for long enough that connections warmed at startup
+   * are still alive when playback starts.
+   */
+  @Provides
+  @Singleton
+  @Media
+  Call.Factory mediaCallFactory(OkHttpClient baseClient, ConnectionWarmer connectionWarmer,
+                                BackendMetrics backendMetrics) {
+    return baseClient.newBuilder()
+        .addInterceptor(new RequestLimiter(4))
+        .addInterceptor(backendMetrics.interceptor(ConnectionWarmer.MEDIA))
+        .addNetworkInterceptor(connectionWarmer.interceptor(ConnectionWarmer.MEDIA))
+        .connectionPool(new ConnectionPool(2, 5, TimeUnit.MINUTES))
+        .build();
+  }
+
+  /**
+   * Returns the client for images, which have a cache of their own.
+   */
+  @Provides
+  @Singleton
+  @Images
+  Call.Factory imagesCallFactory(OkHttpClient baseClient, CachePolicy cachePolicy,
+                                 ConnectionWarmer connectionWarmer,
+                                 BackendMetrics backendMetrics) {
+    return baseClient.newBuilder()
+        .addInterceptor(new RequestLimiter(8))
+        .addInterceptor(backendMetrics.interceptor(ConnectionWarmer.IMAGES))
+        .addNetworkInterceptor(connectionWarmer.interceptor(ConnectionWarmer.IMAGES))
+        .cache(cachePolicy.getCache(CachePartition.IMAGES))
+        .connectionPool(new ConnectionPool(4, 5, TimeUnit.MINUTES))
+        .build();
+  }
+
+  @Provides
+  @Singleton
+  Dns dns() {
+    return new CachingDns();
+  }
+
+  @Provides
+  @Singleton
+  BackendMetrics backendMetrics() {
+    return new BackendMetrics();
+  }
+
+  @Provides
+  @Singleton
+  ConnectionWarmer connectionWarmer(Context context) {
+    return new ConnectionWarmer(context);
+  }
+
+  @Provides
+  @Singleton
+  Moshi moshi() {
+    return new Moshi.Builder()
+        .add(ModelJsonAdapters.FACTORY)
+        .build();
+  }
+
   @Provides
   @Singleton
-  Retrofit retrofit(Converter.Factory converterFactory, Call.Factory callFactory) {
+  Retrofit retrofit(Converter.Factory converterFactory, @Api Call.Factory callFactory) {
     return new Retrofit.Builder()
         .addConverterFactory(converterFactory)
         .baseUrl(apiBaseUrl)
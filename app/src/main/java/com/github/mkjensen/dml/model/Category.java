@@ -24,6 +24,7 @@ import com.squareup.moshi.Json;
 
 import java.util.Collections;
 import java.util.List;
+import java.util.Objects;
 
 /**
  * An on-demand category which contains its associated on-demand videos.
@@ -34,11 +35,37 @@ public final class Category {
 
   public static final String NOT_SET = "(not set)";
 
+  /**
+   * The total size of a category whose total size has not been reported by the backend.
+   */
+  public static final int UNKNOWN_TOTAL_SIZE = -1;
+
   private String title = NOT_SET;
 
   @Json(name = "Items")
   private List<Video> videos = Collections.emptyList();
 
+  @Json(name = "TotalSize")
+  private int totalSize = UNKNOWN_TOTAL_SIZE;
+
+  @Override
+  public boolean equals(Object obj) {
+    if (this == obj) {
+      return true;
+    }
+    if (!(obj instanceof Category)) {
+      return false;
+    }
+    Category other = (Category) obj;
+    return Objects.equals(title, other.title) && Objects.equals(videos, other.videos)
+        && totalSize == other.totalSize;
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(title, videos, totalSize);
+  }
+
   @NonNull
   public String getTitle() {
     return title;
@@ -56,4 +83,17 @@ public final class Category {
   public void setVideos(@NonNull List<Video> videos) {
     this.videos = notNull(videos);
   }
+
+  /**
+   * Returns the number of videos in the complete category on the backend, which may be larger than
+   * the number of videos in this instance if it only contains a page of the category, or {@link
+   * #UNKNOWN_TOTAL_SIZE}.
+   */
+  public int getTotalSize() {
+    return totalSize;
+  }
+
+  public void setTotalSize(int totalSize) {
+    this.totalSize = totalSize;
+  }
 }
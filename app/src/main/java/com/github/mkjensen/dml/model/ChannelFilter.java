@@ -0,0 +1,99 @@
+/*
+ * Copyright 2016 Martin Kamp Jensen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.mkjensen.dml.model;
+
+import static com.github.mkjensen.dml.util.Preconditions.notNull;
+
+import android.support.annotation.NonNull;
+
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Decides which channels and streaming servers to keep when parsing the channel list. Rejected
+ * channels and servers are skipped while parsing, see {@link ModelJsonAdapters#channels}.
+ */
+public final class ChannelFilter {
+
+  /**
+   * Accepts every channel and server.
+   */
+  public static final ChannelFilter ALL =
+      new ChannelFilter(true, EnumSet.allOf(Protocol.class));
+
+  private final boolean includeWebChannels;
+
+  private final Set<Protocol> protocols;
+
+  /**
+   * Creates a filter that accepts web channels only if {@code includeWebChannels} is {@code true}
+   * and servers only if their protocol is one of the specified protocols.
+   */
+  public ChannelFilter(boolean includeWebChannels, @NonNull Set<Protocol> protocols) {
+    this.includeWebChannels = includeWebChannels;
+    notNull(protocols);
+    this.protocols = Collections.unmodifiableSet(protocols.isEmpty()
+        ? EnumSet.noneOf(Protocol.class) : EnumSet.copyOf(protocols));
+  }
+
+  /**
+   * Returns whether or not a channel is accepted.
+   */
+  public boolean acceptChannel(boolean webChannel) {
+    return includeWebChannels || !webChannel;
+  }
+
+  /**
+   * Returns whether or not a server using the specified protocol is accepted.
+   */
+  public boolean acceptServer(@NonNull Protocol protocol) {
+    return protocols.contains(protocol);
+  }
+
+  boolean acceptsAllChannels() {
+    return includeWebChannels;
+  }
+
+  boolean acceptsAllServers() {
+    return protocols.size() == Protocol.values().length;
+  }
+
+  @Override
+  public boolean equals(Object obj) {
+    if (this == obj) {
+      return true;
+    }
+    if (!(obj instanceof ChannelFilter)) {
+      return false;
+    }
+    ChannelFilter other = (ChannelFilter) obj;
+    return includeWebChannels == other.includeWebChannels && protocols.equals(other.protocols);
+  }
+
+  @Override
+  public int hashCode() {
+    return 31 * (includeWebChannels ? 1 : 0) + protocols.hashCode();
+  }
+
+  @NonNull
+  @Override
+  public String toString() {
+    return String.format(Locale.US, "ChannelFilter {web=%b, protocols=%s}", includeWebChannels,
+        protocols);
+  }
+}
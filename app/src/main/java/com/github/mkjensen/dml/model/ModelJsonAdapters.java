@@ -0,0 +1,727 @@
+/*
+ * Copyright 2016 Martin Kamp Jensen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.mkjensen.dml.model;
+
+import static com.github.mkjensen.dml.util.Preconditions.notNull;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import com.squareup.moshi.JsonAdapter;
+import com.squareup.moshi.JsonReader;
+import com.squareup.moshi.JsonWriter;
+import com.squareup.moshi.Moshi;
+
+import java.io.IOException;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Hand-written Moshi adapters for the model classes. They match names using {@link
+ * JsonReader.Options}, skip unknown names, and keep the default value of a field if its JSON value
+ * is {@code null}. Unknown protocols are mapped to {@link Protocol#UNKNOWN}.
+ *
+ * <p>Videos in a category are parsed by an adapter that keeps their description and manifest URL
+ * undecoded until first access. That adapter can be requested using the {@link ListItem}
+ * qualifier.
+ *
+ * <p>The adapters mirror the {@link com.squareup.moshi.Json} annotations on the model classes, so
+ * those annotations must be kept in sync with the names used here.
+ */
+public final class ModelJsonAdapters {
+
+  /**
+   * Creates adapters for {@link Category}, {@link Channel} and its nested classes, {@link
+   * Protocol}, {@link Video}, and {@link VideoManifest} and its nested class.
+   */
+  public static final JsonAdapter.Factory FACTORY = new JsonAdapter.Factory() {
+    @Nullable
+    @Override
+    public JsonAdapter<?> create(Type type, Set<? extends Annotation> annotations, Moshi moshi) {
+      if (annotations.isEmpty()) {
+        return get(type);
+      }
+      if (type == Video.class && annotations.size() == 1
+          && annotations.iterator().next() instanceof ListItem) {
+        return LIST_VIDEO;
+      }
+      return null;
+    }
+  };
+
+  private static final JsonAdapter<Protocol> PROTOCOL = new ProtocolAdapter();
+
+  private static final JsonAdapter<Video> VIDEO = new VideoAdapter(false);
+
+  private static final JsonAdapter<Video> LIST_VIDEO = new VideoAdapter(true);
+
+  private static final JsonAdapter<Category> CATEGORY = new CategoryAdapter();
+
+  private static final JsonAdapter<VideoManifest.Stream> VIDEO_MANIFEST_STREAM =
+      new VideoManifestStreamAdapter();
+
+  private static final JsonAdapter<VideoManifest> VIDEO_MANIFEST = new VideoManifestAdapter();
+
+  private static final JsonAdapter<Channel.Server.Quality.Stream> CHANNEL_STREAM =
+      new ChannelStreamAdapter();
+
+  private static final JsonAdapter<Channel.Server.Quality> CHANNEL_QUALITY =
+      new ChannelQualityAdapter();
+
+  private static final JsonAdapter<Channel.Server> CHANNEL_SERVER = new ChannelServerAdapter();
+
+  private static final JsonAdapter<Channel> CHANNEL = new ChannelAdapter(ChannelFilter.ALL);
+
+  private ModelJsonAdapters() {
+  }
+
+  /**
+   * Returns an adapter for a list of channels that skips channels and servers rejected by the
+   * specified filter at the {@link JsonReader} level, so no objects are created for them.
+   */
+  @NonNull
+  public static JsonAdapter<List<Channel>> channels(@NonNull ChannelFilter filter) {
+    return new ChannelListAdapter(notNull(filter));
+  }
+
+  /**
+   * Returns the adapter for the specified model type, or {@code null} if it is not a model type
+   * handled by this class.
+   */
+  @Nullable
+  static JsonAdapter<?> get(Type type) {
+    if (type == Category.class) {
+      return CATEGORY;
+    } else if (type == Video.class) {
+      return VIDEO;
+    } else if (type == VideoManifest.class) {
+      return VIDEO_MANIFEST;
+    } else if (type == VideoManifest.Stream.class) {
+      return VIDEO_MANIFEST_STREAM;
+    } else if (type == Channel.class) {
+      return CHANNEL;
+    } else if (type == Channel.Server.class) {
+      return CHANNEL_SERVER;
+    } else if (type == Channel.Server.Quality.class) {
+      return CHANNEL_QUALITY;
+    } else if (type == Channel.Server.Quality.Stream.class) {
+      return CHANNEL_STREAM;
+    } else if (type == Protocol.class) {
+      return PROTOCOL;
+    }
+    return null;
+  }
+
+  private static boolean skipNull(JsonReader reader) throws IOException {
+    if (reader.peek() == JsonReader.Token.NULL) {
+      reader.nextNull();
+      return true;
+    }
+    return false;
+  }
+
+  private static void skipField(JsonReader reader) throws IOException {
+    reader.skipName();
+    reader.skipValue();
+  }
+
+  @NonNull
+  private static String nextString(JsonReader reader, @NonNull String defaultValue)
+      throws IOException {
+    return skipNull(reader) ? defaultValue : reader.nextString();
+  }
+
+  @NonNull
+  private static <T> List<T> nextList(JsonReader reader, JsonAdapter<T> adapter)
+      throws IOException {
+    if (skipNull(reader)) {
+      return Collections.emptyList();
+    }
+    List<T> list = new ArrayList<>();
+    reader.beginArray();
+    while (reader.hasNext()) {
+      T item = adapter.fromJson(reader);
+      if (item != null) {
+        list.add(item);
+      }
+    }
+    reader.endArray();
+    return list;
+  }
+
+  private static <T> void writeList(JsonWriter writer, JsonAdapter<T> adapter, List<T> list)
+      throws IOException {
+    writer.beginArray();
+    for (T item : list) {
+      adapter.toJson(writer, item);
+    }
+    writer.endArray();
+  }
+
+  /**
+   * Adapter for {@link Protocol}. The names must be in the same order as the enum constants.
+   */
+  private static final class ProtocolAdapter extends JsonAdapter<Protocol> {
+
+    private static final Protocol[] VALUES = Protocol.values();
+
+    private static final String[] NAMES = {
+        "Download", "HDS", "HDS_subtitles", "HLS", "HLS_subtitles", "_Streaming", "UNKNOWN"
+    };
+
+    private static final JsonReader.Options OPTIONS = JsonReader.Options.of(NAMES);
+
+    @Override
+    public Protocol fromJson(JsonReader reader) throws IOException {
+      if (skipNull(reader)) {
+        return Protocol.UNKNOWN;
+      }
+      int index = reader.selectString(OPTIONS);
+      if (index == -1) {
+        reader.nextString();
+        return Protocol.UNKNOWN;
+      }
+      return VALUES[index];
+    }
+
+    @Override
+    public void toJson(JsonWriter writer, Protocol value) throws IOException {
+      writer.value(value == null ? null : NAMES[value.ordinal()]);
+    }
+  }
+
+  /**
+   * Adapter for {@link Video}. If lazy, the description and manifest URL are stored as a byte slice
+   * which is decoded on first access.
+   */
+  private static final class VideoAdapter extends JsonAdapter<Video> {
+
+    private static final JsonReader.Options OPTIONS =
+        JsonReader.Options.of("Slug", "Title", "Description", "PrimaryImageUri", "PrimaryAsset");
+
+    private static final JsonReader.Options ASSET_OPTIONS = JsonReader.Options.of("Uri");
+
+    private final boolean lazy;
+
+    VideoAdapter(boolean lazy) {
+      this.lazy = lazy;
+    }
+
+    @Override
+    public Video fromJson(JsonReader reader) throws IOException {
+      if (skipNull(reader)) {
+        return null;
+      }
+      Video video = new Video();
+      String description = Video.NOT_SET;
+      String manifestUrl = Video.NOT_SET;
+      reader.beginObject();
+      while (reader.hasNext()) {
+        switch (reader.selectName(OPTIONS)) {
+          case 0:
+            video.setId(nextString(reader, video.getId()));
+            break;
+          case 1:
+            video.setTitle(nextString(reader, video.getTitle()));
+            break;
+          case 2:
+            description = nextString(reader, description);
+            break;
+          case 3:
+            video.setImageUrl(nextString(reader, video.getImageUrl()));
+            break;
+          case 4:
+            manifestUrl = nextAssetUri(reader, manifestUrl);
+            break;
+          default:
+            skipField(reader);
+            break;
+        }
+      }
+      reader.endObject();
+      if (!lazy) {
+        video.setDescription(description);
+        video.setManifestUrl(manifestUrl);
+      } else if (!Video.NOT_SET.equals(description) || !Video.NOT_SET.equals(manifestUrl)) {
+        video.setLazyFields(description, manifestUrl);
+      }
+      return video;
+    }
+
+    private static String nextAssetUri(JsonReader reader, String defaultValue) throws IOException {
+      if (skipNull(reader)) {
+        return defaultValue;
+      }
+      String uri = defaultValue;
+      reader.beginObject();
+      while (reader.hasNext()) {
+        if (reader.selectName(ASSET_OPTIONS) == 0) {
+          uri = nextString(reader, uri);
+        } else {
+          skipField(reader);
+        }
+      }
+      reader.endObject();
+      return uri;
+    }
+
+    @Override
+    public void toJson(JsonWriter writer, Video value) throws IOException {
+      if (value == null) {
+        writer.nullValue();
+        return;
+      }
+      writer.beginObject();
+      writer.name("Slug").value(value.getId());
+      writer.name("Title").value(value.getTitle());
+      writer.name("Description").value(value.getDescription());
+      writer.name("PrimaryImageUri").value(value.getImageUrl());
+      writer.name("PrimaryAsset").beginObject();
+      writer.name("Uri").value(value.getManifestUrl());
+      writer.endObject();
+      writer.endObject();
+    }
+  }
+
+  private static final class CategoryAdapter extends JsonAdapter<Category> {
+
+    private static final JsonReader.Options OPTIONS = JsonReader.Options.of("Items", "TotalSize");
+
+    @Override
+    public Category fromJson(JsonReader reader) throws IOException {
+      if (skipNull(reader)) {
+        return null;
+      }
+      Category category = new Category();
+      reader.beginObject();
+      while (reader.hasNext()) {
+        switch (reader.selectName(OPTIONS)) {
+          case 0:
+            category.setVideos(nextList(reader, LIST_VIDEO));
+            break;
+          case 1:
+            if (!skipNull(reader)) {
+              category.setTotalSize(reader.nextInt());
+            }
+            break;
+          default:
+            skipField(reader);
+            break;
+        }
+      }
+      reader.endObject();
+      return category;
+    }
+
+    @Override
+    public void toJson(JsonWriter writer, Category value) throws IOException {
+      if (value == null) {
+        writer.nullValue();
+        return;
+      }
+      writer.beginObject();
+      writer.name("Items");
+      writeList(writer, VIDEO, value.getVideos());
+      if (value.getTotalSize() != Category.UNKNOWN_TOTAL_SIZE) {
+        writer.name("TotalSize").value(value.getTotalSize());
+      }
+      writer.endObject();
+    }
+  }
+
+  private static final class VideoManifestStreamAdapter extends JsonAdapter<VideoManifest.Stream> {
+
+    private static final JsonReader.Options OPTIONS = JsonReader.Options.of("Target", "Uri");
+
+    @Override
+    public VideoManifest.Stream fromJson(JsonReader reader) throws IOException {
+      if (skipNull(reader)) {
+        return null;
+      }
+      VideoManifest.Stream stream = new VideoManifest.Stream();
+      reader.beginObject();
+      while (reader.hasNext()) {
+        switch (reader.selectName(OPTIONS)) {
+          case 0:
+            stream.setProtocol(PROTOCOL.fromJson(reader));
+            break;
+          case 1:
+            stream.setUrl(nextString(reader, stream.getUrl()));
+            break;
+          default:
+            skipField(reader);
+            break;
+        }
+      }
+      reader.endObject();
+      return stream;
+    }
+
+    @Override
+    public void toJson(JsonWriter writer, VideoManifest.Stream value) throws IOException {
+      if (value == null) {
+        writer.nullValue();
+        return;
+      }
+      writer.beginObject();
+      writer.name("Target");
+      PROTOCOL.toJson(writer, value.getProtocol());
+      writer.name("Uri").value(value.getUrl());
+      writer.endObject();
+    }
+  }
+
+  private static final class VideoManifestAdapter extends JsonAdapter<VideoManifest> {
+
+    private static final JsonReader.Options OPTIONS = JsonReader.Options.of("Links");
+
+    @Override
+    public VideoManifest fromJson(JsonReader reader) throws IOException {
+      if (skipNull(reader)) {
+        return null;
+      }
+      VideoManifest manifest = new VideoManifest();
+      reader.beginObject();
+      while (reader.hasNext()) {
+        if (reader.selectName(OPTIONS) == 0) {
+          manifest.setStreams(nextList(reader, VIDEO_MANIFEST_STREAM));
+        } else {
+          skipField(reader);
+        }
+      }
+      reader.endObject();
+      return manifest;
+    }
+
+    @Override
+    public void toJson(JsonWriter writer, VideoManifest value) throws IOException {
+      if (value == null) {
+        writer.nullValue();
+        return;
+      }
+      writer.beginObject();
+      writer.name("Links");
+      writeList(writer, VIDEO_MANIFEST_STREAM, value.getStreams());
+      writer.endObject();
+    }
+  }
+
+  private static final class ChannelStreamAdapter
+      extends JsonAdapter<Channel.Server.Quality.Stream> {
+
+    private static final JsonReader.Options OPTIONS = JsonReader.Options.of("Stream");
+
+    @Override
+    public Channel.Server.Quality.Stream fromJson(JsonReader reader) throws IOException {
+      if (skipNull(reader)) {
+        return null;
+      }
+      Channel.Server.Quality.Stream stream = new Channel.Server.Quality.Stream();
+      reader.beginObject();
+      while (reader.hasNext()) {
+        if (reader.selectName(OPTIONS) == 0) {
+          stream.setPath(nextString(reader, stream.getPath()));
+        } else {
+          skipField(reader);
+        }
+      }
+      reader.endObject();
+      return stream;
+    }
+
+    @Override
+    public void toJson(JsonWriter writer, Channel.Server.Quality.Stream value)
+        throws IOException {
+      if (value == null) {
+        writer.nullValue();
+        return;
+      }
+      writer.beginObject();
+      writer.name("Stream").value(value.getPath());
+      writer.endObject();
+    }
+  }
+
+  private static final class ChannelQualityAdapter extends JsonAdapter<Channel.Server.Quality> {
+
+    private static final JsonReader.Options OPTIONS = JsonReader.Options.of("Kbps", "Streams");
+
+    @Override
+    public Channel.Server.Quality fromJson(JsonReader reader) throws IOException {
+      if (skipNull(reader)) {
+        return null;
+      }
+      Channel.Server.Quality quality = new Channel.Server.Quality();
+      reader.beginObject();
+      while (reader.hasNext()) {
+        switch (reader.selectName(OPTIONS)) {
+          case 0:
+            if (!skipNull(reader)) {
+              quality.setKilobitRate(reader.nextInt());
+            }
+            break;
+          case 1:
+            quality.setStreams(nextList(reader, CHANNEL_STREAM));
+            break;
+          default:
+            skipField(reader);
+            break;
+        }
+      }
+      reader.endObject();
+      return quality;
+    }
+
+    @Override
+    public void toJson(JsonWriter writer, Channel.Server.Quality value) throws IOException {
+      if (value == null) {
+        writer.nullValue();
+        return;
+      }
+      writer.beginObject();
+      writer.name("Kbps").value(value.getKilobitRate());
+      writer.name("Streams");
+      writeList(writer, CHANNEL_STREAM, value.getStreams());
+      writer.endObject();
+    }
+  }
+
+  private static final class ChannelServerAdapter extends JsonAdapter<Channel.Server> {
+
+    private static final JsonReader.Options OPTIONS =
+        JsonReader.Options.of("LinkType", "Server", "Qualities");
+
+    @Override
+    public Channel.Server fromJson(JsonReader reader) throws IOException {
+      if (skipNull(reader)) {
+        return null;
+      }
+      Channel.Server server = new Channel.Server();
+      reader.beginObject();
+      while (reader.hasNext()) {
+        switch (reader.selectName(OPTIONS)) {
+          case 0:
+            server.setProtocol(PROTOCOL.fromJson(reader));
+            break;
+          case 1:
+            server.setUrl(nextString(reader, server.getUrl()));
+            break;
+          case 2:
+            server.setQualities(nextList(reader, CHANNEL_QUALITY));
+            break;
+          default:
+            skipField(reader);
+            break;
+        }
+      }
+      reader.endObject();
+      return server;
+    }
+
+    @Override
+    public void toJson(JsonWriter writer, Channel.Server value) throws IOException {
+      if (value == null) {
+        writer.nullValue();
+        return;
+      }
+      writer.beginObject();
+      writer.name("LinkType");
+      PROTOCOL.toJson(writer, value.getProtocol());
+      writer.name("Server").value(value.getUrl());
+      writer.name("Qualities");
+      writeList(writer, CHANNEL_QUALITY, value.getQualities());
+      writer.endObject();
+    }
+  }
+
+  /**
+   * Adapter for {@link Channel} that skips servers rejected by a {@link ChannelFilter}.
+   */
+  private static final class ChannelAdapter extends JsonAdapter<Channel> {
+
+    private static final JsonReader.Options OPTIONS = JsonReader.Options.of(
+        "Slug", "Title", "PrimaryImageUri", "WebChannel", "StreamingServers");
+
+    private static final JsonReader.Options SERVER_OPTIONS = JsonReader.Options.of("LinkType");
+
+    private final ChannelFilter filter;
+
+    ChannelAdapter(ChannelFilter filter) {
+      this.filter = filter;
+    }
+
+    @Override
+    public Channel fromJson(JsonReader reader) throws IOException {
+      if (skipNull(reader)) {
+        return null;
+      }
+      Channel channel = new Channel();
+      reader.beginObject();
+      while (reader.hasNext()) {
+        switch (reader.selectName(OPTIONS)) {
+          case 0:
+            channel.setId(nextString(reader, channel.getId()));
+            break;
+          case 1:
+            channel.setTitle(nextString(reader, channel.getTitle()));
+            break;
+          case 2:
+            channel.setImageUrl(nextString(reader, channel.getImageUrl()));
+            break;
+          case 3:
+            if (!skipNull(reader)) {
+              channel.setWebChannel(reader.nextBoolean());
+            }
+            break;
+          case 4:
+            channel.setServers(filter.acceptsAllServers()
+                ? nextList(reader, CHANNEL_SERVER) : nextServers(reader));
+            break;
+          default:
+            skipField(reader);
+            break;
+        }
+      }
+      reader.endObject();
+      return channel;
+    }
+
+    private List<Channel.Server> nextServers(JsonReader reader) throws IOException {
+      if (skipNull(reader)) {
+        return Collections.emptyList();
+      }
+      List<Channel.Server> servers = new ArrayList<>();
+      reader.beginArray();
+      while (reader.hasNext()) {
+        if (!filter.acceptServer(peekProtocol(reader.peekJson()))) {
+          reader.skipValue();
+          continue;
+        }
+        Channel.Server server = CHANNEL_SERVER.fromJson(reader);
+        if (server != null) {
+          servers.add(server);
+        }
+      }
+      reader.endArray();
+      return servers;
+    }
+
+    /**
+     * Returns the protocol of the server that the specified reader is positioned at, reading only
+     * as far as needed.
+     */
+    private static Protocol peekProtocol(JsonReader peek) throws IOException {
+      if (peek.peek() != JsonReader.Token.BEGIN_OBJECT) {
+        return Protocol.UNKNOWN;
+      }
+      peek.beginObject();
+      while (peek.hasNext()) {
+        if (peek.selectName(SERVER_OPTIONS) == 0) {
+          return PROTOCOL.fromJson(peek);
+        }
+        skipField(peek);
+      }
+      return Protocol.UNKNOWN;
+    }
+
+    @Override
+    public void toJson(JsonWriter writer, Channel value) throws IOException {
+      if (value == null) {
+        writer.nullValue();
+        return;
+      }
+      writer.beginObject();
+      writer.name("Slug").value(value.getId());
+      writer.name("Title").value(value.getTitle());
+      writer.name("PrimaryImageUri").value(value.getImageUrl());
+      writer.name("WebChannel").value(value.isWebChannel());
+      writer.name("StreamingServers");
+      writeList(writer, CHANNEL_SERVER, value.getServers());
+      writer.endObject();
+    }
+  }
+
+  /**
+   * Adapter for a list of {@link Channel} instances that skips channels rejected by a {@link
+   * ChannelFilter} without creating objects for them.
+   */
+  private static final class ChannelListAdapter extends JsonAdapter<List<Channel>> {
+
+    private static final JsonReader.Options CHANNEL_OPTIONS = JsonReader.Options.of("WebChannel");
+
+    private final ChannelFilter filter;
+
+    private final JsonAdapter<Channel> channelAdapter;
+
+    ChannelListAdapter(ChannelFilter filter) {
+      this.filter = filter;
+      this.channelAdapter = new ChannelAdapter(filter);
+    }
+
+    @Override
+    public List<Channel> fromJson(JsonReader reader) throws IOException {
+      if (skipNull(reader)) {
+        return Collections.emptyList();
+      }
+      List<Channel> channels = new ArrayList<>();
+      reader.beginArray();
+      while (reader.hasNext()) {
+        if (!filter.acceptsAllChannels()
+            && !filter.acceptChannel(peekWebChannel(reader.peekJson()))) {
+          reader.skipValue();
+          continue;
+        }
+        Channel channel = channelAdapter.fromJson(reader);
+        if (channel != null) {
+          channels.add(channel);
+        }
+      }
+      reader.endArray();
+      return channels;
+    }
+
+    /**
+     * Returns whether or not the channel that the specified reader is positioned at is a web
+     * channel, reading only as far as needed.
+     */
+    private static boolean peekWebChannel(JsonReader peek) throws IOException {
+      if (peek.peek() != JsonReader.Token.BEGIN_OBJECT) {
+        return false;
+      }
+      peek.beginObject();
+      while (peek.hasNext()) {
+        if (peek.selectName(CHANNEL_OPTIONS) == 0) {
+          return !skipNull(peek) && peek.nextBoolean();
+        }
+        skipField(peek);
+      }
+      return false;
+    }
+
+    @Override
+    public void toJson(JsonWriter writer, List<Channel> value) throws IOException {
+      if (value == null) {
+        writer.nullValue();
+        return;
+      }
+      writeList(writer, CHANNEL, value);
+    }
+  }
+}
@@ -24,9 +24,18 @@ import android.support.annotation.NonNull;
 
 import com.squareup.moshi.Json;
 
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.Objects;
+
 /**
  * Metadata about an on-demand video.
  *
+ * <p>Videos in categories are created with their description and manifest URL kept as a UTF-8
+ * encoded byte slice, as those are not shown in lists. The slice is decoded the first time either
+ * field is accessed, so the getters and setters work as usual.
+ *
  * @see <a href="http://www.dr.dk/mu-online/Help/1.3/Api/GET-api-apiVersion-programcard-id">API</a>
  */
 public final class Video implements Parcelable {
@@ -35,6 +44,8 @@ public final class Video implements Parcelable {
 
   public static final String NOT_SET = "(not set)";
 
+  private static final Charset UTF_8 = Charset.forName("UTF-8");
+
   @Json(name = "Slug")
   private String id = NOT_SET;
 
@@ -51,12 +62,41 @@ public final class Video implements Parcelable {
   @SuppressWarnings("CanBeFinal")
   private Asset asset = new Asset();
 
+  /**
+   * The description and manifest URL if they have not been decoded yet, otherwise {@code null}.
+   */
+  private transient volatile byte[] lazyFields;
+
   @NonNull
   @Override
   public String toString() {
     return String.format("Video {id=%s}", id);
   }
 
+  @Override
+  public boolean equals(Object obj) {
+    if (this == obj) {
+      return true;
+    }
+    if (!(obj instanceof Video)) {
+      return false;
+    }
+    Video other = (Video) obj;
+    return Objects.equals(id, other.id)
+        && Objects.equals(title, other.title)
+        && Objects.equals(imageUrl, other.imageUrl)
+        && lazyFieldsEqual(other);
+  }
+
+  /**
+   * Returns the hash code, which is based on the encoded description and manifest URL so that it
+   * does not decode them and is the same whether or not they have been decoded.
+   */
+  @Override
+  public int hashCode() {
+    return 31 * Objects.hash(id, title, imageUrl) + Arrays.hashCode(getLazyFields());
+  }
+
   @Override
   public int describeContents() {
     return 0;
@@ -66,9 +106,9 @@ public final class Video implements Parcelable {
   public void writeToParcel(Parcel dest, int flags) {
     dest.writeString(id);
     dest.writeString(title);
-    dest.writeString(description);
+    dest.writeString(getDescription());
     dest.writeString(imageUrl);
-    dest.writeString(asset.manifestUrl);
+    dest.writeString(getManifestUrl());
   }
 
   @NonNull
@@ -91,10 +131,12 @@ public final class Video implements Parcelable {
 
   @NonNull
   public String getDescription() {
+    materialize();
     return description;
   }
 
   public void setDescription(@NonNull String description) {
+    materialize();
     this.description = notNull(description);
   }
 
@@ -109,13 +151,96 @@ public final class Video implements Parcelable {
 
   @NonNull
   public String getManifestUrl() {
+    materialize();
     return asset.manifestUrl;
   }
 
   public void setManifestUrl(@NonNull String manifestUrl) {
+    materialize();
     asset.manifestUrl = notNull(manifestUrl);
   }
 
+  /**
+   * Returns the size in bytes of the fields that have not been decoded yet, or 0 if all fields
+   * have been decoded.
+   */
+  public int getLazyFieldsSize() {
+    byte[] fields = lazyFields;
+    return fields == null ? 0 : fields.length;
+  }
+
+  /**
+   * Returns the description and manifest URL as a byte slice that can be passed to {@link
+   * #setLazyFields(byte[])}, without decoding them if they have not been decoded yet. The returned
+   * slice must not be modified.
+   */
+  @NonNull
+  public byte[] getLazyFields() {
+    byte[] fields = lazyFields;
+    if (fields != null) {
+      return fields;
+    }
+    synchronized (this) {
+      return encode(description, asset.manifestUrl);
+    }
+  }
+
+  /**
+   * Stores the specified byte slice, as returned by {@link #getLazyFields()}, to be decoded on
+   * first access of the description or manifest URL.
+   */
+  public void setLazyFields(@NonNull byte[] fields) {
+    lazyFields = notNull(fields);
+  }
+
+  /**
+   * Stores the specified fields as a byte slice that is decoded on first access.
+   */
+  void setLazyFields(@NonNull String description, @NonNull String manifestUrl) {
+    lazyFields = encode(description, manifestUrl);
+  }
+
+  /**
+   * Compares the description and manifest URL with those of the specified video, comparing the
+   * byte slices if neither has been decoded, so that comparing lists of videos, for example when
+   * revalidating a category, does not decode them.
+   */
+  private boolean lazyFieldsEqual(Video other) {
+    byte[] fields = lazyFields;
+    byte[] otherFields = other.lazyFields;
+    if (fields != null && otherFields != null) {
+      return Arrays.equals(fields, otherFields);
+    }
+    return Objects.equals(getDescription(), other.getDescription())
+        && Objects.equals(getManifestUrl(), other.getManifestUrl());
+  }
+
+  private static byte[] encode(String description, String manifestUrl) {
+    byte[] descriptionBytes = description.getBytes(UTF_8);
+    byte[] manifestUrlBytes = manifestUrl.getBytes(UTF_8);
+    ByteBuffer buffer = ByteBuffer.allocate(4 + descriptionBytes.length + manifestUrlBytes.length);
+    buffer.putInt(descriptionBytes.length).put(descriptionBytes).put(manifestUrlBytes);
+    return buffer.array();
+  }
+
+  private void materialize() {
+    if (lazyFields == null) {
+      return;
+    }
+    synchronized (this) {
+      byte[] fields = lazyFields;
+      if (fields == null) {
+        return;
+      }
+      int descriptionLength = ByteBuffer.wrap(fields).getInt();
+      description = new String(fields, 4, descriptionLength, UTF_8);
+      int manifestUrlOffset = 4 + descriptionLength;
+      asset.manifestUrl = new String(fields, manifestUrlOffset, fields.length - manifestUrlOffset,
+          UTF_8);
+      lazyFields = null;
+    }
+  }
+
   private static final class ParcelableCreator implements Parcelable.Creator<Video> {
 
     @Override
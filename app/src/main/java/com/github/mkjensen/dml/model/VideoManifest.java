@@ -24,6 +24,7 @@ import com.squareup.moshi.Json;
 
 import java.util.Collections;
 import java.util.List;
+import java.util.Objects;
 
 /**
  * Metadata about on-demand video streams.
@@ -37,6 +38,17 @@ public final class VideoManifest {
   @Json(name = "Links")
   private List<Stream> streams = Collections.emptyList();
 
+  @Override
+  public boolean equals(Object obj) {
+    return this == obj
+        || obj instanceof VideoManifest && streams.equals(((VideoManifest) obj).streams);
+  }
+
+  @Override
+  public int hashCode() {
+    return streams.hashCode();
+  }
+
   /**
    * Returns a URL to a stream using the specified protocol if it exists. Otherwise returns {@link
    * #NOT_SET}.
@@ -72,6 +84,23 @@ public final class VideoManifest {
     @Json(name = "Uri")
     private String url = NOT_SET;
 
+    @Override
+    public boolean equals(Object obj) {
+      if (this == obj) {
+        return true;
+      }
+      if (!(obj instanceof Stream)) {
+        return false;
+      }
+      Stream other = (Stream) obj;
+      return protocol == other.protocol && Objects.equals(url, other.url);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(protocol, url);
+    }
+
     @NonNull
     public Protocol getProtocol() {
       return protocol;
@@ -21,6 +21,7 @@ import static com.github.mkjensen.dml.ondemand.OnDemandListeners.createOnItemVie
 import static com.github.mkjensen.dml.ondemand.OnDemandListeners.createOnSearchClickedListener;
 
 import android.os.Bundle;
+import android.support.annotation.NonNull;
 import android.support.v17.leanback.app.BrowseSupportFragment;
 import android.support.v17.leanback.widget.ArrayObjectAdapter;
 import android.support.v17.leanback.widget.ListRow;
@@ -33,26 +34,40 @@ import android.util.Log;
 
 import com.github.mkjensen.dml.R;
 import com.github.mkjensen.dml.backend.loader.CategoriesLoader;
+import com.github.mkjensen.dml.backend.loader.CategoryPageLoader;
 import com.github.mkjensen.dml.model.Category;
 import com.github.mkjensen.dml.model.IconHeaderItem;
 import com.github.mkjensen.dml.model.SettingsItem;
+import com.github.mkjensen.dml.model.Video;
 import com.github.mkjensen.dml.presenter.IconHeaderItemPresenter;
 import com.github.mkjensen.dml.presenter.SettingsItemPresenter;
-import com.github.mkjensen.dml.presenter.VideoPresenter;
 import com.github.mkjensen.dml.util.LoadingHelper;
 
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
- * Browse screen for on-demand videos.
+ * Browse screen for on-demand videos. Rows are shown as soon as their first videos have been
+ * loaded, see {@link CategoriesLoader.PartialResultListener}, and grow a page at a time as the
+ * user approaches their end, see {@link PagedRowAdapter}.
  */
 public final class BrowseFragment extends BrowseSupportFragment
-    implements LoaderManager.LoaderCallbacks<List<Category>> {
+    implements LoaderManager.LoaderCallbacks<List<Category>>,
+    CategoriesLoader.PartialResultListener {
 
   private static final String TAG = "BrowseFragment";
 
+  private static final int CATEGORIES_LOADER_ID = 0;
+
+  private static final int FIRST_PAGE_LOADER_ID = 1;
+
+  private final Map<String, PagedRowAdapter> partialRows = new HashMap<>();
+
   private ArrayObjectAdapter rows;
 
+  private RowPager pager;
+
   @Override
   public void onCreate(Bundle savedInstanceState) {
     Log.d(TAG, "onCreate");
@@ -65,6 +80,7 @@ public final class BrowseFragment extends BrowseSupportFragment
 
   private void initUi() {
     rows = new ArrayObjectAdapter(new ListRowPresenter());
+    pager = new RowPager(getActivity(), getLoaderManager(), FIRST_PAGE_LOADER_ID);
     setAdapter(rows);
     setTitle(getString(R.string.app_name));
     setHeaderPresenterSelector(new SinglePresenterSelector(new IconHeaderItemPresenter()));
@@ -79,38 +95,97 @@ public final class BrowseFragment extends BrowseSupportFragment
   }
 
   private void initLoader() {
-    getLoaderManager().initLoader(0, null, this);
+    getLoaderManager().initLoader(CATEGORIES_LOADER_ID, null, this);
   }
 
   @Override
   public Loader<List<Category>> onCreateLoader(int id, Bundle args) {
     Log.d(TAG, "onCreateLoader");
-    return new CategoriesLoader(getActivity());
+    CategoriesLoader loader = new CategoriesLoader(getActivity());
+    loader.setPartialResultListener(this);
+    return loader;
+  }
+
+  @Override
+  public void onPartialResult(@NonNull CategoriesLoader loader, @NonNull String title,
+                              @NonNull List<Video> videos) {
+    PagedRowAdapter adapter = partialRows.get(title);
+    if (adapter == null) {
+      if (partialRows.isEmpty()) {
+        LoadingHelper.hideLoading(this);
+        rows.clear();
+        pager.clear();
+      }
+      adapter = pager.createAdapter(createPageSource(loader.getRow(title)));
+      rows.add(new ListRow(createCategoryHeader(title), adapter));
+      partialRows.put(title, adapter);
+    }
+    adapter.addVideos(videos);
   }
 
   @Override
   public void onLoadFinished(Loader<List<Category>> loader, List<Category> data) {
     Log.d(TAG, "onLoadFinished");
-    LoadingHelper.hideLoading(this);
+    if (partialRows.isEmpty()) {
+      LoadingHelper.hideLoading(this);
+    } else if (isShownByPartialRows(data)) {
+      Log.d(TAG, "All categories already shown");
+      for (Category category : data) {
+        partialRows.get(category.getTitle()).onPageLoaded(0, category);
+      }
+      partialRows.clear();
+      createSettingsRow();
+      return;
+    }
+    partialRows.clear();
     rows.clear();
+    pager.clear();
     if (data == null) {
       Log.w(TAG, "No data returned by loader");
       createSettingsRow();
       return;
     }
+    CategoriesLoader categoriesLoader = (CategoriesLoader) loader;
     for (Category category : data) {
-      ListRow categoryRow = createCategoryRow(category);
+      ListRow categoryRow = createCategoryRow(categoriesLoader, category);
       rows.add(categoryRow);
     }
     createSettingsRow();
   }
 
-  private ListRow createCategoryRow(Category category) {
-    IconHeaderItem header = new IconHeaderItem(category.getTitle(),
-        R.drawable.ic_video_library_black_24dp);
-    ArrayObjectAdapter adapter = new ArrayObjectAdapter(new VideoPresenter());
-    adapter.addAll(0, category.getVideos());
-    return new ListRow(header, adapter);
+  /**
+   * Returns whether or not the rows created from partial results show exactly the specified
+   * categories, in which case they do not have to be recreated.
+   */
+  private boolean isShownByPartialRows(List<Category> categories) {
+    if (categories == null || categories.size() != partialRows.size()
+        || categories.size() != rows.size()) {
+      return false;
+    }
+    for (int i = 0; i < categories.size(); i++) {
+      Category category = categories.get(i);
+      PagedRowAdapter adapter = partialRows.get(category.getTitle());
+      if (adapter == null || adapter != ((ListRow) rows.get(i)).getAdapter()
+          || adapter.size() != category.getVideos().size()) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private ListRow createCategoryRow(CategoriesLoader loader, Category category) {
+    String title = category.getTitle();
+    PagedRowAdapter adapter = pager.createAdapter(createPageSource(loader.getRow(title)));
+    adapter.onPageLoaded(0, category);
+    return new ListRow(createCategoryHeader(title), adapter);
+  }
+
+  private static Bundle createPageSource(CategoriesLoader.Row row) {
+    return row == null ? null : CategoryPageLoader.createArguments(row);
+  }
+
+  private static IconHeaderItem createCategoryHeader(String title) {
+    return new IconHeaderItem(title, R.drawable.ic_video_library_black_24dp);
   }
 
   private void createSettingsRow() {
@@ -125,6 +200,8 @@ public final class BrowseFragment extends BrowseSupportFragment
   @Override
   public void onLoaderReset(Loader<List<Category>> loader) {
     Log.d(TAG, "onLoaderReset");
+    partialRows.clear();
     rows.clear();
+    pager.clear();
   }
 }
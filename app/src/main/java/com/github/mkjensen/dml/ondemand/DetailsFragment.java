@@ -37,8 +37,10 @@ import android.support.v4.app.LoaderManager;
 import android.support.v4.content.Loader;
 import android.util.Log;
 
+import com.github.mkjensen.dml.DmlApplication;
 import com.github.mkjensen.dml.R;
 import com.github.mkjensen.dml.backend.loader.VideoLoader;
+import com.github.mkjensen.dml.exoplayer.PlaybackHandoff;
 import com.github.mkjensen.dml.model.Video;
 import com.github.mkjensen.dml.presenter.VideoDetailsPresenter;
 import com.github.mkjensen.dml.util.BackgroundHelper;
@@ -138,6 +140,18 @@ public final class DetailsFragment extends DetailsSupportFragment
     }
     BackgroundHelper.setBackground(getActivity(), data.getImageUrl());
     createDetailsRow(data);
+    preparePlayback(data);
+  }
+
+  /**
+   * Resolves what is needed to start playing the specified video while its details are shown, see
+   * {@link PlaybackHandoff}.
+   */
+  private static void preparePlayback(Video video) {
+    String manifestUrl = video.getManifestUrl();
+    if (!Video.NOT_SET.equals(manifestUrl)) {
+      DmlApplication.getInstance().getBackendComponent().playbackHandoff().prepare(manifestUrl);
+    }
   }
 
   private void createDetailsRow(Video video) {
@@ -21,8 +21,13 @@ import android.graphics.drawable.Drawable;
 import android.support.v4.app.FragmentActivity;
 import android.util.Log;
 
+import com.github.mkjensen.dml.DmlApplication;
+import com.github.mkjensen.dml.inject.BackendComponent;
 import com.github.mkjensen.dml.util.BackgroundHelper;
 
+import java.io.FileDescriptor;
+import java.io.PrintWriter;
+
 /**
  * Extension of {@link FragmentActivity} that integrates with {@link BackgroundHelper} for
  * background handling and overrides {@link FragmentActivity#onSearchRequested()} to activate search
@@ -48,6 +53,18 @@ abstract class OnDemandActivity extends FragmentActivity {
     BackgroundHelper.release(this);
   }
 
+  /**
+   * Includes the backend metrics and cache statistics in the output of {@code adb shell dumpsys
+   * activity}.
+   */
+  @Override
+  public void dump(String prefix, FileDescriptor fd, PrintWriter writer, String[] args) {
+    super.dump(prefix, fd, writer, args);
+    BackendComponent backendComponent = DmlApplication.getInstance().getBackendComponent();
+    backendComponent.backendMetrics().dump(prefix, writer);
+    backendComponent.cachePolicy().dump(prefix, writer);
+  }
+
   @Override
   public boolean onSearchRequested() {
     clearBackground();
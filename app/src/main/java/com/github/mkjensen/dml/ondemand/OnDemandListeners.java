@@ -20,6 +20,7 @@ import static com.github.mkjensen.dml.util.Preconditions.notNull;
 
 import android.app.Activity;
 import android.content.Intent;
+import android.support.v17.leanback.widget.ListRow;
 import android.support.v17.leanback.widget.OnItemViewClickedListener;
 import android.support.v17.leanback.widget.OnItemViewSelectedListener;
 import android.support.v17.leanback.widget.Presenter;
@@ -28,6 +29,8 @@ import android.support.v17.leanback.widget.RowPresenter;
 import android.util.Log;
 import android.view.View;
 
+import com.github.mkjensen.dml.DmlApplication;
+import com.github.mkjensen.dml.backend.Prefetcher;
 import com.github.mkjensen.dml.model.SettingsItem;
 import com.github.mkjensen.dml.model.Video;
 import com.github.mkjensen.dml.ondemand.settings.AboutActivity;
@@ -66,6 +69,7 @@ final class OnDemandListeners {
 
   static OnItemViewSelectedListener createOnItemViewSelectedListener(final Activity activity) {
     notNull(activity);
+    final Prefetcher prefetcher = DmlApplication.getInstance().getBackendComponent().prefetcher();
     return new OnItemViewSelectedListener() {
       @Override
       public void onItemSelected(Presenter.ViewHolder itemViewHolder, Object item,
@@ -73,6 +77,12 @@ final class OnDemandListeners {
         if (item instanceof Video) {
           Video video = (Video) item;
           BackgroundHelper.setBackgroundDelayed(activity, video.getImageUrl());
+          prefetcher.prefetchOnDwell(video);
+        } else {
+          prefetcher.cancel();
+        }
+        if (row instanceof ListRow && ((ListRow) row).getAdapter() instanceof PagedRowAdapter) {
+          ((PagedRowAdapter) ((ListRow) row).getAdapter()).onItemSelected(item);
         }
       }
     };
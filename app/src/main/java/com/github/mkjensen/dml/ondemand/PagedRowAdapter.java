@@ -0,0 +1,138 @@
+/*
+ * Copyright 2016 Martin Kamp Jensen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.mkjensen.dml.ondemand;
+
+import static com.github.mkjensen.dml.util.Preconditions.notNull;
+
+import android.os.Bundle;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.v17.leanback.widget.ArrayObjectAdapter;
+
+import com.github.mkjensen.dml.backend.BackendHelper;
+import com.github.mkjensen.dml.model.Category;
+import com.github.mkjensen.dml.model.Video;
+import com.github.mkjensen.dml.presenter.VideoPresenter;
+
+import java.util.List;
+
+/**
+ * Adapter for a row of videos that grows a page at a time. When one of the last {@link
+ * #PREFETCH_DISTANCE} videos is selected and the category has more videos, the next page is
+ * requested from a {@link PageListener}.
+ */
+final class PagedRowAdapter extends ArrayObjectAdapter {
+
+  /**
+   * The number of videos from the end of the row at which the next page is requested.
+   */
+  static final int PREFETCH_DISTANCE = 8;
+
+  private final int id;
+
+  private final Bundle source;
+
+  private final PageListener listener;
+
+  private int totalSize = Category.UNKNOWN_TOTAL_SIZE;
+
+  private int lastPageSize;
+
+  private boolean loading = true;
+
+  /**
+   * Creates an empty adapter that is waiting for its first page. The specified source identifies
+   * the category, see {@link com.github.mkjensen.dml.backend.loader.CategoryPageLoader}, or is
+   * {@code null} if the category cannot be paged.
+   */
+  PagedRowAdapter(int id, @Nullable Bundle source, @NonNull PageListener listener) {
+    super(new VideoPresenter());
+    this.id = id;
+    this.source = source;
+    this.listener = notNull(listener);
+  }
+
+  int getId() {
+    return id;
+  }
+
+  @Nullable
+  Bundle getSource() {
+    return source;
+  }
+
+  /**
+   * Appends videos that have been parsed before their page has finished loading.
+   */
+  void addVideos(@NonNull List<Video> videos) {
+    addAll(size(), videos);
+  }
+
+  /**
+   * Adds the videos of the page starting at the specified offset that are not shown already, or
+   * stops paging if the page could not be loaded.
+   */
+  void onPageLoaded(int offset, @Nullable Category page) {
+    if (offset > size()) {
+      return;
+    }
+    loading = false;
+    if (page == null) {
+      totalSize = size();
+      return;
+    }
+    List<Video> videos = page.getVideos();
+    int shown = size() - offset;
+    if (shown < videos.size()) {
+      addAll(size(), videos.subList(shown, videos.size()));
+    }
+    totalSize = page.getTotalSize();
+    lastPageSize = videos.size();
+  }
+
+  /**
+   * Requests the next page if the specified item is close to the end of the row.
+   */
+  void onItemSelected(@Nullable Object item) {
+    if (source == null || loading || !hasNextPage()) {
+      return;
+    }
+    int position = indexOf(item);
+    if (position >= 0 && position >= size() - PREFETCH_DISTANCE) {
+      loading = true;
+      listener.onNextPageRequested(this);
+    }
+  }
+
+  private boolean hasNextPage() {
+    if (totalSize != Category.UNKNOWN_TOTAL_SIZE) {
+      return size() < totalSize;
+    }
+    return lastPageSize >= BackendHelper.PAGE_SIZE;
+  }
+
+  /**
+   * Receives requests for the next page of a {@link PagedRowAdapter}.
+   */
+  interface PageListener {
+
+    /**
+     * Called when the page starting at {@link #size()} should be loaded and passed to {@link
+     * #onPageLoaded(int, Category)}.
+     */
+    void onNextPageRequested(@NonNull PagedRowAdapter adapter);
+  }
+}
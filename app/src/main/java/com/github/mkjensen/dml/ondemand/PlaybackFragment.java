@@ -37,10 +37,13 @@ import static android.support.v4.media.session.PlaybackStateCompat.STATE_PLAYING
 import static android.support.v4.media.session.PlaybackStateCompat.STATE_REWINDING;
 import static com.github.mkjensen.dml.util.Preconditions.intentParcelableExtraNotNull;
 
+import com.google.android.exoplayer.hls.HlsPlaylist;
+
 import android.content.Context;
 import android.graphics.SurfaceTexture;
 import android.os.Bundle;
 import android.os.Handler;
+import android.support.annotation.Nullable;
 import android.support.v17.leanback.app.MediaControllerGlue;
 import android.support.v17.leanback.app.PlaybackOverlaySupportFragment;
 import android.support.v17.leanback.widget.Action;
@@ -61,22 +64,44 @@ import android.util.Log;
 import android.view.Surface;
 import android.view.TextureView;
 
+import com.github.mkjensen.dml.DmlApplication;
 import com.github.mkjensen.dml.R;
 import com.github.mkjensen.dml.backend.loader.VideoManifestLoader;
 import com.github.mkjensen.dml.exoplayer.DemoPlayer;
 import com.github.mkjensen.dml.exoplayer.HlsRendererBuilder;
+import com.github.mkjensen.dml.exoplayer.PlaybackHandoff;
 import com.github.mkjensen.dml.model.Protocol;
 import com.github.mkjensen.dml.model.Video;
 import com.github.mkjensen.dml.model.VideoManifest;
 import com.github.mkjensen.dml.util.LoadingHelper;
+import com.github.mkjensen.dml.util.StageTimer;
 
 /**
- * Playback screen for on-demand videos.
+ * Playback screen for on-demand videos. If the video manifest and HLS master playlist have already
+ * been resolved by the details screen, they are taken from {@link PlaybackHandoff} instead of
+ * being loaded again.
+ *
+ * <p>Loading starts in {@link #onCreate(Bundle)} and the player is created and prepared as soon as
+ * the manifest is available, independently of the surface, which is attached whenever it becomes
+ * available. The time at which each stage of startup is reached is logged when the first frame
+ * has been drawn.
  */
 public final class PlaybackFragment extends PlaybackOverlaySupportFragment {
 
   private static final String TAG = "PlaybackFragment";
 
+  private static final String STAGE_MANIFEST = "manifest";
+
+  private static final String STAGE_HANDOFF = "handoff";
+
+  private static final String STAGE_SURFACE = "surface";
+
+  private static final String STAGE_RENDERERS = "renderers";
+
+  private static final String STAGE_READY = "ready";
+
+  private static final String STAGE_FIRST_FRAME = "first-frame";
+
   private Video video;
 
   private MediaSessionCompat mediaSession;
@@ -89,6 +114,12 @@ public final class PlaybackFragment extends PlaybackOverlaySupportFragment {
 
   private DemoPlayer player;
 
+  private Surface surface;
+
+  private StageTimer startupTimer;
+
+  private boolean destroyed;
+
   @Override
   public void onCreate(Bundle savedInstanceState) {
     Log.d(TAG, "onCreate");
@@ -100,6 +131,7 @@ public final class PlaybackFragment extends PlaybackOverlaySupportFragment {
     initUi();
     initTextureView();
     updateMetadata();
+    startPlayback();
   }
 
   private void initVideo() {
@@ -143,6 +175,49 @@ public final class PlaybackFragment extends PlaybackOverlaySupportFragment {
     textureView.setSurfaceTextureListener(new TextureViewSurfaceTextureListener());
   }
 
+  /**
+   * Starts loading what is needed to create the player, without waiting for the surface.
+   */
+  private void startPlayback() {
+    startupTimer = new StageTimer(TAG);
+    DmlApplication.getInstance().getBackendComponent().playbackHandoff()
+        .take(video.getManifestUrl(), new PlaybackHandoff.TakeListener() {
+          @Override
+          public void onTaken(@Nullable PlaybackHandoff.Resolved resolved) {
+            if (destroyed) {
+              return;
+            }
+            if (resolved != null) {
+              startupTimer.mark(STAGE_HANDOFF);
+              createPlayer(resolved.getStreamUrl(), resolved.getPlaylist());
+            } else {
+              getLoaderManager().initLoader(0, null, new LoaderCallbacks());
+            }
+          }
+        });
+  }
+
+  /**
+   * Creates and prepares the player, attaching the surface if it is already available. Does
+   * nothing if the player has already been created or this fragment has been destroyed, as the
+   * user may leave before loading has finished.
+   */
+  private void createPlayer(String streamUrl, @Nullable HlsPlaylist playlist) {
+    if (player != null || destroyed) {
+      return;
+    }
+    HlsRendererBuilder rendererBuilder =
+        new HlsRendererBuilder(getActivity(), TAG, streamUrl, playlist);
+    player = new DemoPlayer(rendererBuilder);
+    player.addListener(new DemoPlayerListener());
+    player.setSurfaceListener(new DemoPlayerSurfaceListener());
+    player.prepare();
+    if (surface != null) {
+      player.setSurface(surface);
+    }
+    playPause(true);
+  }
+
   private void updateMetadata() {
     MediaMetadataCompat.Builder builder = new MediaMetadataCompat.Builder()
         .putString(METADATA_KEY_MEDIA_ID, video.getId())
@@ -217,13 +292,23 @@ public final class PlaybackFragment extends PlaybackOverlaySupportFragment {
     mediaControllerHelper.getMediaController().getTransportControls().play();
   }
 
+  private void releaseSurface() {
+    if (surface != null) {
+      surface.release();
+      surface = null;
+    }
+  }
+
   @Override
   public void onDestroy() {
     Log.d(TAG, "onDestroy");
     super.onDestroy();
+    destroyed = true;
     if (player != null) {
       player.release();
+      player = null;
     }
+    releaseSurface();
     mediaControllerHelper.detach();
     mediaSession.release();
   }
@@ -322,7 +407,11 @@ public final class PlaybackFragment extends PlaybackOverlaySupportFragment {
 
     @Override
     public void onStateChanged(boolean playWhenReady, int playbackState) {
+      if (playbackState != DemoPlayer.STATE_IDLE && playbackState != DemoPlayer.STATE_PREPARING) {
+        startupTimer.mark(STAGE_RENDERERS);
+      }
       if (updateMetadataWhenReady && playbackState == DemoPlayer.STATE_READY) {
+        startupTimer.mark(STAGE_READY);
         LoadingHelper.hideLoading(PlaybackFragment.this);
         updateMetadata();
         updateMetadataWhenReady = false;
@@ -346,13 +435,28 @@ public final class PlaybackFragment extends PlaybackOverlaySupportFragment {
     }
   }
 
+  private final class DemoPlayerSurfaceListener implements DemoPlayer.SurfaceListener {
+
+    @Override
+    public void onDrawnToSurface(Surface surface) {
+      if (startupTimer.mark(STAGE_FIRST_FRAME)) {
+        Log.i(TAG, "Startup: " + startupTimer);
+      }
+    }
+  }
+
   private final class TextureViewSurfaceTextureListener
       implements TextureView.SurfaceTextureListener {
 
     @Override
     public void onSurfaceTextureAvailable(SurfaceTexture surface, int width, int height) {
       Log.d(TAG, "onSurfaceTextureAvailable");
-      getLoaderManager().initLoader(0, null, new LoaderCallbacks());
+      startupTimer.mark(STAGE_SURFACE);
+      releaseSurface();
+      PlaybackFragment.this.surface = new Surface(surface);
+      if (player != null) {
+        player.setSurface(PlaybackFragment.this.surface);
+      }
     }
 
     @Override
@@ -366,6 +470,7 @@ public final class PlaybackFragment extends PlaybackOverlaySupportFragment {
       if (player != null) {
         player.blockingClearSurface();
       }
+      releaseSurface();
       return true;
     }
 
@@ -390,24 +495,8 @@ public final class PlaybackFragment extends PlaybackOverlaySupportFragment {
         Log.w(TAG, "No data returned by loader");
         return;
       }
-      createPlayer(data);
-    }
-
-    private void createPlayer(VideoManifest videoManifest) {
-      SurfaceTexture surfaceTexture = textureView.getSurfaceTexture();
-      if (surfaceTexture == null) {
-        // Temporary fix: The surface texture is no longer available because the user left the
-        // playback fragment early. The flow of this class needs to be rethought to fix
-        // https://github.com/mkjensen/danish-media-license/issues/29.
-        return;
-      }
-      String streamUrl = videoManifest.getUrl(Protocol.HLS);
-      HlsRendererBuilder rendererBuilder = new HlsRendererBuilder(getActivity(), TAG, streamUrl);
-      player = new DemoPlayer(rendererBuilder);
-      player.addListener(new DemoPlayerListener());
-      player.prepare();
-      player.setSurface(new Surface(surfaceTexture));
-      playPause(true);
+      startupTimer.mark(STAGE_MANIFEST);
+      createPlayer(data.getUrl(Protocol.HLS), null);
     }
 
     @Override
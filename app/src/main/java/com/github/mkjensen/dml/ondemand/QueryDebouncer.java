@@ -0,0 +1,95 @@
+/*
+ * Copyright 2016 Martin Kamp Jensen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.mkjensen.dml.ondemand;
+
+import static com.github.mkjensen.dml.util.Preconditions.notNull;
+
+import android.support.annotation.NonNull;
+
+import com.github.mkjensen.dml.util.Clock;
+
+/**
+ * Decides how long to wait after a change to a search query before executing it.
+ *
+ * <p>The delay is a little longer than the user's typical time between key presses, so that the
+ * query is usually executed when the user pauses rather than between key presses, plus half the
+ * typical search latency, so that fewer queries that are soon superseded are executed when the
+ * backend is slow. Pauses longer than {@link #MAX_KEY_INTERVAL_IN_MILLISECONDS} are not counted
+ * as time between key presses.
+ */
+final class QueryDebouncer {
+
+  /**
+   * The delay used until the time between key presses has been measured.
+   */
+  static final long DEFAULT_DELAY_IN_MILLISECONDS = 300L;
+
+  static final long MIN_DELAY_IN_MILLISECONDS = 100L;
+
+  static final long MAX_DELAY_IN_MILLISECONDS = 750L;
+
+  static final long MAX_KEY_INTERVAL_IN_MILLISECONDS = 1000L;
+
+  /**
+   * The weight of the most recent time between key presses in their moving average.
+   */
+  private static final double KEY_INTERVAL_WEIGHT = 0.25;
+
+  private static final double KEY_INTERVAL_FACTOR = 1.5;
+
+  private final Clock clock;
+
+  private long lastKeyAt = -1L;
+
+  private double keyInterval = -1.0;
+
+  QueryDebouncer() {
+    this(Clock.SYSTEM);
+  }
+
+  QueryDebouncer(@NonNull Clock clock) {
+    this.clock = notNull(clock);
+  }
+
+  /**
+   * Records that the query has been changed by a key press.
+   */
+  void onQueryChanged() {
+    long now = clock.elapsedMillis();
+    if (lastKeyAt >= 0L) {
+      long interval = now - lastKeyAt;
+      if (interval <= MAX_KEY_INTERVAL_IN_MILLISECONDS) {
+        keyInterval = keyInterval < 0.0
+            ? interval
+            : KEY_INTERVAL_WEIGHT * interval + (1.0 - KEY_INTERVAL_WEIGHT) * keyInterval;
+      }
+    }
+    lastKeyAt = now;
+  }
+
+  /**
+   * Returns the delay before executing the query, given the typical latency of search calls, which
+   * is zero if unknown.
+   */
+  long getDelayInMilliseconds(long searchLatencyInMilliseconds) {
+    if (keyInterval < 0.0) {
+      return DEFAULT_DELAY_IN_MILLISECONDS;
+    }
+    long delay = (long) (KEY_INTERVAL_FACTOR * keyInterval) + searchLatencyInMilliseconds / 2;
+    return Math.max(MIN_DELAY_IN_MILLISECONDS, Math.min(MAX_DELAY_IN_MILLISECONDS, delay));
+  }
+}
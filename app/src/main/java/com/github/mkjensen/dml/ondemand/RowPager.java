@@ -0,0 +1,112 @@
+/*
+ * Copyright 2016 Martin Kamp Jensen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.mkjensen.dml.ondemand;
+
+import static com.github.mkjensen.dml.util.Preconditions.notNull;
+
+import android.content.Context;
+import android.os.Bundle;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.v4.app.LoaderManager;
+import android.support.v4.content.Loader;
+import android.util.Log;
+import android.util.SparseArray;
+
+import com.github.mkjensen.dml.backend.loader.CategoryPageLoader;
+import com.github.mkjensen.dml.model.Category;
+
+/**
+ * Creates {@link PagedRowAdapter} instances and loads their pages using {@link
+ * CategoryPageLoader}, one loader per row.
+ */
+final class RowPager implements LoaderManager.LoaderCallbacks<Category>,
+    PagedRowAdapter.PageListener {
+
+  private static final String TAG = "RowPager";
+
+  private final Context context;
+
+  private final LoaderManager loaderManager;
+
+  private final int firstLoaderId;
+
+  private final SparseArray<PagedRowAdapter> adapters = new SparseArray<>();
+
+  private int nextLoaderId;
+
+  /**
+   * Creates a pager that uses loader ids starting at the specified id, so that they do not clash
+   * with other loaders managed by the specified loader manager.
+   */
+  RowPager(@NonNull Context context, @NonNull LoaderManager loaderManager, int firstLoaderId) {
+    this.context = notNull(context);
+    this.loaderManager = notNull(loaderManager);
+    this.firstLoaderId = firstLoaderId;
+    this.nextLoaderId = firstLoaderId;
+  }
+
+  /**
+   * Returns a new adapter waiting for the first page of the category identified by the specified
+   * source, see {@link PagedRowAdapter#PagedRowAdapter(int, Bundle, PagedRowAdapter.PageListener)}.
+   */
+  @NonNull
+  PagedRowAdapter createAdapter(@Nullable Bundle source) {
+    PagedRowAdapter adapter = new PagedRowAdapter(nextLoaderId++, source, this);
+    adapters.put(adapter.getId(), adapter);
+    return adapter;
+  }
+
+  /**
+   * Forgets every adapter created by this pager and stops loading their pages.
+   */
+  void clear() {
+    for (int i = 0; i < adapters.size(); i++) {
+      loaderManager.destroyLoader(adapters.keyAt(i));
+    }
+    adapters.clear();
+    nextLoaderId = firstLoaderId;
+  }
+
+  @Override
+  public void onNextPageRequested(@NonNull PagedRowAdapter adapter) {
+    Bundle source = adapter.getSource();
+    if (source == null || adapters.get(adapter.getId()) != adapter) {
+      return;
+    }
+    Bundle args = CategoryPageLoader.createArguments(source, adapter.size());
+    loaderManager.restartLoader(adapter.getId(), args, this);
+  }
+
+  @Override
+  public Loader<Category> onCreateLoader(int id, Bundle args) {
+    Log.d(TAG, String.format("onCreateLoader [%d]", id));
+    return new CategoryPageLoader(context, args);
+  }
+
+  @Override
+  public void onLoadFinished(Loader<Category> loader, Category data) {
+    PagedRowAdapter adapter = adapters.get(loader.getId());
+    if (adapter != null) {
+      adapter.onPageLoaded(((CategoryPageLoader) loader).getOffset(), data);
+    }
+  }
+
+  @Override
+  public void onLoaderReset(Loader<Category> loader) {
+    Log.d(TAG, String.format("onLoaderReset [%d]", loader.getId()));
+  }
+}
@@ -21,6 +21,7 @@ import static com.github.mkjensen.dml.ondemand.OnDemandListeners.createOnItemVie
 
 import android.os.Bundle;
 import android.os.Handler;
+import android.support.annotation.NonNull;
 import android.support.v17.leanback.app.SearchSupportFragment;
 import android.support.v17.leanback.widget.ArrayObjectAdapter;
 import android.support.v17.leanback.widget.HeaderItem;
@@ -32,41 +33,83 @@ import android.support.v4.content.Loader;
 import android.text.TextUtils;
 import android.util.Log;
 
+import com.github.mkjensen.dml.DmlApplication;
+import com.github.mkjensen.dml.R;
+import com.github.mkjensen.dml.backend.BackendHelper;
+import com.github.mkjensen.dml.backend.TitleIndex;
 import com.github.mkjensen.dml.backend.loader.CategoriesLoader;
+import com.github.mkjensen.dml.backend.loader.CategoryPageLoader;
 import com.github.mkjensen.dml.model.Category;
+import com.github.mkjensen.dml.model.Video;
 import com.github.mkjensen.dml.presenter.VideoPresenter;
 import com.github.mkjensen.dml.util.BackgroundHelper;
 import com.github.mkjensen.dml.util.LoadingHelper;
 
+import java.util.HashSet;
 import java.util.List;
+import java.util.Locale;
+import java.util.Set;
 
 /**
- * Search screen for on-demand videos.
+ * Search screen for on-demand videos. Results are shown as soon as the first videos have been
+ * loaded, see {@link CategoriesLoader.PartialResultListener}, and grow a page at a time as the
+ * user approaches their end, see {@link PagedRowAdapter}.
+ *
+ * <p>While the query is being typed, videos that have already been loaded and whose titles match
+ * it are shown from a {@link TitleIndex} in a row of suggestions above the results. Videos are
+ * removed from the suggestions once they are shown in the results.
+ *
+ * <p>Queries are executed once the user pauses typing, after a delay that adapts to the user's
+ * typing speed and to the latency of search calls, see {@link QueryDebouncer}.
  */
 public final class SearchFragment extends SearchSupportFragment implements
     SearchSupportFragment.SearchResultProvider,
-    LoaderManager.LoaderCallbacks<List<Category>> {
+    LoaderManager.LoaderCallbacks<List<Category>>,
+    CategoriesLoader.PartialResultListener {
 
   private static final String TAG = "SearchFragment";
 
   private static final String QUERY_ARGUMENT = "query";
 
-  private static final int QUERY_DELAY_IN_MILLISECONDS = 300;
+  private static final int MAX_SUGGESTIONS = 20;
 
   private static final int QUERY_LOADER_ID = 0;
 
+  private static final int FIRST_PAGE_LOADER_ID = 1;
+
   private ArrayObjectAdapter results;
 
   private Handler handler;
 
   private Runnable queryRunnable;
 
+  private QueryDebouncer debouncer;
+
+  private BackendHelper backendHelper;
+
+  private PagedRowAdapter partialResults;
+
+  private RowPager pager;
+
+  private TitleIndex titleIndex;
+
+  private ArrayObjectAdapter suggestions;
+
+  private ListRow suggestionsRow;
+
   @Override
   public void onCreate(Bundle savedInstanceState) {
     Log.d(TAG, "onCreate");
     super.onCreate(savedInstanceState);
     results = new ArrayObjectAdapter(new ListRowPresenter());
+    backendHelper = DmlApplication.getInstance().getBackendComponent().backendHelper();
+    titleIndex = backendHelper.getTitleIndex();
+    suggestions = new ArrayObjectAdapter(new VideoPresenter());
+    suggestionsRow = new ListRow(
+        new HeaderItem(getString(R.string.ondemand_search_suggestions)), suggestions);
+    pager = new RowPager(getActivity(), getLoaderManager(), FIRST_PAGE_LOADER_ID);
     handler = new Handler();
+    debouncer = new QueryDebouncer();
     initListeners();
     setSearchResultProvider(this);
   }
@@ -96,6 +139,7 @@ public final class SearchFragment extends SearchSupportFragment implements
 
   @Override
   public boolean onQueryTextChange(String newQuery) {
+    debouncer.onQueryChanged();
     performQuery(newQuery);
     return true;
   }
@@ -107,6 +151,7 @@ public final class SearchFragment extends SearchSupportFragment implements
   }
 
   private void performQuery(String query) {
+    showSuggestions(query);
     if (TextUtils.isEmpty(query)) {
       clearResults();
       return;
@@ -114,10 +159,55 @@ public final class SearchFragment extends SearchSupportFragment implements
     createPendingQuery(query);
   }
 
+  private void showSuggestions(String query) {
+    suggestions.clear();
+    if (!TextUtils.isEmpty(query)) {
+      suggestions.addAll(0, titleIndex.search(query, MAX_SUGGESTIONS));
+    }
+    updateSuggestionsRow();
+  }
+
+  /**
+   * Removes the specified videos, which are now shown in the results, from the suggestions.
+   */
+  private void removeSuggestions(List<Video> videos) {
+    Set<String> ids = new HashSet<>();
+    for (Video video : videos) {
+      ids.add(video.getId());
+    }
+    for (int i = suggestions.size() - 1; i >= 0; i--) {
+      if (ids.contains(((Video) suggestions.get(i)).getId())) {
+        suggestions.removeItems(i, 1);
+      }
+    }
+    updateSuggestionsRow();
+  }
+
+  private void updateSuggestionsRow() {
+    boolean shown = results.indexOf(suggestionsRow) >= 0;
+    if (shown && suggestions.size() == 0) {
+      results.remove(suggestionsRow);
+    } else if (!shown && suggestions.size() > 0) {
+      results.add(0, suggestionsRow);
+    }
+  }
+
   private void clearResults() {
     removePendingQuery();
     BackgroundHelper.clearBackground(getActivity());
-    results.clear();
+    clearResultRows();
+  }
+
+  /**
+   * Removes all rows except the suggestions.
+   */
+  private void clearResultRows() {
+    for (int i = results.size() - 1; i >= 0; i--) {
+      if (results.get(i) != suggestionsRow) {
+        results.removeItems(i, 1);
+      }
+    }
+    pager.clear();
   }
 
   private void createPendingQuery(final String query) {
@@ -130,7 +220,9 @@ public final class SearchFragment extends SearchSupportFragment implements
         getLoaderManager().restartLoader(QUERY_LOADER_ID, args, SearchFragment.this);
       }
     };
-    handler.postDelayed(queryRunnable, QUERY_DELAY_IN_MILLISECONDS);
+    long delay = debouncer.getDelayInMilliseconds(backendHelper.getSearchLatencyInMilliseconds());
+    Log.d(TAG, String.format(Locale.US, "Executing query in [%d] ms", delay));
+    handler.postDelayed(queryRunnable, delay);
   }
 
   @Override
@@ -138,33 +230,64 @@ public final class SearchFragment extends SearchSupportFragment implements
     Log.d(TAG, "onCreateLoader");
     LoadingHelper.showLoading(this);
     String query = args.getString(QUERY_ARGUMENT);
+    partialResults = null;
     //noinspection ConstantConditions
-    return new CategoriesLoader(getActivity(), query);
+    CategoriesLoader loader = new CategoriesLoader(getActivity(), query);
+    loader.setPartialResultListener(this);
+    return loader;
+  }
+
+  @Override
+  public void onPartialResult(@NonNull CategoriesLoader loader, @NonNull String title,
+                              @NonNull List<Video> videos) {
+    if (partialResults == null) {
+      // Do not use clearResults as it would also remove a pending query.
+      LoadingHelper.hideLoading(this);
+      clearResultRows();
+      partialResults = pager.createAdapter(createPageSource(loader));
+      results.add(new ListRow(new HeaderItem(title), partialResults));
+    }
+    partialResults.addVideos(videos);
+    removeSuggestions(videos);
   }
 
   @Override
   public void onLoadFinished(Loader<List<Category>> loader, List<Category> data) {
     Log.d(TAG, "onLoadFinished");
+    PagedRowAdapter shown = partialResults;
+    partialResults = null;
+    if (shown != null && data != null && data.size() == 1
+        && data.get(0).getVideos().size() == shown.size()) {
+      Log.d(TAG, "All results already shown");
+      shown.onPageLoaded(0, data.get(0));
+      return;
+    }
     clearResults();
     if (data == null || data.isEmpty()) {
       return;
     }
-    addResults(data);
+    addResults((CategoriesLoader) loader, data);
   }
 
-  private void addResults(List<Category> categories) {
-    VideoPresenter presenter = new VideoPresenter();
+  private void addResults(CategoriesLoader loader, List<Category> categories) {
     for (Category category : categories) {
       HeaderItem header = new HeaderItem(category.getTitle());
-      ArrayObjectAdapter videos = new ArrayObjectAdapter(presenter);
-      videos.addAll(0, category.getVideos());
+      PagedRowAdapter videos = pager.createAdapter(createPageSource(loader));
+      videos.onPageLoaded(0, category);
       results.add(new ListRow(header, videos));
+      removeSuggestions(category.getVideos());
     }
   }
 
+  private static Bundle createPageSource(CategoriesLoader loader) {
+    String query = loader.getQuery();
+    return query == null ? null : CategoryPageLoader.createArguments(query);
+  }
+
   @Override
   public void onLoaderReset(Loader<List<Category>> loader) {
     Log.d(TAG, "onLoaderReset");
+    partialResults = null;
     clearResults();
   }
 }
@@ -17,6 +17,7 @@
 package com.github.mkjensen.dml.util;
 
 import android.app.Activity;
+import android.content.Context;
 import android.graphics.Bitmap;
 import android.graphics.drawable.Drawable;
 import android.os.Handler;
@@ -26,6 +27,7 @@ import android.support.v17.leanback.app.BackgroundManager;
 import android.view.Window;
 
 import com.bumptech.glide.Glide;
+import com.bumptech.glide.Priority;
 import com.bumptech.glide.request.animation.GlideAnimation;
 import com.bumptech.glide.request.target.SimpleTarget;
 
@@ -95,6 +97,18 @@ public final class BackgroundHelper {
         });
   }
 
+  /**
+   * Loads the {@link Bitmap} that {@link #setBackground(Activity, String)} would load from the
+   * specified URL into the image caches at low priority, without showing it.
+   */
+  public static void preloadBackground(@NonNull Context context, @NonNull String url) {
+    Glide.with(context)
+        .load(url)
+        .asBitmap()
+        .priority(Priority.LOW)
+        .preload();
+  }
+
   /**
    * Calls {@link #setBackground(Activity, String)} after a slight delay, overriding pending calls,
    * enabling callers to call this method quickly in succession without {@link
@@ -0,0 +1,41 @@
+/*
+ * Copyright 2016 Martin Kamp Jensen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.mkjensen.dml.util;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A source of monotonic time, which may be replaced in tests.
+ */
+public interface Clock {
+
+  /**
+   * A {@link Clock} backed by {@link System#nanoTime()}.
+   */
+  Clock SYSTEM = new Clock() {
+    @Override
+    public long elapsedMillis() {
+      return TimeUnit.NANOSECONDS.toMillis(System.nanoTime());
+    }
+  };
+
+  /**
+   * Returns the number of milliseconds since some fixed but arbitrary point in time. Only the
+   * difference between two returned values is meaningful.
+   */
+  long elapsedMillis();
+}
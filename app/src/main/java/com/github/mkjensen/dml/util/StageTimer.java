@@ -0,0 +1,97 @@
+/*
+ * Copyright 2016 Martin Kamp Jensen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.mkjensen.dml.util;
+
+import static com.github.mkjensen.dml.util.Preconditions.notNull;
+
+import android.support.annotation.NonNull;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Records the time at which each stage of an operation is reached, relative to the start of the
+ * operation. Only the first time a stage is reached is recorded. Not thread-safe.
+ */
+public final class StageTimer {
+
+  /**
+   * The elapsed time returned for a stage that has not been reached.
+   */
+  public static final long NOT_REACHED = -1L;
+
+  private final String name;
+
+  private final Clock clock;
+
+  private final long startMillis;
+
+  private final Map<String, Long> stages = new LinkedHashMap<>();
+
+  /**
+   * Creates a timer for the operation with the specified name that starts now.
+   */
+  public StageTimer(@NonNull String name) {
+    this(name, Clock.SYSTEM);
+  }
+
+  StageTimer(@NonNull String name, @NonNull Clock clock) {
+    this.name = notNull(name);
+    this.clock = notNull(clock);
+    this.startMillis = clock.elapsedMillis();
+  }
+
+  /**
+   * Records that the specified stage has been reached, unless it has been reached before.
+   *
+   * @return {@code true} if the stage had not been reached before
+   */
+  public boolean mark(@NonNull String stage) {
+    notNull(stage);
+    if (stages.containsKey(stage)) {
+      return false;
+    }
+    stages.put(stage, clock.elapsedMillis() - startMillis);
+    return true;
+  }
+
+  /**
+   * Returns the number of milliseconds from the start of the operation until the specified stage
+   * was reached, or {@link #NOT_REACHED}.
+   */
+  public long getElapsedMillis(@NonNull String stage) {
+    Long elapsed = stages.get(notNull(stage));
+    return elapsed == null ? NOT_REACHED : elapsed;
+  }
+
+  /**
+   * Returns the name of the operation followed by the reached stages in the order in which they
+   * were reached, for example {@code "playback {manifest=120 ms, first-frame=870 ms}"}.
+   */
+  @Override
+  public String toString() {
+    StringBuilder builder = new StringBuilder(name).append(" {");
+    boolean first = true;
+    for (Map.Entry<String, Long> stage : stages.entrySet()) {
+      if (!first) {
+        builder.append(", ");
+      }
+      builder.append(stage.getKey()).append('=').append(stage.getValue()).append(" ms");
+      first = false;
+    }
+    return builder.append('}').toString();
+  }
+}
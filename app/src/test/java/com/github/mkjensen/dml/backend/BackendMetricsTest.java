@@ -0,0 +1,87 @@
+/*
+ * Copyright 2016 Martin Kamp Jensen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.mkjensen.dml.backend;
+
+import static org.junit.Assert.assertEquals;
+
+import okhttp3.HttpUrl;
+
+import org.junit.Test;
+
+/**
+ * Unit tests for {@link BackendMetrics}.
+ */
+public class BackendMetricsTest {
+
+  private static final String API_BASE_URL = "https://www.dr.dk/mu-online/api/1.3/";
+
+  @Test
+  public void getEndpoint_whenCategory_thenReturnsCategoryEndpoint() {
+
+    // When
+    String endpoint = getApiEndpoint("list/view/mostviewed?limit=24&offset=0");
+
+    // Then
+    assertEquals(Endpoint.MOST_VIEWED_CATEGORY.name(), endpoint);
+  }
+
+  @Test
+  public void getEndpoint_whenSearch_thenReturnsSearchEndpoint() {
+
+    // When
+    String endpoint = getApiEndpoint("search/tv/programcards-with-asset/title/news?limit=24");
+
+    // Then
+    assertEquals(Endpoint.SEARCH.name(), endpoint);
+  }
+
+  @Test
+  public void getEndpoint_whenVideo_thenReturnsVideoEndpoint() {
+
+    // When
+    String endpoint = getApiEndpoint("programcard/id");
+
+    // Then
+    assertEquals(Endpoint.VIDEO.name(), endpoint);
+  }
+
+  @Test
+  public void getEndpoint_whenHlsPlaylist_thenReturnsPlaylistEndpoint() {
+
+    // When
+    String endpoint = BackendMetrics.getEndpoint(ConnectionWarmer.MEDIA,
+        HttpUrl.parse("https://media.com/master.m3u8?token=1"));
+
+    // Then
+    assertEquals("HLS_PLAYLIST", endpoint);
+  }
+
+  @Test
+  public void getEndpoint_whenHlsSegment_thenReturnsSegmentEndpoint() {
+
+    // When
+    String endpoint = BackendMetrics.getEndpoint(ConnectionWarmer.MEDIA,
+        HttpUrl.parse("https://media.com/segment1.ts"));
+
+    // Then
+    assertEquals("HLS_SEGMENT", endpoint);
+  }
+
+  private static String getApiEndpoint(String path) {
+    return BackendMetrics.getEndpoint(ConnectionWarmer.API, HttpUrl.parse(API_BASE_URL + path));
+  }
+}
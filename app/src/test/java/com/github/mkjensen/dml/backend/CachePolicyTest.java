@@ -0,0 +1,159 @@
+/*
+ * Copyright 2016 Martin Kamp Jensen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.mkjensen.dml.backend;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Unit tests for {@link CachePolicy}.
+ */
+public class CachePolicyTest {
+
+  private static final long GIGABYTE = 1024L * 1024 * 1024;
+
+  @Test
+  public void getTotalBudget_whenLittleSpaceAvailable_thenReturnsMinimum() {
+
+    // When
+    long budget = CachePolicy.getTotalBudget(0L);
+
+    // Then
+    assertEquals(CachePolicy.MIN_TOTAL_BUDGET_IN_BYTES, budget);
+  }
+
+  @Test
+  public void getTotalBudget_whenMuchSpaceAvailable_thenReturnsMaximum() {
+
+    // When
+    long budget = CachePolicy.getTotalBudget(100 * GIGABYTE);
+
+    // Then
+    assertEquals(CachePolicy.MAX_TOTAL_BUDGET_IN_BYTES, budget);
+  }
+
+  @Test
+  public void getTotalBudget_whenSomeSpaceAvailable_thenReturnsShareOfSpace() {
+
+    // Given
+    long availableBytes = 2 * GIGABYTE;
+
+    // When
+    long budget = CachePolicy.getTotalBudget(availableBytes);
+
+    // Then
+    assertEquals((long) (availableBytes * CachePolicy.AVAILABLE_SPACE_SHARE), budget);
+  }
+
+  @Test
+  public void getPartitionBudget_whenSmallTotal_thenReturnsMinimum() {
+
+    // When
+    long budget = CachePolicy.getPartitionBudget(
+        CachePolicy.MIN_TOTAL_BUDGET_IN_BYTES, CachePartition.MANIFESTS);
+
+    // Then
+    assertEquals(CachePolicy.MIN_PARTITION_BUDGET_IN_BYTES, budget);
+  }
+
+  @Test
+  public void getPartitionBudget_whenAllPartitions_thenSharesAddUpToTotal() {
+
+    // Given
+    long total = CachePolicy.MAX_TOTAL_BUDGET_IN_BYTES;
+    long sum = 0;
+
+    // When
+    for (CachePartition partition : CachePartition.values()) {
+      sum += CachePolicy.getPartitionBudget(total, partition);
+    }
+
+    // Then
+    assertTrue(Math.abs(total - sum) <= CachePartition.values().length);
+  }
+
+  @Test
+  public void deleteCacheFiles_whenLegacyCacheInDirectory_thenDeletesOnlyCacheFiles()
+      throws IOException {
+
+    // Given
+    File directory = Files.createTempDirectory("CachePolicyTest").toFile();
+    File partition = new File(directory, CachePartition.CATALOG.getDirectoryName());
+    assertTrue(partition.mkdir());
+    File partitionJournal = createFile(partition, "journal");
+    File other = createFile(directory, "other.db");
+    createFile(directory, "journal");
+    createFile(directory, "journal.bkp");
+    createFile(directory, "0123456789abcdef0123456789abcdef.0");
+    createFile(directory, "0123456789abcdef0123456789abcdef.1.tmp");
+
+    // When
+    int deleted = CachePolicy.deleteCacheFiles(directory);
+
+    // Then
+    assertEquals(4, deleted);
+    assertTrue(partitionJournal.exists());
+    assertTrue(other.exists());
+    assertFalse(new File(directory, "journal").exists());
+    assertEquals(0, CachePolicy.deleteCacheFiles(directory));
+  }
+
+  @Test
+  public void deleteCacheFiles_whenDirectoryMissing_thenDeletesNothing() {
+
+    // When/then
+    assertEquals(0, CachePolicy.deleteCacheFiles(new File("does-not-exist")));
+  }
+
+  @Test
+  public void countRemoved_whenNoPreviousUrls_thenReturnsZero() {
+
+    // When/then
+    assertEquals(0, CachePolicy.countRemoved(null, Collections.singleton("a")));
+  }
+
+  @Test
+  public void countRemoved_whenUrlsReplaced_thenCountsPreviousUrlsNoLongerCached() {
+
+    // Given
+    Set<String> previous = new HashSet<>(Arrays.asList("a", "b", "c"));
+    Set<String> current = new HashSet<>(Arrays.asList("b", "d", "e"));
+
+    // When
+    int removed = CachePolicy.countRemoved(previous, current);
+
+    // Then
+    assertEquals(2, removed);
+  }
+
+  private static File createFile(File directory, String name) throws IOException {
+    File file = new File(directory, name);
+    assertTrue(file.createNewFile());
+    return file;
+  }
+}
@@ -0,0 +1,166 @@
+/*
+ * Copyright 2016 Martin Kamp Jensen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.mkjensen.dml.backend;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import com.github.mkjensen.dml.util.Clock;
+
+import okhttp3.Dns;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Unit tests for {@link CachingDns}.
+ */
+public class CachingDnsTest {
+
+  private static final long TIME_TO_LIVE_IN_MILLISECONDS = 10L;
+
+  private static final String HOSTNAME = "example.com";
+
+  @Rule
+  public final ExpectedException thrown = ExpectedException.none();
+
+  private TestClock clock;
+
+  private TestDns delegate;
+
+  private CachingDns dns;
+
+  @Before
+  public void before() {
+    clock = new TestClock();
+    delegate = new TestDns();
+    dns = new CachingDns(delegate, TIME_TO_LIVE_IN_MILLISECONDS, clock);
+  }
+
+  @Test
+  public void lookup_whenNotCached_thenResolvesAndCountsMiss() throws Exception {
+
+    // When
+    List<InetAddress> addresses = dns.lookup(HOSTNAME);
+
+    // Then
+    assertSame(delegate.addresses, addresses);
+    assertEquals(1, delegate.lookupCount);
+    assertEquals(0, dns.hitCount());
+    assertEquals(1, dns.missCount());
+  }
+
+  @Test
+  public void lookup_whenCachedAndNotExpired_thenReturnsCachedAndCountsHit() throws Exception {
+
+    // Given
+    List<InetAddress> cached = dns.lookup(HOSTNAME);
+    clock.now = TIME_TO_LIVE_IN_MILLISECONDS - 1;
+
+    // When
+    List<InetAddress> addresses = dns.lookup(HOSTNAME);
+
+    // Then
+    assertSame(cached, addresses);
+    assertEquals(1, delegate.lookupCount);
+    assertEquals(1, dns.hitCount());
+  }
+
+  @Test
+  public void lookup_whenCachedAndExpired_thenResolvesAgain() throws Exception {
+
+    // Given
+    dns.lookup(HOSTNAME);
+    clock.now = TIME_TO_LIVE_IN_MILLISECONDS;
+
+    // When
+    dns.lookup(HOSTNAME);
+
+    // Then
+    assertEquals(2, delegate.lookupCount);
+    assertEquals(2, dns.missCount());
+  }
+
+  @Test
+  public void lookup_whenLookupFails_thenDoesNotCacheFailure() throws Exception {
+
+    // Given
+    delegate.fail = true;
+    try {
+      dns.lookup(HOSTNAME);
+    } catch (UnknownHostException ex) {
+      // Expected.
+    }
+    delegate.fail = false;
+
+    // When
+    List<InetAddress> addresses = dns.lookup(HOSTNAME);
+
+    // Then
+    assertSame(delegate.addresses, addresses);
+    assertEquals(2, delegate.lookupCount);
+  }
+
+  @Test
+  public void lookup_whenLookupFails_thenThrowsUnknownHostException() throws Exception {
+
+    // Given
+    delegate.fail = true;
+
+    // Then
+    thrown.expect(UnknownHostException.class);
+
+    // When
+    dns.lookup(HOSTNAME);
+  }
+
+  private static final class TestClock implements Clock {
+
+    long now;
+
+    @Override
+    public long elapsedMillis() {
+      return now;
+    }
+  }
+
+  private static final class TestDns implements Dns {
+
+    final List<InetAddress> addresses =
+        Collections.singletonList(InetAddress.getLoopbackAddress());
+
+    int lookupCount;
+
+    boolean fail;
+
+    @Override
+    public List<InetAddress> lookup(String hostname) throws UnknownHostException {
+      lookupCount++;
+      if (fail) {
+        throw new UnknownHostException(hostname);
+      }
+      return addresses;
+    }
+  }
+}
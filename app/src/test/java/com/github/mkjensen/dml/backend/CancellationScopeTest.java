@@ -0,0 +1,172 @@
+/*
+ * Copyright 2016 Martin Kamp Jensen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.mkjensen.dml.backend;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import okhttp3.Request;
+
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+import retrofit2.Call;
+import retrofit2.Callback;
+import retrofit2.Response;
+
+import java.io.InterruptedIOException;
+
+/**
+ * Unit tests for {@link CancellationScope}.
+ */
+public class CancellationScopeTest {
+
+  @Rule
+  public final ExpectedException thrown = ExpectedException.none();
+
+  @After
+  public void after() {
+    CancellationScope.restore(null);
+  }
+
+  @Test
+  public void cancel_whenCallsAreRegistered_thenCancelsThem() {
+
+    // Given
+    CancellationScope scope = new CancellationScope();
+    TestCall first = new TestCall();
+    TestCall second = new TestCall();
+    scope.register(first);
+    scope.register(second);
+
+    // When
+    scope.cancel();
+
+    // Then
+    assertTrue(scope.isCancelled());
+    assertTrue(first.cancelled);
+    assertTrue(second.cancelled);
+  }
+
+  @Test
+  public void cancel_whenCallIsUnregistered_thenDoesNotCancelIt() {
+
+    // Given
+    CancellationScope scope = new CancellationScope();
+    TestCall call = new TestCall();
+    scope.register(call);
+    scope.unregister(call);
+
+    // When
+    scope.cancel();
+
+    // Then
+    assertFalse(call.cancelled);
+  }
+
+  @Test
+  public void register_whenCancelled_thenCancelsCallImmediately() {
+
+    // Given
+    CancellationScope scope = new CancellationScope();
+    scope.cancel();
+    TestCall call = new TestCall();
+
+    // When
+    scope.register(call);
+
+    // Then
+    assertTrue(call.cancelled);
+  }
+
+  @Test
+  public void throwIfCancelled_whenCancelled_thenThrowsInterruptedIoException()
+      throws InterruptedIOException {
+
+    // Given
+    CancellationScope scope = new CancellationScope();
+    scope.cancel();
+
+    // When/then
+    thrown.expect(InterruptedIOException.class);
+    scope.throwIfCancelled();
+  }
+
+  @Test
+  public void enter_whenRestored_thenPreviousScopeIsCurrentAgain() {
+
+    // Given
+    CancellationScope outer = new CancellationScope();
+    CancellationScope inner = new CancellationScope();
+    CancellationScope none = CancellationScope.enter(outer);
+
+    // When
+    CancellationScope previous = CancellationScope.enter(inner);
+    CancellationScope entered = CancellationScope.current();
+    CancellationScope.restore(previous);
+
+    // Then
+    assertNull(none);
+    assertSame(inner, entered);
+    assertSame(outer, CancellationScope.current());
+  }
+
+  private static final class TestCall implements Call<Object> {
+
+    boolean cancelled;
+
+    @Override
+    public Response<Object> execute() {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void enqueue(Callback<Object> callback) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public boolean isExecuted() {
+      return false;
+    }
+
+    @Override
+    public void cancel() {
+      cancelled = true;
+    }
+
+    @Override
+    public boolean isCanceled() {
+      return cancelled;
+    }
+
+    @SuppressWarnings("CloneDoesntCallSuperClone")
+    @Override
+    public Call<Object> clone() {
+      return new TestCall();
+    }
+
+    @Override
+    public Request request() {
+      throw new UnsupportedOperationException();
+    }
+  }
+}
@@ -0,0 +1,167 @@
+/*
+ * Copyright 2016 Martin Kamp Jensen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.mkjensen.dml.backend;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.github.mkjensen.dml.util.Clock;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Unit tests for {@link CircuitBreaker}.
+ */
+public class CircuitBreakerTest {
+
+  private TestClock clock;
+
+  private CircuitBreaker circuitBreaker;
+
+  @Before
+  public void before() {
+    clock = new TestClock();
+    circuitBreaker = new CircuitBreaker(clock);
+  }
+
+  @Test
+  public void allowRequest_whenFewerFailuresThanThreshold_thenReturnsTrue() {
+
+    // Given
+    fail(CircuitBreaker.FAILURE_THRESHOLD - 1);
+
+    // When
+    boolean allowed = circuitBreaker.allowRequest();
+
+    // Then
+    assertTrue(allowed);
+    assertEquals(CircuitBreaker.State.CLOSED, circuitBreaker.getState());
+  }
+
+  @Test
+  public void allowRequest_whenFailuresReachThreshold_thenReturnsFalse() {
+
+    // Given
+    fail(CircuitBreaker.FAILURE_THRESHOLD);
+
+    // When
+    boolean allowed = circuitBreaker.allowRequest();
+
+    // Then
+    assertFalse(allowed);
+    assertEquals(CircuitBreaker.State.OPEN, circuitBreaker.getState());
+  }
+
+  @Test
+  public void allowRequest_whenFailuresOutsideWindow_thenReturnsTrue() {
+
+    // Given
+    fail(CircuitBreaker.FAILURE_THRESHOLD - 1);
+    clock.now = CircuitBreaker.WINDOW_IN_MILLISECONDS;
+    fail(1);
+
+    // When
+    boolean allowed = circuitBreaker.allowRequest();
+
+    // Then
+    assertTrue(allowed);
+  }
+
+  @Test
+  public void allowRequest_whenOpenDurationPassed_thenAllowsSingleProbe() {
+
+    // Given
+    fail(CircuitBreaker.FAILURE_THRESHOLD);
+    clock.now = CircuitBreaker.OPEN_IN_MILLISECONDS;
+
+    // When
+    boolean probeAllowed = circuitBreaker.allowRequest();
+    boolean secondAllowed = circuitBreaker.allowRequest();
+
+    // Then
+    assertTrue(probeAllowed);
+    assertFalse(secondAllowed);
+    assertEquals(CircuitBreaker.State.HALF_OPEN, circuitBreaker.getState());
+  }
+
+  @Test
+  public void onSuccess_whenProbing_thenCloses() {
+
+    // Given
+    fail(CircuitBreaker.FAILURE_THRESHOLD);
+    clock.now = CircuitBreaker.OPEN_IN_MILLISECONDS;
+    circuitBreaker.allowRequest();
+
+    // When
+    circuitBreaker.onSuccess();
+
+    // Then
+    assertEquals(CircuitBreaker.State.CLOSED, circuitBreaker.getState());
+    assertTrue(circuitBreaker.allowRequest());
+  }
+
+  @Test
+  public void onFailure_whenProbing_thenOpensAgain() {
+
+    // Given
+    fail(CircuitBreaker.FAILURE_THRESHOLD);
+    clock.now = CircuitBreaker.OPEN_IN_MILLISECONDS;
+    circuitBreaker.allowRequest();
+
+    // When
+    circuitBreaker.onFailure();
+
+    // Then
+    assertEquals(CircuitBreaker.State.OPEN, circuitBreaker.getState());
+    assertFalse(circuitBreaker.allowRequest());
+  }
+
+  @Test
+  public void onAbandoned_whenProbing_thenAllowsAnotherProbe() {
+
+    // Given
+    fail(CircuitBreaker.FAILURE_THRESHOLD);
+    clock.now = CircuitBreaker.OPEN_IN_MILLISECONDS;
+    circuitBreaker.allowRequest();
+
+    // When
+    circuitBreaker.onAbandoned();
+
+    // Then
+    assertEquals(CircuitBreaker.State.HALF_OPEN, circuitBreaker.getState());
+    assertTrue(circuitBreaker.allowRequest());
+  }
+
+  private void fail(int count) {
+    for (int i = 0; i < count; i++) {
+      circuitBreaker.allowRequest();
+      circuitBreaker.onFailure();
+    }
+  }
+
+  private static final class TestClock implements Clock {
+
+    long now;
+
+    @Override
+    public long elapsedMillis() {
+      return now;
+    }
+  }
+}
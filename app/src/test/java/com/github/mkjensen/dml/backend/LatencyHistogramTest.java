@@ -0,0 +1,107 @@
+/*
+ * Copyright 2016 Martin Kamp Jensen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.mkjensen.dml.backend;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+/**
+ * Unit tests for {@link LatencyHistogram}.
+ */
+public class LatencyHistogramTest {
+
+  @Rule
+  public final ExpectedException thrown = ExpectedException.none();
+
+  private LatencyHistogram histogram;
+
+  @Before
+  public void before() {
+    histogram = new LatencyHistogram();
+  }
+
+  @Test
+  public void getPercentile_whenNothingRecorded_thenReturnsZero() {
+
+    // When
+    long percentile = histogram.getPercentile(0.95);
+
+    // Then
+    assertEquals(0L, percentile);
+  }
+
+  @Test
+  public void getPercentile_whenRecorded_thenReturnsBoundWithinBucketGrowth() {
+
+    // Given
+    for (int i = 1; i <= 100; i++) {
+      histogram.record(i * 10L);
+    }
+
+    // When
+    long median = histogram.getPercentile(0.5);
+    long percentile95 = histogram.getPercentile(0.95);
+
+    // Then
+    assertEquals(100, histogram.count());
+    assertTrue(median >= 500L && median <= 600L);
+    assertTrue(percentile95 >= 950L && percentile95 <= 1140L);
+  }
+
+  @Test
+  public void getPercentile_whenMaximum_thenReturnsBoundOfLargestLatency() {
+
+    // Given
+    histogram.record(0L);
+    histogram.record(1L);
+    histogram.record(2L);
+
+    // When
+    long maximum = histogram.getPercentile(1.0);
+
+    // Then
+    assertEquals(2L, maximum);
+  }
+
+  @Test
+  public void record_whenBeyondLastBucket_thenCountedInLastBucket() {
+
+    // Given
+    histogram.record(Long.MAX_VALUE);
+
+    // When
+    long maximum = histogram.getPercentile(1.0);
+
+    // Then
+    assertTrue(maximum >= 60 * 1000L);
+  }
+
+  @Test
+  public void getPercentile_whenOutOfRange_thenThrowsIllegalArgumentException() {
+
+    // Then
+    thrown.expect(IllegalArgumentException.class);
+
+    // When
+    histogram.getPercentile(0.0);
+  }
+}
@@ -0,0 +1,133 @@
+/*
+ * Copyright 2016 Martin Kamp Jensen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.mkjensen.dml.backend;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import com.github.mkjensen.dml.model.Video;
+import com.github.mkjensen.dml.util.Clock;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+/**
+ * Unit tests for {@link ObjectCache}.
+ */
+public class ObjectCacheTest {
+
+  private static final int MAX_SIZE_IN_BYTES = 1024;
+
+  @Rule
+  public final ExpectedException thrown = ExpectedException.none();
+
+  private TestClock clock;
+
+  private ObjectCache cache;
+
+  @Before
+  public void before() {
+    clock = new TestClock();
+    cache = new ObjectCache(MAX_SIZE_IN_BYTES, clock);
+  }
+
+  @Test
+  public void get_whenNothingCached_thenReturnsNullAndCountsMiss() {
+
+    // When
+    Object value = cache.get("key");
+
+    // Then
+    assertNull(value);
+    assertEquals(0, cache.hitCount());
+    assertEquals(1, cache.missCount());
+  }
+
+  @Test
+  public void get_whenCachedAndNotExpired_thenReturnsValueAndCountsHit() {
+
+    // Given
+    Video video = new Video();
+    cache.put("key", video, 10L);
+    clock.now = 9L;
+
+    // When
+    Video cached = cache.get("key");
+
+    // Then
+    assertSame(video, cached);
+    assertEquals(1, cache.hitCount());
+    assertEquals(0, cache.missCount());
+  }
+
+  @Test
+  public void get_whenCachedAndExpired_thenReturnsNullAndCountsExpiredMiss() {
+
+    // Given
+    cache.put("key", new Video(), 10L);
+    clock.now = 10L;
+
+    // When
+    Object cached = cache.get("key");
+
+    // Then
+    assertNull(cached);
+    assertEquals(1, cache.missCount());
+    assertEquals(1, cache.expiredCount());
+  }
+
+  @Test
+  public void put_whenMaxSizeExceeded_thenLeastRecentlyUsedIsEvicted() {
+
+    // Given (each entry takes up a little less than half the maximum size)
+    String largeString = new String(new char[MAX_SIZE_IN_BYTES / 5]);
+    cache.put("first", largeString, 10L);
+    cache.put("second", largeString, 10L);
+    cache.get("first");
+
+    // When
+    cache.put("third", largeString, 10L);
+
+    // Then
+    assertSame(largeString, cache.get("first"));
+    assertNull(cache.get("second"));
+    assertSame(largeString, cache.get("third"));
+    assertEquals(1, cache.evictionCount());
+  }
+
+  @Test
+  public void put_whenNullValue_thenIllegalArgumentExceptionIsThrown() {
+
+    // When/then
+    thrown.expect(IllegalArgumentException.class);
+    //noinspection ConstantConditions
+    cache.put("key", null, 10L);
+  }
+
+  private static final class TestClock implements Clock {
+
+    long now;
+
+    @Override
+    public long elapsedMillis() {
+      return now;
+    }
+  }
+}
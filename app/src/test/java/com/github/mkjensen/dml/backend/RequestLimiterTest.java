@@ -0,0 +1,137 @@
+/*
+ * Copyright 2016 Martin Kamp Jensen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.mkjensen.dml.backend;
+
+import static org.junit.Assert.assertEquals;
+
+import okhttp3.Connection;
+import okhttp3.Interceptor;
+import okhttp3.MediaType;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+
+/**
+ * Unit tests for {@link RequestLimiter}.
+ */
+public class RequestLimiterTest {
+
+  @Rule
+  public final ExpectedException thrown = ExpectedException.none();
+
+  @Test
+  public void intercept_whenBodyNotClosed_thenPermitIsHeldUntilClosed() throws IOException {
+
+    // Given
+    RequestLimiter limiter = new RequestLimiter(2);
+
+    // When
+    Response response = limiter.intercept(new TestChain(null));
+
+    // Then
+    assertEquals(1, limiter.availablePermits());
+    response.body().close();
+    assertEquals(2, limiter.availablePermits());
+    response.body().close();
+    assertEquals(2, limiter.availablePermits());
+  }
+
+  @Test
+  public void intercept_whenRequestFails_thenPermitIsReleased() throws IOException {
+
+    // Given
+    RequestLimiter limiter = new RequestLimiter(1);
+
+    // When
+    try {
+      limiter.intercept(new TestChain(new IOException()));
+    } catch (IOException ex) {
+      // Expected.
+    }
+
+    // Then
+    assertEquals(1, limiter.availablePermits());
+  }
+
+  @Test
+  public void intercept_whenInterruptedWhileWaiting_thenInterruptedIoExceptionIsThrown()
+      throws IOException {
+
+    // Given
+    RequestLimiter limiter = new RequestLimiter(1);
+    limiter.intercept(new TestChain(null));
+    Thread.currentThread().interrupt();
+
+    // When/then
+    thrown.expect(InterruptedIOException.class);
+    try {
+      limiter.intercept(new TestChain(null));
+    } finally {
+      Thread.interrupted();
+    }
+  }
+
+  @Test
+  public void constructor_whenZeroMaxRequests_thenIllegalArgumentExceptionIsThrown() {
+
+    // When/then
+    thrown.expect(IllegalArgumentException.class);
+    new RequestLimiter(0);
+  }
+
+  private static final class TestChain implements Interceptor.Chain {
+
+    private final Request request = new Request.Builder().url("http://test.com/").build();
+
+    private final IOException failure;
+
+    TestChain(IOException failure) {
+      this.failure = failure;
+    }
+
+    @Override
+    public Request request() {
+      return request;
+    }
+
+    @Override
+    public Response proceed(Request request) throws IOException {
+      if (failure != null) {
+        throw failure;
+      }
+      return new Response.Builder()
+          .request(request)
+          .protocol(Protocol.HTTP_1_1)
+          .code(200)
+          .body(ResponseBody.create(MediaType.parse("application/json"), "{}"))
+          .build();
+    }
+
+    @Override
+    public Connection connection() {
+      return null;
+    }
+  }
+}
@@ -0,0 +1,196 @@
+/*
+ * Copyright 2016 Martin Kamp Jensen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.mkjensen.dml.backend;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+
+import com.github.mkjensen.dml.model.Category;
+import com.github.mkjensen.dml.model.Video;
+import com.github.mkjensen.dml.util.Clock;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+
+/**
+ * Unit tests for {@link SearchResultCache}.
+ */
+public class SearchResultCacheTest {
+
+  private TestClock clock;
+
+  private SearchResultCache cache;
+
+  @Before
+  public void before() {
+    clock = new TestClock();
+    cache = new SearchResultCache(2, 10L, clock);
+  }
+
+  @Test
+  public void get_whenQueryDiffersInCaseAndSpacing_thenReturnsCachedResults() {
+
+    // Given
+    Category results = createCategory(createVideo("1", "Bonder\u00f8ven"));
+    cache.put("Bonder\u00f8ven", results, true);
+
+    // When
+    Category cached = cache.get("  bonderoeven ");
+
+    // Then
+    assertEquals(results, cached);
+    assertNotSame(results, cached);
+    assertEquals(1, cache.hitCount());
+  }
+
+  @Test
+  public void get_whenPrefixResultsAreComplete_thenNarrowsThem() {
+
+    // Given
+    cache.put("bo", createCategory(createVideo("1", "Bonder\u00f8ven"),
+        createVideo("2", "Borgen"), createVideo("3", "Robotter")), true);
+
+    // When
+    Category narrowed = cache.get("bor");
+
+    // Then
+    assertEquals(1, narrowed.getVideos().size());
+    assertEquals("2", narrowed.getVideos().get(0).getId());
+    assertEquals(1, narrowed.getTotalSize());
+    assertEquals("bor", narrowed.getTitle());
+    assertEquals(1, cache.narrowedCount());
+  }
+
+  @Test
+  public void get_whenQueryHasSeveralWords_thenNarrowsToTitlesContainingEach() {
+
+    // Given
+    cache.put("s", createCategory(createVideo("1", "Det s\u00f8de liv"),
+        createVideo("2", "S\u00f8ren Ryge"), createVideo("3", "Livets skole")), true);
+
+    // When
+    Category narrowed = cache.get("s\u00f8 liv");
+
+    // Then
+    assertEquals(1, narrowed.getVideos().size());
+    assertEquals("1", narrowed.getVideos().get(0).getId());
+  }
+
+  @Test
+  public void get_whenPrefixResultsMatchedOtherFields_thenReturnsNull() {
+
+    // Given
+    cache.put("bo", createCategory(createVideo("1", "Borgen"), createVideo("2", "Matador")), true);
+
+    // When
+    Category cached = cache.get("bor");
+
+    // Then
+    assertNull(cached);
+    assertEquals(0, cache.narrowedCount());
+    assertEquals(1, cache.missCount());
+  }
+
+  @Test
+  public void get_whenPrefixResultsAreIncomplete_thenReturnsNull() {
+
+    // Given
+    cache.put("bo", createCategory(createVideo("1", "Borgen")), false);
+
+    // When
+    Category cached = cache.get("bor");
+
+    // Then
+    assertNull(cached);
+    assertEquals(1, cache.missCount());
+  }
+
+  @Test
+  public void get_whenExpired_thenReturnsNull() {
+
+    // Given
+    cache.put("borgen", createCategory(createVideo("1", "Borgen")), true);
+    clock.now = 10L;
+
+    // When
+    Category cached = cache.get("borgen");
+
+    // Then
+    assertNull(cached);
+  }
+
+  @Test
+  public void get_whenNarrowed_thenCachesNarrowedResults() {
+
+    // Given
+    cache.put("bo", createCategory(createVideo("1", "Borgen")), true);
+    Category narrowed = cache.get("borg");
+
+    // When
+    Category cached = cache.get("borg");
+
+    // Then
+    assertEquals(narrowed, cached);
+    assertEquals(1, cache.hitCount());
+    assertEquals(1, cache.narrowedCount());
+  }
+
+  @Test
+  public void get_whenReturnedResultsAreModified_thenCachedResultsAreUnchanged() {
+
+    // Given
+    Category results = createCategory(createVideo("1", "Borgen"));
+    cache.put("borgen", results, true);
+    results.setVideos(Arrays.asList(createVideo("2", "Matador")));
+    cache.get("borgen").setVideos(Arrays.asList(createVideo("3", "Matador")));
+
+    // When
+    Category cached = cache.get("borgen");
+
+    // Then
+    assertEquals(1, cached.getVideos().size());
+    assertEquals("1", cached.getVideos().get(0).getId());
+  }
+
+  private static Category createCategory(Video... videos) {
+    Category category = new Category();
+    category.setTitle("search");
+    category.setVideos(Arrays.asList(videos));
+    category.setTotalSize(videos.length);
+    return category;
+  }
+
+  private static Video createVideo(String id, String title) {
+    Video video = new Video();
+    video.setId(id);
+    video.setTitle(title);
+    return video;
+  }
+
+  private static final class TestClock implements Clock {
+
+    long now;
+
+    @Override
+    public long elapsedMillis() {
+      return now;
+    }
+  }
+}
@@ -0,0 +1,251 @@
+/*
+ * Copyright 2016 Martin Kamp Jensen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.mkjensen.dml.backend;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Unit tests for {@link SingleFlight}.
+ */
+public class SingleFlightTest {
+
+  @Rule
+  public final ExpectedException thrown = ExpectedException.none();
+
+  private SingleFlight singleFlight;
+
+  @Before
+  public void before() {
+    singleFlight = new SingleFlight();
+  }
+
+  @Test
+  public void execute_whenCalledSequentially_thenEachTaskIsExecuted() throws IOException {
+
+    // Given
+    AtomicInteger executions = new AtomicInteger();
+
+    // When
+    singleFlight.execute("key", new CountingTask(executions));
+    singleFlight.execute("key", new CountingTask(executions));
+
+    // Then
+    assertEquals(2, executions.get());
+    assertEquals(2, singleFlight.getExecutedCount());
+    assertEquals(0, singleFlight.getCoalescedCount());
+  }
+
+  @Test
+  public void execute_whenCalledConcurrentlyWithSameKey_thenTaskIsExecutedOnce() throws Exception {
+
+    // Given
+    final CountDownLatch leaderStarted = new CountDownLatch(1);
+    final CountDownLatch releaseLeader = new CountDownLatch(1);
+    final Object result = new Object();
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    try {
+      Future<Object> leader = executor.submit(new Callable<Object>() {
+        @Override
+        public Object call() throws IOException {
+          return singleFlight.execute("key", new Callable<Object>() {
+            @Override
+            public Object call() throws InterruptedException {
+              leaderStarted.countDown();
+              releaseLeader.await();
+              return result;
+            }
+          });
+        }
+      });
+      leaderStarted.await();
+      Thread waiterThread = new Thread(new Runnable() {
+        @Override
+        public void run() {
+          while (singleFlight.getCoalescedCount() == 0) {
+            Thread.yield();
+          }
+          releaseLeader.countDown();
+        }
+      });
+      waiterThread.start();
+
+      // When
+      Object waiterResult = singleFlight.execute("key", new Callable<Object>() {
+        @Override
+        public Object call() {
+          throw new AssertionError("Coalesced task must not be executed");
+        }
+      });
+
+      // Then
+      assertSame(result, waiterResult);
+      assertSame(result, leader.get());
+      assertEquals(1, singleFlight.getExecutedCount());
+      assertEquals(1, singleFlight.getCoalescedCount());
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  @Test
+  public void execute_whenOnlyLeaderScopeCancelled_thenWaiterExecutesItsOwnTask()
+      throws Exception {
+
+    // Given
+    CancellationScope leaderScope = new CancellationScope();
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    try {
+      Future<Object> leader = startCancellableLeader(executor, leaderScope, null);
+
+      // When
+      Object waiterResult = singleFlight.execute("key", new Callable<Object>() {
+        @Override
+        public Object call() {
+          return "waiter";
+        }
+      });
+
+      // Then
+      assertEquals("waiter", waiterResult);
+      assertEquals(2, singleFlight.getExecutedCount());
+      assertEquals(0, singleFlight.getCoalescedCount());
+      thrown.expect(ExecutionException.class);
+      leader.get();
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  @Test
+  public void execute_whenLeaderAndWaiterScopesCancelled_thenWaiterFails() throws Exception {
+
+    // Given
+    CancellationScope leaderScope = new CancellationScope();
+    CancellationScope waiterScope = new CancellationScope();
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    CancellationScope previous = CancellationScope.enter(waiterScope);
+    try {
+      startCancellableLeader(executor, leaderScope, waiterScope);
+
+      // When/then
+      thrown.expect(InterruptedIOException.class);
+      singleFlight.execute("key", new Callable<Object>() {
+        @Override
+        public Object call() {
+          throw new AssertionError("Cancelled waiter must not execute its task");
+        }
+      });
+    } finally {
+      CancellationScope.restore(previous);
+      executor.shutdownNow();
+    }
+  }
+
+  @Test
+  public void execute_whenTaskThrowsIoException_thenIoExceptionIsThrown() throws IOException {
+
+    // When/then
+    thrown.expect(IOException.class);
+    singleFlight.execute("key", new Callable<Object>() {
+      @Override
+      public Object call() throws IOException {
+        throw new IOException();
+      }
+    });
+  }
+
+  @Test
+  public void execute_whenNullKey_thenIllegalArgumentExceptionIsThrown() throws IOException {
+
+    // When/then
+    thrown.expect(IllegalArgumentException.class);
+    //noinspection ConstantConditions
+    singleFlight.execute(null, new CountingTask(new AtomicInteger()));
+  }
+
+  /**
+   * Starts a leader in the specified scope whose task fails once the scope is cancelled, which
+   * happens, along with cancelling the specified waiter scope, once a waiter has joined it.
+   */
+  private Future<Object> startCancellableLeader(ExecutorService executor,
+                                                final CancellationScope leaderScope,
+                                                final CancellationScope waiterScope)
+      throws InterruptedException {
+    final CountDownLatch leaderStarted = new CountDownLatch(1);
+    final CountDownLatch releaseLeader = new CountDownLatch(1);
+    Future<Object> leader = executor.submit(new Callable<Object>() {
+      @Override
+      public Object call() throws IOException {
+        CancellationScope.enter(leaderScope);
+        return singleFlight.execute("key", new Callable<Object>() {
+          @Override
+          public Object call() throws InterruptedException, IOException {
+            leaderStarted.countDown();
+            releaseLeader.await();
+            leaderScope.throwIfCancelled();
+            return "leader";
+          }
+        });
+      }
+    });
+    leaderStarted.await();
+    new Thread(new Runnable() {
+      @Override
+      public void run() {
+        while (singleFlight.getCoalescedCount() == 0) {
+          Thread.yield();
+        }
+        leaderScope.cancel();
+        if (waiterScope != null) {
+          waiterScope.cancel();
+        }
+        releaseLeader.countDown();
+      }
+    }).start();
+    return leader;
+  }
+
+  private static final class CountingTask implements Callable<Integer> {
+
+    private final AtomicInteger executions;
+
+    CountingTask(AtomicInteger executions) {
+      this.executions = executions;
+    }
+
+    @Override
+    public Integer call() {
+      return executions.incrementAndGet();
+    }
+  }
+}
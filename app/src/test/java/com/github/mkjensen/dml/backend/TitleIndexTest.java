@@ -0,0 +1,228 @@
+/*
+ * Copyright 2016 Martin Kamp Jensen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.mkjensen.dml.backend;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.github.mkjensen.dml.model.Video;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Unit tests for {@link TitleIndex}.
+ */
+public class TitleIndexTest {
+
+  @Rule
+  public final ExpectedException thrown = ExpectedException.none();
+
+  private TitleIndex index;
+
+  @Before
+  public void before() {
+    index = new TitleIndex();
+  }
+
+  @Test
+  public void fold_whenDanishLettersAndAccents_thenSpellsOutAndRemovesThem() {
+
+    // When
+    String folded = TitleIndex.fold("  \u00c6r\u00f8, \u00c5benr\u00e5 & Caf\u00e9-S\u00f8ndag! ");
+
+    // Then
+    assertEquals("aeroe aabenraa cafe soendag", folded);
+  }
+
+  @Test
+  public void search_whenQueryIsPrefixOfWord_thenReturnsVideo() {
+
+    // Given
+    index.add(createVideo("1", "Bonder\u00f8ven"));
+    index.add(createVideo("2", "Det s\u00f8de liv"));
+
+    // When
+    List<Video> videos = index.search("bonder", 10);
+
+    // Then
+    assertEquals(1, videos.size());
+    assertEquals("1", videos.get(0).getId());
+  }
+
+  @Test
+  public void search_whenQueryUsesSpelledOutDanishLetters_thenReturnsVideo() {
+
+    // Given
+    index.add(createVideo("1", "\u00c5lborg i dag"));
+
+    // When
+    List<Video> videos = index.search("aalb", 10);
+
+    // Then
+    assertEquals(1, videos.size());
+  }
+
+  @Test
+  public void search_whenSeveralWords_thenRequiresAllOfThem() {
+
+    // Given
+    index.addAll(Arrays.asList(createVideo("1", "Sporl\u00f8s p\u00e5 Fyn"),
+        createVideo("2", "Sporl\u00f8s"), createVideo("3", "Fynske ord")));
+
+    // When
+    List<Video> videos = index.search("fyn spor", 10);
+
+    // Then
+    assertEquals(1, videos.size());
+    assertEquals("1", videos.get(0).getId());
+  }
+
+  @Test
+  public void search_whenTitleStartsWithQuery_thenReturnsItFirst() {
+
+    // Given
+    index.addAll(Arrays.asList(createVideo("1", "Aftenshowet"), createVideo("2", "Hammerslag"),
+        createVideo("3", "Store ham")));
+
+    // When
+    List<Video> videos = index.search("ham", 10);
+
+    // Then
+    assertEquals(2, videos.size());
+    assertEquals("2", videos.get(0).getId());
+    assertEquals("3", videos.get(1).getId());
+  }
+
+  @Test
+  public void search_whenMoreMatchesThanLimit_thenReturnsLimit() {
+
+    // Given
+    for (int i = 0; i < 10; i++) {
+      index.add(createVideo(String.valueOf(i), "Nyheder " + i));
+    }
+
+    // When
+    List<Video> videos = index.search("nyh", 3);
+
+    // Then
+    assertEquals(3, videos.size());
+  }
+
+  @Test
+  public void search_whenVideoIsReAddedWithNewTitle_thenOldTitleIsForgotten() {
+
+    // Given
+    index.add(createVideo("1", "Gammel titel"));
+    index.add(createVideo("1", "Ny titel"));
+
+    // When
+    List<Video> old = index.search("gammel", 10);
+    List<Video> current = index.search("ny", 10);
+
+    // Then
+    assertTrue(old.isEmpty());
+    assertEquals(1, current.size());
+    assertEquals(1, index.size());
+  }
+
+  @Test
+  public void addAll_whenMoreVideosThanFitInOneChunk_thenAddsAllOfThem() {
+
+    // Given
+    List<Video> videos = new ArrayList<>();
+    for (int i = 0; i < 1000; i++) {
+      videos.add(createVideo(String.valueOf(i), "Program " + i));
+    }
+
+    // When
+    index.addAll(videos);
+
+    // Then
+    assertEquals(1000, index.size());
+    assertEquals("999", index.search("program 999", 1).get(0).getId());
+  }
+
+  @Test
+  public void search_whenQueryHasNoLettersOrDigits_thenReturnsNothing() {
+
+    // Given
+    index.add(createVideo("1", "Title"));
+
+    // When
+    List<Video> videos = index.search(" - ", 10);
+
+    // Then
+    assertTrue(videos.isEmpty());
+  }
+
+  @Test
+  public void search_whenLimitIsNegative_thenThrowsIllegalArgumentException() {
+
+    // When/then
+    thrown.expect(IllegalArgumentException.class);
+    index.search("query", -1);
+  }
+
+  @Test
+  public void search_whenManyTitles_thenScansBoundedNumberOfEntries() {
+
+    // Given
+    for (int i = 0; i < 50000; i++) {
+      index.add(createVideo(String.valueOf(i), "Program nummer " + i));
+    }
+    long scannedBefore = index.getScannedCount();
+
+    // When
+    List<Video> videos = index.search("nummer 4", 20);
+
+    // Then
+    assertEquals(20, videos.size());
+    long scanned = index.getScannedCount() - scannedBefore;
+    assertTrue(scanned <= TitleIndex.MAX_SCANNED_ENTRIES + 2 * TitleIndex.MAX_COUNTED_ENTRIES);
+  }
+
+  @Test
+  public void search_whenCommonWordsRarelyOccurTogether_thenStopsAtScanLimit() {
+
+    // Given
+    for (int i = 0; i < 50000; i++) {
+      index.add(createVideo(String.valueOf(i), (i % 2 == 0 ? "Alfa " : "Beta ") + i));
+    }
+    long scannedBefore = index.getScannedCount();
+
+    // When
+    index.search("alfa beta", 20);
+
+    // Then
+    long scanned = index.getScannedCount() - scannedBefore;
+    assertTrue(scanned <= TitleIndex.MAX_SCANNED_ENTRIES + 2 * TitleIndex.MAX_COUNTED_ENTRIES);
+  }
+
+  private static Video createVideo(String id, String title) {
+    Video video = new Video();
+    video.setId(id);
+    video.setTitle(title);
+    return video;
+  }
+}
@@ -0,0 +1,141 @@
+/*
+ * Copyright 2016 Martin Kamp Jensen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.mkjensen.dml.backend;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.github.mkjensen.dml.util.Clock;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+/**
+ * Unit tests for {@link TokenBucket}.
+ */
+public class TokenBucketTest {
+
+  @Rule
+  public final ExpectedException thrown = ExpectedException.none();
+
+  private TestClock clock;
+
+  private TokenBucket bucket;
+
+  @Before
+  public void before() {
+    clock = new TestClock();
+    bucket = new TokenBucket(2, 100L, clock);
+  }
+
+  @Test
+  public void tryAcquire_whenFull_thenAllowsBurst() {
+
+    // When
+    boolean first = bucket.tryAcquire();
+    boolean second = bucket.tryAcquire();
+    boolean third = bucket.tryAcquire();
+
+    // Then
+    assertTrue(first);
+    assertTrue(second);
+    assertFalse(third);
+  }
+
+  @Test
+  public void tryAcquire_whenRefillIntervalHasPassed_thenAllowsOneMore() {
+
+    // Given
+    bucket.tryAcquire();
+    bucket.tryAcquire();
+    clock.now = 100L;
+
+    // When
+    boolean first = bucket.tryAcquire();
+    boolean second = bucket.tryAcquire();
+
+    // Then
+    assertTrue(first);
+    assertFalse(second);
+  }
+
+  @Test
+  public void tryAcquire_whenIdleForLong_thenDoesNotExceedCapacity() {
+
+    // Given
+    bucket.tryAcquire();
+    clock.now = 10000L;
+
+    // When
+    boolean first = bucket.tryAcquire();
+    boolean second = bucket.tryAcquire();
+    boolean third = bucket.tryAcquire();
+
+    // Then
+    assertTrue(first);
+    assertTrue(second);
+    assertFalse(third);
+  }
+
+  @Test
+  public void getWaitInMilliseconds_whenEmpty_thenReturnsTimeUntilRefill() {
+
+    // Given
+    bucket.tryAcquire();
+    bucket.tryAcquire();
+    clock.now = 30L;
+
+    // When
+    long wait = bucket.getWaitInMilliseconds();
+
+    // Then
+    assertEquals(70L, wait);
+  }
+
+  @Test
+  public void getWaitInMilliseconds_whenTokenAvailable_thenReturnsZero() {
+
+    // When
+    long wait = bucket.getWaitInMilliseconds();
+
+    // Then
+    assertEquals(0L, wait);
+  }
+
+  @Test
+  public void constructor_whenCapacityIsNotPositive_thenThrowsException() {
+
+    // Then
+    thrown.expect(IllegalArgumentException.class);
+
+    // When
+    new TokenBucket(0, 100L, clock);
+  }
+
+  private static final class TestClock implements Clock {
+
+    long now;
+
+    @Override
+    public long elapsedMillis() {
+      return now;
+    }
+  }
+}
@@ -0,0 +1,246 @@
+/*
+ * Copyright 2016 Martin Kamp Jensen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.mkjensen.dml.backend;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import com.github.mkjensen.dml.model.Video;
+import com.github.mkjensen.dml.util.Clock;
+
+import okhttp3.Headers;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+import java.io.IOException;
+
+/**
+ * Unit tests for {@link ValidatorCache}.
+ */
+public class ValidatorCacheTest {
+
+  private static final int MAX_SIZE_IN_BYTES = 1024;
+
+  private static final int OK = 200;
+
+  private static final int NOT_MODIFIED = 304;
+
+  private static final String ENTITY_TAG = "\"abc\"";
+
+  private static final Headers NO_HEADERS = Headers.of();
+
+  @Rule
+  public final ExpectedException thrown = ExpectedException.none();
+
+  private TestClock clock;
+
+  private ObjectCache objectCache;
+
+  private ValidatorCache cache;
+
+  @Before
+  public void before() {
+    clock = new TestClock();
+    objectCache = new ObjectCache(MAX_SIZE_IN_BYTES, clock);
+    cache = new ValidatorCache(objectCache);
+  }
+
+  @Test
+  public void get_whenNeverPut_thenReturnsNone() {
+
+    // When/then
+    assertSame(Validators.NONE, cache.get("key"));
+  }
+
+  @Test
+  public void get_whenPutWithEntityTagAndExpired_thenReturnsEntityTag() {
+
+    // Given
+    cache.put("key", new Video(), 10L, true, OK, Headers.of("ETag", ENTITY_TAG));
+    clock.now = 10L;
+
+    // When
+    Validators validators = cache.get("key");
+
+    // Then
+    assertEquals(ENTITY_TAG, validators.getIfNoneMatch());
+  }
+
+  @Test
+  public void get_whenPutWithoutRevalidation_thenReturnsNone() {
+
+    // Given
+    cache.put("key", new Video(), 10L, false, OK, Headers.of("ETag", ENTITY_TAG));
+
+    // When/then
+    assertSame(Validators.NONE, cache.get("key"));
+  }
+
+  @Test
+  public void get_whenObjectEvicted_thenReturnsNone() {
+
+    // Given
+    cache.put("key", new Video(), 10L, true, OK, Headers.of("ETag", ENTITY_TAG));
+    objectCache.remove("key");
+
+    // When/then
+    assertSame(Validators.NONE, cache.get("key"));
+  }
+
+  @Test
+  public void put_whenNotModifiedWithoutValidators_thenKeepsValidatorsThatWereSent() {
+
+    // Given
+    cache.put("key", new Video(), 10L, true, OK, Headers.of("ETag", ENTITY_TAG));
+
+    // When
+    cache.put("key", new Video(), 10L, true, NOT_MODIFIED, NO_HEADERS);
+
+    // Then
+    assertEquals(ENTITY_TAG, cache.get("key").getIfNoneMatch());
+  }
+
+  @Test
+  public void put_whenOkWithoutValidators_thenRemovesValidators() {
+
+    // Given
+    cache.put("key", new Video(), 10L, true, OK, Headers.of("ETag", ENTITY_TAG));
+
+    // When
+    cache.put("key", new Video(), 10L, true, OK, NO_HEADERS);
+
+    // Then
+    assertSame(Validators.NONE, cache.get("key"));
+  }
+
+  @Test
+  public void put_whenNotModifiedWithNewValidators_thenReplacesValidators() {
+
+    // Given
+    cache.put("key", new Video(), 10L, true, OK, Headers.of("ETag", ENTITY_TAG));
+
+    // When
+    cache.put("key", new Video(), 10L, true, NOT_MODIFIED, Headers.of("ETag", "\"def\""));
+
+    // Then
+    assertEquals("\"def\"", cache.get("key").getIfNoneMatch());
+  }
+
+  @Test
+  public void getNotModified_whenOk_thenReturnsNull() throws IOException {
+
+    // Given
+    cache.put("key", new Video(), 10L, true, OK, Headers.of("ETag", ENTITY_TAG));
+
+    // When
+    Video result = cache.getNotModified("key", OK, new TestFallback<Video>(null));
+
+    // Then
+    assertNull(result);
+    assertEquals(0, cache.getNotModifiedCount());
+  }
+
+  @Test
+  public void getNotModified_whenNotModifiedAndExpired_thenReturnsStaleObjectAndCounts()
+      throws IOException {
+
+    // Given
+    Video video = new Video();
+    cache.put("key", video, 10L, true, OK, Headers.of("ETag", ENTITY_TAG));
+    clock.now = 10L;
+    TestFallback<Video> fallback = new TestFallback<>(new Video());
+
+    // When
+    Video result = cache.getNotModified("key", NOT_MODIFIED, fallback);
+
+    // Then
+    assertSame(video, result);
+    assertEquals(0, fallback.readCount);
+    assertEquals(1, cache.getNotModifiedCount());
+  }
+
+  @Test
+  public void getNotModified_whenNotModifiedAndEvicted_thenReturnsObjectFromFallback()
+      throws IOException {
+
+    // Given
+    cache.put("key", new Video(), 10L, true, OK, Headers.of("ETag", ENTITY_TAG));
+    objectCache.remove("key");
+    Video stored = new Video();
+    TestFallback<Video> fallback = new TestFallback<>(stored);
+
+    // When
+    Video result = cache.getNotModified("key", NOT_MODIFIED, fallback);
+
+    // Then
+    assertSame(stored, result);
+    assertEquals(1, fallback.readCount);
+    assertEquals(1, cache.getNotModifiedCount());
+  }
+
+  @Test
+  public void getNotModified_whenNotModifiedAndNotAvailable_thenIoExceptionIsThrown()
+      throws IOException {
+
+    // When/then
+    thrown.expect(IOException.class);
+    cache.getNotModified("key", NOT_MODIFIED, new TestFallback<Video>(null));
+  }
+
+  @Test
+  public void constructor_whenNullObjectCache_thenIllegalArgumentExceptionIsThrown() {
+
+    // Given
+    ObjectCache objectCache = null;
+
+    // When/then
+    thrown.expect(IllegalArgumentException.class);
+    //noinspection ConstantConditions
+    new ValidatorCache(objectCache);
+  }
+
+  private static final class TestClock implements Clock {
+
+    long now;
+
+    @Override
+    public long elapsedMillis() {
+      return now;
+    }
+  }
+
+  private static final class TestFallback<T> implements ValidatorCache.Fallback<T> {
+
+    private final T result;
+
+    int readCount;
+
+    TestFallback(T result) {
+      this.result = result;
+    }
+
+    @Override
+    public T read() {
+      readCount++;
+      return result;
+    }
+  }
+}
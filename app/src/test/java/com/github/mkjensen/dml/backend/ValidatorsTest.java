@@ -0,0 +1,92 @@
+/*
+ * Copyright 2016 Martin Kamp Jensen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.mkjensen.dml.backend;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import okhttp3.Headers;
+
+import org.junit.Test;
+
+/**
+ * Unit tests for {@link Validators}.
+ */
+public class ValidatorsTest {
+
+  private static final String ENTITY_TAG = "\"abc\"";
+
+  private static final String LAST_MODIFIED = "Wed, 21 Oct 2015 07:28:00 GMT";
+
+  @Test
+  public void from_whenNoValidatorHeaders_thenReturnsNone() {
+
+    // When
+    Validators validators = Validators.from(Headers.of("Content-Type", "application/json"));
+
+    // Then
+    assertSame(Validators.NONE, validators);
+    assertNull(validators.getIfNoneMatch());
+    assertNull(validators.getIfModifiedSince());
+  }
+
+  @Test
+  public void from_whenEntityTag_thenIfNoneMatchIsEntityTag() {
+
+    // When
+    Validators validators = Validators.from(Headers.of("ETag", ENTITY_TAG));
+
+    // Then
+    assertEquals(ENTITY_TAG, validators.getIfNoneMatch());
+    assertNull(validators.getIfModifiedSince());
+  }
+
+  @Test
+  public void from_whenLastModified_thenIfModifiedSinceIsLastModified() {
+
+    // When
+    Validators validators = Validators.from(Headers.of("Last-Modified", LAST_MODIFIED));
+
+    // Then
+    assertNull(validators.getIfNoneMatch());
+    assertEquals(LAST_MODIFIED, validators.getIfModifiedSince());
+  }
+
+  @Test
+  public void from_whenEntityTagAndLastModified_thenOnlyEntityTagIsSent() {
+
+    // When
+    Validators validators =
+        Validators.from(Headers.of("ETag", ENTITY_TAG, "Last-Modified", LAST_MODIFIED));
+
+    // Then
+    assertEquals(ENTITY_TAG, validators.getIfNoneMatch());
+    assertNull(validators.getIfModifiedSince());
+  }
+
+  @Test
+  public void from_whenHeaderNamesInLowerCase_thenValidatorsAreFound() {
+
+    // When
+    Validators validators =
+        Validators.from(Headers.of("etag", ENTITY_TAG, "last-modified", LAST_MODIFIED));
+
+    // Then
+    assertEquals(ENTITY_TAG, validators.getIfNoneMatch());
+  }
+}
@@ -0,0 +1,245 @@
+/*
+ * Copyright 2016 Martin Kamp Jensen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.mkjensen.dml.backend.loader;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Unit tests for {@link FanOut}.
+ */
+public class FanOutTest {
+
+  private static final long DEADLINE_IN_MILLISECONDS = 500L;
+
+  private static final long TIMEOUT_IN_MILLISECONDS = 5000L;
+
+  @Rule
+  public final ExpectedException thrown = ExpectedException.none();
+
+  @Test
+  public void invokeAll_whenOneTaskPassesDeadline_thenOnlyThatTaskIsCancelled() throws Exception {
+
+    // Given
+    FanOut fanOut = new FanOut(3, "test");
+    CountDownLatch release = new CountDownLatch(1);
+    BlockingTask slow = new BlockingTask(release);
+    List<Callable<String>> tasks = Arrays.<Callable<String>>asList(new ValueTask("new"), slow,
+        new ValueTask("most viewed"));
+
+    // When
+    long start = System.nanoTime();
+    List<Future<String>> futures = fanOut.invokeAll(tasks, DEADLINE_IN_MILLISECONDS);
+    long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+    // Then
+    assertEquals("new", futures.get(0).get());
+    assertTrue(futures.get(1).isCancelled());
+    assertEquals("most viewed", futures.get(2).get());
+    assertTrue(elapsed >= DEADLINE_IN_MILLISECONDS);
+    assertTrue(elapsed < TIMEOUT_IN_MILLISECONDS);
+    assertTrue(slow.interrupted.await(TIMEOUT_IN_MILLISECONDS, TimeUnit.MILLISECONDS));
+  }
+
+  @Test
+  public void invokeAll_whenTaskWaitsForThread_thenDeadlineCountsFromStart() throws Exception {
+
+    // Given (each task takes more than half the deadline, so they cannot both run within it)
+    FanOut fanOut = new FanOut(1, "test");
+    long sleep = DEADLINE_IN_MILLISECONDS * 3 / 5;
+    List<Callable<String>> tasks = Arrays.<Callable<String>>asList(
+        new SleepingTask("new", sleep), new SleepingTask("recommended", sleep));
+
+    // When
+    List<Future<String>> futures = fanOut.invokeAll(tasks, DEADLINE_IN_MILLISECONDS);
+
+    // Then
+    assertEquals("new", futures.get(0).get());
+    assertEquals("recommended", futures.get(1).get());
+  }
+
+  @Test
+  public void invokeAll_whenGroupsOverlap_thenThreadsAreShared() throws Exception {
+
+    // Given (another group occupies one of the two threads until released)
+    final FanOut fanOut = new FanOut(2, "test");
+    final CountDownLatch release = new CountDownLatch(1);
+    final BlockingTask busy = new BlockingTask(release);
+    Thread other = new Thread(new Runnable() {
+      @Override
+      public void run() {
+        try {
+          fanOut.invokeAll(Collections.<Callable<String>>singletonList(busy),
+              TIMEOUT_IN_MILLISECONDS);
+        } catch (InterruptedException ex) {
+          Thread.currentThread().interrupt();
+        }
+      }
+    });
+    other.start();
+    assertTrue(busy.started.await(TIMEOUT_IN_MILLISECONDS, TimeUnit.MILLISECONDS));
+    Set<String> threadNames = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+    List<Callable<String>> tasks = new ArrayList<>();
+    for (int i = 0; i < 3; i++) {
+      tasks.add(new ThreadNameTask(threadNames));
+    }
+
+    // When
+    List<Future<String>> futures = fanOut.invokeAll(tasks, DEADLINE_IN_MILLISECONDS);
+
+    // Then
+    for (Future<String> future : futures) {
+      assertFalse(future.isCancelled());
+    }
+    assertEquals(1, threadNames.size());
+    release.countDown();
+    other.join(TIMEOUT_IN_MILLISECONDS);
+  }
+
+  @Test(timeout = TIMEOUT_IN_MILLISECONDS)
+  public void invokeAll_whenInterrupted_thenTasksAreCancelledTogether() throws Exception {
+
+    // Given
+    FanOut fanOut = new FanOut(2, "test");
+    CountDownLatch release = new CountDownLatch(1);
+    List<Callable<String>> tasks = Arrays.<Callable<String>>asList(new BlockingTask(release),
+        new BlockingTask(release));
+    Thread.currentThread().interrupt();
+
+    // When
+    try {
+      fanOut.invokeAll(tasks, TIMEOUT_IN_MILLISECONDS);
+    } catch (InterruptedException ex) {
+      // Expected.
+    }
+
+    // Then (the blocking tasks no longer occupy the threads)
+    List<Future<String>> futures = fanOut.invokeAll(Arrays.<Callable<String>>asList(
+        new ValueTask("new"), new ValueTask("recommended")), DEADLINE_IN_MILLISECONDS);
+    assertEquals("new", futures.get(0).get());
+    assertEquals("recommended", futures.get(1).get());
+  }
+
+  @Test
+  public void invokeAll_whenZeroDeadline_thenIllegalArgumentExceptionIsThrown() throws Exception {
+
+    // Given
+    List<Callable<String>> tasks =
+        Collections.<Callable<String>>singletonList(new ValueTask("new"));
+
+    // When/then
+    thrown.expect(IllegalArgumentException.class);
+    new FanOut(1, "test").invokeAll(tasks, 0L);
+  }
+
+  @Test
+  public void constructor_whenZeroThreads_thenIllegalArgumentExceptionIsThrown() {
+
+    // When/then
+    thrown.expect(IllegalArgumentException.class);
+    new FanOut(0, "test");
+  }
+
+  private static final class ValueTask implements Callable<String> {
+
+    private final String value;
+
+    ValueTask(String value) {
+      this.value = value;
+    }
+
+    @Override
+    public String call() {
+      return value;
+    }
+  }
+
+  private static final class SleepingTask implements Callable<String> {
+
+    private final String value;
+
+    private final long sleepInMilliseconds;
+
+    SleepingTask(String value, long sleepInMilliseconds) {
+      this.value = value;
+      this.sleepInMilliseconds = sleepInMilliseconds;
+    }
+
+    @Override
+    public String call() throws InterruptedException {
+      Thread.sleep(sleepInMilliseconds);
+      return value;
+    }
+  }
+
+  private static final class ThreadNameTask implements Callable<String> {
+
+    private final Set<String> threadNames;
+
+    ThreadNameTask(Set<String> threadNames) {
+      this.threadNames = threadNames;
+    }
+
+    @Override
+    public String call() {
+      String name = Thread.currentThread().getName();
+      threadNames.add(name);
+      return name;
+    }
+  }
+
+  private static final class BlockingTask implements Callable<String> {
+
+    final CountDownLatch started = new CountDownLatch(1);
+
+    final CountDownLatch interrupted = new CountDownLatch(1);
+
+    private final CountDownLatch release;
+
+    BlockingTask(CountDownLatch release) {
+      this.release = release;
+    }
+
+    @Override
+    public String call() throws InterruptedException {
+      started.countDown();
+      try {
+        release.await();
+      } catch (InterruptedException ex) {
+        interrupted.countDown();
+        throw ex;
+      }
+      return "slow";
+    }
+  }
+}
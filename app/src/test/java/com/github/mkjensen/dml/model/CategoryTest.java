@@ -17,6 +17,7 @@
 package com.github.mkjensen.dml.model;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
 
 import org.junit.Before;
 import org.junit.Rule;
@@ -48,6 +49,7 @@ public class CategoryTest {
     // When/then
     assertEquals(Category.NOT_SET, category.getTitle());
     assertEquals(Collections.emptyList(), category.getVideos());
+    assertEquals(Category.UNKNOWN_TOTAL_SIZE, category.getTotalSize());
   }
 
   @Test
@@ -99,4 +101,15 @@ public class CategoryTest {
     // Then
     assertEquals(videos, category.getVideos());
   }
+
+  @Test
+  public void equals_whenTotalSizesDiffer_thenReturnsFalse() {
+
+    // Given
+    Category other = new Category();
+    other.setTotalSize(42);
+
+    // When/then
+    assertNotEquals(category, other);
+  }
 }
@@ -0,0 +1,112 @@
+/*
+ * Copyright 2016 Martin Kamp Jensen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.mkjensen.dml.model;
+
+import static com.github.mkjensen.dml.test.TestUtils.loadFixture;
+
+import com.squareup.moshi.JsonAdapter;
+import com.squareup.moshi.Moshi;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+/**
+ * Benchmark comparing {@link ModelJsonAdapters} with Moshi's reflective adapters on the JSON
+ * fixtures. Parse time and allocated bytes per payload are printed rather than asserted as they
+ * depend on the machine running the benchmark, which is why it is not part of the unit tests. Run
+ * it with {@code ./gradlew :app:benchmarkJsonAdapters}.
+ */
+public final class ModelJsonAdaptersBenchmark {
+
+  private static final int WARMUP_ITERATIONS = 2000;
+
+  private static final int ITERATIONS = 5000;
+
+  private final Moshi reflectiveMoshi = new Moshi.Builder().build();
+
+  private final Moshi moshi = new Moshi.Builder().add(ModelJsonAdapters.FACTORY).build();
+
+  private ModelJsonAdaptersBenchmark() {
+  }
+
+  public static void main(String[] args) throws IOException {
+    ModelJsonAdaptersBenchmark benchmark = new ModelJsonAdaptersBenchmark();
+    benchmark.benchmark("category", Category.class);
+    benchmark.benchmark("video", Video.class);
+    benchmark.benchmark("video_manifest", VideoManifest.class);
+  }
+
+  private <T> void benchmark(String fixture, Class<T> type) throws IOException {
+    String json = loadFixture(fixture);
+    JsonAdapter<T> reflective = reflectiveMoshi.adapter(type);
+    JsonAdapter<T> handWritten = moshi.adapter(type);
+    if (!reflective.fromJson(json).equals(handWritten.fromJson(json))) {
+      throw new IllegalStateException(String.format("Adapters disagree on [%s]", fixture));
+    }
+    Result reflectiveResult = measure(reflective, json);
+    Result handWrittenResult = measure(handWritten, json);
+    System.out.println(String.format("%s (%d bytes): reflective %s, hand-written %s", fixture,
+        json.length(), reflectiveResult, handWrittenResult));
+  }
+
+  private static <T> Result measure(JsonAdapter<T> adapter, String json) throws IOException {
+    for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+      adapter.fromJson(json);
+    }
+    long allocatedBefore = getAllocatedBytes();
+    long start = System.nanoTime();
+    for (int i = 0; i < ITERATIONS; i++) {
+      adapter.fromJson(json);
+    }
+    long nanos = System.nanoTime() - start;
+    long allocated = getAllocatedBytes() - allocatedBefore;
+    return new Result(nanos / ITERATIONS, allocatedBefore < 0 ? -1 : allocated / ITERATIONS);
+  }
+
+  /**
+   * Returns the number of bytes allocated by the current thread, or -1 if the JVM does not support
+   * measuring it.
+   */
+  private static long getAllocatedBytes() {
+    ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+    if (bean instanceof com.sun.management.ThreadMXBean) {
+      com.sun.management.ThreadMXBean sunBean = (com.sun.management.ThreadMXBean) bean;
+      if (sunBean.isThreadAllocatedMemorySupported() && sunBean.isThreadAllocatedMemoryEnabled()) {
+        return sunBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+      }
+    }
+    return -1;
+  }
+
+  private static final class Result {
+
+    private final long nanosPerParse;
+
+    private final long bytesPerParse;
+
+    private Result(long nanosPerParse, long bytesPerParse) {
+      this.nanosPerParse = nanosPerParse;
+      this.bytesPerParse = bytesPerParse;
+    }
+
+    @Override
+    public String toString() {
+      return String.format("[%d ns, %d bytes allocated]", nanosPerParse, bytesPerParse);
+    }
+  }
+}
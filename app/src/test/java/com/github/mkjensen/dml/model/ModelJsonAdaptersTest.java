@@ -0,0 +1,279 @@
+/*
+ * Copyright 2016 Martin Kamp Jensen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.mkjensen.dml.model;
+
+import static com.github.mkjensen.dml.test.TestUtils.loadFixture;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import com.squareup.moshi.Json;
+import com.squareup.moshi.Moshi;
+import com.squareup.moshi.Types;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Type;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+
+/**
+ * Unit tests for {@link ModelJsonAdapters}.
+ */
+public class ModelJsonAdaptersTest {
+
+  private Moshi moshi;
+
+  @Before
+  public void before() {
+    moshi = new Moshi.Builder().add(ModelJsonAdapters.FACTORY).build();
+  }
+
+  @Test
+  public void get_whenModelType_thenReturnsSameAdapterAsFactory() {
+
+    // When/then
+    assertSame(ModelJsonAdapters.get(Video.class), ModelJsonAdapters.FACTORY.create(Video.class,
+        Collections.<Annotation>emptySet(), moshi));
+    assertNull(ModelJsonAdapters.get(String.class));
+  }
+
+  @Test
+  public void fromJson_whenCategoryFixture_thenReturnsCategory() throws IOException {
+
+    // Given
+    String json = loadFixture("category");
+
+    // When
+    Category category = moshi.adapter(Category.class).fromJson(json);
+
+    // Then
+    assertEquals(42, category.getTotalSize());
+    List<Video> videos = category.getVideos();
+    assertEquals(1, videos.size());
+    Video video = videos.get(0);
+    assertEquals("id", video.getId());
+    assertEquals("Title", video.getTitle());
+    assertEquals(Video.NOT_SET, video.getDescription());
+    assertEquals("http://image.com", video.getImageUrl());
+    assertEquals("http://manifest.com", video.getManifestUrl());
+  }
+
+  @Test
+  public void fromJson_whenVideoFixture_thenReturnsVideo() throws IOException {
+
+    // Given
+    String json = loadFixture("video");
+
+    // When
+    Video video = moshi.adapter(Video.class).fromJson(json);
+
+    // Then
+    assertEquals("id", video.getId());
+    assertEquals("Title", video.getTitle());
+    assertEquals("Description", video.getDescription());
+    assertEquals("http://image.com", video.getImageUrl());
+    assertEquals("http://manifest.com", video.getManifestUrl());
+  }
+
+  @Test
+  public void fromJson_whenVideoManifestFixture_thenReturnsVideoManifest() throws IOException {
+
+    // Given
+    String json = loadFixture("video_manifest");
+
+    // When
+    VideoManifest manifest = moshi.adapter(VideoManifest.class).fromJson(json);
+
+    // Then
+    List<VideoManifest.Stream> streams = manifest.getStreams();
+    assertEquals(4, streams.size());
+    assertEquals(Protocol.DOWNLOAD, streams.get(0).getProtocol());
+    assertEquals("http://download.com/mp4/2048", streams.get(0).getUrl());
+    assertEquals(Protocol.HDS, streams.get(2).getProtocol());
+    assertEquals("http://hls.com/mp4", manifest.getUrl(Protocol.HLS));
+  }
+
+  @Test
+  public void fromJson_whenUnknownProtocol_thenReturnsUnknown() throws IOException {
+
+    // Given
+    String json = "{\"Links\":[{\"Target\":\"Smooth\",\"Uri\":\"http://smooth.com\"}]}";
+
+    // When
+    VideoManifest manifest = moshi.adapter(VideoManifest.class).fromJson(json);
+
+    // Then
+    assertEquals(Protocol.UNKNOWN, manifest.getStreams().get(0).getProtocol());
+  }
+
+  @Test
+  public void fromJson_whenNullValues_thenKeepsDefaults() throws IOException {
+
+    // Given
+    String json = "{\"Slug\":\"id\",\"Title\":null,\"PrimaryAsset\":null}";
+
+    // When
+    Video video = moshi.adapter(Video.class).fromJson(json);
+
+    // Then
+    assertEquals("id", video.getId());
+    assertEquals(Video.NOT_SET, video.getTitle());
+    assertEquals(Video.NOT_SET, video.getManifestUrl());
+  }
+
+  @Test
+  public void fromJson_whenChannels_thenReturnsNestedStreams() throws IOException {
+
+    // Given
+    String json = "[{\"Slug\":\"dr1\",\"Title\":\"DR1\",\"WebChannel\":false,"
+        + "\"StreamingServers\":[{\"LinkType\":\"HLS\",\"Server\":\"http://server.com\","
+        + "\"Qualities\":[{\"Kbps\":1000,\"Streams\":[{\"Stream\":\"path\"}]}]}]}]";
+
+    Type type = Types.newParameterizedType(List.class, Channel.class);
+
+    // When
+    List<Channel> channels = moshi.<List<Channel>>adapter(type).fromJson(json);
+
+    // Then
+    Channel channel = channels.get(0);
+    assertEquals("dr1", channel.getId());
+    assertEquals(Channel.NOT_SET, channel.getImageUrl());
+    Channel.Server server = channel.getServers().get(0);
+    assertEquals(Protocol.HLS, server.getProtocol());
+    assertEquals("http://server.com", server.getUrl());
+    Channel.Server.Quality quality = server.getQualities().get(0);
+    assertEquals(1000, quality.getKilobitRate());
+    assertEquals("path", quality.getStreams().get(0).getPath());
+  }
+
+  @Test
+  public void channels_whenFilterRejectsWebChannels_thenSkipsWebChannels() throws IOException {
+
+    // Given
+    String json = "[{\"Slug\":\"web\",\"WebChannel\":true,\"StreamingServers\":[]},"
+        + "{\"Slug\":\"dr1\",\"StreamingServers\":[]}]";
+    ChannelFilter filter = new ChannelFilter(false, EnumSet.allOf(Protocol.class));
+
+    // When
+    List<Channel> channels = ModelJsonAdapters.channels(filter).fromJson(json);
+
+    // Then
+    assertEquals(1, channels.size());
+    assertEquals("dr1", channels.get(0).getId());
+  }
+
+  @Test
+  public void channels_whenFilterRejectsProtocols_thenSkipsServers() throws IOException {
+
+    // Given
+    String json = "[{\"Slug\":\"dr1\",\"StreamingServers\":["
+        + "{\"LinkType\":\"HDS\",\"Server\":\"hds\",\"Qualities\":[]},"
+        + "{\"Server\":\"hls\",\"LinkType\":\"HLS\",\"Qualities\":[]},"
+        + "{\"LinkType\":\"_Streaming\",\"Server\":\"rtmp\",\"Qualities\":[]}]}]";
+    ChannelFilter filter = new ChannelFilter(true, EnumSet.of(Protocol.HLS));
+
+    // When
+    List<Channel> channels = ModelJsonAdapters.channels(filter).fromJson(json);
+
+    // Then
+    List<Channel.Server> servers = channels.get(0).getServers();
+    assertEquals(1, servers.size());
+    assertEquals("hls", servers.get(0).getUrl());
+  }
+
+  @Test
+  public void channels_whenAllFilter_thenKeepsEverything() throws IOException {
+
+    // Given
+    String json = "[{\"Slug\":\"web\",\"WebChannel\":true,\"StreamingServers\":["
+        + "{\"LinkType\":\"HDS\",\"Server\":\"hds\",\"Qualities\":[]}]}]";
+
+    // When
+    List<Channel> channels = ModelJsonAdapters.channels(ChannelFilter.ALL).fromJson(json);
+
+    // Then
+    assertEquals(1, channels.size());
+    assertTrue(channels.get(0).isWebChannel());
+    assertEquals(Protocol.HDS, channels.get(0).getServers().get(0).getProtocol());
+  }
+
+  @Test
+  public void toJson_whenCategoryWithTotalSize_thenFromJsonReturnsSameTotalSize()
+      throws IOException {
+
+    // Given
+    Category category = new Category();
+    category.setTotalSize(100);
+
+    // When
+    String json = moshi.adapter(Category.class).toJson(category);
+
+    // Then
+    assertEquals(100, moshi.adapter(Category.class).fromJson(json).getTotalSize());
+  }
+
+  @Test
+  public void toJson_whenVideo_thenFromJsonReturnsEqualVideo() throws IOException {
+
+    // Given
+    Video video = new Video();
+    video.setId("id");
+    video.setTitle("title");
+    video.setManifestUrl("url");
+
+    // When
+    String json = moshi.adapter(Video.class).toJson(video);
+
+    // Then
+    assertEquals(video, moshi.adapter(Video.class).fromJson(json));
+  }
+
+  @Test
+  public void fromJson_whenFixtures_thenReturnsSameAsReflectiveAdapters() throws IOException {
+
+    // Given
+    Moshi reflectiveMoshi = new Moshi.Builder().build();
+    String category = loadFixture("category");
+    String video = loadFixture("video");
+    String videoManifest = loadFixture("video_manifest");
+
+    // When/then
+    assertEquals(reflectiveMoshi.adapter(Category.class).fromJson(category),
+        moshi.adapter(Category.class).fromJson(category));
+    assertEquals(reflectiveMoshi.adapter(Video.class).fromJson(video),
+        moshi.adapter(Video.class).fromJson(video));
+    assertEquals(reflectiveMoshi.adapter(VideoManifest.class).fromJson(videoManifest),
+        moshi.adapter(VideoManifest.class).fromJson(videoManifest));
+  }
+
+  @Test
+  public void protocolAdapter_whenEveryConstant_thenUsesJsonAnnotationName() throws Exception {
+
+    // When/then
+    for (Protocol protocol : Protocol.values()) {
+      Json json = Protocol.class.getField(protocol.name()).getAnnotation(Json.class);
+      String name = json != null ? json.name() : protocol.name();
+      assertEquals("\"" + name + "\"", moshi.adapter(Protocol.class).toJson(protocol));
+      assertEquals(protocol, moshi.adapter(Protocol.class).fromJson("\"" + name + "\""));
+    }
+  }
+}
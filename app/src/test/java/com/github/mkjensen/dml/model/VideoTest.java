@@ -17,6 +17,7 @@
 package com.github.mkjensen.dml.model;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
 
 import org.junit.Before;
 import org.junit.Rule;
@@ -52,6 +53,133 @@ public class VideoTest {
     assertEquals(String.format("Video {id=%s}", id), videoToString);
   }
 
+  @Test
+  public void equals_whenSameContent_thenReturnsTrue() {
+
+    // Given
+    video.setId("id");
+    video.setTitle("title");
+    Video other = new Video();
+    other.setId("id");
+    other.setTitle("title");
+
+    // When/then
+    assertEquals(video, other);
+    assertEquals(video.hashCode(), other.hashCode());
+  }
+
+  @Test
+  public void equals_whenDifferentManifestUrl_thenReturnsFalse() {
+
+    // Given
+    video.setId("id");
+    Video other = new Video();
+    other.setId("id");
+    other.setManifestUrl("url");
+
+    // When/then
+    assertNotEquals(video, other);
+  }
+
+  @Test
+  public void equals_whenNeitherDecoded_thenComparesWithoutDecoding() {
+
+    // Given
+    video.setLazyFields("description", "url");
+    Video other = new Video();
+    other.setLazyFields("description", "url");
+
+    // When/then
+    assertEquals(video, other);
+    assertEquals(video.hashCode(), other.hashCode());
+    assertEquals(18, video.getLazyFieldsSize());
+    assertEquals(18, other.getLazyFieldsSize());
+  }
+
+  @Test
+  public void equals_whenNeitherDecodedAndDifferentManifestUrl_thenReturnsFalse() {
+
+    // Given
+    video.setLazyFields("description", "url");
+    Video other = new Video();
+    other.setLazyFields("description", "other");
+
+    // When/then
+    assertNotEquals(video, other);
+  }
+
+  @Test
+  public void equals_whenOnlyOneDecoded_thenReturnsTrueWithSameHashCode() {
+
+    // Given
+    video.setLazyFields("description", "url");
+    Video other = new Video();
+    other.setDescription("description");
+    other.setManifestUrl("url");
+
+    // When/then
+    assertEquals(other.hashCode(), video.hashCode());
+    assertEquals(18, video.getLazyFieldsSize());
+    assertEquals(video, other);
+  }
+
+  @Test
+  public void setLazyFields_whenGettersCalled_thenTheyReturnDecodedFields() {
+
+    // Given
+    video.setLazyFields("Beskrivelse p\u00e5 dansk", "url");
+
+    // When/then
+    assertEquals(28, video.getLazyFieldsSize());
+    assertEquals("Beskrivelse p\u00e5 dansk", video.getDescription());
+    assertEquals("url", video.getManifestUrl());
+    assertEquals(0, video.getLazyFieldsSize());
+  }
+
+  @Test
+  public void setLazyFields_whenSetterCalled_thenSetterWins() {
+
+    // Given
+    video.setLazyFields("description", "url");
+
+    // When
+    video.setManifestUrl("other");
+
+    // Then
+    assertEquals("description", video.getDescription());
+    assertEquals("other", video.getManifestUrl());
+  }
+
+  @Test
+  public void getLazyFields_whenNotDecoded_thenReturnsSliceWithoutDecoding() {
+
+    // Given
+    video.setLazyFields("description", "url");
+
+    // When
+    byte[] fields = video.getLazyFields();
+
+    // Then
+    assertEquals(18, fields.length);
+    assertEquals(18, video.getLazyFieldsSize());
+  }
+
+  @Test
+  public void getLazyFields_whenDecoded_thenReturnsSliceOfCurrentFields() {
+
+    // Given
+    video.setDescription("description");
+    video.setManifestUrl("url");
+    Video other = new Video();
+
+    // When
+    other.setLazyFields(video.getLazyFields());
+
+    // Then
+    assertEquals("description", other.getDescription());
+    assertEquals("url", other.getManifestUrl());
+  }
+
   @Test
   public void givenEmptyVideo_whenGettersCalled_thenTheyReturnNotSet() {
 
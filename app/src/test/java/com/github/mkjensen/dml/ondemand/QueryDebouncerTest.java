@@ -0,0 +1,137 @@
+/*
+ * Copyright 2016 Martin Kamp Jensen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.mkjensen.dml.ondemand;
+
+import static org.junit.Assert.assertEquals;
+
+import com.github.mkjensen.dml.util.Clock;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Unit tests for {@link QueryDebouncer}.
+ */
+public class QueryDebouncerTest {
+
+  private TestClock clock;
+
+  private QueryDebouncer debouncer;
+
+  @Before
+  public void before() {
+    clock = new TestClock();
+    debouncer = new QueryDebouncer(clock);
+  }
+
+  @Test
+  public void getDelayInMilliseconds_whenNoKeyIntervalMeasured_thenReturnsDefault() {
+
+    // Given
+    debouncer.onQueryChanged();
+
+    // When
+    long delay = debouncer.getDelayInMilliseconds(1000L);
+
+    // Then
+    assertEquals(QueryDebouncer.DEFAULT_DELAY_IN_MILLISECONDS, delay);
+  }
+
+  @Test
+  public void getDelayInMilliseconds_whenTypingFastAndBackendFast_thenReturnsShortDelay() {
+
+    // Given
+    typeKeys(5, 100L);
+
+    // When
+    long delay = debouncer.getDelayInMilliseconds(40L);
+
+    // Then
+    assertEquals(170L, delay);
+  }
+
+  @Test
+  public void getDelayInMilliseconds_whenBackendSlow_thenReturnsLongerDelay() {
+
+    // Given
+    typeKeys(5, 100L);
+
+    // When
+    long delay = debouncer.getDelayInMilliseconds(500L);
+
+    // Then
+    assertEquals(400L, delay);
+  }
+
+  @Test
+  public void getDelayInMilliseconds_whenVerySlow_thenReturnsMaxDelay() {
+
+    // Given
+    typeKeys(5, 400L);
+
+    // When
+    long delay = debouncer.getDelayInMilliseconds(2000L);
+
+    // Then
+    assertEquals(QueryDebouncer.MAX_DELAY_IN_MILLISECONDS, delay);
+  }
+
+  @Test
+  public void getDelayInMilliseconds_whenTypingVeryFast_thenReturnsMinDelay() {
+
+    // Given
+    typeKeys(5, 20L);
+
+    // When
+    long delay = debouncer.getDelayInMilliseconds(0L);
+
+    // Then
+    assertEquals(QueryDebouncer.MIN_DELAY_IN_MILLISECONDS, delay);
+  }
+
+  @Test
+  public void onQueryChanged_whenLongPause_thenIgnoresPause() {
+
+    // Given
+    typeKeys(5, 100L);
+    clock.now += 5000L;
+    debouncer.onQueryChanged();
+
+    // When
+    long delay = debouncer.getDelayInMilliseconds(0L);
+
+    // Then
+    assertEquals(150L, delay);
+  }
+
+  private void typeKeys(int count, long intervalInMilliseconds) {
+    for (int i = 0; i < count; i++) {
+      clock.now += intervalInMilliseconds;
+      debouncer.onQueryChanged();
+    }
+  }
+
+  private static final class TestClock implements Clock {
+
+    long now;
+
+    @Override
+    public long elapsedMillis() {
+      return now;
+    }
+  }
+}
@@ -16,8 +16,12 @@
 
 package com.github.mkjensen.dml.test;
 
+import java.io.File;
+import java.io.IOException;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.Modifier;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 
 /**
  * Various utilities for testing.
@@ -45,6 +49,15 @@ public final class TestUtils {
     return Modifier.isPrivate(constructor.getModifiers());
   }
 
+  /**
+   * Loads a JSON fixture shared with the instrumentation tests, for example {@code "category"} for
+   * {@code src/androidTest/res/raw/category.json}.
+   */
+  public static String loadFixture(String name) throws IOException {
+    File file = new File("src/androidTest/res/raw", name + ".json");
+    return new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+  }
+
   private static void satisfyCodeCoverage(Constructor<?> constructor) {
     constructor.setAccessible(true);
     try {
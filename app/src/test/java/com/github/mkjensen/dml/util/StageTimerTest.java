@@ -0,0 +1,103 @@
+/*
+ * Copyright 2016 Martin Kamp Jensen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.mkjensen.dml.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+/**
+ * Unit tests for {@link StageTimer}.
+ */
+public class StageTimerTest {
+
+  @Rule
+  public final ExpectedException thrown = ExpectedException.none();
+
+  private TestClock clock;
+
+  private StageTimer timer;
+
+  @Before
+  public void before() {
+    clock = new TestClock();
+    clock.now = 1000L;
+    timer = new StageTimer("test", clock);
+  }
+
+  @Test
+  public void getElapsedMillis_whenStageNotReached_thenReturnsNotReached() {
+
+    // When/then
+    assertEquals(StageTimer.NOT_REACHED, timer.getElapsedMillis("stage"));
+  }
+
+  @Test
+  public void mark_whenCalledTwice_thenKeepsFirstTime() {
+
+    // Given
+    clock.now += 10L;
+    assertTrue(timer.mark("stage"));
+    clock.now += 10L;
+
+    // When
+    boolean marked = timer.mark("stage");
+
+    // Then
+    assertFalse(marked);
+    assertEquals(10L, timer.getElapsedMillis("stage"));
+  }
+
+  @Test
+  public void mark_whenNullStage_thenThrowsIllegalArgumentException() {
+
+    // When/then
+    thrown.expect(IllegalArgumentException.class);
+    //noinspection ConstantConditions
+    timer.mark(null);
+  }
+
+  @Test
+  public void toString_whenStagesReached_thenListsThemInOrder() {
+
+    // Given
+    clock.now += 5L;
+    timer.mark("b");
+    clock.now += 7L;
+    timer.mark("a");
+
+    // When
+    String string = timer.toString();
+
+    // Then
+    assertEquals("test {b=5 ms, a=12 ms}", string);
+  }
+
+  private static final class TestClock implements Clock {
+
+    long now;
+
+    @Override
+    public long elapsedMillis() {
+      return now;
+    }
+  }
+}